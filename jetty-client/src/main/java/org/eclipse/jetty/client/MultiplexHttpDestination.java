@@ -18,15 +18,26 @@
 
 package org.eclipse.jetty.client;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jetty.client.api.Connection;
 import org.eclipse.jetty.client.api.Request;
 import org.eclipse.jetty.util.Promise;
+import org.eclipse.jetty.util.thread.Scheduler;
 
 public abstract class MultiplexHttpDestination<C extends Connection> extends HttpDestination implements Promise<Connection>
 {
     private final AtomicReference<ConnectState> connect = new AtomicReference<>(ConnectState.DISCONNECTED);
+    private final AtomicInteger requestsPerConnection = new AtomicInteger();
+    private final ConcurrentMap<HttpExchange, Scheduler.Task> queueTimeouts = new ConcurrentHashMap<>();
+    private volatile int maxRequestsPerConnection = Integer.MAX_VALUE;
+    private volatile long requestQueueTimeout;
     private C connection;
 
     protected MultiplexHttpDestination(HttpClient client, Origin origin)
@@ -34,6 +45,80 @@ public abstract class MultiplexHttpDestination<C extends Connection> extends Htt
         super(client, origin);
     }
 
+    public int getMaxRequestsPerConnection()
+    {
+        return maxRequestsPerConnection;
+    }
+
+    /**
+     * <p>Sets the max number of requests that may be in flight on the multiplexed connection.</p>
+     * <p>Requests in excess remain queued in this destination, subject to
+     * {@link HttpClient#getMaxRequestsQueuedPerDestination()} and to the request timeouts,
+     * until a request completes.</p>
+     *
+     * @param maxRequestsPerConnection the max number of concurrent requests on the connection
+     */
+    public void setMaxRequestsPerConnection(int maxRequestsPerConnection)
+    {
+        int previous = this.maxRequestsPerConnection;
+        this.maxRequestsPerConnection = maxRequestsPerConnection;
+        // More requests may be sent now
+        if (maxRequestsPerConnection > previous && connect.get() == ConnectState.CONNECTED)
+            send();
+    }
+
+    /**
+     * @return the max number of requests that may be in flight on the given connection
+     * @param connection the multiplexed connection
+     */
+    protected int getMaxRequestsPerConnection(C connection)
+    {
+        return maxRequestsPerConnection;
+    }
+
+    /**
+     * @return the max time in milliseconds a request may wait in this destination to be sent, or 0 for no limit
+     */
+    public long getRequestQueueTimeout()
+    {
+        return requestQueueTimeout;
+    }
+
+    /**
+     * <p>Sets the max time a request may wait in this destination, for instance because
+     * the max number of requests per connection is reached, before it is failed with a
+     * {@link TimeoutException}.</p>
+     *
+     * @param requestQueueTimeout the max queue time in milliseconds, or 0 for no limit
+     */
+    public void setRequestQueueTimeout(long requestQueueTimeout)
+    {
+        this.requestQueueTimeout = requestQueueTimeout;
+    }
+
+    @Override
+    protected boolean enqueue(Queue<HttpExchange> queue, final HttpExchange exchange)
+    {
+        if (!super.enqueue(queue, exchange))
+            return false;
+        final long timeout = requestQueueTimeout;
+        if (timeout > 0)
+        {
+            Scheduler.Task task = getHttpClient().getScheduler().schedule(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    queueTimeouts.remove(exchange);
+                    if (getHttpExchanges().remove(exchange))
+                        exchange.getRequest().abort(new TimeoutException("Queued for more than " + timeout + " ms in " + MultiplexHttpDestination.this));
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+            queueTimeouts.put(exchange, task);
+        }
+        return true;
+    }
+
     @Override
     protected void send()
     {
@@ -74,6 +159,7 @@ public abstract class MultiplexHttpDestination<C extends Connection> extends Htt
     public void succeeded(Connection result)
     {
         C connection = this.connection = (C)result;
+        requestsPerConnection.set(0);
         if (connect.compareAndSet(ConnectState.CONNECTING, ConnectState.CONNECTED))
         {
             process(connection, true);
@@ -93,12 +179,28 @@ public abstract class MultiplexHttpDestination<C extends Connection> extends Htt
 
     protected boolean process(final C connection, boolean dispatch)
     {
+        int maxRequests = getMaxRequestsPerConnection(connection);
+        if (!acquireRequest(maxRequests))
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Max requests per connection {} reached on {}", maxRequests, connection);
+            return false;
+        }
+
         HttpClient client = getHttpClient();
         final HttpExchange exchange = getHttpExchanges().poll();
         if (LOG.isDebugEnabled())
             LOG.debug("Processing {} on {}", exchange, connection);
         if (exchange == null)
-            return false;
+        {
+            requestsPerConnection.decrementAndGet();
+            // An exchange may have been queued while we were holding the request slot
+            return !getHttpExchanges().isEmpty();
+        }
+
+        Scheduler.Task timeout = queueTimeouts.remove(exchange);
+        if (timeout != null)
+            timeout.cancel();
 
         final Request request = exchange.getRequest();
         Throwable cause = request.getAbortCause();
@@ -110,6 +212,7 @@ public abstract class MultiplexHttpDestination<C extends Connection> extends Htt
             // is created. Aborting the exchange a second time will result in
             // a no-operation, so we just abort here to cover that edge case.
             exchange.abort(cause);
+            requestsPerConnection.decrementAndGet();
         }
         else
         {
@@ -132,9 +235,45 @@ public abstract class MultiplexHttpDestination<C extends Connection> extends Htt
         return true;
     }
 
+    /**
+     * @return the number of requests in flight on the current connection
+     */
+    public int getRequestsPerConnection()
+    {
+        return requestsPerConnection.get();
+    }
+
+    private boolean acquireRequest(int maxRequests)
+    {
+        while (true)
+        {
+            int current = requestsPerConnection.get();
+            if (current >= maxRequests)
+                return false;
+            if (requestsPerConnection.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    @Override
+    public void release(Connection connection)
+    {
+        super.release(connection);
+        // Only account for the current connection, not for late releases of a closed one
+        if (connection == this.connection)
+        {
+            requestsPerConnection.decrementAndGet();
+            if (connect.get() == ConnectState.CONNECTED)
+                send();
+        }
+    }
+
     @Override
     public void close()
     {
+        for (Scheduler.Task task : queueTimeouts.values())
+            task.cancel();
+        queueTimeouts.clear();
         super.close();
         C connection = this.connection;
         if (connection != null)
@@ -150,8 +289,17 @@ public abstract class MultiplexHttpDestination<C extends Connection> extends Htt
             ConnectState current = connect.get();
             if (connect.compareAndSet(current, ConnectState.DISCONNECTED))
             {
-                if (getHttpClient().isRemoveIdleDestinations())
-                    getHttpClient().removeDestination(this);
+                if (getHttpExchanges().isEmpty())
+                {
+                    if (getHttpClient().isRemoveIdleDestinations())
+                        getHttpClient().removeDestination(this);
+                }
+                else if (getHttpClient().isRunning())
+                {
+                    // Requests may have queued up waiting for a slot on
+                    // the connection that failed, send them on a new one.
+                    send();
+                }
                 break;
             }
         }
@@ -62,7 +62,8 @@ public class FCGI
         STDERR(7),
         DATA(8),
         GET_VALUES(9),
-        GET_VALUES_RESULT(10);
+        GET_VALUES_RESULT(10),
+        UNKNOWN_TYPE(11);
 
         public static FrameType from(int code)
         {
@@ -88,6 +89,8 @@ public class FCGI
                     return GET_VALUES;
                 case 10:
                     return GET_VALUES_RESULT;
+                case 11:
+                    return UNKNOWN_TYPE;
                 default:
                     throw new IllegalArgumentException();
             }
@@ -106,6 +109,20 @@ public class FCGI
         STD_IN, STD_OUT, STD_ERR
     }
 
+    /**
+     * The variable names that may be queried with a {@link FrameType#GET_VALUES} frame.
+     */
+    public static class Values
+    {
+        public static final String MAX_CONNS = "FCGI_MAX_CONNS";
+        public static final String MAX_REQS = "FCGI_MAX_REQS";
+        public static final String MPXS_CONNS = "FCGI_MPXS_CONNS";
+
+        private Values()
+        {
+        }
+    }
+
     public static class Headers
     {
         public static final String AUTH_TYPE = "AUTH_TYPE";
@@ -24,17 +24,21 @@ import java.nio.channels.AsynchronousCloseException;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.HttpConnection;
 import org.eclipse.jetty.client.HttpDestination;
 import org.eclipse.jetty.client.HttpExchange;
+import org.eclipse.jetty.client.MultiplexHttpDestination;
 import org.eclipse.jetty.client.api.Connection;
 import org.eclipse.jetty.client.api.Request;
 import org.eclipse.jetty.client.api.Response;
 import org.eclipse.jetty.fcgi.FCGI;
+import org.eclipse.jetty.fcgi.generator.ClientGenerator;
 import org.eclipse.jetty.fcgi.generator.Flusher;
 import org.eclipse.jetty.fcgi.parser.ClientParser;
 import org.eclipse.jetty.http.HttpField;
@@ -45,10 +49,12 @@ import org.eclipse.jetty.io.AbstractConnection;
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.CompletableCallback;
 import org.eclipse.jetty.util.Promise;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.Scheduler;
 
 public class HttpConnectionOverFCGI extends AbstractConnection implements Connection
 {
@@ -63,6 +69,8 @@ public class HttpConnectionOverFCGI extends AbstractConnection implements Connec
     private final boolean multiplexed;
     private final Delegate delegate;
     private final ClientParser parser;
+    private volatile int maxRequests = Integer.MAX_VALUE;
+    private final AtomicReference<Scheduler.Task> valuesTimeout = new AtomicReference<>();
     private ByteBuffer buffer;
 
     /**
@@ -103,14 +111,104 @@ public class HttpConnectionOverFCGI extends AbstractConnection implements Connec
         delegate.send(exchange);
     }
 
+    /**
+     * @return the max number of concurrent requests the FastCGI server accepts on this connection
+     */
+    public int getMaxRequests()
+    {
+        return maxRequests;
+    }
+
     @Override
     public void onOpen()
     {
         super.onOpen();
         fillInterested();
+        if (multiplexed)
+            queryValues();
         promise.succeeded(this);
     }
 
+    /**
+     * <p>Asks the FastCGI server whether it multiplexes connections and how many
+     * concurrent requests it accepts; until it replies, only one request at a time
+     * is sent on this connection.</p>
+     * <p>FastCGI servers that do not reply within the connect timeout, or that do
+     * not understand the query, are assumed to multiplex as configured.</p>
+     */
+    private void queryValues()
+    {
+        if (destination instanceof MultiplexHttpDestination)
+        {
+            maxRequests = 1;
+            HttpClient client = destination.getHttpClient();
+            valuesTimeout.set(client.getScheduler().schedule(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("No values received on {}", HttpConnectionOverFCGI.this);
+                    updateMaxRequests(Integer.MAX_VALUE);
+                }
+            }, client.getConnectTimeout(), TimeUnit.MILLISECONDS));
+            ClientGenerator generator = new ClientGenerator(client.getByteBufferPool());
+            flusher.flush(generator.generateGetValues(Callback.Adapter.INSTANCE, FCGI.Values.MPXS_CONNS, FCGI.Values.MAX_REQS));
+        }
+    }
+
+    private void onUnknownType(int type)
+    {
+        if (LOG.isDebugEnabled())
+            LOG.debug("Received unknown type {} on {}", type, this);
+        if (type == FCGI.FrameType.GET_VALUES.code)
+            updateMaxRequests(Integer.MAX_VALUE);
+    }
+
+    private void onValues(HttpFields values)
+    {
+        if (LOG.isDebugEnabled())
+            LOG.debug("Received values {} on {}", values, this);
+
+        int maxRequests = 1;
+        if ("1".equals(values.get(FCGI.Values.MPXS_CONNS)))
+        {
+            maxRequests = Integer.MAX_VALUE;
+            String value = values.get(FCGI.Values.MAX_REQS);
+            if (value != null)
+            {
+                try
+                {
+                    int maxReqs = Integer.parseInt(value.trim());
+                    if (maxReqs > 0)
+                        maxRequests = maxReqs;
+                }
+                catch (NumberFormatException x)
+                {
+                    LOG.ignore(x);
+                }
+            }
+        }
+        else
+        {
+            LOG.info("FastCGI server does not multiplex connections, sending one request at a time on {}", this);
+        }
+        updateMaxRequests(maxRequests);
+    }
+
+    private void updateMaxRequests(int maxRequests)
+    {
+        // Only the first of the values, the unknown type reply or the timeout applies
+        Scheduler.Task task = valuesTimeout.getAndSet(null);
+        if (task == null)
+            return;
+        task.cancel();
+        this.maxRequests = maxRequests;
+        // Send the requests that queued up while waiting for the values
+        if (destination instanceof MultiplexHttpDestinationOverFCGI)
+            ((MultiplexHttpDestinationOverFCGI)destination).maxRequestsChanged();
+    }
+
     @Override
     public void onFillable()
     {
@@ -196,8 +294,8 @@ public class HttpConnectionOverFCGI extends AbstractConnection implements Connec
 
     protected void release(HttpChannelOverFCGI channel)
     {
-        channels.remove(channel.getRequest());
-        destination.release(this);
+        if (channels.remove(channel.getRequest()) != null)
+            destination.release(this);
     }
 
     @Override
@@ -212,6 +310,9 @@ public class HttpConnectionOverFCGI extends AbstractConnection implements Connec
         {
             // First close then abort, to be sure that the connection cannot be reused
             // from an onFailure() handler or by blocking code waiting for completion.
+            Scheduler.Task task = valuesTimeout.getAndSet(null);
+            if (task != null)
+                task.cancel();
             getHttpDestination().close(this);
             getEndPoint().shutdownOutput();
             if (LOG.isDebugEnabled())
@@ -333,6 +434,18 @@ public class HttpConnectionOverFCGI extends AbstractConnection implements Connec
 
     private class ResponseListener implements ClientParser.Listener
     {
+        @Override
+        public void onValues(HttpFields values)
+        {
+            HttpConnectionOverFCGI.this.onValues(values);
+        }
+
+        @Override
+        public void onUnknownType(int type)
+        {
+            HttpConnectionOverFCGI.this.onUnknownType(type);
+        }
+
         @Override
         public void onBegin(int request, int code, String reason)
         {
@@ -35,4 +35,15 @@ public class MultiplexHttpDestinationOverFCGI extends MultiplexHttpDestination<H
     {
         connection.send(exchange);
     }
+
+    @Override
+    protected int getMaxRequestsPerConnection(HttpConnectionOverFCGI connection)
+    {
+        return Math.min(super.getMaxRequestsPerConnection(connection), connection.getMaxRequests());
+    }
+
+    void maxRequestsChanged()
+    {
+        send();
+    }
 }
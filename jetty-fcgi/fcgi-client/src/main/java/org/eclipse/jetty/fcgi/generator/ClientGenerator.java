@@ -144,19 +144,46 @@ public class ClientGenerator extends Generator
         return result;
     }
 
-    private int putParamLength(ByteBuffer buffer, int length)
+    /**
+     * <p>Generates a FCGI_GET_VALUES management frame that queries the given variables.</p>
+     *
+     * @param callback the callback to notify when the frame has been written
+     * @param names the names of the variables to query, see {@link FCGI.Values}
+     * @return the generation result
+     */
+    public Result generateGetValues(Callback callback, String... names)
     {
-        int result = bytesForLength(length);
-        if (result == 4)
-            buffer.putInt(length | 0x80_00_00_00);
-        else
-            buffer.put((byte)length);
-        return result;
-    }
+        Charset utf8 = Charset.forName("UTF-8");
+        List<byte[]> bytes = new ArrayList<>(names.length);
+        int length = 0;
+        for (String name : names)
+        {
+            byte[] nameBytes = name.getBytes(utf8);
+            bytes.add(nameBytes);
+            // The value of a variable in the query is always empty
+            length += bytesForLength(nameBytes.length) + 1 + nameBytes.length;
+        }
+        if (length > MAX_CONTENT_LENGTH)
+            throw new IllegalArgumentException("Values exceed max length " + MAX_CONTENT_LENGTH);
 
-    private int bytesForLength(int length)
-    {
-        return length > 127 ? 4 : 1;
+        ByteBuffer buffer = byteBufferPool.acquire(8 + length, true);
+        BufferUtil.clearToFill(buffer);
+        Result result = new Result(byteBufferPool, callback);
+        result = result.append(buffer, true);
+
+        // Management frames always have request id 0
+        buffer.putInt(0x01_09_00_00);
+        buffer.putShort((short)length);
+        buffer.putShort((short)0);
+        for (byte[] nameBytes : bytes)
+        {
+            putParamLength(buffer, nameBytes.length);
+            putParamLength(buffer, 0);
+            buffer.put(nameBytes);
+        }
+        buffer.flip();
+
+        return result;
     }
 
     public Result generateRequestContent(int request, ByteBuffer content, boolean lastContent, Callback callback)
@@ -38,6 +38,21 @@ public class Generator
         this.byteBufferPool = byteBufferPool;
     }
 
+    protected int putParamLength(ByteBuffer buffer, int length)
+    {
+        int result = bytesForLength(length);
+        if (result == 4)
+            buffer.putInt(length | 0x80_00_00_00);
+        else
+            buffer.put((byte)length);
+        return result;
+    }
+
+    protected int bytesForLength(int length)
+    {
+        return length > 127 ? 4 : 1;
+    }
+
     protected Result generateContent(int id, ByteBuffer content, boolean recycle, boolean lastContent, Callback callback, FCGI.FrameType frameType)
     {
         id &= 0xFF_FF;
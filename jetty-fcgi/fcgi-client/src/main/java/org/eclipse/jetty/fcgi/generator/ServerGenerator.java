@@ -119,6 +119,49 @@ public class ServerGenerator extends Generator
         }
     }
 
+    /**
+     * <p>Generates a FCGI_GET_VALUES_RESULT management frame.</p>
+     *
+     * @param values the variables known to this FastCGI server, see {@link FCGI.Values}
+     * @param callback the callback to notify when the frame has been written
+     * @return the generated result
+     */
+    public Result generateGetValuesResult(HttpFields values, Callback callback)
+    {
+        Charset utf8 = Charset.forName("UTF-8");
+        List<byte[]> bytes = new ArrayList<>(values.size() * 2);
+        int length = 0;
+        for (HttpField field : values)
+        {
+            byte[] nameBytes = field.getName().getBytes(utf8);
+            byte[] valueBytes = field.getValue().getBytes(utf8);
+            bytes.add(nameBytes);
+            bytes.add(valueBytes);
+            length += bytesForLength(nameBytes.length) + bytesForLength(valueBytes.length) + nameBytes.length + valueBytes.length;
+        }
+        if (length > MAX_CONTENT_LENGTH)
+            throw new IllegalArgumentException("Values exceed max length " + MAX_CONTENT_LENGTH);
+
+        ByteBuffer buffer = byteBufferPool.acquire(8 + length, true);
+        BufferUtil.clearToFill(buffer);
+        Result result = new Result(byteBufferPool, callback);
+        result = result.append(buffer, true);
+
+        // Management frames always have request id 0
+        buffer.putInt(0x01_0A_00_00);
+        buffer.putShort((short)length);
+        buffer.putShort((short)0);
+        for (int i = 0; i < bytes.size(); i += 2)
+        {
+            putParamLength(buffer, bytes.get(i).length);
+            putParamLength(buffer, bytes.get(i + 1).length);
+            buffer.put(bytes.get(i)).put(bytes.get(i + 1));
+        }
+        buffer.flip();
+
+        return result;
+    }
+
     private ByteBuffer generateEndRequest(int request, boolean aborted)
     {
         request &= 0xFF_FF;
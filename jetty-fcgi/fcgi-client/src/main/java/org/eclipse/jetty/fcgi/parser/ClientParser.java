@@ -23,6 +23,7 @@ import java.util.EnumMap;
 
 import org.eclipse.jetty.fcgi.FCGI;
 import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
 
 public class ClientParser extends Parser
 {
@@ -35,6 +36,8 @@ public class ClientParser extends Parser
         StreamContentParser stdErrParser = new StreamContentParser(headerParser, FCGI.StreamType.STD_ERR, listener);
         contentParsers.put(FCGI.FrameType.STDERR, stdErrParser);
         contentParsers.put(FCGI.FrameType.END_REQUEST, new EndRequestContentParser(headerParser, new EndRequestListener(listener, stdOutParser, stdErrParser)));
+        contentParsers.put(FCGI.FrameType.GET_VALUES_RESULT, new ValuesContentParser(headerParser, listener));
+        contentParsers.put(FCGI.FrameType.UNKNOWN_TYPE, new UnknownTypeContentParser(headerParser, listener));
     }
 
     @Override
@@ -43,16 +46,41 @@ public class ClientParser extends Parser
         return contentParsers.get(frameType);
     }
 
-    public interface Listener extends Parser.Listener
+    public interface Listener extends Parser.Listener, ValuesContentParser.Listener
     {
         public void onBegin(int request, int code, String reason);
 
+        /**
+         * <p>Callback method invoked when a FCGI_GET_VALUES_RESULT management frame has been parsed.</p>
+         *
+         * @param values the variables returned by the FastCGI server, see {@link FCGI.Values}
+         */
+        @Override
+        public void onValues(HttpFields values);
+
+        /**
+         * <p>Callback method invoked when a FCGI_UNKNOWN_TYPE management frame has been parsed.</p>
+         *
+         * @param type the type of the management frame that the FastCGI server did not understand
+         */
+        public void onUnknownType(int type);
+
         public static class Adapter extends Parser.Listener.Adapter implements Listener
         {
             @Override
             public void onBegin(int request, int code, String reason)
             {
             }
+
+            @Override
+            public void onValues(HttpFields values)
+            {
+            }
+
+            @Override
+            public void onUnknownType(int type)
+            {
+            }
         }
     }
 
@@ -73,6 +101,18 @@ public class ClientParser extends Parser
             listener.onBegin(request, code, reason);
         }
 
+        @Override
+        public void onValues(HttpFields values)
+        {
+            listener.onValues(values);
+        }
+
+        @Override
+        public void onUnknownType(int type)
+        {
+            listener.onUnknownType(type);
+        }
+
         @Override
         public void onHeader(int request, HttpField field)
         {
@@ -47,7 +47,8 @@ public class ParamsContentParser extends ContentParser
     @Override
     public Result parse(ByteBuffer buffer)
     {
-        while (buffer.hasRemaining() || state == State.PARAM)
+        // Empty values, as in FCGI_GET_VALUES, may end the frame with no bytes left to read
+        while (buffer.hasRemaining() || state == State.PARAM || (state == State.VALUE && valueLength == 0))
         {
             switch (state)
             {
@@ -49,6 +49,13 @@ public abstract class Parser
                 case CONTENT:
                 {
                     ContentParser contentParser = findContentParser(headerParser.getFrameType());
+                    if (contentParser == null)
+                    {
+                        // Frame not handled by this parser, skip its content
+                        padding = headerParser.getContentLength() + headerParser.getPaddingLength();
+                        state = State.PADDING;
+                        break;
+                    }
                     if (headerParser.getContentLength() == 0)
                     {
                         contentParser.noContent();
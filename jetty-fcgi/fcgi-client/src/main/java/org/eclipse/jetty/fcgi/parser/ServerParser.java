@@ -21,6 +21,7 @@ package org.eclipse.jetty.fcgi.parser;
 import java.util.EnumMap;
 
 import org.eclipse.jetty.fcgi.FCGI;
+import org.eclipse.jetty.http.HttpFields;
 
 public class ServerParser extends Parser
 {
@@ -31,6 +32,7 @@ public class ServerParser extends Parser
         contentParsers.put(FCGI.FrameType.BEGIN_REQUEST, new BeginRequestContentParser(headerParser, listener));
         contentParsers.put(FCGI.FrameType.PARAMS, new ParamsContentParser(headerParser, listener));
         contentParsers.put(FCGI.FrameType.STDIN, new StreamContentParser(headerParser, FCGI.StreamType.STD_IN, listener));
+        contentParsers.put(FCGI.FrameType.GET_VALUES, new ValuesContentParser(headerParser, listener));
     }
 
     @Override
@@ -39,16 +41,29 @@ public class ServerParser extends Parser
         return contentParsers.get(frameType);
     }
 
-    public interface Listener extends Parser.Listener
+    public interface Listener extends Parser.Listener, ValuesContentParser.Listener
     {
         public void onStart(int request, FCGI.Role role, int flags);
 
+        /**
+         * <p>Callback method invoked when a FCGI_GET_VALUES management frame has been parsed.</p>
+         *
+         * @param values the variables queried by the FastCGI client, with empty values
+         */
+        @Override
+        public void onValues(HttpFields values);
+
         public static class Adapter extends Parser.Listener.Adapter implements Listener
         {
             @Override
             public void onStart(int request, FCGI.Role role, int flags)
             {
             }
+
+            @Override
+            public void onValues(HttpFields values)
+            {
+            }
         }
     }
 }
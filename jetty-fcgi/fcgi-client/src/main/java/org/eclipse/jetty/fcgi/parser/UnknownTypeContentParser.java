@@ -0,0 +1,58 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.fcgi.parser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Parser for the content of FCGI_UNKNOWN_TYPE management frames, sent by
+ * FastCGI servers in reply to management frames they do not understand.</p>
+ */
+public class UnknownTypeContentParser extends ContentParser
+{
+    private final ClientParser.Listener listener;
+    private int cursor;
+    private int type;
+
+    public UnknownTypeContentParser(HeaderParser headerParser, ClientParser.Listener listener)
+    {
+        super(headerParser);
+        this.listener = listener;
+    }
+
+    @Override
+    public Result parse(ByteBuffer buffer)
+    {
+        while (buffer.hasRemaining())
+        {
+            // The body is the unknown type followed by 7 reserved bytes
+            int b = buffer.get() & 0xFF;
+            if (cursor == 0)
+                type = b;
+            if (++cursor == 8)
+            {
+                listener.onUnknownType(type);
+                cursor = 0;
+                type = 0;
+                return Result.COMPLETE;
+            }
+        }
+        return Result.PENDING;
+    }
+}
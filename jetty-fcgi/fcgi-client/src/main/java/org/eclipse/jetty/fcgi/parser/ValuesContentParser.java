@@ -0,0 +1,79 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.fcgi.parser;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+
+/**
+ * <p>Parser for the content of FCGI_GET_VALUES and FCGI_GET_VALUES_RESULT management frames.</p>
+ * <p>Unlike FCGI_PARAMS, these variables are not terminated by an empty frame,
+ * so they end with the frame content.</p>
+ */
+public class ValuesContentParser extends ParamsContentParser
+{
+    public ValuesContentParser(HeaderParser headerParser, Listener listener)
+    {
+        super(headerParser, new ValuesListener(listener));
+    }
+
+    @Override
+    public Result parse(ByteBuffer buffer)
+    {
+        Result result = super.parse(buffer);
+        if (result == Result.COMPLETE)
+            onParams();
+        return result;
+    }
+
+    public interface Listener
+    {
+        /**
+         * @param values the variables carried by the management frame, see {@link org.eclipse.jetty.fcgi.FCGI.Values}
+         */
+        public void onValues(HttpFields values);
+    }
+
+    private static class ValuesListener extends ServerParser.Listener.Adapter
+    {
+        private final Listener listener;
+        private HttpFields values = new HttpFields();
+
+        private ValuesListener(Listener listener)
+        {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onHeader(int request, HttpField field)
+        {
+            values.add(field);
+        }
+
+        @Override
+        public void onHeaders(int request)
+        {
+            HttpFields result = values;
+            values = new HttpFields();
+            listener.onValues(result);
+        }
+    }
+}
@@ -133,6 +133,45 @@ public class ClientGeneratorTest
         Assert.assertEquals(value, params.get());
     }
 
+    @Test
+    public void testGenerateGetValues() throws Exception
+    {
+        ByteBufferPool byteBufferPool = new MappedByteBufferPool();
+        ClientGenerator generator = new ClientGenerator(byteBufferPool);
+        Generator.Result result = generator.generateGetValues(null, FCGI.Values.MPXS_CONNS, FCGI.Values.MAX_REQS);
+
+        final AtomicInteger queries = new AtomicInteger();
+        ServerParser parser = new ServerParser(new ServerParser.Listener.Adapter()
+        {
+            @Override
+            public void onValues(HttpFields values)
+            {
+                Assert.assertEquals(2, values.size());
+                Assert.assertEquals("", values.get(FCGI.Values.MPXS_CONNS));
+                Assert.assertEquals("", values.get(FCGI.Values.MAX_REQS));
+                queries.incrementAndGet();
+            }
+        });
+
+        for (ByteBuffer buffer : result.getByteBuffers())
+        {
+            parser.parse(buffer);
+            Assert.assertFalse(buffer.hasRemaining());
+        }
+
+        Assert.assertEquals(1, queries.get());
+
+        // Parse again byte by byte, the last empty value must not be left pending
+        for (ByteBuffer buffer : result.getByteBuffers())
+        {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                parser.parse(ByteBuffer.wrap(new byte[]{buffer.get()}));
+        }
+
+        Assert.assertEquals(2, queries.get());
+    }
+
     @Test
     public void testGenerateSmallRequestContent() throws Exception
     {
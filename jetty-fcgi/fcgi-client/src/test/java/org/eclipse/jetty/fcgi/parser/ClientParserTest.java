@@ -21,6 +21,7 @@ package org.eclipse.jetty.fcgi.parser;
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jetty.fcgi.FCGI;
 import org.eclipse.jetty.fcgi.generator.Generator;
@@ -34,6 +35,112 @@ import org.junit.Test;
 
 public class ClientParserTest
 {
+    @Test
+    public void testParseValues() throws Exception
+    {
+        // FCGI_GET_VALUES_RESULT with FCGI_MPXS_CONNS=1 and FCGI_MAX_REQS=50
+        byte[] mpxsName = FCGI.Values.MPXS_CONNS.getBytes("UTF-8");
+        byte[] maxReqsName = FCGI.Values.MAX_REQS.getBytes("UTF-8");
+        int length = 2 + mpxsName.length + 1 + 2 + maxReqsName.length + 2;
+        ByteBuffer buffer = ByteBuffer.allocate(8 + length);
+        buffer.putInt(0x01_0A_00_00);
+        buffer.putShort((short)length);
+        buffer.putShort((short)0);
+        buffer.put((byte)mpxsName.length).put((byte)1).put(mpxsName).put((byte)'1');
+        buffer.put((byte)maxReqsName.length).put((byte)2).put(maxReqsName).put("50".getBytes("UTF-8"));
+        buffer.flip();
+
+        final AtomicReference<HttpFields> result = new AtomicReference<>();
+        ClientParser parser = new ClientParser(new ClientParser.Listener.Adapter()
+        {
+            @Override
+            public void onValues(HttpFields values)
+            {
+                result.set(values);
+            }
+        });
+
+        parser.parse(buffer);
+
+        Assert.assertFalse(buffer.hasRemaining());
+        HttpFields values = result.get();
+        Assert.assertNotNull(values);
+        Assert.assertEquals("1", values.get(FCGI.Values.MPXS_CONNS));
+        Assert.assertEquals("50", values.get(FCGI.Values.MAX_REQS));
+    }
+
+    @Test
+    public void testParseGeneratedValues() throws Exception
+    {
+        HttpFields fields = new HttpFields();
+        fields.put(FCGI.Values.MPXS_CONNS, "1");
+        ByteBufferPool byteBufferPool = new MappedByteBufferPool();
+        ServerGenerator generator = new ServerGenerator(byteBufferPool);
+        Generator.Result result = generator.generateGetValuesResult(fields, null);
+
+        final AtomicReference<HttpFields> reference = new AtomicReference<>();
+        ClientParser parser = new ClientParser(new ClientParser.Listener.Adapter()
+        {
+            @Override
+            public void onValues(HttpFields values)
+            {
+                reference.set(values);
+            }
+        });
+
+        for (ByteBuffer buffer : result.getByteBuffers())
+        {
+            parser.parse(buffer);
+            Assert.assertFalse(buffer.hasRemaining());
+        }
+
+        HttpFields values = reference.get();
+        Assert.assertNotNull(values);
+        Assert.assertEquals(1, values.size());
+        Assert.assertEquals("1", values.get(FCGI.Values.MPXS_CONNS));
+    }
+
+    @Test
+    public void testParseUnknownType() throws Exception
+    {
+        // FCGI_UNKNOWN_TYPE in reply to FCGI_GET_VALUES, followed by an unrelated FCGI_END_REQUEST
+        final int id = 13;
+        ByteBuffer buffer = ByteBuffer.allocate(16 + 16);
+        buffer.putInt(0x01_0B_00_00).putShort((short)8).putShort((short)0);
+        buffer.put((byte)FCGI.FrameType.GET_VALUES.code).put(new byte[7]);
+        buffer.putInt(0x01_03_00_00 + id).putShort((short)8).putShort((short)0);
+        buffer.putInt(0).put((byte)0).put(new byte[3]);
+        buffer.flip();
+
+        final AtomicInteger unknownType = new AtomicInteger();
+        final AtomicBoolean ended = new AtomicBoolean();
+        ClientParser parser = new ClientParser(new ClientParser.Listener.Adapter()
+        {
+            @Override
+            public void onUnknownType(int type)
+            {
+                unknownType.set(type);
+            }
+
+            @Override
+            public void onEnd(int request)
+            {
+                Assert.assertEquals(id, request);
+                ended.set(true);
+            }
+        });
+
+        // Parse the FCGI_UNKNOWN_TYPE frame byte by byte to exercise the partial frame parsing
+        for (int i = 0; i < 16; ++i)
+            parser.parse(ByteBuffer.wrap(new byte[]{buffer.get()}));
+        parser.parse(buffer);
+
+        Assert.assertFalse(buffer.hasRemaining());
+
+        Assert.assertEquals(FCGI.FrameType.GET_VALUES.code, unknownType.get());
+        Assert.assertTrue(ended.get());
+    }
+
     @Test
     public void testParseResponseHeaders() throws Exception
     {
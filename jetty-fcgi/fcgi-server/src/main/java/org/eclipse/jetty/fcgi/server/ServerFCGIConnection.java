@@ -24,14 +24,17 @@ import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.jetty.fcgi.FCGI;
 import org.eclipse.jetty.fcgi.generator.Flusher;
+import org.eclipse.jetty.fcgi.generator.ServerGenerator;
 import org.eclipse.jetty.fcgi.parser.ServerParser;
 import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.io.AbstractConnection;
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.server.ByteBufferQueuedHttpInput;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 
@@ -131,6 +134,19 @@ public class ServerFCGIConnection extends AbstractConnection
                 LOG.debug("Request {} start on {}", request, channel);
         }
 
+        @Override
+        public void onValues(HttpFields values)
+        {
+            // Only answer the variables we know about, as mandated by the FastCGI specification
+            HttpFields result = new HttpFields();
+            if (values.containsKey(FCGI.Values.MPXS_CONNS))
+                result.put(FCGI.Values.MPXS_CONNS, "1");
+            if (LOG.isDebugEnabled())
+                LOG.debug("Values {} queried, replying {}", values, result);
+            ServerGenerator generator = new ServerGenerator(connector.getByteBufferPool());
+            flusher.flush(generator.generateGetValuesResult(result, new Callback.Adapter()));
+        }
+
         @Override
         public void onHeader(int request, HttpField field)
         {
@@ -57,6 +57,12 @@ import org.eclipse.jetty.proxy.ProxyServlet;
  *     </ul></li>
  *     <li><code>fastCGI.HTTPS</code>, optional, defaults to false, that specifies whether
  *     to force the FastCGI <code>HTTPS</code> parameter to the value <code>on</code></li>
+ *     <li><code>fastCGI.multiplexed</code>, optional, defaults to false, that specifies whether
+ *     to send concurrent requests over a single connection to the FastCGI server; the
+ *     number of concurrent requests is negotiated with the FastCGI server, and requests
+ *     in excess are queued. Servers that do not multiplex connections, such as PHP-FPM,
+ *     should use the default connection pool, bounded by the <code>maxConnections</code>
+ *     init-param.</li>
  * </ul>
  *
  * @see TryFilesFilter
@@ -66,6 +72,7 @@ public class FastCGIProxyServlet extends AsyncProxyServlet.Transparent
     public static final String SCRIPT_ROOT_INIT_PARAM = "scriptRoot";
     public static final String SCRIPT_PATTERN_INIT_PARAM = "scriptPattern";
     public static final String FASTCGI_HTTPS_INIT_PARAM = "fastCGI.HTTPS";
+    public static final String FASTCGI_MULTIPLEXED_INIT_PARAM = "fastCGI.multiplexed";
 
     private static final String REMOTE_ADDR_ATTRIBUTE = FastCGIProxyServlet.class.getName() + ".remoteAddr";
     private static final String REMOTE_PORT_ATTRIBUTE = FastCGIProxyServlet.class.getName() + ".remotePort";
@@ -98,7 +105,8 @@ public class FastCGIProxyServlet extends AsyncProxyServlet.Transparent
         String scriptRoot = config.getInitParameter(SCRIPT_ROOT_INIT_PARAM);
         if (scriptRoot == null)
             throw new IllegalArgumentException("Mandatory parameter '" + SCRIPT_ROOT_INIT_PARAM + "' not configured");
-        return new HttpClient(new ProxyHttpClientTransportOverFCGI(scriptRoot), null);
+        boolean multiplexed = Boolean.parseBoolean(config.getInitParameter(FASTCGI_MULTIPLEXED_INIT_PARAM));
+        return new HttpClient(new ProxyHttpClientTransportOverFCGI(multiplexed, scriptRoot), null);
     }
 
     @Override
@@ -176,9 +184,9 @@ public class FastCGIProxyServlet extends AsyncProxyServlet.Transparent
 
     private class ProxyHttpClientTransportOverFCGI extends HttpClientTransportOverFCGI
     {
-        public ProxyHttpClientTransportOverFCGI(String scriptRoot)
+        public ProxyHttpClientTransportOverFCGI(boolean multiplexed, String scriptRoot)
         {
-            super(scriptRoot);
+            super(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), multiplexed, scriptRoot);
         }
 
         @Override
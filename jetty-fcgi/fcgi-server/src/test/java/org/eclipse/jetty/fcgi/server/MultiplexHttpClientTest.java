@@ -0,0 +1,268 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.fcgi.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.MultiplexHttpDestination;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.util.FutureResponseListener;
+import org.eclipse.jetty.fcgi.client.http.HttpClientTransportOverFCGI;
+import org.eclipse.jetty.http.HttpScheme;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.toolchain.test.TestTracker;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class MultiplexHttpClientTest
+{
+    @Rule
+    public final TestTracker tracker = new TestTracker();
+    private Server server;
+    private ServerConnector connector;
+    private HttpClient client;
+
+    private MultiplexHttpDestination<?> start(Handler handler) throws Exception
+    {
+        server = new Server();
+        connector = new ServerConnector(server, new ServerFCGIConnectionFactory(new HttpConfiguration()));
+        server.addConnector(connector);
+        server.setHandler(handler);
+        server.start();
+
+        QueuedThreadPool executor = new QueuedThreadPool();
+        executor.setName(executor.getName() + "-client");
+        client = new HttpClient(new HttpClientTransportOverFCGI(1, true, ""), null);
+        client.setExecutor(executor);
+        // Longer than the waits in the tests, so that they do not pass thanks to the fallback
+        client.setConnectTimeout(15000);
+        client.start();
+
+        return (MultiplexHttpDestination<?>)client.getDestination(HttpScheme.HTTP.asString(), "localhost", connector.getLocalPort());
+    }
+
+    @After
+    public void dispose() throws Exception
+    {
+        if (client != null)
+            client.stop();
+        if (server != null)
+            server.stop();
+    }
+
+    @Test
+    public void testServerRepliesToGetValues() throws Exception
+    {
+        final int requests = 4;
+        final CountDownLatch latch = new CountDownLatch(requests);
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, org.eclipse.jetty.server.Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                // All the requests must be in the server at the same time
+                latch.countDown();
+                await(latch, 5, response);
+            }
+        });
+
+        List<FutureResponseListener> listeners = new ArrayList<>();
+        for (int i = 0; i < requests; ++i)
+        {
+            FutureResponseListener listener = new FutureResponseListener(client.newRequest("localhost", connector.getLocalPort()));
+            listener.getRequest().send(listener);
+            listeners.add(listener);
+        }
+
+        for (FutureResponseListener listener : listeners)
+            Assert.assertEquals(200, listener.get(10, TimeUnit.SECONDS).getStatus());
+    }
+
+    @Test
+    public void testMaxRequestsPerConnection() throws Exception
+    {
+        final int maxRequests = 2;
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        MultiplexHttpDestination<?> destination = start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, org.eclipse.jetty.server.Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                int current = concurrent.incrementAndGet();
+                while (true)
+                {
+                    int max = maxConcurrent.get();
+                    if (current <= max || maxConcurrent.compareAndSet(max, current))
+                        break;
+                }
+                sleep(100);
+                concurrent.decrementAndGet();
+            }
+        });
+        destination.setMaxRequestsPerConnection(maxRequests);
+
+        List<FutureResponseListener> listeners = new ArrayList<>();
+        for (int i = 0; i < 3 * maxRequests; ++i)
+        {
+            FutureResponseListener listener = new FutureResponseListener(client.newRequest("localhost", connector.getLocalPort()));
+            listener.getRequest().send(listener);
+            listeners.add(listener);
+        }
+
+        for (FutureResponseListener listener : listeners)
+            Assert.assertEquals(200, listener.get(10, TimeUnit.SECONDS).getStatus());
+
+        Assert.assertTrue(maxConcurrent.get() <= maxRequests);
+        assertNoRequestsPerConnection(destination);
+    }
+
+    @Test
+    public void testFailedRequestReleasesSlot() throws Exception
+    {
+        final long delay = 2000;
+        MultiplexHttpDestination<?> destination = start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, org.eclipse.jetty.server.Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                if ("/slow".equals(target))
+                    sleep(delay);
+            }
+        });
+        destination.setMaxRequestsPerConnection(1);
+
+        try
+        {
+            client.newRequest("localhost", connector.getLocalPort())
+                    .path("/slow")
+                    .timeout(delay / 4, TimeUnit.MILLISECONDS)
+                    .send();
+            Assert.fail();
+        }
+        catch (TimeoutException expected)
+        {
+        }
+
+        // The failed request must not hold the only slot until the server replies
+        ContentResponse response = client.newRequest("localhost", connector.getLocalPort())
+                .path("/fast")
+                .timeout(delay / 2, TimeUnit.MILLISECONDS)
+                .send();
+        Assert.assertEquals(200, response.getStatus());
+        assertNoRequestsPerConnection(destination);
+    }
+
+    @Test
+    public void testQueuedRequestTimesOut() throws Exception
+    {
+        final CountDownLatch latch = new CountDownLatch(1);
+        MultiplexHttpDestination<?> destination = start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, org.eclipse.jetty.server.Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                if ("/block".equals(target))
+                    await(latch, 10, response);
+            }
+        });
+        destination.setMaxRequestsPerConnection(1);
+        destination.setRequestQueueTimeout(500);
+
+        FutureResponseListener blocked = new FutureResponseListener(client.newRequest("localhost", connector.getLocalPort()).path("/block"));
+        blocked.getRequest().send(blocked);
+
+        try
+        {
+            // Queued behind the blocked request, since only one slot is available
+            client.newRequest("localhost", connector.getLocalPort())
+                    .path("/queued")
+                    .timeout(5, TimeUnit.SECONDS)
+                    .send();
+            Assert.fail();
+        }
+        catch (ExecutionException x)
+        {
+            Assert.assertTrue(x.getCause() instanceof TimeoutException);
+        }
+        finally
+        {
+            latch.countDown();
+        }
+
+        Assert.assertEquals(200, blocked.get(5, TimeUnit.SECONDS).getStatus());
+        assertNoRequestsPerConnection(destination);
+    }
+
+    private void assertNoRequestsPerConnection(MultiplexHttpDestination<?> destination) throws InterruptedException
+    {
+        // Slots are released asynchronously with respect to the response completion
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (destination.getRequestsPerConnection() > 0 && System.nanoTime() < end)
+            TimeUnit.MILLISECONDS.sleep(10);
+        Assert.assertEquals(0, destination.getRequestsPerConnection());
+    }
+
+    private static void await(CountDownLatch latch, long seconds, HttpServletResponse response) throws ServletException
+    {
+        try
+        {
+            if (!latch.await(seconds, TimeUnit.SECONDS))
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+        catch (InterruptedException x)
+        {
+            throw new ServletException(x);
+        }
+    }
+
+    private static void sleep(long millis) throws ServletException
+    {
+        try
+        {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        }
+        catch (InterruptedException x)
+        {
+            throw new ServletException(x);
+        }
+    }
+}
@@ -65,6 +65,12 @@ public class DateGenerator {
     };
 
 
+    /**
+     * 最近一秒的格式化结果，同一秒内的调用直接复用
+     */
+    private static volatile CachedDate __cachedDate;
+
+
     /**
      * 时间戳开始的时间
      */
@@ -72,11 +78,23 @@ public class DateGenerator {
     
     /**
      * Format HTTP date "EEE, dd MMM yyyy HH:mm:ss 'GMT'"
+     * The most recently formatted second is cached, so calls within
+     * the same second do not format or allocate.
      *
      * 格式化时间
      */
     public static String formatDate(long date) {
-        return __dateGenerator.get().doFormatDate(date);
+        long seconds = date / 1000;
+        CachedDate cached = __cachedDate;
+        if (cached != null && cached.seconds == seconds && date >= 0)
+            return cached.formatted;
+
+        String formatted = __dateGenerator.get().doFormatDate(date);
+
+        // 只缓存更新的时间，避免旧的日期覆盖当前秒
+        if (date >= 0 && (cached == null || seconds > cached.seconds))
+            __cachedDate = new CachedDate(seconds, formatted);
+        return formatted;
     }
 
     /**
@@ -99,6 +117,19 @@ public class DateGenerator {
         return buf.toString();
     }
 
+    /**
+     * 某一秒的格式化结果
+     */
+    private static class CachedDate {
+        final long seconds;
+        final String formatted;
+
+        CachedDate(long seconds, String formatted) {
+            this.seconds = seconds;
+            this.formatted = formatted;
+        }
+    }
+
     /**
      * 字符串数据缓存
      */
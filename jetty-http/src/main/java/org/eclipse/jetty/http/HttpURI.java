@@ -22,6 +22,9 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.eclipse.jetty.util.MultiMap;
 import org.eclipse.jetty.util.StringUtil;
@@ -77,6 +80,8 @@ public class HttpURI
     int _fragment;
     int _end;
     boolean _encoded=false;
+    int[] _queryIndex;
+    int _queryIndexSize;
 
     public HttpURI()
     {
@@ -143,6 +148,7 @@ public class HttpURI
     {
         _rawString=null;
         _encoded=false;
+        _queryIndexSize=-1;
         _raw=raw;
         int i=offset;
         int e=offset+length;
@@ -214,6 +220,7 @@ public class HttpURI
     private void parse2(byte[] raw,int offset, int length)
     {
         _encoded=false;
+        _queryIndexSize=-1;
         _raw=raw;
         int i=offset;
         int e=offset+length;
@@ -609,6 +616,58 @@ public class HttpURI
         return utf8b.toString();
     }
 
+    /* ------------------------------------------------------------ */
+    /** Get the decoded and canonical path.
+     * <p>For the common case of a path without % encodings and without
+     * "." or ".." segments, the path is checked and converted to a String
+     * in a single pass over the raw bytes. Otherwise the result is that of
+     * {@link URIUtil#canonicalPath(String)} applied to {@link #getDecodedPath()}.</p>
+     * @return The decoded canonical path, or null if there is no path or
+     * if the path has more ".." segments than parent segments
+     */
+    public String getCanonicalPath()
+    {
+        if (_path==_param)
+            return null;
+
+        boolean ascii=true;
+        int segment=_path;
+        for (int i=_path;i<_param;i++)
+        {
+            byte b=_raw[i];
+            if (b=='/')
+            {
+                if (isDotSegment(segment,i))
+                    return URIUtil.canonicalPath(getDecodedPath());
+                segment=i+1;
+            }
+            else if (b=='%')
+                return URIUtil.canonicalPath(getDecodedPath());
+            else if (b<0)
+                ascii=false;
+        }
+        if (isDotSegment(segment,_param))
+            return URIUtil.canonicalPath(getDecodedPath());
+
+        if (ascii)
+            return new String(_raw,_path,_param-_path,StandardCharsets.ISO_8859_1);
+        return StringUtil.toUTF8String(_raw,_path,_param-_path);
+    }
+
+    /* ------------------------------------------------------------ */
+    private boolean isDotSegment(int start, int end)
+    {
+        switch(end-start)
+        {
+            case 1:
+                return _raw[start]=='.';
+            case 2:
+                return _raw[start]=='.' && _raw[start+1]=='.';
+            default:
+                return false;
+        }
+    }
+
     public String getDecodedPath(String encoding)
     {
         return getDecodedPath(Charset.forName(encoding));
@@ -758,12 +817,154 @@ public class HttpURI
             UrlEncoded.decodeTo(new String(_raw,_query+1,_fragment-_query-1,encoding),parameters,encoding,-1);
     }
 
+    /* ------------------------------------------------------------ */
+    /** Get a single query parameter without decoding the whole query.
+     * <p>The first call indexes the offsets of the parameters within the raw
+     * bytes of the URI; only the keys that could match and the value returned
+     * are decoded. The result is the same as the first value that
+     * {@link #decodeQueryTo(MultiMap)} would produce for the name.</p>
+     * @param name The parameter name
+     * @return The decoded value of the first parameter with the name, or null
+     */
+    public String getQueryParameter(String name)
+    {
+        int size=indexQuery();
+        for (int i=0;i<size;i+=2)
+        {
+            int start=_queryIndex[i];
+            int end=_queryIndex[i+1];
+            if (matchKey(name,start,end))
+            {
+                String value=decodeValue(name,start,end);
+                if (value!=null)
+                    return value;
+            }
+        }
+        return null;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Get the values of a query parameter without decoding the whole query.
+     * @param name The parameter name
+     * @return The decoded values of the parameters with the name, in order, or null if there are none
+     * @see #getQueryParameter(String)
+     */
+    public List<String> getQueryParameterValues(String name)
+    {
+        List<String> values=null;
+        int size=indexQuery();
+        for (int i=0;i<size;i+=2)
+        {
+            int start=_queryIndex[i];
+            int end=_queryIndex[i+1];
+            if (matchKey(name,start,end))
+            {
+                String value=decodeValue(name,start,end);
+                if (value!=null)
+                {
+                    if (values==null)
+                        values=new ArrayList<>(2);
+                    values.add(value);
+                }
+            }
+        }
+        return values;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Index the start and end offsets of each parameter in the query.
+     * @return The number of entries used in {@link #_queryIndex}
+     */
+    private int indexQuery()
+    {
+        if (_queryIndexSize>=0)
+            return _queryIndexSize;
+
+        int size=0;
+        if (_query<_fragment)
+        {
+            int[] index=_queryIndex;
+            if (index==null)
+                index=new int[16];
+            int start=_query+1;
+            for (int i=start;i<=_fragment;i++)
+            {
+                if (i==_fragment || _raw[i]=='&')
+                {
+                    if (i>start)
+                    {
+                        if (size==index.length)
+                            index=Arrays.copyOf(index,size*2);
+                        index[size++]=start;
+                        index[size++]=i;
+                    }
+                    start=i+1;
+                }
+            }
+            _queryIndex=index;
+        }
+        _queryIndexSize=size;
+        return size;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Check if the key of an indexed parameter may match a name.
+     * <p>Keys containing only plain ASCII are compared byte by byte, so a
+     * true result for them is exact. Keys needing decoding always return true
+     * and are checked by {@link #decodeValue(String, int, int)}.</p>
+     */
+    private boolean matchKey(String name, int start, int end)
+    {
+        int n=0;
+        int l=name.length();
+        for (int i=start;i<end;i++)
+        {
+            byte b=_raw[i];
+            if (b=='=')
+                break;
+            if (b=='%' || b=='+' || b<0)
+                return true;
+            if (n==l || name.charAt(n++)!=b)
+                return false;
+        }
+        return n==l;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Decode a single parameter, using the same decoding as {@link #decodeQueryTo(MultiMap)}.
+     * @return The decoded value if the decoded key equals the name, else null
+     */
+    private String decodeValue(String name, int start, int end)
+    {
+        // Plain ASCII parameters need no decoding, so the key has already been matched exactly
+        int equals=-1;
+        boolean plain=true;
+        for (int i=start;plain && i<end;i++)
+        {
+            byte b=_raw[i];
+            if (b=='%' || b=='+' || b<0)
+                plain=false;
+            else if (b=='=' && equals<0)
+                equals=i;
+        }
+        if (plain)
+            return equals<0?"":new String(_raw,equals+1,end-equals-1,StandardCharsets.ISO_8859_1);
+
+        MultiMap<String> parameter=new MultiMap<>();
+        if (_charset.equals(StandardCharsets.UTF_8))
+            UrlEncoded.decodeUtf8To(_raw,start,end-start,parameter);
+        else
+            UrlEncoded.decodeTo(new String(_raw,start,end-start,_charset),parameter,_charset,-1);
+        return parameter.getValue(name,0);
+    }
+
     public void clear()
     {
         _scheme=_authority=_host=_port=_path=_param=_query=_fragment=_end=0;
         _raw=__empty;
         _rawString="";
         _encoded=false;
+        _queryIndexSize=-1;
     }
 
     @Override
@@ -0,0 +1,87 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+/* ------------------------------------------------------------ */
+/** A HTTP Field with pre-encoded wire bytes.
+ * <p>The name, value and trailing CRLF of the field are sanitised and 
+ * encoded once when the field is created, so that the {@link HttpGenerator}
+ * can bulk copy them into every response that carries the field.
+ * This is intended for fields that are sent unchanged with many messages,
+ * such as well known Content-Type values or headers configured statically
+ * on a server.</p>
+ */
+public class PreEncodedHttpField extends HttpField
+{
+    private final byte[] _bytes;
+
+    public PreEncodedHttpField(HttpHeader header, String name, String value)
+    {
+        super(header,name,value);
+        _bytes=encode(new HttpField(header,name,value==null?"":value));
+    }
+
+    public PreEncodedHttpField(HttpHeader header, String value)
+    {
+        this(header,header.asString(),value);
+    }
+
+    public PreEncodedHttpField(HttpHeader header, HttpHeaderValue value)
+    {
+        this(header,header.asString(),value.asString());
+    }
+
+    public PreEncodedHttpField(String name, String value)
+    {
+        this(HttpHeader.CACHE.get(name),name,value);
+    }
+
+    /* ------------------------------------------------------------ */
+    private static byte[] encode(HttpField field)
+    {
+        // Sanitising never expands a character, so the encoding fits in the
+        // name, the value, the colon space and the CRLF.
+        ByteBuffer buffer=ByteBuffer.allocate(field.getName().length()+field.getValue().length()+4);
+        HttpGenerator.putTo(field,buffer);
+        return Arrays.copyOf(buffer.array(),buffer.position());
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of bytes that {@link #putTo(ByteBuffer)} will write
+     */
+    public int getEncodedLength()
+    {
+        return _bytes.length;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Copy the encoded field into a buffer.
+     * @param bufferInFillMode the buffer to put the field, including its CRLF, into
+     */
+    public void putTo(ByteBuffer bufferInFillMode)
+    {
+        bufferInFillMode.put(_bytes);
+    }
+}
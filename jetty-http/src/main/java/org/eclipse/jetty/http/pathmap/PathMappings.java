@@ -21,9 +21,13 @@ package org.eclipse.jetty.http.pathmap;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+import org.eclipse.jetty.util.ArrayTernaryTrie;
+import org.eclipse.jetty.util.Trie;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
@@ -45,6 +49,7 @@ public class PathMappings<E> implements Iterable<MappedResource<E>>, Dumpable
     private List<MappedResource<E>> mappings = new ArrayList<MappedResource<E>>();
     private MappedResource<E> defaultResource = null;
     private MappedResource<E> rootResource = null;
+    private volatile Index<E> index;
 
     @Override
     public String dump()
@@ -67,6 +72,7 @@ public class PathMappings<E> implements Iterable<MappedResource<E>>, Dumpable
     public void reset()
     {
         mappings.clear();
+        index = null;
     }
     
     /**
@@ -111,14 +117,17 @@ public class PathMappings<E> implements Iterable<MappedResource<E>>, Dumpable
             return rootResource;
         }
         
-        int len = mappings.size();
-        for (int i = 0; i < len; i++)
+        Index<E> idx = index;
+        if (idx == null)
         {
-            MappedResource<E> mr = mappings.get(i);
-            if (mr.getPathSpec().matches(path))
-            {
-                return mr;
-            }
+            idx = new Index<>(mappings);
+            index = idx;
+        }
+
+        MappedResource<E> mr = idx.getMatch(path);
+        if (mr != null)
+        {
+            return mr;
         }
         return defaultResource;
     }
@@ -149,6 +158,7 @@ public class PathMappings<E> implements Iterable<MappedResource<E>>, Dumpable
         if (LOG.isDebugEnabled())
             LOG.debug("Added {} to {}",entry,this);
         Collections.sort(mappings);
+        index = null;
     }
 
     @Override
@@ -156,4 +166,154 @@ public class PathMappings<E> implements Iterable<MappedResource<E>>, Dumpable
     {
         return String.format("%s[size=%d]",this.getClass().getSimpleName(),mappings.size());
     }
+
+    /**
+     * The mappings compiled for {@link PathMappings#getMatch(String)}.
+     * <p>
+     * The servlet path specs of the exact, prefix and suffix groups are looked up
+     * by a map and by tries of their prefixes and suffixes, which give the best
+     * match of each group directly. All other path specs are tested in search
+     * order, interleaved with the looked up matches by group, so that the result
+     * is the same as testing all the mappings in search order.
+     * <p>
+     * An index is immutable once built and is rebuilt after the mappings change.
+     */
+    private static class Index<E>
+    {
+        private final Map<String, MappedResource<E>> exact = new HashMap<>();
+        private final Trie<MappedResource<E>> prefix;
+        private final Trie<MappedResource<E>> suffix;
+        private MappedResource<E> prefixDefault;
+        private final List<MappedResource<E>> others = new ArrayList<>();
+
+        private Index(List<MappedResource<E>> mappings)
+        {
+            int prefixLength = 1;
+            int suffixLength = 1;
+            for (MappedResource<E> mr : mappings)
+            {
+                PathSpec spec = mr.getPathSpec();
+                if (spec instanceof ServletPathSpec)
+                {
+                    if (spec.group == PathSpecGroup.PREFIX_GLOB)
+                        prefixLength += spec.specLength;
+                    else if (spec.group == PathSpecGroup.SUFFIX_GLOB)
+                        suffixLength += spec.specLength;
+                }
+            }
+            prefix = new ArrayTernaryTrie<>(false,Math.min(prefixLength,Character.MAX_VALUE));
+            suffix = new ArrayTernaryTrie<>(false,Math.min(suffixLength,Character.MAX_VALUE));
+
+            // The mappings are in search order, so only the first of equal specs is indexed
+            for (MappedResource<E> mr : mappings)
+            {
+                PathSpec spec = mr.getPathSpec();
+                if (!(spec instanceof ServletPathSpec) || !index(mr))
+                    others.add(mr);
+            }
+        }
+
+        private boolean index(MappedResource<E> mr)
+        {
+            PathSpec spec = mr.getPathSpec();
+            String declaration = spec.getDeclaration();
+            switch (spec.group)
+            {
+                case EXACT:
+                    if (!exact.containsKey(declaration))
+                        exact.put(declaration,mr);
+                    return true;
+
+                case PREFIX_GLOB:
+                    if (spec.specLength == 2)
+                    {
+                        if (prefixDefault == null)
+                            prefixDefault = mr;
+                        return true;
+                    }
+                    String mapped = declaration.substring(0,spec.specLength - 2);
+                    return prefix.get(mapped) != null || prefix.put(mapped,mr);
+
+                case SUFFIX_GLOB:
+                    String extension = declaration.substring(1);
+                    return suffix.get(extension) != null || suffix.put(extension,mr);
+
+                default:
+                    return false;
+            }
+        }
+
+        private MappedResource<E> getMatch(String path)
+        {
+            MappedResource<E> indexed = null;
+            int next = PathSpecGroup.EXACT.ordinal();
+            int last = PathSpecGroup.SUFFIX_GLOB.ordinal();
+
+            for (int i = 0; i < others.size(); i++)
+            {
+                MappedResource<E> mr = others.get(i);
+
+                // Look up the indexed groups that are not after this mapping
+                int group = mr.getPathSpec().group.ordinal();
+                while (indexed == null && next <= last && next <= group)
+                    indexed = lookup(next++,path);
+
+                if (indexed != null && indexed.compareTo(mr) < 0)
+                    return indexed;
+                if (mr.getPathSpec().matches(path))
+                    return mr;
+            }
+
+            while (indexed == null && next <= last)
+                indexed = lookup(next++,path);
+            return indexed;
+        }
+
+        private MappedResource<E> lookup(int group, String path)
+        {
+            switch (PathSpecGroup.values()[group])
+            {
+                case EXACT:
+                    return exact.get(path);
+
+                case PREFIX_GLOB:
+                {
+                    // For a spec of "/foo/*" match "/foo" , "/foo/..." but not "/foobar"
+                    int l = path.length();
+                    int i = l;
+                    while (i >= 0)
+                    {
+                        MappedResource<E> mr = prefix.getBest(path,0,i);
+                        if (mr == null)
+                            break;
+                        int cpl = mr.getPathSpec().specLength - 2;
+                        if (cpl == l || path.charAt(cpl) == '/')
+                            return mr;
+                        i = cpl - 1;
+                    }
+                    if (prefixDefault != null && (l == 0 || path.charAt(0) == '/'))
+                        return prefixDefault;
+                    return null;
+                }
+
+                case SUFFIX_GLOB:
+                {
+                    // The longest suffix is the one starting at the first possible '.'
+                    int l = path.length();
+                    int i = path.indexOf('.');
+                    while (i >= 0)
+                    {
+                        MappedResource<E> mr = suffix.get(path,i,l - i);
+                        if (mr != null)
+                            return mr;
+                        i = path.indexOf('.',i + 1);
+                    }
+                    return null;
+                }
+
+                default:
+                    return null;
+            }
+        }
+    }
 }
@@ -0,0 +1,109 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.toolchain.test.AdvancedRunner;
+import org.eclipse.jetty.toolchain.test.annotation.Stress;
+import org.eclipse.jetty.util.URIUtil;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AdvancedRunner.class)
+public class CanonicalPathBenchmarkTest
+{
+    private static final Logger logger = Log.getLogger(CanonicalPathBenchmarkTest.class);
+
+    private static final String[] URIS =
+    {
+        "/context/servlet/path/to/resource.html",
+        "/static/css/site.min.css?v=12",
+        "/api/v1/users/12345/orders/67890/items",
+        "/context/servlet/with%20space/info",
+    };
+
+    private interface Canonicalizer
+    {
+        String canonicalize(HttpURI uri);
+    }
+
+    private static final Canonicalizer TWO_PASS = new Canonicalizer()
+    {
+        @Override
+        public String canonicalize(HttpURI uri)
+        {
+            return URIUtil.canonicalPath(uri.getDecodedPath());
+        }
+    };
+
+    private static final Canonicalizer SINGLE_PASS = new Canonicalizer()
+    {
+        @Override
+        public String canonicalize(HttpURI uri)
+        {
+            return uri.getCanonicalPath();
+        }
+    };
+
+    @Test
+    public void testSamePaths() throws Exception
+    {
+        for (String u : URIS)
+        {
+            HttpURI uri = new HttpURI(u);
+            assertEquals(u, TWO_PASS.canonicalize(uri), SINGLE_PASS.canonicalize(uri));
+        }
+    }
+
+    @Stress("High CPU")
+    @Test
+    public void testCanonicalize() throws Exception
+    {
+        int iterations = 4 * 1024 * 1024;
+        int runs = 4;
+
+        for (int i = 0; i < runs; ++i)
+        {
+            long twoPass = run(iterations, TWO_PASS);
+            long singlePass = run(iterations, SINGLE_PASS);
+            logger.info("{} paths: two pass {} ms, single pass {} ms", iterations, twoPass, singlePass);
+        }
+    }
+
+    private long run(int iterations, Canonicalizer canonicalizer)
+    {
+        HttpURI[] uris = new HttpURI[URIS.length];
+        for (int i = 0; i < uris.length; ++i)
+            uris[i] = new HttpURI(URIS[i]);
+
+        long length = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < iterations; ++i)
+            length += canonicalizer.canonicalize(uris[i % uris.length]).length();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        assertTrue(length > 0);
+        return elapsed;
+    }
+}
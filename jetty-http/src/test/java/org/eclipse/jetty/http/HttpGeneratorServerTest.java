@@ -73,6 +73,31 @@ public class HttpGeneratorServerTest
         assertThat(response, containsString("\r\n0123456789"));
     }
     
+    @Test
+    public void testPreEncodedFields() throws Exception
+    {
+        ByteBuffer header = BufferUtil.allocate(8096);
+        ByteBuffer content = BufferUtil.toBuffer("0123456789");
+
+        PreEncodedHttpField type = new PreEncodedHttpField(HttpHeader.CONTENT_TYPE, "text/html;charset=utf-8");
+        PreEncodedHttpField custom = new PreEncodedHttpField("X-Custom:Name", "one\r\ntwo");
+        assertEquals(HttpHeader.CONTENT_TYPE, type.getHeader());
+        assertEquals("Content-Type: text/html;charset=utf-8\r\n".length(), type.getEncodedLength());
+
+        HttpGenerator gen = new HttpGenerator();
+        ResponseInfo info = new ResponseInfo(HttpVersion.HTTP_1_1, new HttpFields(), 10, 200, null, false);
+        info.getHttpFields().add(type);
+        info.getHttpFields().add(custom);
+
+        HttpGenerator.Result result = gen.generateResponse(info, header, null, content, true);
+        assertEquals(HttpGenerator.Result.FLUSH, result);
+        String response = BufferUtil.toString(header);
+
+        assertThat(response, containsString("\r\nContent-Type: text/html;charset=utf-8\r\n"));
+        assertThat(response, containsString("\r\nX-Custom?Name: one  two\r\n"));
+        assertThat(response, containsString("Content-Length: 10"));
+    }
+
     @Test
     public void test204() throws Exception
     {
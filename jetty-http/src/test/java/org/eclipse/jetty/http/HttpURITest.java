@@ -20,9 +20,13 @@
 package org.eclipse.jetty.http;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import java.net.URI;
+import java.util.Random;
 
+import org.eclipse.jetty.util.MultiMap;
+import org.eclipse.jetty.util.URIUtil;
 import org.junit.Test;
 
 
@@ -76,4 +80,130 @@ public class HttpURITest
             assertEquals(test[FRAGMENT], uri.getFragment());
         }
     }
+
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testQueryParameters() throws Exception
+    {
+        String[] queries=
+        {
+            "/path",
+            "/path?",
+            "/path?a=1&b=2&a=3",
+            "/path?a=1&&b&=c&d=e=f#a=x",
+            "/path?n%61me=v%61lue&na+me=a+b&name=%u0041&name=%E2%82%AC",
+            "/path?ab=1&a=2&abc=3&%61=4",
+        };
+        String[] names={"a","b","c","d","","name","na me","ab","abc","x"};
+
+        for (String query:queries)
+        {
+            HttpURI uri = new HttpURI(query);
+            MultiMap<String> expected = new MultiMap<>();
+            uri.decodeQueryTo(expected);
+
+            for (String name:names)
+            {
+                assertEquals(query+" "+name,expected.getValue(name,0),uri.getQueryParameter(name));
+                assertEquals(query+" "+name,expected.getValues(name),uri.getQueryParameterValues(name));
+            }
+        }
+
+        // The index is reset when the URI is reused
+        HttpURI uri = new HttpURI("/path?a=1");
+        assertEquals("1",uri.getQueryParameter("a"));
+        uri.parse("/other?b=2");
+        assertNull(uri.getQueryParameter("a"));
+        assertEquals("2",uri.getQueryParameter("b"));
+        uri.clear();
+        assertNull(uri.getQueryParameter("b"));
+    }
+
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testCanonicalPath() throws Exception
+    {
+        String[] paths=
+        {
+            "/",
+            "/path/to/context",
+            "/path/to/context/",
+            "/path/./to/../context",
+            "/path/to/context/.",
+            "/path/to/context/..",
+            "/../context",
+            "/path/%2e%2e/context",
+            "/path/%2e%2e/%2e%2e/context",
+            "/path/..a/.b/...",
+            "/caf%C3%A9/%u20ac",
+            "/caf\u00e9/context",
+            "http://host/a/b/../c?q=1",
+            "http://host?q=1",
+            "/path;param?query",
+        };
+
+        for (String path:paths)
+        {
+            HttpURI uri = new HttpURI(path);
+            assertEquals(path,URIUtil.canonicalPath(uri.getDecodedPath()),uri.getCanonicalPath());
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testRandomQueryParameters() throws Exception
+    {
+        String[] names={"a","b","ab","n%61me","na+me","%u0041","A",""};
+        String[] values={"1","","x+y","%E2%82%AC","caf%C3%A9","a=b","%2526"};
+        String[] lookups={"a","b","ab","name","na me","A",""};
+
+        long seed=0x5EEDL;
+        Random random=new Random(seed);
+        for (int i=0;i<10000;i++)
+        {
+            StringBuilder query=new StringBuilder("/path?");
+            int parameters=random.nextInt(6);
+            for (int p=0;p<parameters;p++)
+            {
+                if (p>0)
+                    query.append(random.nextInt(8)==0?"&&":"&");
+                query.append(names[random.nextInt(names.length)]);
+                if (random.nextInt(4)>0)
+                    query.append('=').append(values[random.nextInt(values.length)]);
+            }
+            if (random.nextInt(8)==0)
+                query.append("#a=x");
+
+            HttpURI uri = new HttpURI(query.toString());
+            MultiMap<String> expected = new MultiMap<>();
+            uri.decodeQueryTo(expected);
+            for (String name:lookups)
+            {
+                assertEquals(seed+" "+query+" "+name,expected.getValue(name,0),uri.getQueryParameter(name));
+                assertEquals(seed+" "+query+" "+name,expected.getValues(name),uri.getQueryParameterValues(name));
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testRandomCanonicalPaths() throws Exception
+    {
+        String[] segments={"a","bc","",".","..","...",".a","%2e","%2e%2e","%2E.","a%20b","caf%C3%A9","%u20ac","caf\u00e9"};
+        String[] suffixes={"","/","?q=1",";p","#f"};
+
+        long seed=0xCA40L;
+        Random random=new Random(seed);
+        for (int i=0;i<10000;i++)
+        {
+            StringBuilder path=new StringBuilder();
+            int length=1+random.nextInt(6);
+            for (int s=0;s<length;s++)
+                path.append('/').append(segments[random.nextInt(segments.length)]);
+            path.append(suffixes[random.nextInt(suffixes.length)]);
+
+            HttpURI uri = new HttpURI(path.toString());
+            assertEquals(seed+" "+path,URIUtil.canonicalPath(uri.getDecodedPath()),uri.getCanonicalPath());
+        }
+    }
 }
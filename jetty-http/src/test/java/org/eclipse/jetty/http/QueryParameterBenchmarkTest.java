@@ -0,0 +1,116 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.toolchain.test.AdvancedRunner;
+import org.eclipse.jetty.toolchain.test.annotation.Stress;
+import org.eclipse.jetty.util.MultiMap;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AdvancedRunner.class)
+public class QueryParameterBenchmarkTest
+{
+    private static final Logger logger = Log.getLogger(QueryParameterBenchmarkTest.class);
+
+    private static final String[] URIS =
+    {
+        "/api/v1/items?id=12345&fields=name,price,stock&sort=price&order=desc&page=3&size=50&locale=en_US&session=0123456789abcdef",
+        "/search?q=jetty+http+server&lang=en&start=20&num=10&safe=off&client=browser&ts=1414141414141&ref=%2Fhome%3Ftab%3D1",
+        "/track?utm_source=news&utm_medium=email&utm_campaign=autumn&utm_term=caf%C3%A9&utm_content=link&uid=42&v=2&cb=9876",
+    };
+
+    private static final String[] NAMES = {"id", "q", "uid", "missing"};
+
+    private interface Lookup
+    {
+        String lookup(HttpURI uri, String name);
+    }
+
+    private static final Lookup EAGER = new Lookup()
+    {
+        @Override
+        public String lookup(HttpURI uri, String name)
+        {
+            MultiMap<String> parameters = new MultiMap<>();
+            uri.decodeQueryTo(parameters);
+            return parameters.getValue(name, 0);
+        }
+    };
+
+    private static final Lookup LAZY = new Lookup()
+    {
+        @Override
+        public String lookup(HttpURI uri, String name)
+        {
+            return uri.getQueryParameter(name);
+        }
+    };
+
+    @Test
+    public void testLazyMatchesEager() throws Exception
+    {
+        for (String u : URIS)
+        {
+            for (String name : NAMES)
+                assertEquals(u + " " + name, EAGER.lookup(new HttpURI(u), name), LAZY.lookup(new HttpURI(u), name));
+        }
+    }
+
+    @Stress("High CPU")
+    @Test
+    public void testLookups() throws Exception
+    {
+        int iterations = 1024 * 1024;
+        int runs = 4;
+
+        for (int i = 0; i < runs; ++i)
+        {
+            long eager = run(iterations, EAGER);
+            long lazy = run(iterations, LAZY);
+            logger.info("{} lookups: eager {} ms, lazy {} ms", iterations, eager, lazy);
+        }
+    }
+
+    private long run(int iterations, Lookup lookup)
+    {
+        HttpURI[] uris = new HttpURI[URIS.length];
+        for (int i = 0; i < uris.length; ++i)
+            uris[i] = new HttpURI();
+
+        int found = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < iterations; ++i)
+        {
+            int u = i % URIS.length;
+            uris[u].parse(URIS[u]);
+            if (lookup.lookup(uris[u], NAMES[u]) != null)
+                ++found;
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        assertEquals(iterations, found);
+        return elapsed;
+    }
+}
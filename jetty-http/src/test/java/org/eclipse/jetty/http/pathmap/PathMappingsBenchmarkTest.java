@@ -0,0 +1,116 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http.pathmap;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.toolchain.test.AdvancedRunner;
+import org.eclipse.jetty.toolchain.test.annotation.Stress;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AdvancedRunner.class)
+public class PathMappingsBenchmarkTest
+{
+    private static final Logger LOG = Log.getLogger(PathMappingsBenchmarkTest.class);
+
+    private static PathMappings<String> newPathMappings(int services)
+    {
+        PathMappings<String> p = new PathMappings<>();
+        for (int i = 0; i < services; i++)
+        {
+            p.put(new ServletPathSpec("/service" + i + "/status"),"status" + i);
+            p.put(new ServletPathSpec("/service" + i + "/*"),"service" + i);
+            p.put(new ServletPathSpec("/service" + i + "/admin/*"),"admin" + i);
+            p.put(new ServletPathSpec("*.ext" + i),"ext" + i);
+        }
+        p.put(new RegexPathSpec("^/legacy/[^/]*/item$"),"legacy");
+        p.put(new UriTemplatePathSpec("/users/{id}"),"users");
+        p.put(new ServletPathSpec("/"),"default");
+        return p;
+    }
+
+    private static String[] newPaths(int services)
+    {
+        return new String[]
+        {
+            "/service" + (services / 2) + "/status",
+            "/service" + (services - 1) + "/some/resource",
+            "/service" + (services / 3) + "/admin/console",
+            "/static/file.ext" + (services / 4),
+            "/legacy/x/item",
+            "/users/1234",
+            "/unknown/path",
+        };
+    }
+
+    private static MappedResource<String> linearMatch(List<MappedResource<String>> mappings, String path)
+    {
+        for (MappedResource<String> mr : mappings)
+        {
+            if (mr.getPathSpec().matches(path))
+                return mr;
+        }
+        return null;
+    }
+
+    @Test
+    public void testSameMatches()
+    {
+        PathMappings<String> p = newPathMappings(100);
+        for (String path : newPaths(100))
+            assertEquals(path,linearMatch(p.getMappings(),path),p.getMatch(path));
+    }
+
+    @Stress("High CPU")
+    @Test
+    public void testMatch()
+    {
+        int services = 1000;
+        int iterations = 10000;
+        PathMappings<String> p = newPathMappings(services);
+        String[] paths = newPaths(services);
+
+        for (int r = 0; r < 4; r++)
+        {
+            long begin = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+            {
+                for (String path : paths)
+                    linearMatch(p.getMappings(),path);
+            }
+            long linear = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+            begin = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+            {
+                for (String path : paths)
+                    p.getMatch(path);
+            }
+            long indexed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+            LOG.info("{} mappings, {} matches: linear {} ms, indexed {} ms",p.getMappings().size(),iterations * paths.length,linear,indexed);
+        }
+    }
+}
@@ -22,6 +22,8 @@ import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Random;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -278,4 +280,109 @@ public class PathMappingsTest
         assertEquals("suffix",p.getMatch("/foo/something.txt").getResource());
         assertEquals("prefix",p.getMatch("/dump/gzip/something.txt").getResource());
     }
+
+    @Test
+    public void testIndexedMatchesLinearSearch() throws Exception
+    {
+        PathMappings<String> p = new PathMappings<>();
+        String[] servletSpecs = {"/a/b/c","/a/b","/a/*","/a/b/*","/a/bc/*","/x/*","/*","*.do","*.tar.gz","*.gz","*.","/index.html","/a/b/c.do"};
+        for (String spec : servletSpecs)
+            p.put(new ServletPathSpec(spec),"servlet:" + spec);
+        p.put(new RegexPathSpec("^/a/b/c$"),"regex-exact");
+        p.put(new RegexPathSpec("^/a/[^/]*/c$"),"regex-middle");
+        p.put(new RegexPathSpec("^/a/b/.*$"),"regex-prefix");
+        p.put(new UriTemplatePathSpec("/x/{var}"),"template-prefix");
+
+        String[] paths = {"/","","/a","/a/","/a/b","/a/b/","/a/b/c","/a/bc","/a/bc/d","/a/z/c","/a/b/c.do","/a/b/c/d.tar.gz","/file.gz",
+            "/file.tar.gz","/file.","/.gz","/index.html","/x","/x/y","/x/y/z","/other","/other.do","noslash","noslash.do"};
+
+        for (String path : paths)
+        {
+            MappedResource<String> expected = null;
+            for (MappedResource<String> mr : p.getMappings())
+            {
+                if (mr.getPathSpec().matches(path))
+                {
+                    expected = mr;
+                    break;
+                }
+            }
+            assertEquals(path,expected,p.getMatch(path));
+        }
+
+        // The index is rebuilt when the mappings change
+        assertEquals("servlet:/a/*",p.getMatch("/a/q").getResource());
+        p.put(new ServletPathSpec("/a/q"),"added");
+        assertEquals("added",p.getMatch("/a/q").getResource());
+        p.reset();
+        assertEquals(null,p.getMatch("/a/q"));
+    }
+
+    @Test
+    public void testRandomIndexedMatchesLinearSearch() throws Exception
+    {
+        String[] segments = {"a","b","bc","x","index.html","c.do"};
+        String[] extensions = {"do","gz","tar.gz","html",""};
+
+        long seed = 0x7A7CL;
+        Random random = new Random(seed);
+        for (int m = 0; m < 200; m++)
+        {
+            PathMappings<String> p = new PathMappings<>();
+            int specs = 1 + random.nextInt(20);
+            for (int s = 0; s < specs; s++)
+            {
+                String path = randomPath(random,segments);
+                switch (random.nextInt(7))
+                {
+                    case 0:
+                        p.put(new ServletPathSpec(path),"exact:" + path);
+                        break;
+                    case 1:
+                    case 2:
+                        p.put(new ServletPathSpec(path + "/*"),"prefix:" + path);
+                        break;
+                    case 3:
+                        String extension = extensions[random.nextInt(extensions.length)];
+                        p.put(new ServletPathSpec("*." + extension),"suffix:" + extension);
+                        break;
+                    case 4:
+                        p.put(new ServletPathSpec(random.nextBoolean()?"/":"/*"),"default");
+                        break;
+                    case 5:
+                        p.put(new RegexPathSpec("^" + path + "(/.*)?$"),"regex:" + path);
+                        break;
+                    default:
+                        p.put(new UriTemplatePathSpec(path + "/{var}"),"template:" + path);
+                        break;
+                }
+            }
+
+            for (int i = 0; i < 50; i++)
+            {
+                String path = randomPath(random,segments);
+                if (random.nextInt(4) == 0)
+                    path += "/";
+                MappedResource<String> expected = null;
+                for (MappedResource<String> mr : p.getMappings())
+                {
+                    if (mr.getPathSpec().matches(path))
+                    {
+                        expected = mr;
+                        break;
+                    }
+                }
+                assertEquals(seed + " " + p.getMappings() + " " + path,expected,p.getMatch(path));
+            }
+        }
+    }
+
+    private static String randomPath(Random random, String[] segments)
+    {
+        StringBuilder path = new StringBuilder();
+        int length = 1 + random.nextInt(3);
+        for (int s = 0; s < length; s++)
+            path.append('/').append(segments[random.nextInt(segments.length)]);
+        return path.toString();
+    }
 }
@@ -29,6 +29,7 @@ import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.thread.NonBlockingThread;
+import org.eclipse.jetty.util.thread.Prioritized;
 
 /**
  * <p>A convenience base implementation of {@link Connection}.</p>
@@ -95,7 +96,7 @@ public abstract class AbstractConnection implements Connection
         {
             try
             {
-                getExecutor().execute(new Runnable()
+                getExecutor().execute(new Prioritized.Task(Prioritized.Priority.HIGH)
                 {
                     @Override
                     public void run()
@@ -572,7 +573,7 @@ public abstract class AbstractConnection implements Connection
         @Override
         public void failed(final Throwable x)
         {
-            _executor.execute(new Runnable()
+            _executor.execute(new Prioritized.Task(Prioritized.Priority.HIGH)
             {
                 @Override
                 public void run()
@@ -25,6 +25,7 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketTimeoutException;
 import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
@@ -354,6 +355,20 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
         LOG.warn(String.format("%s - %s", channel, attachment), ex);
     }
 
+    /**
+     * <p>Callback method invoked when an accepted channel cannot be registered with a selector,
+     * or its endpoint cannot be created, after the channel has been closed.</p>
+     * <p>By default it just logs with level debug.</p>
+     *
+     * @param channel the accepted channel, now closed
+     * @param ex the exception that caused the accept to fail
+     * @param attachment the attachment object passed to {@link #accept(SocketChannel, Object)}
+     */
+    protected void acceptFailed(SocketChannel channel, Throwable ex, Object attachment)
+    {
+        LOG.debug(String.format("%s - %s", channel, attachment), ex);
+    }
+
     /**
      * <p>Factory method to create {@link EndPoint}.</p>
      * <p>This method is invoked as a result of the registration of a channel via {@link #connect(SocketChannel, Object)}
@@ -434,6 +449,18 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
             Stop stop = new Stop();
             submit(stop);
             stop.await(getStopTimeout());
+
+            // Changes queued behind the stop are never run, so fail the pending accepts
+            List<Runnable> changes = new ArrayList<>();
+            Runnable change;
+            while ((change = _changes.poll()) != null)
+            {
+                if (change instanceof Accept)
+                    ((Accept)change).failed(new ClosedSelectorException());
+                else
+                    changes.add(change);
+            }
+            _changes.addAll(changes);
             if (LOG.isDebugEnabled())
                 LOG.debug("Stopped {}", this);
         }
@@ -902,10 +929,15 @@ public abstract class SelectorManager extends AbstractLifeCycle implements Dumpa
                 }
                 catch (Throwable x)
                 {
-                    closeNoExceptions(channel);
-                    LOG.debug(x);
+                    failed(x);
                 }
             }
+
+            private void failed(Throwable failure)
+            {
+                closeNoExceptions(channel);
+                acceptFailed(channel, failure, attachment);
+            }
         }
 
         private class Connect implements Runnable
@@ -44,6 +44,7 @@ import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.Prioritized;
 
 /**
  * A Connection that acts as an interceptor between an EndPoint providing SSL encrypted data
@@ -90,7 +91,7 @@ public class SslConnection extends AbstractConnection
     private ByteBuffer _encryptedOutput;
     private final boolean _encryptedDirectBuffers = false;
     private final boolean _decryptedDirectBuffers = false;
-    private final Runnable _runCompletWrite = new Runnable()
+    private final Runnable _runCompletWrite = new Prioritized.Task(Prioritized.Priority.HIGH)
     {
         @Override
         public void run()
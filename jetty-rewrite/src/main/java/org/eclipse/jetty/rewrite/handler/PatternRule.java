@@ -60,6 +60,7 @@ public abstract class PatternRule extends Rule {
      */
     public void setPattern(String pattern) {
         _pattern = pattern;
+        invalidateContainers();
     }
 
     /* ------------------------------------------------------------ */
@@ -295,6 +295,26 @@ public class RewriteHandler extends HandlerWrapper
         _rules.setOriginalPathAttribute(originalPathAttribute);
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the maximum number of targets for which the candidate rules are cached, or 0 if not cached.
+     */
+    public int getMatchCacheSize()
+    {
+        return _rules.getMatchCacheSize();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param matchCacheSize the maximum number of targets for which the candidate rules
+     * are cached, or 0 (the default) to not cache.
+     * @see RuleContainer#setMatchCacheSize(int)
+     */
+    public void setMatchCacheSize(int matchCacheSize)
+    {
+        _rules.setMatchCacheSize(matchCacheSize);
+    }
+
     /* ------------------------------------------------------------ */
     public EnumSet<DispatcherType> getDispatcherTypes()
     {
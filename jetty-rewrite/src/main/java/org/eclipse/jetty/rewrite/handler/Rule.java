@@ -24,6 +24,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.util.ArrayUtil;
 
 /**
  * An abstract rule for creating rewrite rules.
@@ -41,6 +42,8 @@ public abstract class Rule
     protected boolean _terminating;
     protected boolean _handling;
     
+    private volatile RuleContainer[] _containers;
+    
     /**
      * This method calls tests the rule against the request/response pair and if the Rule 
      * applies, then the rule's action is triggered.
@@ -94,6 +97,32 @@ public abstract class Rule
         _handling=handling;
     }
     
+    /**
+     * Register a container that indexes this rule, so that it can be 
+     * invalidated when the pattern of this rule changes.
+     * @param container the container of this rule
+     */
+    synchronized void addContainer(RuleContainer container)
+    {
+        RuleContainer[] containers=_containers;
+        if (containers!=null)
+            for (RuleContainer c : containers)
+                if (c==container)
+                    return;
+        _containers=ArrayUtil.addToArray(containers,container,RuleContainer.class);
+    }
+    
+    /**
+     * Invalidate the index of the containers of this rule, after its pattern has changed.
+     */
+    void invalidateContainers()
+    {
+        RuleContainer[] containers=_containers;
+        if (containers!=null)
+            for (RuleContainer container : containers)
+                container.invalidate();
+    }
+    
     /**
      * Returns the handling and terminating flag values.
      */
@@ -19,6 +19,13 @@
 package org.eclipse.jetty.rewrite.handler;
 
 import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -43,6 +50,10 @@ public class RuleContainer extends Rule
 
     protected Rule[] _rules;
     
+    private final AtomicInteger _version = new AtomicInteger();
+    private volatile Index _index;
+    private int _matchCacheSize;
+    
     protected String _originalPathAttribute;
     protected boolean _rewriteRequestURI=true;
     protected boolean _rewritePathInfo=true;
@@ -115,6 +126,40 @@ public class RuleContainer extends Rule
     }
    
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the maximum number of targets for which the candidate rules are cached, or 0 if not cached.
+     */
+    public int getMatchCacheSize()
+    {
+        return _matchCacheSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Cache the rules that are candidates to match a target, so that repeated targets
+     * are not looked up again. Only the candidates are cached: the rules are still
+     * matched and applied to every request.
+     * @param matchCacheSize the maximum number of targets cached, or 0 (the default) to not cache.
+     */
+    public void setMatchCacheSize(int matchCacheSize)
+    {
+        _matchCacheSize=matchCacheSize;
+        invalidate();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Invalidate the index of the rules, so that it is rebuilt for the next request.
+     * This is called by the contained {@link PatternRule}s and {@link RegexRule}s
+     * when their pattern changes.
+     */
+    public void invalidate()
+    {
+        _version.incrementAndGet();
+        _index=null;
+    }
+
     /* ------------------------------------------------------------ */
     /**
      * @return the rewriteRequestURI If true, this handler will rewrite the value
@@ -196,9 +241,13 @@ public class RuleContainer extends Rule
     protected String apply(String target, HttpServletRequest request, HttpServletResponse response) throws IOException
     {
         boolean original_set=_originalPathAttribute==null;
-                
-        for (Rule rule : _rules)
+        
+        Index index=getIndex();
+        Rule[] rules=index._rules;
+        BitSet candidates=index.getCandidates(target);
+        for (int i=candidates.nextSetBit(0);i>=0;i=candidates.nextSetBit(i+1))
         {
+            Rule rule=rules[i];
             String applied=rule.matchAndApply(target,request, response);
             if (applied!=null)
             {       
@@ -222,6 +271,8 @@ public class RuleContainer extends Rule
                 if (_rewritePathInfo)
                     ((Request)request).setPathInfo(applied);
 
+                if (!applied.equals(target))
+                    candidates=index.getCandidates(applied);
                 target=applied;
                 
                 if (rule.isHandling())
@@ -240,4 +291,213 @@ public class RuleContainer extends Rule
 
         return target;
     }
+
+    /* ------------------------------------------------------------ */
+    private Index getIndex()
+    {
+        Index index=_index;
+        int version=_version.get();
+        if (index==null || index._rules!=_rules || index._version!=version)
+        {
+            Rule[] rules=_rules;
+            if (rules!=null)
+                for (Rule rule : rules)
+                    if (rule instanceof PatternRule || rule instanceof RegexRule)
+                        rule.addContainer(this);
+            // A pattern changed while building the index changes the version, so the index is rebuilt
+            index=new Index(rules,_matchCacheSize,version);
+            _index=index;
+        }
+        return index;
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /** An index of the rules that may match a target.
+     * <p>
+     * The {@link PatternRule}s and {@link RegexRule}s that do not override their
+     * matching are indexed by the exact target, the prefix or the suffix that
+     * their pattern requires. For a regex, that is the literal prefix of the
+     * expression. The other rules are candidates for every target. The index
+     * is only a filter: the candidate rules still match the target themselves.
+     */
+    private static class Index
+    {
+        private final Rule[] _rules;
+        private final int _version;
+        private final BitSet _unindexed = new BitSet();
+        private final Map<String,BitSet> _exact = new HashMap<>();
+        private final Map<String,BitSet> _prefixes = new HashMap<>();
+        private final Map<String,BitSet> _suffixes = new HashMap<>();
+        private final int[] _prefixLengths;
+        private final int[] _suffixLengths;
+        private final int _cacheSize;
+        private final Map<String,BitSet> _cache;
+
+        Index(Rule[] rules, int cacheSize, int version)
+        {
+            _version=version;
+            _rules=rules==null?new Rule[0]:rules;
+            _cacheSize=cacheSize;
+            _cache=cacheSize>0?new ConcurrentHashMap<String,BitSet>():null;
+
+            TreeSet<Integer> prefixLengths=new TreeSet<>();
+            TreeSet<Integer> suffixLengths=new TreeSet<>();
+            for (int i=0;i<_rules.length;i++)
+            {
+                Rule rule=_rules[i];
+                if (rule instanceof PatternRule && isDeclaredBy(rule,PatternRule.class))
+                {
+                    String pattern=((PatternRule)rule).getPattern();
+                    if (pattern==null)
+                        _unindexed.set(i);
+                    else if (pattern.length()==0)
+                        add(_exact,"/",i);
+                    else if (pattern.charAt(0)=='*' && pattern.length()>1)
+                    {
+                        String suffix=pattern.substring(1);
+                        add(_suffixes,suffix,i);
+                        suffixLengths.add(suffix.length());
+                    }
+                    else if (pattern.charAt(0)=='/' && pattern.endsWith("/*"))
+                    {
+                        // also matches the pattern itself, which starts with the prefix
+                        String prefix=pattern.substring(0,pattern.length()-2);
+                        if (prefix.length()==0)
+                            _unindexed.set(i); // "/*" matches every target
+                        else
+                        {
+                            add(_prefixes,prefix,i);
+                            prefixLengths.add(prefix.length());
+                        }
+                    }
+                    else if (pattern.charAt(0)=='/' && pattern.length()>1)
+                        add(_exact,pattern,i);
+                    else
+                        _unindexed.set(i);
+                }
+                else if (rule instanceof RegexRule && isDeclaredBy(rule,RegexRule.class))
+                {
+                    String prefix=getLiteralPrefix(((RegexRule)rule)._regex);
+                    if (prefix==null || prefix.length()==0)
+                        _unindexed.set(i);
+                    else
+                    {
+                        add(_prefixes,prefix,i);
+                        prefixLengths.add(prefix.length());
+                    }
+                }
+                else
+                    _unindexed.set(i);
+            }
+
+            _prefixLengths=toArray(prefixLengths);
+            _suffixLengths=toArray(suffixLengths);
+        }
+
+        private static boolean isDeclaredBy(Rule rule, Class<?> type)
+        {
+            try
+            {
+                return rule.getClass().getMethod("matchAndApply",String.class,HttpServletRequest.class,HttpServletResponse.class).getDeclaringClass()==type;
+            }
+            catch (NoSuchMethodException e)
+            {
+                return false;
+            }
+        }
+
+        /**
+         * @return The literal characters that a target must start with to match
+         * the whole expression, or null if not known.
+         */
+        private static String getLiteralPrefix(Pattern regex)
+        {
+            if (regex==null || regex.flags()!=0)
+                return null;
+            String expression=regex.pattern();
+            if (expression.indexOf('|')>=0)
+                return null;
+
+            int start=expression.startsWith("^")?1:0;
+            int end=start;
+            while (end<expression.length() && "\\[](){}.*+?^$|".indexOf(expression.charAt(end))<0)
+                end++;
+            // a quantifier may make the last literal optional
+            if (end<expression.length() && end>start && "*?{".indexOf(expression.charAt(end))>=0)
+                end--;
+            return expression.substring(start,end);
+        }
+
+        private static void add(Map<String,BitSet> map, String key, int position)
+        {
+            BitSet positions=map.get(key);
+            if (positions==null)
+            {
+                positions=new BitSet();
+                map.put(key,positions);
+            }
+            positions.set(position);
+        }
+
+        private static int[] toArray(TreeSet<Integer> lengths)
+        {
+            int[] array=new int[lengths.size()];
+            int i=0;
+            for (Integer length : lengths)
+                array[i++]=length;
+            return array;
+        }
+
+        /**
+         * @param target The target to match
+         * @return The positions of the rules that may match the target, which must not be modified
+         */
+        BitSet getCandidates(String target)
+        {
+            if (_cache==null)
+                return lookup(target);
+
+            BitSet candidates=_cache.get(target);
+            if (candidates==null)
+            {
+                candidates=lookup(target);
+                if (_cache.size()>=_cacheSize)
+                    _cache.clear();
+                _cache.put(target,candidates);
+            }
+            return candidates;
+        }
+
+        private BitSet lookup(String target)
+        {
+            BitSet candidates=(BitSet)_unindexed.clone();
+
+            BitSet matched=_exact.get(target);
+            if (matched!=null)
+                candidates.or(matched);
+
+            int length=target.length();
+            for (int l : _prefixLengths)
+            {
+                if (l>length)
+                    break;
+                matched=_prefixes.get(target.substring(0,l));
+                if (matched!=null)
+                    candidates.or(matched);
+            }
+
+            for (int l : _suffixLengths)
+            {
+                if (l>length)
+                    break;
+                matched=_suffixes.get(target.substring(length-l));
+                if (matched!=null)
+                    candidates.or(matched);
+            }
+
+            return candidates;
+        }
+    }
 }
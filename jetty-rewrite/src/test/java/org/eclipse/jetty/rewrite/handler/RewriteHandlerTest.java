@@ -22,6 +22,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -166,6 +168,99 @@ public class RewriteHandlerTest extends AbstractRuleTestCase
     }
 
 
+    @Test
+    public void testIndexedRules() throws Exception
+    {
+        List<Rule> rules = new ArrayList<>();
+        for (int i=0;i<50;i++)
+        {
+            rules.add(rewritePattern("/exact"+i,"/exact"+(i+1)));
+            rules.add(rewritePattern("/prefix"+i+"/*","/prefix"+(i+1)));
+            rules.add(rewritePattern("*.ext"+i,"/suffix"+i));
+            rules.add(rewriteRegex("/regex"+i+"/(.*)","/regex"+(i+1)+"/$1"));
+        }
+        rules.add(rewriteRegex("^/opt?ional/(.*)","/optional/done/$1"));
+        rules.add(rewriteRegex("/alt/(.*)|/other/(.*)","/alternative"));
+        rules.add(rewriteRegex("(?i)/CASE/(.*)","/case/done"));
+        rules.add(rewritePattern("","/empty"));
+        rules.add(new Rule()
+        {
+            @Override
+            public String matchAndApply(String target, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                return target.endsWith("/custom")?target+"/done":null;
+            }
+        });
+        rules.add(new RewritePatternRule()
+        {
+            {
+                setPattern("/overridden/*");
+                setReplacement("/overridden/done");
+            }
+
+            @Override
+            public String matchAndApply(String target, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                return target.startsWith("/overridden/done")?null:super.matchAndApply(target,request,response);
+            }
+        });
+
+        RuleContainer container = new RuleContainer();
+        container.setRewriteRequestURI(false);
+        container.setRewritePathInfo(false);
+        container.setRules(rules.toArray(new Rule[rules.size()]));
+
+        String[] targets = new String[] {
+            "/", "/exact0", "/exact10", "/exact49", "/exact50", "/exact1x",
+            "/prefix0", "/prefix0/x", "/prefix0x", "/prefix3/a/b",
+            "/a.ext0", "/a.ext49", "/a.ext1/x", "/a.ext",
+            "/regex0/x", "/regex7/a/b", "/regex0", "/regex1x/a",
+            "/opional/x", "/optional/x", "/alt/x", "/other/x", "/case/x", "/CASE/x",
+            "/x/custom", "/overridden/x", "/unknown/path"
+        };
+
+        for (int cache : new int[] { 0, 4 })
+        {
+            container.setMatchCacheSize(cache);
+            for (int i=0;i<2;i++)
+            {
+                for (String target : targets)
+                {
+                    String expected=target;
+                    for (Rule rule : rules)
+                    {
+                        String applied=rule.matchAndApply(expected,_request,_response);
+                        if (applied!=null)
+                            expected=applied;
+                    }
+                    assertEquals(target,expected,container.matchAndApply(target,_request,_response));
+                }
+            }
+        }
+
+        // Changing a pattern is seen by the index
+        assertEquals("/exact50",container.matchAndApply("/exact0",_request,_response));
+        ((PatternRule)rules.get(0)).setPattern("/changed");
+        assertEquals("/exact0",container.matchAndApply("/exact0",_request,_response));
+        assertEquals("/exact50",container.matchAndApply("/changed",_request,_response));
+    }
+
+    private static RewritePatternRule rewritePattern(String pattern, String replacement)
+    {
+        RewritePatternRule rule = new RewritePatternRule();
+        rule.setPattern(pattern);
+        rule.setReplacement(replacement);
+        return rule;
+    }
+
+    private static RewriteRegexRule rewriteRegex(String regex, String replacement)
+    {
+        RewriteRegexRule rule = new RewriteRegexRule();
+        rule.setRegex(regex);
+        rule.setReplacement(replacement);
+        return rule;
+    }
+
     @Test
     public void testEncodedPattern() throws Exception
     {
@@ -0,0 +1,139 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.rewrite.handler;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.PathMap;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RuleContainerTest extends AbstractRuleTestCase
+{
+    private static final String[] PATTERNS = new String[] {
+        "/*", "/", "", "/foo", "/foo/*", "/foo/bar", "/foo/bar/*", "/foobar",
+        "*.txt", "*.bar.txt", "*", "/x*", "foo"
+    };
+
+    private static final String[] TARGETS = new String[] {
+        "/", "/foo", "/foo/", "/foo/bar", "/foo/bar/baz", "/foobar", "/foo.txt",
+        "/foo/bar.txt", "/x.bar.txt", "/x", "/x*", "/other/path", "/foo/*", "/foo/bar/*"
+    };
+
+    @Before
+    public void init() throws Exception
+    {
+        start(false);
+    }
+
+    @Test
+    public void testPatternRulesMatchLikePathMap() throws Exception
+    {
+        List<CountingRule> rules = new ArrayList<>();
+        for (String pattern : PATTERNS)
+            rules.add(new CountingRule(pattern));
+
+        RuleContainer container = new RuleContainer();
+        container.setRewriteRequestURI(false);
+        container.setRewritePathInfo(false);
+        container.setRules(rules.toArray(new Rule[rules.size()]));
+
+        for (int cache : new int[] { 0, 3 })
+        {
+            container.setMatchCacheSize(cache);
+            for (String target : TARGETS)
+            {
+                for (CountingRule rule : rules)
+                    rule._applied=0;
+
+                assertEquals(target,target,container.matchAndApply(target,_request,_response));
+
+                for (CountingRule rule : rules)
+                {
+                    int expected=PathMap.match(rule.getPattern(),target)?1:0;
+                    assertEquals(rule.getPattern()+" on "+target,expected,rule._applied);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWildcardPatternAppliesToEveryTarget() throws Exception
+    {
+        RewritePatternRule rule = new RewritePatternRule();
+        rule.setPattern("/*");
+        rule.setReplacement("/replace");
+
+        RuleContainer container = new RuleContainer();
+        container.setRewriteRequestURI(false);
+        container.setRewritePathInfo(false);
+        container.setRules(new Rule[] { rule });
+
+        assertEquals("/replace/foo/bar",container.matchAndApply("/foo/bar",_request,_response));
+        assertEquals("/replace/",container.matchAndApply("/",_request,_response));
+    }
+
+    @Test
+    public void testPatternChangeInvalidatesEveryContainer() throws Exception
+    {
+        RewriteRegexRule rule = new RewriteRegexRule();
+        rule.setRegex("/old/(.*)");
+        rule.setReplacement("/new/$1");
+
+        RuleContainer[] containers = new RuleContainer[] { new RuleContainer(), new RuleContainer() };
+        for (RuleContainer container : containers)
+        {
+            container.setRewriteRequestURI(false);
+            container.setRewritePathInfo(false);
+            container.setRules(new Rule[] { rule });
+            assertEquals("/new/x",container.matchAndApply("/old/x",_request,_response));
+        }
+
+        rule.setRegex("/other/(.*)");
+        for (RuleContainer container : containers)
+        {
+            assertEquals("/old/x",container.matchAndApply("/old/x",_request,_response));
+            assertEquals("/new/x",container.matchAndApply("/other/x",_request,_response));
+        }
+    }
+
+    private static class CountingRule extends PatternRule
+    {
+        private int _applied;
+
+        CountingRule(String pattern)
+        {
+            setPattern(pattern);
+        }
+
+        @Override
+        protected String apply(String target, HttpServletRequest request, HttpServletResponse response) throws IOException
+        {
+            _applied++;
+            return target;
+        }
+    }
+}
@@ -29,6 +29,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 
@@ -38,6 +40,7 @@ import javax.servlet.ServletSecurityElement;
 import javax.servlet.annotation.ServletSecurity.EmptyRoleSemantic;
 import javax.servlet.annotation.ServletSecurity.TransportGuarantee;
 
+import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.PathMap;
 import org.eclipse.jetty.server.HttpChannel;
@@ -66,12 +69,46 @@ public class ConstraintSecurityHandler extends SecurityHandler implements Constr
     
     private static final String OMISSION_SUFFIX = ".omission";
     private static final String ALL_METHODS = "*";
+    private static final RoleInfo NO_CONSTRAINT = new RoleInfo();
     private final List<ConstraintMapping> _constraintMappings= new CopyOnWriteArrayList<>();
     private final Set<String> _roles = new CopyOnWriteArraySet<>();
     private final PathMap<Map<String, RoleInfo>> _constraintMap = new PathMap<>();
+    private volatile ConcurrentMap<String, ConcurrentMap<String, RoleInfo>> _constraintCache = new ConcurrentHashMap<>();
+    private int _constraintCacheSize = 1024;
     private boolean _denyUncoveredMethods = false;
 
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The maximum number of paths per method for which the resolved constraints are cached, or 0 if not cached.
+     * Only the methods known as {@link HttpMethod}s are cached.
+     */
+    public int getConstraintCacheSize()
+    {
+        return _constraintCacheSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param constraintCacheSize The maximum number of paths per method for which the
+     * resolved constraints are cached (default 1024), or 0 to resolve them for every request.
+     */
+    public void setConstraintCacheSize(int constraintCacheSize)
+    {
+        _constraintCacheSize = constraintCacheSize;
+        invalidateConstraintCache();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Discard the cached constraints, as the constraint mappings or roles have changed.
+     */
+    protected void invalidateConstraintCache()
+    {
+        _constraintCache = new ConcurrentHashMap<>();
+    }
+
+
     /* ------------------------------------------------------------ */
     public static Constraint createConstraint()
     {
@@ -360,6 +397,7 @@ public class ConstraintSecurityHandler extends SecurityHandler implements Constr
             {
                 processConstraintMapping(mapping);
             }
+            invalidateConstraintCache();
         }
     }
 
@@ -374,6 +412,7 @@ public class ConstraintSecurityHandler extends SecurityHandler implements Constr
     {
         _roles.clear();
         _roles.addAll(roles);
+        invalidateConstraintCache();
     }
 
 
@@ -401,6 +440,7 @@ public class ConstraintSecurityHandler extends SecurityHandler implements Constr
         if (isStarted())
         {
             processConstraintMapping(mapping);
+            invalidateConstraintCache();
         }
     }
 
@@ -424,6 +464,7 @@ public class ConstraintSecurityHandler extends SecurityHandler implements Constr
                         info.addRole(role);
                 }
             }
+            invalidateConstraintCache();
         }
     }
 
@@ -442,6 +483,7 @@ public class ConstraintSecurityHandler extends SecurityHandler implements Constr
                 processConstraintMapping(mapping);
             }
         }
+        invalidateConstraintCache();
         
         //Servlet Spec 3.1 pg 147 sec 13.8.4.2 log paths for which there are uncovered http methods
         checkPathsWithUncoveredHttpMethods();        
@@ -456,6 +498,7 @@ public class ConstraintSecurityHandler extends SecurityHandler implements Constr
     {
         super.doStop();
         _constraintMap.clear();
+        invalidateConstraintCache();
     }
     
     
@@ -612,12 +655,58 @@ public class ConstraintSecurityHandler extends SecurityHandler implements Constr
      */
     @Override
     protected RoleInfo prepareConstraintInfo(String pathInContext, Request request)
+    {
+        // Fast path for contexts without constraints
+        if (_constraintMap.isEmpty())
+            return null;
+
+        String httpMethod = request.getMethod();
+        if (_constraintCacheSize <= 0 || pathInContext == null || httpMethod == null)
+            return resolveConstraintInfo(pathInContext, httpMethod);
+
+        // Only cache the known methods, as clients may send any method token
+        HttpMethod method = HttpMethod.fromString(httpMethod);
+        if (method == null || !method.asString().equals(httpMethod))
+            return resolveConstraintInfo(pathInContext, httpMethod);
+
+        // Entries resolved while the cache is invalidated are put in the discarded cache
+        ConcurrentMap<String, ConcurrentMap<String, RoleInfo>> cache = _constraintCache;
+        ConcurrentMap<String, RoleInfo> methodCache = cache.get(httpMethod);
+        if (methodCache == null)
+        {
+            methodCache = new ConcurrentHashMap<>();
+            ConcurrentMap<String, RoleInfo> existing = cache.putIfAbsent(httpMethod, methodCache);
+            if (existing != null)
+                methodCache = existing;
+        }
+
+        RoleInfo roleInfo = methodCache.get(pathInContext);
+        if (roleInfo == null)
+        {
+            roleInfo = resolveConstraintInfo(pathInContext, httpMethod);
+            if (methodCache.size() >= _constraintCacheSize)
+                methodCache.clear();
+            methodCache.put(pathInContext, roleInfo == null ? NO_CONSTRAINT : roleInfo);
+        }
+        else if (roleInfo == NO_CONSTRAINT)
+            roleInfo = null;
+
+        return roleInfo;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Resolve the constraints that apply to a path and method from the constraint mappings.
+     * @param pathInContext the path within the context
+     * @param httpMethod the method of the request
+     * @return the combined constraints or null if none apply
+     */
+    private RoleInfo resolveConstraintInfo(String pathInContext, String httpMethod)
     {
         Map<String, RoleInfo> mappings = _constraintMap.match(pathInContext);
 
         if (mappings != null)
         {
-            String httpMethod = request.getMethod();
             RoleInfo roleInfo = mappings.get(httpMethod);
             if (roleInfo == null)
             {
@@ -783,6 +872,7 @@ public class ConstraintSecurityHandler extends SecurityHandler implements Constr
     public void setDenyUncoveredHttpMethods(boolean deny)
     {
         _denyUncoveredMethods = deny;
+        invalidateConstraintCache();
     }
     
     /* ------------------------------------------------------------ */
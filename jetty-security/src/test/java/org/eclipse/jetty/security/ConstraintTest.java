@@ -434,6 +434,61 @@ public class ConstraintTest
         Assert.assertEquals(0, uncoveredPaths.size());
     }
 
+    @Test
+    public void testConstraintCache() throws Exception
+    {
+        _security.setAuthenticator(new BasicAuthenticator());
+        _server.start();
+
+        for (int size : new int[] {1024, 1, 0})
+        {
+            _security.setConstraintCacheSize(size);
+            for (int i=0;i<2;i++)
+            {
+                String response;
+                response = _connector.getResponses("GET /ctx/noauth/info HTTP/1.0\r\n\r\n");
+                Assert.assertThat(response, Matchers.startsWith("HTTP/1.1 200 OK"));
+                response = _connector.getResponses("GET /ctx/forbid/info HTTP/1.0\r\n\r\n");
+                Assert.assertThat(response, Matchers.startsWith("HTTP/1.1 403 Forbidden"));
+                response = _connector.getResponses("GET /ctx/forbid/post HTTP/1.0\r\n\r\n");
+                Assert.assertThat(response, Matchers.startsWith("HTTP/1.1 200 OK"));
+                response = _connector.getResponses("POST /ctx/forbid/post HTTP/1.0\r\nContent-Length: 0\r\n\r\n");
+                Assert.assertThat(response, Matchers.startsWith("HTTP/1.1 200 OK"));
+                response = _connector.getResponses("GET /ctx/admin/info HTTP/1.0\r\n\r\n");
+                Assert.assertThat(response, Matchers.startsWith("HTTP/1.1 401 Unauthorized"));
+                response = _connector.getResponses("POST /ctx/admin/info HTTP/1.0\r\nContent-Length: 0\r\n\r\n");
+                Assert.assertThat(response, Matchers.startsWith("HTTP/1.1 200 OK"));
+
+                // Unknown methods are resolved without the cache
+                response = _connector.getResponses("UNKNOWN"+i+" /ctx/forbid/info HTTP/1.0\r\n\r\n");
+                Assert.assertThat(response, Matchers.startsWith("HTTP/1.1 403 Forbidden"));
+            }
+        }
+
+        // Constraints added to a started handler are seen by cached paths
+        _security.setConstraintCacheSize(1024);
+        String response = _connector.getResponses("GET /ctx/noauth/info HTTP/1.0\r\n\r\n");
+        Assert.assertThat(response, Matchers.startsWith("HTTP/1.1 200 OK"));
+
+        Constraint constraint = new Constraint();
+        constraint.setAuthenticate(true);
+        constraint.setName("forbid noauth");
+        ConstraintMapping mapping = new ConstraintMapping();
+        mapping.setPathSpec("/noauth/*");
+        mapping.setConstraint(constraint);
+        _security.addConstraintMapping(mapping);
+
+        response = _connector.getResponses("GET /ctx/noauth/info HTTP/1.0\r\n\r\n");
+        Assert.assertThat(response, Matchers.startsWith("HTTP/1.1 403 Forbidden"));
+
+        // Uncovered methods are denied once configured
+        response = _connector.getResponses("POST /ctx/admin/info HTTP/1.0\r\nContent-Length: 0\r\n\r\n");
+        Assert.assertThat(response, Matchers.startsWith("HTTP/1.1 200 OK"));
+        _security.setDenyUncoveredHttpMethods(true);
+        response = _connector.getResponses("POST /ctx/admin/info HTTP/1.0\r\nContent-Length: 0\r\n\r\n");
+        Assert.assertThat(response, Matchers.startsWith("HTTP/1.1 403 Forbidden"));
+    }
+
     @Test
     public void testBasic() throws Exception
     {
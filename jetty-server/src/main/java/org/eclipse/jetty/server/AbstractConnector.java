@@ -43,6 +43,7 @@ import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.Prioritized;
 import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
 import org.eclipse.jetty.util.thread.Scheduler;
 
@@ -464,7 +465,7 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
         return getConnectionFactory(_defaultProtocol);
     }
 
-    private class Acceptor implements Runnable
+    private class Acceptor implements Runnable, Prioritized
     {
         private final int _acceptor;
         private String _name;
@@ -474,6 +475,12 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
             _acceptor = id;
         }
 
+        @Override
+        public Priority getPriority()
+        {
+            return Priority.HIGH;
+        }
+
         @Override
         public void run()
         {
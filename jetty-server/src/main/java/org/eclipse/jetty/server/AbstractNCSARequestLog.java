@@ -62,6 +62,8 @@ public abstract class AbstractNCSARequestLog extends AbstractLifeCycle implement
     private String _logDateFormat = "dd/MMM/yyyy:HH:mm:ss Z";
     private Locale _logLocale = Locale.getDefault();
     private String _logTimeZone = "GMT";
+    private String _logFormat;
+    private transient RequestLogFormat _requestLogFormat;
 
     /* ------------------------------------------------------------ */
 
@@ -79,6 +81,19 @@ public abstract class AbstractNCSARequestLog extends AbstractLifeCycle implement
 
     /* ------------------------------------------------------------ */
 
+    /**
+     * Write a formatted requestEntry out.
+     * The default implementation converts the entry to a String for {@link #write(String)},
+     * but implementations may write the characters directly. The builder is reused
+     * once this method returns.
+     */
+    protected void write(StringBuilder requestEntry) throws IOException
+    {
+        write(requestEntry.toString());
+    }
+
+    /* ------------------------------------------------------------ */
+
     /**
      * Writes the request and response information to the output stream.
      *
@@ -99,6 +114,14 @@ public abstract class AbstractNCSARequestLog extends AbstractLifeCycle implement
             StringBuilder buf = _buffers.get();
             buf.setLength(0);
 
+            RequestLogFormat format = _requestLogFormat;
+            if (format != null)
+            {
+                format.format(buf, request, response);
+                write(buf);
+                return;
+            }
+
             if (_logServer)
             {
                 buf.append(request.getServerName());
@@ -124,7 +147,7 @@ public abstract class AbstractNCSARequestLog extends AbstractLifeCycle implement
 
             buf.append(" [");
             if (_logDateCache != null)
-                buf.append(_logDateCache.format(request.getTimeStamp()));
+                _logDateCache.append(buf,request.getTimeStamp());
             else
                 buf.append(request.getTimeStamp());
 
@@ -201,8 +224,7 @@ public abstract class AbstractNCSARequestLog extends AbstractLifeCycle implement
                 }
             }
 
-            String log = buf.toString();
-            write(log);
+            write(buf);
         }
         catch (IOException e)
         {
@@ -399,6 +421,11 @@ public abstract class AbstractNCSARequestLog extends AbstractLifeCycle implement
             _logDateCache = new DateCache(_logDateFormat, _logLocale ,_logTimeZone);
         }
 
+        if (_logFormat != null)
+            _requestLogFormat = new RequestLogFormat(_logFormat, _logDateFormat, _logLocale, _logTimeZone, _preferProxiedForAddress);
+        else
+            _requestLogFormat = null;
+
         if (_ignorePaths != null && _ignorePaths.length > 0)
         {
             _ignorePathMap = new PathMap<>();
@@ -415,9 +442,36 @@ public abstract class AbstractNCSARequestLog extends AbstractLifeCycle implement
     protected void doStop() throws Exception
     {
         _logDateCache = null;
+        _requestLogFormat = null;
         super.doStop();
     }
 
+    /**
+     * Set an Apache <code>mod_log_config</code> style format for request log entries,
+     * for example {@link RequestLogFormat#COMBINED}. The format is compiled when the log is
+     * started and replaces the fixed NCSA layout and its options (extended, cookies,
+     * latency and server), although the date format, locale, time zone and
+     * preferred proxied address settings still apply.
+     *
+     * @param format the format, or null for the NCSA layout
+     * @see RequestLogFormat
+     */
+    public void setLogFormat(String format)
+    {
+        _logFormat = format;
+    }
+
+    /**
+     * Retrieve the request log entry format.
+     *
+     * @return the format, or null if the NCSA layout is used
+     */
+    @ManagedAttribute("the request log format")
+    public String getLogFormat()
+    {
+        return _logFormat;
+    }
+
     /**
      * Set the timestamp format for request log entries in the file. If this is not set, the pre-formated request
      * timestamp is used.
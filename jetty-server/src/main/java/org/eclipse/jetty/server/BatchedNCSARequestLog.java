@@ -0,0 +1,491 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.jetty.util.RolloverFileOutputStream;
+import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+
+/* ------------------------------------------------------------ */
+/**
+ * An asynchronously writing NCSA Request Log that writes in batches.
+ * <p>
+ * Request threads encode each formatted entry as UTF-8 directly into a
+ * reusable slot of a ring buffer, without creating a String and without
+ * locking: a slot is claimed with a single compare and set and published
+ * with an ordered write. A single writer thread copies the published
+ * entries into a direct buffer and writes them in large batches through
+ * the {@link java.nio.channels.FileChannel} of the (rolled over) log file.
+ * If the ring buffer is full, entries are dropped rather than blocking
+ * request threads, and counted by {@link #getDropped()}. Entries that
+ * cannot be written to the log file are counted by {@link #getFailed()}.
+ * Stopping the log closes the ring buffer to new entries and waits, for at
+ * most the stop timeout, until every entry already claimed has been written.
+ * Entries that are not written by then are counted as dropped.
+ * </p>
+ */
+@ManagedObject("Batched NCSA standard format request log")
+public class BatchedNCSARequestLog extends NCSARequestLog
+{
+    private static final Logger LOG = Log.getLogger(BatchedNCSARequestLog.class);
+    private static final byte[] EOL = StringUtil.getUtf8Bytes(System.lineSeparator());
+    private static final long CLOSED = -1;
+
+    private final AtomicLong _claimed = new AtomicLong();
+    private final AtomicLong _consumed = new AtomicLong();
+    private final AtomicLong _dropped = new AtomicLong();
+    private final AtomicLong _failed = new AtomicLong();
+    private final AtomicBoolean _sleeping = new AtomicBoolean();
+    private int _capacity = 8192;
+    private int _batchSize = 64 * 1024;
+    private int _slotSize = 256;
+    private AtomicLongArray _published;
+    private volatile byte[][] _slots;
+    private int[] _lengths;
+    private transient WriterThread _thread;
+    private volatile long _end;
+    private volatile boolean _stopping;
+
+    public BatchedNCSARequestLog()
+    {
+        super();
+    }
+
+    public BatchedNCSARequestLog(String filename)
+    {
+        super(filename);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of entries the ring buffer can hold
+     */
+    @ManagedAttribute("number of entries the ring buffer can hold")
+    public int getCapacity()
+    {
+        return _capacity;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param capacity the number of entries the ring buffer can hold, rounded up to a power of 2
+     */
+    public void setCapacity(int capacity)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        int c=1;
+        while (c<capacity)
+            c<<=1;
+        _capacity=c;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the size in bytes of the batches written to the log file
+     */
+    @ManagedAttribute("size in bytes of the batches written")
+    public int getBatchSize()
+    {
+        return _batchSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param batchSize the size in bytes of the batches written to the log file
+     */
+    public void setBatchSize(int batchSize)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        _batchSize=batchSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param slotSize the size in bytes of each ring buffer slot.
+     * A longer entry is encoded into a slot of its exact encoded size, 
+     * which is replaced by a slot of this size once the entry has been written.
+     */
+    public void setSlotSize(int slotSize)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        _slotSize=slotSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    public int getSlotSize()
+    {
+        return _slotSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of entries dropped because the ring buffer was full, or because they were not written within the stop timeout
+     */
+    @ManagedAttribute("number of entries dropped because the ring buffer was full or the stop timed out")
+    public long getDropped()
+    {
+        return _dropped.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of entries lost because they could not be written to the log file
+     */
+    @ManagedAttribute("number of entries lost because they could not be written")
+    public long getFailed()
+    {
+        return _failed.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void write(String requestEntry) throws IOException
+    {
+        append(requestEntry);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected void write(StringBuilder requestEntry) throws IOException
+    {
+        append(requestEntry);
+    }
+
+    /* ------------------------------------------------------------ */
+    private void append(CharSequence entry)
+    {
+        byte[][] slots=_slots;
+        if (slots==null)
+            return;
+
+        long sequence=claim();
+        if (sequence<0)
+            return;
+
+        int index=(int)sequence&(_capacity-1);
+        _lengths[index]=encode(slots,index,entry);
+        _published.lazySet(index,sequence);
+
+        if (_sleeping.get() && _sleeping.compareAndSet(true,false))
+            LockSupport.unpark(_thread);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Claim the next slot of the ring buffer, which must then be published.
+     * @return the sequence of the claimed slot, or -1 if the log is stopping or the ring buffer is full
+     */
+    long claim()
+    {
+        while (true)
+        {
+            long sequence=_claimed.get();
+            if (sequence==CLOSED)
+                return -1;
+            if (sequence-_consumed.get()>=_capacity)
+            {
+                if (_dropped.getAndIncrement()==0)
+                    LOG.warn("Log ring buffer overflow");
+                return -1;
+            }
+            if (_claimed.compareAndSet(sequence,sequence+1))
+                return sequence;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Encode an entry as UTF-8 followed by a line separator into a slot
+     * @return the encoded length
+     */
+    private int encode(byte[][] slots, int index, CharSequence entry)
+    {
+        int length=entry.length();
+        byte[] slot=slots[index];
+        // Only count the encoded length if the slot may be too small for it
+        int needed=length*3+EOL.length;
+        if (slot.length<needed)
+            needed=utf8Length(entry)+EOL.length;
+        if (slot.length<needed)
+        {
+            slot=new byte[needed];
+            slots[index]=slot;
+        }
+
+        int p=0;
+        for (int i=0;i<length;i++)
+        {
+            char c=entry.charAt(i);
+            if (c<0x80)
+                slot[p++]=(byte)c;
+            else if (c<0x800)
+            {
+                slot[p++]=(byte)(0xC0|(c>>6));
+                slot[p++]=(byte)(0x80|(c&0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && i+1<length && Character.isLowSurrogate(entry.charAt(i+1)))
+            {
+                int code=Character.toCodePoint(c,entry.charAt(++i));
+                slot[p++]=(byte)(0xF0|(code>>18));
+                slot[p++]=(byte)(0x80|((code>>12)&0x3F));
+                slot[p++]=(byte)(0x80|((code>>6)&0x3F));
+                slot[p++]=(byte)(0x80|(code&0x3F));
+            }
+            else
+            {
+                slot[p++]=(byte)(0xE0|(c>>12));
+                slot[p++]=(byte)(0x80|((c>>6)&0x3F));
+                slot[p++]=(byte)(0x80|(c&0x3F));
+            }
+        }
+        System.arraycopy(EOL,0,slot,p,EOL.length);
+        return p+EOL.length;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the length of an entry encoded as UTF-8 by {@link #encode(byte[][], int, CharSequence)}
+     */
+    private static int utf8Length(CharSequence entry)
+    {
+        int length=entry.length();
+        int bytes=0;
+        for (int i=0;i<length;i++)
+        {
+            char c=entry.charAt(i);
+            if (c<0x80)
+                bytes+=1;
+            else if (c<0x800)
+                bytes+=2;
+            else if (Character.isHighSurrogate(c) && i+1<length && Character.isLowSurrogate(entry.charAt(i+1)))
+            {
+                bytes+=4;
+                i++;
+            }
+            else
+                bytes+=3;
+        }
+        return bytes;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of bytes held by the ring buffer slots
+     */
+    long getSlotBytes()
+    {
+        byte[][] slots=_slots;
+        long bytes=0;
+        if (slots!=null)
+            for (byte[] slot : slots)
+                bytes+=slot.length;
+        return bytes;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected synchronized void doStart() throws Exception
+    {
+        _published=new AtomicLongArray(_capacity);
+        for (int i=0;i<_capacity;i++)
+            _published.set(i,-1);
+        _lengths=new int[_capacity];
+        byte[][] slots=new byte[_capacity][];
+        for (int i=0;i<_capacity;i++)
+            slots[i]=new byte[_slotSize];
+        _claimed.set(0);
+        _consumed.set(0);
+        _stopping=false;
+
+        super.doStart();
+
+        _thread = new WriterThread(getOutputStream());
+        _slots=slots;
+        _thread.start();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected void doStop() throws Exception
+    {
+        // No more entries can be claimed, and the writer drains every entry claimed before
+        _end=_claimed.getAndSet(CLOSED);
+        _stopping=true;
+        LockSupport.unpark(_thread);
+
+        // Wait for half the stop time, then interrupt the writer, which stops it
+        // waiting for entries that were claimed but are never published
+        long timeout=getStopTimeout();
+        if (timeout>0)
+            _thread.join(timeout/2);
+        if (_thread.isAlive())
+        {
+            _thread.interrupt();
+            if (timeout>0)
+                _thread.join(timeout/2);
+            if (_thread.isAlive())
+                LOG.warn("{} did not stop",_thread.getName());
+        }
+
+        long lost=_end-_consumed.get();
+        if (lost>0)
+        {
+            _dropped.addAndGet(lost);
+            LOG.warn("Dropped {} request log entries on stop",lost);
+        }
+        _slots=null;
+        super.doStop();
+        _thread=null;
+    }
+
+    /* ------------------------------------------------------------ */
+    private class WriterThread extends Thread
+    {
+        private final OutputStream _out;
+        private final WritableByteChannel _channel;
+        private final ByteBuffer _batch;
+        private int _entries;
+
+        WriterThread(OutputStream out)
+        {
+            setName("BatchedNCSARequestLog@"+Integer.toString(BatchedNCSARequestLog.this.hashCode(),16));
+            setDaemon(true);
+            _out=out;
+            _channel=out instanceof RolloverFileOutputStream?null:Channels.newChannel(out);
+            _batch=ByteBuffer.allocateDirect(_batchSize);
+        }
+
+        @Override
+        public void run()
+        {
+            while (true)
+            {
+                try
+                {
+                    if (!drain())
+                    {
+                        // Entries may still be encoded by request threads that claimed them,
+                        // unless the writer has been interrupted by a stop that timed out
+                        if (_stopping && (_consumed.get()>=_end || isInterrupted()))
+                            break;
+                        _sleeping.set(true);
+                        // Recheck after announcing sleep, so that a publish is not missed
+                        if (!isPublished(_consumed.get()))
+                            LockSupport.parkNanos(this,TimeUnit.SECONDS.toNanos(1));
+                        _sleeping.set(false);
+                    }
+                }
+                catch (Throwable x)
+                {
+                    LOG.warn(x);
+                }
+            }
+        }
+
+        private boolean isPublished(long sequence)
+        {
+            return _published.get((int)sequence&(_capacity-1))==sequence;
+        }
+
+        /**
+         * Copy all published entries to the batch buffer and write them.
+         * @return true if any entries were written
+         */
+        private boolean drain()
+        {
+            long sequence=_consumed.get();
+            if (!isPublished(sequence))
+                return false;
+
+            _batch.clear();
+            _entries=0;
+            while (isPublished(sequence))
+            {
+                int index=(int)sequence&(_capacity-1);
+                byte[] slot=_slots[index];
+                int length=_lengths[index];
+
+                if (length>_batch.remaining())
+                    flush();
+                if (length>_batch.capacity())
+                    write(ByteBuffer.wrap(slot,0,length),1);
+                else
+                {
+                    _batch.put(slot,0,length);
+                    _entries++;
+                }
+
+                // Do not retain the memory of an oversize entry
+                if (slot.length>_slotSize)
+                    _slots[index]=new byte[_slotSize];
+
+                // Release the slot for reuse
+                _consumed.lazySet(++sequence);
+            }
+            flush();
+            return true;
+        }
+
+        private void flush()
+        {
+            _batch.flip();
+            write(_batch,_entries);
+            _batch.clear();
+            _entries=0;
+        }
+
+        private void write(ByteBuffer buffer, int entries)
+        {
+            try
+            {
+                if (_channel==null)
+                    ((RolloverFileOutputStream)_out).write(buffer);
+                else
+                {
+                    while (buffer.hasRemaining())
+                        _channel.write(buffer);
+                }
+            }
+            catch (IOException x)
+            {
+                _failed.addAndGet(entries);
+                LOG.warn("Lost "+entries+" request log entries: "+x);
+                LOG.debug(x);
+            }
+        }
+    }
+}
@@ -24,7 +24,6 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jetty.io.Connection;
@@ -37,6 +36,7 @@ import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.statistic.CounterStatistic;
 import org.eclipse.jetty.util.statistic.SampleStatistic;
+import org.eclipse.jetty.util.statistic.StripedCounter;
 
 
 /* ------------------------------------------------------------ */
@@ -54,8 +54,8 @@ public class ConnectorStatistics extends AbstractLifeCycle implements Dumpable,
     private final SampleStatistic _messagesOut = new SampleStatistic();
     private final SampleStatistic _connectionDurationStats = new SampleStatistic();
     private final ConcurrentMap<Connection, Sample> _samples = new ConcurrentHashMap<>();
-    private final AtomicInteger _closedIn = new AtomicInteger();
-    private final AtomicInteger _closedOut = new AtomicInteger();
+    private final StripedCounter _closedIn = new StripedCounter();
+    private final StripedCounter _closedOut = new StripedCounter();
     private AtomicLong _nanoStamp=new AtomicLong();
     private volatile int _messagesInPerSecond;
     private volatile int _messagesOutPerSecond;
@@ -85,8 +85,8 @@ public class ConnectorStatistics extends AbstractLifeCycle implements Dumpable,
             Sample sample=_samples.remove(connection);
             if (sample!=null)
             {
-                _closedIn.addAndGet(msgsIn-sample._messagesIn);
-                _closedOut.addAndGet(msgsOut-sample._messagesOut);
+                _closedIn.add(msgsIn-sample._messagesIn);
+                _closedOut.add(msgsOut-sample._messagesOut);
             }
         }
     }
@@ -267,8 +267,8 @@ public class ConnectorStatistics extends AbstractLifeCycle implements Dumpable,
         {
             if (_nanoStamp.compareAndSet(then,now))
             {
-                long msgsIn=_closedIn.getAndSet(0);
-                long msgsOut=_closedOut.getAndSet(0);
+                long msgsIn=_closedIn.sumThenReset();
+                long msgsOut=_closedOut.sumThenReset();
 
                 for (Map.Entry<Connection, Sample> entry : _samples.entrySet())
                 {
@@ -105,6 +105,7 @@ public class HttpChannel<T> implements HttpParser.RequestHandler<T>, Runnable, H
     private boolean _expect = false;
     private boolean _expect100Continue = false;
     private boolean _expect102Processing = false;
+    private long _committedTimeStamp;
 
     public HttpChannel(Connector connector, HttpConfiguration configuration, EndPoint endPoint, HttpTransport transport, HttpInput<T> input)
     {
@@ -248,6 +249,7 @@ public class HttpChannel<T> implements HttpParser.RequestHandler<T>, Runnable, H
     public void reset()
     {
         _committed.set(false);
+        _committedTimeStamp = 0;
         _expect = false;
         _expect100Continue = false;
         _expect102Processing = false;
@@ -538,23 +540,21 @@ public class HttpChannel<T> implements HttpParser.RequestHandler<T>, Runnable, H
             _uri.parse(uri.array(),uri.arrayOffset()+uri.position(),uri.remaining());
         _request.setUri(_uri);
 
-        String path;
+        String info;
         try
         {
-            path = _uri.getDecodedPath();
+            info = _uri.getCanonicalPath();
         }
         catch (Exception e)
         {
             LOG.warn("Failed UTF-8 decode for request path, trying ISO-8859-1");
             LOG.ignore(e);
-            path = _uri.getDecodedPath(StandardCharsets.ISO_8859_1);
+            info = URIUtil.canonicalPath(_uri.getDecodedPath(StandardCharsets.ISO_8859_1));
         }
 
-        String info = URIUtil.canonicalPath(path);
-
         if (info == null)
         {
-            if( path==null && _uri.getScheme()!=null &&_uri.getHost()!=null)
+            if (_uri.getPath()==null && _uri.getScheme()!=null &&_uri.getHost()!=null)
             {
                 info = "/";
                 _request.setRequestURI("");
@@ -649,6 +649,15 @@ public class HttpChannel<T> implements HttpParser.RequestHandler<T>, Runnable, H
         return false;
     }
 
+    private void addResponseHeaders(HttpFields fields)
+    {
+        for (HttpField field : _configuration.getResponseHeaders())
+        {
+            if (!fields.containsKey(field.getName()))
+                fields.add(field);
+        }
+    }
+
     @Override
     public boolean headerComplete()
     {
@@ -662,11 +671,13 @@ public class HttpChannel<T> implements HttpParser.RequestHandler<T>, Runnable, H
             case HTTP_1_0:
                 if (_configuration.getSendDateHeader() && !fields.contains(HttpHeader.DATE))
                     _response.getHttpFields().add(_connector.getServer().getDateField());
+                addResponseHeaders(fields);
                 break;
 
             case HTTP_1_1:
                 if (_configuration.getSendDateHeader() && !fields.contains(HttpHeader.DATE))
                     _response.getHttpFields().add(_connector.getServer().getDateField());
+                addResponseHeaders(fields);
 
                 if (_expect)
                 {
@@ -748,6 +759,8 @@ public class HttpChannel<T> implements HttpParser.RequestHandler<T>, Runnable, H
         boolean committing = _committed.compareAndSet(false, true);
         if (committing)
         {
+            _committedTimeStamp = System.currentTimeMillis();
+
             // We need an info to commit
             if (info==null)
                 info = _response.newResponseInfo();
@@ -786,6 +799,15 @@ public class HttpChannel<T> implements HttpParser.RequestHandler<T>, Runnable, H
         return _committed.get();
     }
 
+    /**
+     * @return the time in milliseconds since the epoch at which the response was
+     * last committed, or 0 if it has not been committed
+     */
+    public long getCommittedTimeStamp()
+    {
+        return _committedTimeStamp;
+    }
+
     /**
      * <p>Non-Blocking write, committing the response if needed.</p>
      *
@@ -21,7 +21,9 @@ package org.eclipse.jetty.server;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpScheme;
+import org.eclipse.jetty.http.PreEncodedHttpField;
 import org.eclipse.jetty.util.Jetty;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
@@ -44,6 +46,7 @@ public class HttpConfiguration
     public static final String SERVER_VERSION = "Jetty(" + Jetty.VERSION + ")";
 
     private List<Customizer> _customizers=new CopyOnWriteArrayList<>();
+    private List<HttpField> _responseHeaders=new CopyOnWriteArrayList<>();
     private int _outputBufferSize=32*1024;
     private int _outputAggregationSize=_outputBufferSize/4;
     private int _requestHeaderSize=8*1024;
@@ -55,6 +58,7 @@ public class HttpConfiguration
     private boolean _sendXPoweredBy = false;
     private boolean _sendDateHeader = true;
     private boolean _delayDispatchUntilContent = false;
+    private boolean _delayDispatchUntilForm = false;
 
     /* ------------------------------------------------------------ */
     /** 
@@ -93,6 +97,7 @@ public class HttpConfiguration
     public HttpConfiguration(HttpConfiguration config)
     {
         _customizers.addAll(config._customizers);
+        _responseHeaders.addAll(config._responseHeaders);
         _outputBufferSize=config._outputBufferSize;
         _outputAggregationSize=config._outputAggregationSize;
         _requestHeaderSize=config._requestHeaderSize;
@@ -102,6 +107,7 @@ public class HttpConfiguration
         _sendDateHeader=config._sendDateHeader;
         _sendServerVersion=config._sendServerVersion;
         _headerCacheSize=config._headerCacheSize;
+        _delayDispatchUntilForm=config._delayDispatchUntilForm;
     }
     
     /* ------------------------------------------------------------ */
@@ -220,6 +226,46 @@ public class HttpConfiguration
         return _sendDateHeader;
     }
 
+    /* ------------------------------------------------------------ */
+    /** 
+     * <p>Add a header field that is sent with every response.  The field is
+     * added when the request headers are complete, so the application may
+     * still replace or remove it.</p>
+     * <p>The field is encoded once, so that it is copied into each
+     * response header as bytes.</p>
+     * @param name the name of the header field
+     * @param value the value of the header field
+     */
+    public void addResponseHeader(String name, String value)
+    {
+        _responseHeaders.add(new PreEncodedHttpField(name,value));
+    }
+
+    /* ------------------------------------------------------------ */
+    /** 
+     * @param name the name of the header field to no longer send with every response
+     * @return true if a header field was removed
+     */
+    public boolean removeResponseHeader(String name)
+    {
+        boolean removed=false;
+        for (HttpField field : _responseHeaders)
+        {
+            if (field.getName().equalsIgnoreCase(name))
+                removed|=_responseHeaders.remove(field);
+        }
+        return removed;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** 
+     * @return the pre-encoded header fields sent with every response
+     */
+    public List<HttpField> getResponseHeaders()
+    {
+        return _responseHeaders;
+    }
+
     /* ------------------------------------------------------------ */
     /**
      * @param delay if true, delay the application dispatch until content is available
@@ -236,6 +282,32 @@ public class HttpConfiguration
         return _delayDispatchUntilContent;
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * <p>If true, the content of a POST or PUT of a form of known length is decoded 
+     * without blocking as it arrives, and the application is only dispatched once 
+     * the whole form has been received.  The form is decoded with the character 
+     * encoding of the request headers, and the content is consumed, as if the 
+     * request parameters had been read.  The limit on the number of form keys of 
+     * the context is applied when the parameters are first accessed.</p>
+     * <p>Forms larger than the size limit set as an attribute on the Server 
+     * are dispatched without being read, as are all forms if that limit is 
+     * not positive (unlimited), so that early reading never buffers more than 
+     * a bounded amount of content.</p>
+     * @param delay if true, delay the application dispatch until the form content has been received
+     */
+    public void setDelayDispatchUntilForm(boolean delay)
+    {
+        _delayDispatchUntilForm = delay;
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("if true, delay the application dispatch until the form content has been received")
+    public boolean isDelayDispatchUntilForm()
+    {
+        return _delayDispatchUntilForm;
+    }
+
     /* ------------------------------------------------------------ */
     /**
      * <p>Set the {@link Customizer}s that are invoked for every 
@@ -40,6 +40,7 @@ import org.eclipse.jetty.io.EofException;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.IteratingCallback;
+import org.eclipse.jetty.util.UrlEncoded;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 
@@ -503,6 +504,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     {
         private InetSocketAddress _localAddr;
         private InetSocketAddress _remoteAddr;
+        private UrlEncoded.Decoder _formDecoder;
 
         public HttpChannelOverHttp(Connector connector, HttpConfiguration config, EndPoint endPoint, HttpTransport transport, HttpInput<ByteBuffer> input)
         {
@@ -535,6 +537,8 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         @Override
         public void earlyEOF()
         {
+            _formDecoder=null;
+
             // If we have no request yet, just close
             if (getRequest().getMethod()==null)
                 close();
@@ -545,6 +549,13 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         @Override
         public boolean content(ByteBuffer item)
         {
+            // Decode a form as it arrives, without dispatching
+            if (_formDecoder!=null)
+            {
+                _formDecoder.decode(item);
+                return false;
+            }
+
             super.content(item);
             return true;
         }
@@ -552,6 +563,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         @Override
         public void badMessage(int status, String reason)
         {
+            _formDecoder=null;
             _generator.setPersistent(false);
             super.badMessage(status,reason);
         }
@@ -605,6 +617,14 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
             if (!super.headerComplete())
                 return false;
 
+            // Should we delay dispatch until we have read a form?
+            if (getHttpConfiguration().isDelayDispatchUntilForm() && !isExpecting100Continue() && !isCommitted())
+            {
+                _formDecoder=getRequest().newFormDecoder();
+                if (_formDecoder!=null)
+                    return false;
+            }
+
             // Should we delay dispatch until we have some content?
             // We should not delay if there is no content expect or client is expecting 100 or the response is already committed or the request buffer already has something in it to parse
             if (getHttpConfiguration().isDelayDispatchUntilContent() && _parser.getContentLength() > 0 &&
@@ -631,6 +651,15 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         @Override
         public boolean messageComplete()
         {
+            // Dispatch a request whose form has been decoded
+            if (_formDecoder!=null)
+            {
+                _formDecoder.complete();
+                _formDecoder=null;
+                super.messageComplete();
+                return true;
+            }
+
             super.messageComplete();
             return false;
         }
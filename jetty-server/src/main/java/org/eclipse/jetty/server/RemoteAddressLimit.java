@@ -0,0 +1,519 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.server;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/* ------------------------------------------------------------ */
+/**
+ * <p>Limits the rate at which connections are accepted from each remote address of a
+ * {@link ServerConnector}, and the number of connections each remote address may have open.</p>
+ * <p>The limits are checked as soon as a connection is accepted, and a connection over either
+ * limit is closed before any endpoint, connection, buffer or thread is allocated for it.
+ * This protects a server from abusive clients much earlier than the DoSFilter does, at the
+ * cost of only knowing the remote address of a client.</p>
+ * <p>A connection that is accepted holds one of the open connections of its address until
+ * {@link #onClosed(InetAddress)} is called for it.
+ * The accept rate is counted over fixed one second windows, and rejected connections count
+ * towards it, so a client that keeps flooding a connector stays rejected. Addresses without
+ * open connections are purged from the table once their window has passed, a few table
+ * slots at each accept, and the table shrinks as it empties.</p>
+ * <p>The table holds at most {@link #getMaxAddresses()} addresses. When it is full, the
+ * addresses without open connections are evicted, so a flood from many sources only loses
+ * the accept rates of idle addresses. If every address still has open connections, the
+ * connections of new addresses are rejected until some close.</p>
+ * <p>IPv6 addresses are aggregated by their first {@link #getIPv6PrefixLength()} bits,
+ * by default the /64 network that is usually assigned to a single client, so that a client
+ * cannot escape the limits by rotating through the addresses of its network.</p>
+ * <p>The addresses are kept in an open addressing table of the address bits, so that no
+ * {@link InetAddress} nor boxed key is retained per client.</p>
+ *
+ * @see ServerConnector#setRemoteAddressLimit(RemoteAddressLimit)
+ */
+@ManagedObject("Limits the connections of each remote address")
+public class RemoteAddressLimit extends AbstractLifeCycle
+{
+    private static final Logger LOG = Log.getLogger(RemoteAddressLimit.class);
+    private static final int PURGE_SLOTS = 8;
+    private static final int MIN_TABLE = 64;
+    private static final long IPV4_MAPPED = 0xFFFF00000000L;
+
+    private final Object _lock = new Object();
+    private final AtomicLong _rateRejected = new AtomicLong();
+    private final AtomicLong _connectionsRejected = new AtomicLong();
+    private final AtomicLong _tableRejected = new AtomicLong();
+    private Client[] _table = new Client[MIN_TABLE];
+    private int _size;
+    private int _purgeSlot;
+    private volatile int _maxAcceptsPerSecond = -1;
+    private volatile int _maxConnections = -1;
+    private volatile int _maxAddresses = 64 * 1024;
+    private volatile int _ipv6PrefixLength = 64;
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the maximum number of connections accepted per second from each remote address, or -1 for no limit
+     */
+    @ManagedAttribute("maximum connections accepted per second from each remote address")
+    public int getMaxAcceptsPerSecond()
+    {
+        return _maxAcceptsPerSecond;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxAcceptsPerSecond the maximum number of connections accepted per second from each remote address, or -1 for no limit
+     */
+    public void setMaxAcceptsPerSecond(int maxAcceptsPerSecond)
+    {
+        _maxAcceptsPerSecond = maxAcceptsPerSecond;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the maximum number of open connections of each remote address, or -1 for no limit
+     */
+    @ManagedAttribute("maximum open connections of each remote address")
+    public int getMaxConnections()
+    {
+        return _maxConnections;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxConnections the maximum number of open connections of each remote address, or -1 for no limit
+     */
+    public void setMaxConnections(int maxConnections)
+    {
+        _maxConnections = maxConnections;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the maximum number of remote addresses tracked
+     */
+    @ManagedAttribute("maximum number of remote addresses tracked")
+    public int getMaxAddresses()
+    {
+        return _maxAddresses;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxAddresses the maximum number of remote addresses tracked
+     */
+    public void setMaxAddresses(int maxAddresses)
+    {
+        if (maxAddresses < 1)
+            throw new IllegalArgumentException("maxAddresses < 1");
+        _maxAddresses = maxAddresses;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of leading bits of an IPv6 address that identify a client
+     */
+    @ManagedAttribute("number of leading bits of an IPv6 address that identify a client")
+    public int getIPv6PrefixLength()
+    {
+        return _ipv6PrefixLength;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param prefixLength the number of leading bits of an IPv6 address that identify a client, 
+     * from 1 to 128, where 128 tracks every IPv6 address on its own
+     */
+    public void setIPv6PrefixLength(int prefixLength)
+    {
+        if (prefixLength < 1 || prefixLength > 128)
+            throw new IllegalArgumentException("prefixLength " + prefixLength);
+        _ipv6PrefixLength = prefixLength;
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("number of remote addresses tracked")
+    public int getAddresses()
+    {
+        synchronized (_lock)
+        {
+            return _size;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("number of connections rejected for exceeding the accept rate")
+    public long getRateRejected()
+    {
+        return _rateRejected.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("number of connections rejected for exceeding the open connections")
+    public long getConnectionsRejected()
+    {
+        return _connectionsRejected.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("number of connections rejected because the table of addresses was full")
+    public long getTableRejected()
+    {
+        return _tableRejected.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedOperation(value="resets the statistics", impact="ACTION")
+    public void resetStatistics()
+    {
+        _rateRejected.set(0);
+        _connectionsRejected.set(0);
+        _tableRejected.set(0);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * <p>Checks whether a connection just accepted from the given address is within the limits,
+     * and if so counts it as an open connection of the address.</p>
+     *
+     * @param address the remote address of the connection
+     * @return true if the connection may proceed, in which case {@link #onClosed(InetAddress)}
+     * must be called once it is closed, false if it must be closed
+     */
+    public boolean accept(InetAddress address)
+    {
+        int maxAcceptsPerSecond = _maxAcceptsPerSecond;
+        int maxConnections = _maxConnections;
+        if (address == null || maxAcceptsPerSecond < 0 && maxConnections < 0)
+            return true;
+
+        int prefixLength = _ipv6PrefixLength;
+        long hi = hi(address, prefixLength);
+        long lo = lo(address, prefixLength);
+        long second = System.currentTimeMillis() / 1000;
+        boolean tableRejected = false;
+        boolean rateRejected = false;
+        boolean connectionsRejected = false;
+        synchronized (_lock)
+        {
+            purge(second);
+
+            Client client = client(hi, lo, second);
+            if (client == null)
+                tableRejected = true;
+            else
+            {
+                if (client._second == second)
+                    client._accepts++;
+                else
+                {
+                    client._second = second;
+                    client._accepts = 1;
+                }
+
+                if (maxAcceptsPerSecond >= 0 && client._accepts > maxAcceptsPerSecond)
+                    rateRejected = true;
+                else if (maxConnections >= 0 && client._connections >= maxConnections)
+                    connectionsRejected = true;
+                else
+                    client._connections++;
+            }
+        }
+
+        if (tableRejected)
+        {
+            _tableRejected.incrementAndGet();
+            if (LOG.isDebugEnabled())
+                LOG.debug("Rejected {} over {} addresses", address, _maxAddresses);
+            return false;
+        }
+
+        if (rateRejected)
+        {
+            _rateRejected.incrementAndGet();
+            if (LOG.isDebugEnabled())
+                LOG.debug("Rejected {} over {} accepts/s", address, maxAcceptsPerSecond);
+            return false;
+        }
+
+        if (connectionsRejected)
+        {
+            _connectionsRejected.incrementAndGet();
+            if (LOG.isDebugEnabled())
+                LOG.debug("Rejected {} over {} connections", address, maxConnections);
+            return false;
+        }
+
+        return true;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param address the remote address of a connection that was accepted and is now closed
+     */
+    public void onClosed(InetAddress address)
+    {
+        if (address == null)
+            return;
+
+        int prefixLength = _ipv6PrefixLength;
+        long hi = hi(address, prefixLength);
+        long lo = lo(address, prefixLength);
+        synchronized (_lock)
+        {
+            int slot = find(hi, lo);
+            if (slot < 0)
+                return;
+            Client client = _table[slot];
+            if (client._connections > 0)
+                client._connections--;
+            // Without an accept rate to remember, the address can be forgotten straight away
+            if (client._connections == 0 && _maxAcceptsPerSecond < 0)
+                remove(slot);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected void doStop() throws Exception
+    {
+        synchronized (_lock)
+        {
+            _table = new Client[MIN_TABLE];
+            _size = 0;
+            _purgeSlot = 0;
+        }
+        super.doStop();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the high 64 bits of the prefix of an IPv6 address, or 0 for an IPv4 address
+     */
+    private static long hi(InetAddress address, int prefixLength)
+    {
+        if (address instanceof Inet4Address)
+            return 0;
+        return bits(address.getAddress(), 0) & mask(prefixLength);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the low 64 bits of the prefix of an IPv6 address, or the IPv4 mapped IPv6 bits of an IPv4 address
+     */
+    private static long lo(InetAddress address, int prefixLength)
+    {
+        // The hash code of an Inet4Address is its 32 bit value
+        if (address instanceof Inet4Address)
+            return IPV4_MAPPED | (address.hashCode() & 0xFFFFFFFFL);
+        return bits(address.getAddress(), 8) & mask(prefixLength - 64);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return a mask of the given number of leading bits of a long
+     */
+    private static long mask(int bits)
+    {
+        if (bits <= 0)
+            return 0;
+        if (bits >= 64)
+            return -1L;
+        return -1L << (64 - bits);
+    }
+
+    /* ------------------------------------------------------------ */
+    private static long bits(byte[] bytes, int offset)
+    {
+        long bits = 0;
+        for (int i = offset; i < offset + 8 && i < bytes.length; i++)
+            bits = (bits << 8) | (bytes[i] & 0xFF);
+        return bits;
+    }
+
+    /* ------------------------------------------------------------ */
+    private int slot(long hi, long lo)
+    {
+        long hash = (hi ^ lo) * 0x9E3779B97F4A7C15L;
+        return (int)(hash ^ (hash >>> 32)) & (_table.length - 1);
+    }
+
+    /* ------------------------------------------------------------ */
+    private int find(long hi, long lo)
+    {
+        int mask = _table.length - 1;
+        for (int slot = slot(hi, lo); _table[slot] != null; slot = (slot + 1) & mask)
+        {
+            Client client = _table[slot];
+            if (client._hi == hi && client._lo == lo)
+                return slot;
+        }
+        return -1;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the client of the given address bits, added if needed, or null if the table is full
+     */
+    private Client client(long hi, long lo, long second)
+    {
+        int slot = find(hi, lo);
+        if (slot >= 0)
+            return _table[slot];
+
+        if (_size >= _maxAddresses)
+        {
+            evict(second);
+            if (_size >= _maxAddresses)
+                return null;
+        }
+
+        if ((_size + 1) * 4 > _table.length * 3)
+            resize(_table.length * 2);
+        Client client = new Client(hi, lo);
+        insert(client);
+        _size++;
+        return client;
+    }
+
+    /* ------------------------------------------------------------ */
+    private void insert(Client client)
+    {
+        int mask = _table.length - 1;
+        int slot = slot(client._hi, client._lo);
+        while (_table[slot] != null)
+            slot = (slot + 1) & mask;
+        _table[slot] = client;
+    }
+
+    /* ------------------------------------------------------------ */
+    private void resize(int length)
+    {
+        Client[] old = _table;
+        _table = new Client[length];
+        for (Client client : old)
+        {
+            if (client != null)
+                insert(client);
+        }
+        _purgeSlot = 0;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * <p>Removes the client at the given slot, moving back the clients that follow
+     * it in the same probe sequence so that no tombstone is needed.</p>
+     */
+    private void remove(int slot)
+    {
+        int mask = _table.length - 1;
+        _table[slot] = null;
+        _size--;
+        int next = (slot + 1) & mask;
+        while (_table[next] != null)
+        {
+            Client client = _table[next];
+            int ideal = slot(client._hi, client._lo);
+            // Move the client back if the free slot lies between its ideal slot and its slot
+            if (((next - ideal) & mask) >= ((next - slot) & mask))
+            {
+                _table[slot] = client;
+                _table[next] = null;
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * <p>Removes the addresses without open connections whose accept window has passed,
+     * looking at a few slots of the table at each call so that the cost is amortized.</p>
+     */
+    private void purge(long second)
+    {
+        for (int i = 0; i < PURGE_SLOTS && _size > 0; i++)
+        {
+            int slot = _purgeSlot;
+            Client client = _table[slot];
+            if (client != null && client._connections == 0 && client._second < second)
+                // A client may have been moved into the slot, so look at it again
+                remove(slot);
+            else
+                _purgeSlot = (slot + 1) & (_table.length - 1);
+        }
+
+        if (_table.length > MIN_TABLE && _size * 8 < _table.length)
+            resize(_table.length / 2);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * <p>Makes room in a full table, by removing all the addresses without open connections
+     * whose accept window has passed, or failing that all the addresses without open connections.</p>
+     */
+    private void evict(long second)
+    {
+        sweep(second);
+        if (_size >= _maxAddresses)
+            sweep(Long.MAX_VALUE);
+    }
+
+    /* ------------------------------------------------------------ */
+    private void sweep(long second)
+    {
+        for (int slot = 0; slot < _table.length; slot++)
+        {
+            Client client = _table[slot];
+            // A client may have been moved into the slot, so look at it again
+            while (client != null && client._connections == 0 && client._second < second)
+            {
+                remove(slot);
+                client = _table[slot];
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    private static class Client
+    {
+        private final long _hi;
+        private final long _lo;
+        private int _connections;
+        private long _second;
+        private int _accepts;
+
+        private Client(long hi, long lo)
+        {
+            _hi = hi;
+            _lo = lo;
+        }
+    }
+}
@@ -188,6 +188,7 @@ public class Request implements HttpServletRequest
     private String _httpMethodString;
     private MultiMap<String> _queryParameters;
     private MultiMap<String> _contentParameters;
+    private MultiMap<String> _formParameters;
     private MultiMap<String> _parameters;
     private String _pathInfo;
     private int _port;
@@ -319,52 +320,24 @@ public class Request implements HttpServletRequest
     {
         try
         {
-            int maxFormContentSize = -1;
-            int maxFormKeys = -1;
+            int maxFormContentSize = getMaxFormContentSize();
+            int maxFormKeys = getMaxFormKeys();
 
-            if (_context != null)
-            {
-                maxFormContentSize = _context.getContextHandler().getMaxFormContentSize();
-                maxFormKeys = _context.getContextHandler().getMaxFormKeys();
-            }
-
-            if (maxFormContentSize < 0)
+            int contentLength = getContentLength();
+            if (contentLength > maxFormContentSize && maxFormContentSize > 0)
             {
-                Object obj = _channel.getServer().getAttribute("org.eclipse.jetty.server.Request.maxFormContentSize");
-                if (obj == null)
-                    maxFormContentSize = 200000;
-                else if (obj instanceof Number)
-                {
-                    Number size = (Number)obj;
-                    maxFormContentSize = size.intValue();
-                }
-                else if (obj instanceof String)
-                {
-                    maxFormContentSize = Integer.valueOf((String)obj);
-                }
+                throw new IllegalStateException("Form too large: " + contentLength + " > " + maxFormContentSize);
             }
 
-            if (maxFormKeys < 0)
+            // A form decoded before dispatch only has the limits of the context left to check
+            if (_formParameters != null)
             {
-                Object obj = _channel.getServer().getAttribute("org.eclipse.jetty.server.Request.maxFormKeys");
-                if (obj == null)
-                    maxFormKeys = 1000;
-                else if (obj instanceof Number)
-                {
-                    Number keys = (Number)obj;
-                    maxFormKeys = keys.intValue();
-                }
-                else if (obj instanceof String)
-                {
-                    maxFormKeys = Integer.valueOf((String)obj);
-                }
+                if (maxFormKeys > 0 && _formParameters.size() > maxFormKeys)
+                    throw new IllegalStateException("Form too many keys");
+                params.addAllValues(_formParameters);
+                return;
             }
 
-            int contentLength = getContentLength();
-            if (contentLength > maxFormContentSize && maxFormContentSize > 0)
-            {
-                throw new IllegalStateException("Form too large: " + contentLength + " > " + maxFormContentSize);
-            }
             InputStream in = getInputStream();
             if (_input.isAsync())
                 throw new IllegalStateException("Cannot extract parameters with async IO");
@@ -380,6 +353,107 @@ public class Request implements HttpServletRequest
         }
     }
 
+    /* ------------------------------------------------------------ */
+    private int getMaxFormContentSize()
+    {
+        int maxFormContentSize = -1;
+        if (_context != null)
+            maxFormContentSize = _context.getContextHandler().getMaxFormContentSize();
+
+        if (maxFormContentSize < 0)
+        {
+            Object obj = _channel.getServer().getAttribute("org.eclipse.jetty.server.Request.maxFormContentSize");
+            if (obj == null)
+                maxFormContentSize = 200000;
+            else if (obj instanceof Number)
+            {
+                Number size = (Number)obj;
+                maxFormContentSize = size.intValue();
+            }
+            else if (obj instanceof String)
+            {
+                maxFormContentSize = Integer.valueOf((String)obj);
+            }
+        }
+        return maxFormContentSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    private int getMaxFormKeys()
+    {
+        int maxFormKeys = -1;
+        if (_context != null)
+            maxFormKeys = _context.getContextHandler().getMaxFormKeys();
+
+        if (maxFormKeys < 0)
+        {
+            Object obj = _channel.getServer().getAttribute("org.eclipse.jetty.server.Request.maxFormKeys");
+            if (obj == null)
+                maxFormKeys = 1000;
+            else if (obj instanceof Number)
+            {
+                Number keys = (Number)obj;
+                maxFormKeys = keys.intValue();
+            }
+            else if (obj instanceof String)
+            {
+                maxFormKeys = Integer.valueOf((String)obj);
+            }
+        }
+        return maxFormKeys;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Create a decoder for the content of this request, if it is a form that 
+     * may be decoded as it arrives, before the request is dispatched, so that 
+     * the form can be received without blocking a thread. 
+     * <p>
+     * As the context is not known before dispatch, the content length is 
+     * checked against the form size limit set as an attribute on the {@link Server}.
+     * If that limit is not positive, the form is not bounded and is not decoded early.
+     * The number of keys is checked against the limit of the context when the 
+     * parameters are extracted. The form is decoded with the character encoding 
+     * of the request headers, which must encode ASCII as single bytes. 
+     * A later call to {@link #setCharacterEncoding(String)} has no effect, as the 
+     * content has already been read.
+     * @return a decoder that adds the form to the content parameters of this request, 
+     * or null if the form cannot be decoded before dispatch
+     */
+    UrlEncoded.Decoder newFormDecoder()
+    {
+        if (!HttpMethod.POST.is(getMethod()) && !HttpMethod.PUT.is(getMethod()))
+            return null;
+
+        String contentType = getContentType();
+        if (contentType == null || !MimeTypes.Type.FORM_ENCODED.is(HttpFields.valueParameters(contentType, null)))
+            return null;
+
+        int maxFormContentSize = getMaxFormContentSize();
+        long contentLength = getContentLengthLong();
+        if (maxFormContentSize <= 0 || contentLength <= 0 || contentLength > maxFormContentSize)
+            return null;
+
+        Charset charset = UrlEncoded.ENCODING;
+        if (_characterEncoding != null)
+        {
+            try
+            {
+                charset = Charset.forName(_characterEncoding);
+            }
+            catch (IllegalArgumentException e)
+            {
+                // Left for the usual decoding to report
+                return null;
+            }
+        }
+        if (!StandardCharsets.UTF_8.equals(charset) && !StandardCharsets.ISO_8859_1.equals(charset) && !StandardCharsets.US_ASCII.equals(charset))
+            return null;
+
+        _formParameters = new MultiMap<>();
+        return new UrlEncoded.Decoder(_formParameters, charset, -1, -1);
+    }
+
     private void extractMultipartParameters(MultiMap<String> result)
     {
         try
@@ -823,6 +897,8 @@ public class Request implements HttpServletRequest
     @Override
     public String getParameter(String name)
     {
+        if (isQueryParametersOnly())
+            return _uri.getQueryParameter(name);
         if (!_paramsExtracted)
             extractParameters();
         if (_parameters == null)
@@ -865,6 +941,13 @@ public class Request implements HttpServletRequest
     @Override
     public String[] getParameterValues(String name)
     {
+        if (isQueryParametersOnly())
+        {
+            List<String> vals = _uri.getQueryParameterValues(name);
+            if (vals == null)
+                return null;
+            return vals.toArray(new String[vals.size()]);
+        }
         if (!_paramsExtracted)
             extractParameters();
         if (_parameters == null)
@@ -875,6 +958,29 @@ public class Request implements HttpServletRequest
         return vals.toArray(new String[vals.size()]);
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * Check if single parameters can be looked up directly in the query of the URI,
+     * without extracting all the parameters.  This is only possible while nothing
+     * has been extracted or merged yet, the query uses the charset of the URI and
+     * the request cannot have content parameters.
+     * @return true if {@link HttpURI#getQueryParameter(String)} gives the same result as {@link #getParameter(String)}
+     */
+    private boolean isQueryParametersOnly()
+    {
+        if (_paramsExtracted || _queryParameters != null || _queryEncoding != null || _uri == null)
+            return false;
+
+        if (_contentParameters != null)
+            return _contentParameters.isEmpty();
+
+        String contentType = getContentType();
+        if (contentType == null || contentType.isEmpty() || getContentLength() == 0)
+            return true;
+        contentType = HttpFields.valueParameters(contentType, null);
+        return !MimeTypes.Type.FORM_ENCODED.is(contentType) && !contentType.startsWith("multipart/form-data");
+    }
+
     private MultiMap<String> restoreParameters()
     {
         MultiMap<String> result = new MultiMap<>();
@@ -1624,6 +1730,7 @@ public class Request implements HttpServletRequest
         _uri = null;
         _queryParameters = null;
         _contentParameters = null;
+        _formParameters = null;
         _parameters = null;
         _paramsExtracted = false;
         _inputState = __NONE;
@@ -1742,7 +1849,7 @@ public class Request implements HttpServletRequest
     @Override
     public void setCharacterEncoding(String encoding) throws UnsupportedEncodingException
     {
-        if (_inputState != __NONE)
+        if (_inputState != __NONE || _formParameters != null)
             return;
 
         _characterEncoding = encoding;
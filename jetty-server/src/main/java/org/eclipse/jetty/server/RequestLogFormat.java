@@ -0,0 +1,786 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.servlet.http.Cookie;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.util.DateCache;
+
+/**
+ * A request log format, compiled from an Apache <code>mod_log_config</code> style
+ * format string into an array of {@link Appender}s, so that no parsing or
+ * reflection is needed to format each request.
+ * <p>
+ * The supported directives are:
+ * <dl>
+ * <dt>%%</dt><dd>a literal percent sign</dd>
+ * <dt>%a</dt><dd>the remote IP address</dd>
+ * <dt>%A</dt><dd>the local IP address</dd>
+ * <dt>%b</dt><dd>the response content bytes, or '-' if none</dd>
+ * <dt>%B</dt><dd>the response content bytes</dd>
+ * <dt>%{name}C</dt><dd>the value of the named request cookie</dd>
+ * <dt>%D</dt><dd>the time taken to serve the request, in microseconds (with millisecond precision)</dd>
+ * <dt>%h</dt><dd>the remote host address, or the X-Forwarded-For header if proxied addresses are preferred</dd>
+ * <dt>%H</dt><dd>the request protocol</dd>
+ * <dt>%{name}i</dt><dd>the value of the named request header</dd>
+ * <dt>%k</dt><dd>the number of previous requests handled on the connection</dd>
+ * <dt>%l</dt><dd>the remote logname, always '-'</dd>
+ * <dt>%m</dt><dd>the request method</dd>
+ * <dt>%{name}n</dt><dd>the value of the named request attribute</dd>
+ * <dt>%{name}o</dt><dd>the value of the named response header</dd>
+ * <dt>%p, %{local}p, %{remote}p</dt><dd>the server port, the local port or the remote port</dd>
+ * <dt>%q</dt><dd>the query string prefixed with '?', or an empty string</dd>
+ * <dt>%r</dt><dd>the first line of the request</dd>
+ * <dt>%s</dt><dd>the response status</dd>
+ * <dt>%t, %{format}t</dt><dd>the request time, in the log date format within brackets, or in the given format.
+ * A format containing '%' is a <code>strftime(3)</code> format as used by Apache, and is translated to a
+ * {@link java.text.SimpleDateFormat} pattern; any other format is used as a <code>SimpleDateFormat</code>
+ * pattern directly. <code>%{sec}t</code>, <code>%{msec}t</code> and <code>%{usec}t</code> log the request
+ * time since the epoch. The Apache <code>begin:</code> and <code>end:</code> prefixes and the
+ * <code>msec_frac</code> and <code>usec_frac</code> formats are not supported.</dd>
+ * <dt>%T, %{ms}T, %{us}T</dt><dd>the time taken to serve the request, in seconds, milliseconds or microseconds</dd>
+ * <dt>%u</dt><dd>the authenticated remote user, or '-'</dd>
+ * <dt>%U</dt><dd>the requested URI path</dd>
+ * <dt>%v</dt><dd>the server name</dd>
+ * <dt>%^FB</dt><dd>the time from the request to the commit of the response (time to first byte), in microseconds
+ * (with millisecond precision), or '-' if the response was not committed</dd>
+ * </dl>
+ * The Apache '&lt;' and '&gt;' modifiers, as in <code>%&gt;s</code>, are accepted but ignored: requests are not
+ * internally redirected, so the original and the final request log the same values.
+ * Missing values are logged as '-'.
+ */
+public class RequestLogFormat
+{
+    /** The NCSA common log format */
+    public static final String COMMON = "%h %l %u %t \"%r\" %s %b";
+    /** The NCSA combined log format */
+    public static final String COMBINED = COMMON + " \"%{Referer}i\" \"%{User-Agent}i\"";
+
+    /**
+     * Appends a part of a request log entry.
+     */
+    public interface Appender
+    {
+        void append(StringBuilder buffer, Request request, Response response);
+    }
+
+    private final String _format;
+    private final Appender[] _appenders;
+
+    /**
+     * @param format the format string
+     * @param dateFormat the date format for %t, or null to log the request timestamp
+     * @param locale the locale for dates
+     * @param timeZone the time zone for dates
+     * @param preferProxiedForAddress true if %h logs the X-Forwarded-For header when present
+     * @throws IllegalArgumentException if the format contains an unknown or malformed directive
+     */
+    public RequestLogFormat(String format, String dateFormat, Locale locale, String timeZone, boolean preferProxiedForAddress)
+    {
+        _format = format;
+
+        List<Appender> appenders = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < format.length())
+        {
+            char c = format.charAt(i++);
+            if (c != '%')
+            {
+                literal.append(c);
+                continue;
+            }
+
+            if (i == format.length())
+                throw new IllegalArgumentException("Incomplete directive at end of " + format);
+
+            int start = i - 1;
+            String param = null;
+            c = format.charAt(i++);
+            if (c == '%')
+            {
+                literal.append(c);
+                continue;
+            }
+            while (c == '<' || c == '>' || c == '{')
+            {
+                if (c == '{')
+                {
+                    int end = format.indexOf('}', i);
+                    if (end < 0 || param != null)
+                        throw new IllegalArgumentException("Malformed directive at " + start + " in " + format);
+                    param = format.substring(i, end);
+                    i = end + 1;
+                }
+                if (i == format.length())
+                    throw new IllegalArgumentException("Incomplete directive at end of " + format);
+                c = format.charAt(i++);
+            }
+
+            if (literal.length() > 0)
+            {
+                appenders.add(new Literal(literal.toString()));
+                literal.setLength(0);
+            }
+
+            if (c == '^')
+            {
+                if (i + 2 > format.length() || !format.startsWith("FB", i))
+                    throw new IllegalArgumentException("Unknown directive at " + start + " in " + format);
+                i += 2;
+                appenders.add(TIME_TO_FIRST_BYTE);
+                continue;
+            }
+
+            appenders.add(newAppender(c, param, dateFormat, locale, timeZone, preferProxiedForAddress));
+        }
+        if (literal.length() > 0)
+            appenders.add(new Literal(literal.toString()));
+
+        _appenders = appenders.toArray(new Appender[appenders.size()]);
+    }
+
+    private static Appender newAppender(char code, String param, String dateFormat, Locale locale, String timeZone, boolean preferProxiedForAddress)
+    {
+        switch (code)
+        {
+            case 'a':
+                return REMOTE_ADDRESS;
+            case 'A':
+                return LOCAL_ADDRESS;
+            case 'b':
+                return BYTES_CLF;
+            case 'B':
+                return BYTES;
+            case 'C':
+                return new CookieAppender(required(code, param));
+            case 'D':
+                return LATENCY_MICROS;
+            case 'h':
+                return preferProxiedForAddress ? PROXIED_HOST : REMOTE_ADDRESS;
+            case 'H':
+                return PROTOCOL;
+            case 'i':
+                return new RequestHeader(required(code, param));
+            case 'k':
+                return KEEP_ALIVES;
+            case 'l':
+                return new Literal("-");
+            case 'm':
+                return METHOD;
+            case 'n':
+                return new RequestAttribute(required(code, param));
+            case 'o':
+                return new ResponseHeader(required(code, param));
+            case 'p':
+                if (param == null || "canonical".equals(param))
+                    return SERVER_PORT;
+                if ("local".equals(param))
+                    return LOCAL_PORT;
+                if ("remote".equals(param))
+                    return REMOTE_PORT;
+                break;
+            case 'q':
+                return QUERY;
+            case 'r':
+                return REQUEST_LINE;
+            case 's':
+                return STATUS;
+            case 't':
+                if ("sec".equals(param))
+                    return EPOCH_SECONDS;
+                if ("msec".equals(param))
+                    return new Time(null, false);
+                if ("usec".equals(param))
+                    return EPOCH_MICROS;
+                if (param != null)
+                    return new Time(new DateCache(toDatePattern(param), locale, timeZone), false);
+                return new Time(dateFormat == null ? null : new DateCache(dateFormat, locale, timeZone), true);
+            case 'T':
+                if (param == null || "s".equals(param))
+                    return LATENCY_SECONDS;
+                if ("ms".equals(param))
+                    return LATENCY_MILLIS;
+                if ("us".equals(param))
+                    return LATENCY_MICROS;
+                break;
+            case 'u':
+                return USER;
+            case 'U':
+                return URI;
+            case 'v':
+                return SERVER_NAME;
+            default:
+                break;
+        }
+        throw new IllegalArgumentException("Unknown directive %" + (param == null ? "" : "{" + param + "}") + code);
+    }
+
+    /**
+     * Translate a <code>strftime(3)</code> format to a {@link java.text.SimpleDateFormat} pattern.
+     * Numeric fields are zero padded, including <code>%e</code>, <code>%k</code> and <code>%l</code>
+     * which strftime pads with a space.
+     * @param format the format, which is returned unchanged if it contains no '%'
+     * @return the date pattern
+     * @throws IllegalArgumentException if the format contains an unsupported conversion
+     */
+    static String toDatePattern(String format)
+    {
+        if (format.indexOf('%') < 0)
+            return format;
+
+        StringBuilder pattern = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < format.length())
+        {
+            char c = format.charAt(i++);
+            if (c != '%')
+            {
+                literal.append(c);
+                continue;
+            }
+            if (i == format.length())
+                throw new IllegalArgumentException("Incomplete conversion at end of " + format);
+
+            c = format.charAt(i++);
+            String field = null;
+            switch (c)
+            {
+                case '%':
+                    literal.append('%');
+                    break;
+                case 'n':
+                    literal.append('\n');
+                    break;
+                case 't':
+                    literal.append('\t');
+                    break;
+                case 'a':
+                    field = "EEE";
+                    break;
+                case 'A':
+                    field = "EEEE";
+                    break;
+                case 'b':
+                case 'h':
+                    field = "MMM";
+                    break;
+                case 'B':
+                    field = "MMMM";
+                    break;
+                case 'c':
+                    field = "EEE MMM dd HH:mm:ss yyyy";
+                    break;
+                case 'd':
+                    field = "dd";
+                    break;
+                case 'D':
+                case 'x':
+                    field = "MM/dd/yy";
+                    break;
+                case 'e':
+                    field = "d";
+                    break;
+                case 'F':
+                    field = "yyyy-MM-dd";
+                    break;
+                case 'G':
+                    field = "YYYY";
+                    break;
+                case 'H':
+                    field = "HH";
+                    break;
+                case 'I':
+                    field = "hh";
+                    break;
+                case 'j':
+                    field = "DDD";
+                    break;
+                case 'k':
+                    field = "H";
+                    break;
+                case 'l':
+                    field = "h";
+                    break;
+                case 'm':
+                    field = "MM";
+                    break;
+                case 'M':
+                    field = "mm";
+                    break;
+                case 'p':
+                    field = "a";
+                    break;
+                case 'r':
+                    field = "hh:mm:ss a";
+                    break;
+                case 'R':
+                    field = "HH:mm";
+                    break;
+                case 'S':
+                    field = "ss";
+                    break;
+                case 'T':
+                case 'X':
+                    field = "HH:mm:ss";
+                    break;
+                case 'u':
+                    field = "u";
+                    break;
+                case 'V':
+                    field = "ww";
+                    break;
+                case 'y':
+                    field = "yy";
+                    break;
+                case 'Y':
+                    field = "yyyy";
+                    break;
+                case 'z':
+                    field = "Z";
+                    break;
+                case 'Z':
+                    field = "zzz";
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported conversion %" + c + " in " + format);
+            }
+            if (field != null)
+            {
+                appendQuoted(pattern, literal);
+                pattern.append(field);
+            }
+        }
+        appendQuoted(pattern, literal);
+        return pattern.toString();
+    }
+
+    private static void appendQuoted(StringBuilder pattern, StringBuilder literal)
+    {
+        if (literal.length() == 0)
+            return;
+        pattern.append('\'');
+        for (int i = 0; i < literal.length(); i++)
+        {
+            char c = literal.charAt(i);
+            if (c == '\'')
+                pattern.append('\'');
+            pattern.append(c);
+        }
+        pattern.append('\'');
+        literal.setLength(0);
+    }
+
+    private static String required(char code, String param)
+    {
+        if (param == null || param.length() == 0)
+            throw new IllegalArgumentException("Directive %" + code + " requires a {name}");
+        return param;
+    }
+
+    /**
+     * @return the format string
+     */
+    public String getFormat()
+    {
+        return _format;
+    }
+
+    /**
+     * Append the log entry of a request
+     * @param buffer the buffer to append to
+     * @param request the request
+     * @param response the response
+     */
+    public void format(StringBuilder buffer, Request request, Response response)
+    {
+        for (Appender appender : _appenders)
+            appender.append(buffer, request, response);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s}", getClass().getSimpleName(), hashCode(), _format);
+    }
+
+    private static void appendOrDash(StringBuilder buffer, String value)
+    {
+        if (value == null || value.length() == 0)
+            buffer.append('-');
+        else
+            buffer.append(value);
+    }
+
+    private static final Appender REMOTE_ADDRESS = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            appendOrDash(buffer, request.getRemoteAddr());
+        }
+    };
+
+    private static final Appender PROXIED_HOST = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            String addr = request.getHeader(HttpHeader.X_FORWARDED_FOR.asString());
+            appendOrDash(buffer, addr == null ? request.getRemoteAddr() : addr);
+        }
+    };
+
+    private static final Appender LOCAL_ADDRESS = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            appendOrDash(buffer, request.getLocalAddr());
+        }
+    };
+
+    private static final Appender BYTES_CLF = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            long bytes = response.getContentCount();
+            if (bytes > 0)
+                buffer.append(bytes);
+            else
+                buffer.append('-');
+        }
+    };
+
+    private static final Appender BYTES = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            buffer.append(response.getContentCount());
+        }
+    };
+
+    private static final Appender LATENCY_SECONDS = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            buffer.append((System.currentTimeMillis() - request.getTimeStamp()) / 1000);
+        }
+    };
+
+    private static final Appender LATENCY_MILLIS = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            buffer.append(System.currentTimeMillis() - request.getTimeStamp());
+        }
+    };
+
+    private static final Appender LATENCY_MICROS = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            buffer.append((System.currentTimeMillis() - request.getTimeStamp()) * 1000);
+        }
+    };
+
+    private static final Appender EPOCH_SECONDS = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            buffer.append(request.getTimeStamp() / 1000);
+        }
+    };
+
+    private static final Appender EPOCH_MICROS = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            buffer.append(request.getTimeStamp() * 1000);
+        }
+    };
+
+    private static final Appender TIME_TO_FIRST_BYTE = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            HttpChannel<?> channel = request.getHttpChannel();
+            long committed = channel == null ? 0 : channel.getCommittedTimeStamp();
+            if (committed > 0)
+                buffer.append(Math.max(0, committed - request.getTimeStamp()) * 1000);
+            else
+                buffer.append('-');
+        }
+    };
+
+    private static final Appender PROTOCOL = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            appendOrDash(buffer, request.getProtocol());
+        }
+    };
+
+    private static final Appender KEEP_ALIVES = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            HttpChannel<?> channel = request.getHttpChannel();
+            buffer.append(channel == null ? 0 : Math.max(0, channel.getRequests() - 1));
+        }
+    };
+
+    private static final Appender METHOD = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            appendOrDash(buffer, request.getMethod());
+        }
+    };
+
+    private static final Appender SERVER_PORT = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            buffer.append(request.getServerPort());
+        }
+    };
+
+    private static final Appender LOCAL_PORT = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            buffer.append(request.getLocalPort());
+        }
+    };
+
+    private static final Appender REMOTE_PORT = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            buffer.append(request.getRemotePort());
+        }
+    };
+
+    private static final Appender QUERY = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            String query = request.getQueryString();
+            if (query != null)
+                buffer.append('?').append(query);
+        }
+    };
+
+    private static final Appender REQUEST_LINE = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            buffer.append(request.getMethod());
+            buffer.append(' ');
+            buffer.append(request.getUri().toString());
+            buffer.append(' ');
+            buffer.append(request.getProtocol());
+        }
+    };
+
+    private static final Appender STATUS = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            int status = response.getStatus();
+            buffer.append(status <= 0 ? 404 : status);
+        }
+    };
+
+    private static final Appender USER = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            Authentication authentication = request.getAuthentication();
+            if (authentication instanceof Authentication.User)
+                buffer.append(((Authentication.User)authentication).getUserIdentity().getUserPrincipal().getName());
+            else
+                buffer.append('-');
+        }
+    };
+
+    private static final Appender URI = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            appendOrDash(buffer, request.getRequestURI());
+        }
+    };
+
+    private static final Appender SERVER_NAME = new Appender()
+    {
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            appendOrDash(buffer, request.getServerName());
+        }
+    };
+
+    private static class Literal implements Appender
+    {
+        private final String _literal;
+
+        private Literal(String literal)
+        {
+            _literal = literal;
+        }
+
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            buffer.append(_literal);
+        }
+    }
+
+    private static class RequestHeader implements Appender
+    {
+        private final String _name;
+
+        private RequestHeader(String name)
+        {
+            _name = name;
+        }
+
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            appendOrDash(buffer, request.getHeader(_name));
+        }
+    }
+
+    private static class ResponseHeader implements Appender
+    {
+        private final String _name;
+
+        private ResponseHeader(String name)
+        {
+            _name = name;
+        }
+
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            appendOrDash(buffer, response.getHeader(_name));
+        }
+    }
+
+    private static class RequestAttribute implements Appender
+    {
+        private final String _name;
+
+        private RequestAttribute(String name)
+        {
+            _name = name;
+        }
+
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            Object value = request.getAttribute(_name);
+            if (value == null)
+                buffer.append('-');
+            else
+                buffer.append(value);
+        }
+    }
+
+    private static class CookieAppender implements Appender
+    {
+        private final String _name;
+
+        private CookieAppender(String name)
+        {
+            _name = name;
+        }
+
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            Cookie[] cookies = request.getCookies();
+            if (cookies != null)
+            {
+                for (Cookie cookie : cookies)
+                {
+                    if (_name.equals(cookie.getName()))
+                    {
+                        appendOrDash(buffer, cookie.getValue());
+                        return;
+                    }
+                }
+            }
+            buffer.append('-');
+        }
+    }
+
+    private static class Time implements Appender
+    {
+        private final DateCache _dateCache;
+        private final boolean _brackets;
+
+        private Time(DateCache dateCache, boolean brackets)
+        {
+            _dateCache = dateCache;
+            _brackets = brackets;
+        }
+
+        @Override
+        public void append(StringBuilder buffer, Request request, Response response)
+        {
+            if (_brackets)
+                buffer.append('[');
+            if (_dateCache == null)
+                buffer.append(request.getTimeStamp());
+            else
+                _dateCache.append(buffer, request.getTimeStamp());
+            if (_brackets)
+                buffer.append(']');
+        }
+    }
+}
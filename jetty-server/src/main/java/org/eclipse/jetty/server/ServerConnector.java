@@ -19,6 +19,7 @@
 package org.eclipse.jetty.server;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
@@ -81,6 +82,7 @@ public class ServerConnector extends AbstractNetworkConnector
     private volatile boolean _inheritChannel = false;
     private volatile int _localPort = -1;
     private volatile int _acceptQueueSize = 0;
+    private volatile RemoteAddressLimit _remoteAddressLimit;
     private volatile boolean _reuseAddress = true;
     private volatile int _lingerTime = -1;
 
@@ -381,10 +383,51 @@ public class ServerConnector extends AbstractNetworkConnector
     
     private void accepted(SocketChannel channel) throws IOException
     {
-        channel.configureBlocking(false);
         Socket socket = channel.socket();
-        configure(socket);
-        _manager.accept(channel);
+        RemoteAddressLimit limit = _remoteAddressLimit;
+        InetAddress address = socket.getInetAddress();
+        if (limit != null && !limit.accept(address))
+        {
+            reject(channel);
+            return;
+        }
+
+        try
+        {
+            channel.configureBlocking(false);
+            configure(socket);
+            _manager.accept(channel);
+        }
+        catch (Throwable x)
+        {
+            // Release the connection counted by the limit, as no endpoint will be closed for it
+            if (limit != null)
+                limit.onClosed(address);
+            throw x;
+        }
+    }
+
+    private void acceptFailed(SocketChannel channel)
+    {
+        // The channel was dropped before an endpoint was opened for it, so
+        // onEndPointClosed() will not release the connection counted by the limit
+        RemoteAddressLimit limit = _remoteAddressLimit;
+        if (limit != null)
+            limit.onClosed(channel.socket().getInetAddress());
+    }
+
+    private void reject(SocketChannel channel)
+    {
+        try
+        {
+            // Reset rather than close gracefully, so no TIME_WAIT state is kept for the client
+            channel.socket().setSoLinger(true, 0);
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            LOG.ignore(e);
+        }
     }
 
     protected void configure(Socket socket)
@@ -408,6 +451,36 @@ public class ServerConnector extends AbstractNetworkConnector
         return _manager;
     }
 
+    /**
+     * @return the limits on the connections of each remote address, or null if there are none
+     */
+    public RemoteAddressLimit getRemoteAddressLimit()
+    {
+        return _remoteAddressLimit;
+    }
+
+    /**
+     * @param limit the limits on the connections of each remote address, checked as
+     * soon as a connection is accepted, or null for no limits
+     */
+    public void setRemoteAddressLimit(RemoteAddressLimit limit)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        updateBean(_remoteAddressLimit, limit);
+        _remoteAddressLimit = limit;
+    }
+
+    @Override
+    protected void onEndPointClosed(EndPoint endp)
+    {
+        RemoteAddressLimit limit = _remoteAddressLimit;
+        InetSocketAddress remote = endp.getRemoteAddress();
+        if (limit != null && remote != null)
+            limit.onClosed(remote.getAddress());
+        super.onEndPointClosed(endp);
+    }
+
     @Override
     public Object getTransport()
     {
@@ -493,6 +566,13 @@ public class ServerConnector extends AbstractNetworkConnector
             ServerConnector.this.accepted(channel);
         }
 
+        @Override
+        protected void acceptFailed(SocketChannel channel, Throwable ex, Object attachment)
+        {
+            ServerConnector.this.acceptFailed(channel);
+            super.acceptFailed(channel, ex, attachment);
+        }
+
         @Override
         protected SelectChannelEndPoint newEndPoint(SocketChannel channel, ManagedSelector selectSet, SelectionKey selectionKey) throws IOException
         {
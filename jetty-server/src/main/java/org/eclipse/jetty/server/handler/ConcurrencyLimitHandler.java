@@ -0,0 +1,454 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.server.handler;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.AsyncContextEvent;
+import org.eclipse.jetty.server.HttpChannelState;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/* ------------------------------------------------------------ */
+/** A handler wrapper that limits the number of requests handled concurrently,
+ * adjusting the limit to the measured latency of the requests.
+ * <p>
+ * Rather than a static maximum, as the QoSFilter uses, the limit follows a gradient
+ * algorithm: the latency of the completed requests is averaged over a window of samples
+ * and compared with a long term average latency. While they are alike the limit grows by
+ * about its square root per window, and when the window latency rises the limit is
+ * reduced in proportion, so that requests queue before the handler rather than in the
+ * application and the latency tail stays stable under overload.
+ * <p>
+ * Requests over the limit are queued, asynchronously, for up to {@link #getMaxQueueMs()}
+ * and handled in order as requests complete. Requests that do not fit in the queue, or
+ * time out in it, are rejected with a 503.
+ */
+@ManagedObject("Adaptive concurrency limit")
+public class ConcurrencyLimitHandler extends AsyncDelayHandler
+{
+    private static final Logger LOG = Log.getLogger(ConcurrencyLimitHandler.class);
+    private static final String PERMIT_ATTR = "o.e.j.s.h.ConcurrencyLimitHandler.permit";
+    private static final int LONG_WINDOW = 600;
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+
+    private final AtomicInteger _inFlight = new AtomicInteger();
+    private final AtomicInteger _windowMaxInFlight = new AtomicInteger();
+    private final AtomicLong _windowSamples = new AtomicLong();
+    private final AtomicLong _windowLatency = new AtomicLong();
+    private final Queue<Request> _queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger _queued = new AtomicInteger();
+    private final AtomicLong _rejected = new AtomicLong();
+    private final AsyncListener _onCompletion = new AsyncListener()
+    {
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException
+        {
+            event.getAsyncContext().addListener(this);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException
+        {
+            Request request = ((AsyncContextEvent)event).getHttpChannelState().getBaseRequest();
+            if (_queue.remove(request))
+            {
+                _queued.decrementAndGet();
+                reject(request, event.getAsyncContext());
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException
+        {
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException
+        {
+            complete(((AsyncContextEvent)event).getHttpChannelState().getBaseRequest());
+        }
+    };
+
+    private volatile int _initialLimit = 20;
+    private volatile int _minLimit = 4;
+    private volatile int _maxLimit = 200;
+    private volatile int _windowSize = 100;
+    private volatile int _maxQueued = 1024;
+    private volatile long _maxQueueMs = 1000;
+    private volatile double _limit;
+    private double _longLatency;
+    private double _shortLatency;
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected void doStart() throws Exception
+    {
+        _limit = Math.max(_minLimit, Math.min(_maxLimit, _initialLimit));
+        _longLatency = 0;
+        _shortLatency = 0;
+        super.doStart();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected boolean startHandling(Request request, boolean restart)
+    {
+        // Restarted requests were given a permit when they were taken from the queue,
+        // and asynchronous dispatches keep the permit of their initial dispatch
+        if (restart || request.getAttribute(PERMIT_ATTR) != null)
+            return true;
+
+        if (acquire())
+        {
+            request.setAttribute(PERMIT_ATTR, System.nanoTime());
+            return true;
+        }
+        return false;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected void delayHandling(Request request, AsyncContext context)
+    {
+        if (_queued.incrementAndGet() > _maxQueued)
+        {
+            _queued.decrementAndGet();
+            reject(request, context);
+            return;
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Queued {}", request);
+        context.setTimeout(_maxQueueMs);
+        request.getHttpChannelState().addListener(_onCompletion);
+        _queue.offer(request);
+
+        // A permit may have been released before the request was queued
+        dispatchQueued();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected void endHandling(Request request)
+    {
+        HttpChannelState state = request.getHttpChannelState();
+        if (!state.isInitial())
+            return;
+        if (state.isSuspended())
+            state.addListener(_onCompletion);
+        else
+            complete(request);
+    }
+
+    /* ------------------------------------------------------------ */
+    private boolean acquire()
+    {
+        while (true)
+        {
+            int inFlight = _inFlight.get();
+            if (inFlight >= (int)_limit)
+                return false;
+            if (_inFlight.compareAndSet(inFlight, inFlight + 1))
+            {
+                inFlight++;
+                while (true)
+                {
+                    int max = _windowMaxInFlight.get();
+                    if (inFlight <= max || _windowMaxInFlight.compareAndSet(max, inFlight))
+                        return true;
+                }
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private void complete(Request request)
+    {
+        Object permit = request.getAttribute(PERMIT_ATTR);
+        if (permit == null)
+            return;
+        request.removeAttribute(PERMIT_ATTR);
+
+        long latency = System.nanoTime() - (Long)permit;
+        _inFlight.decrementAndGet();
+        sample(latency);
+        dispatchQueued();
+    }
+
+    /* ------------------------------------------------------------ */
+    private void dispatchQueued()
+    {
+        while (!_queue.isEmpty() && acquire())
+        {
+            Request request = _queue.poll();
+            if (request == null)
+            {
+                _inFlight.decrementAndGet();
+                continue;
+            }
+            _queued.decrementAndGet();
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("Dispatching {}", request);
+            request.setAttribute(PERMIT_ATTR, System.nanoTime());
+            try
+            {
+                request.getAsyncContext().dispatch();
+            }
+            catch (IllegalStateException x)
+            {
+                // The request expired or completed while it was being taken from the queue
+                LOG.ignore(x);
+                request.removeAttribute(PERMIT_ATTR);
+                _inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private void reject(Request request, AsyncContext context)
+    {
+        _rejected.incrementAndGet();
+        if (LOG.isDebugEnabled())
+            LOG.debug("Rejected {}", request);
+        try
+        {
+            ((HttpServletResponse)context.getResponse()).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+        catch (IOException x)
+        {
+            LOG.ignore(x);
+        }
+        finally
+        {
+            context.complete();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private void sample(long latency)
+    {
+        _windowLatency.addAndGet(latency);
+        if (_windowSamples.incrementAndGet() < _windowSize)
+            return;
+
+        synchronized (this)
+        {
+            long samples = _windowSamples.get();
+            if (samples < _windowSize)
+                return;
+            _windowSamples.addAndGet(-samples);
+            update(_windowLatency.getAndSet(0) / (double)samples, _windowMaxInFlight.getAndSet(_inFlight.get()));
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Updates the limit at the end of a window of samples.
+     * @param latency the average latency of the window, in nanoseconds
+     * @param maxInFlight the maximum number of requests in flight during the window
+     */
+    synchronized void update(double latency, int maxInFlight)
+    {
+        _shortLatency = latency;
+        if (_longLatency == 0)
+            _longLatency = latency;
+        else
+            _longLatency += (latency - _longLatency) / LONG_WINDOW;
+
+        // Once the load drops after an overload, converge quickly to the new latency
+        if (_longLatency / latency > 2)
+            _longLatency *= 0.95;
+
+        double limit = _limit;
+
+        // Only grow the limit if the current limit is actually used
+        if (maxInFlight < limit / 2)
+            return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * _longLatency / latency));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = limit * (1 - SMOOTHING) + target * SMOOTHING;
+        _limit = Math.max(_minLimit, Math.min(_maxLimit, limit));
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Limit {} for latency {}/{} ns", _limit, latency, _longLatency);
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("current limit of concurrent requests")
+    public int getLimit()
+    {
+        return (int)_limit;
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("number of requests being handled")
+    public int getInFlight()
+    {
+        return _inFlight.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("number of requests queued")
+    public int getQueued()
+    {
+        return _queued.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("number of requests rejected")
+    public long getRejected()
+    {
+        return _rejected.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("average latency of the last window in ms")
+    public synchronized double getLatency()
+    {
+        return _shortLatency / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("long term average latency in ms")
+    public synchronized double getLongLatency()
+    {
+        return _longLatency / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedOperation(value="resets the rejected requests count", impact="ACTION")
+    public void resetStatistics()
+    {
+        _rejected.set(0);
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("limit of concurrent requests when started")
+    public int getInitialLimit()
+    {
+        return _initialLimit;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param initialLimit the limit of concurrent requests when started
+     */
+    public void setInitialLimit(int initialLimit)
+    {
+        _initialLimit = initialLimit;
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("minimum limit of concurrent requests")
+    public int getMinLimit()
+    {
+        return _minLimit;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param minLimit the minimum limit of concurrent requests
+     */
+    public void setMinLimit(int minLimit)
+    {
+        _minLimit = minLimit;
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("maximum limit of concurrent requests")
+    public int getMaxLimit()
+    {
+        return _maxLimit;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxLimit the maximum limit of concurrent requests
+     */
+    public void setMaxLimit(int maxLimit)
+    {
+        _maxLimit = maxLimit;
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("number of latency samples per limit update")
+    public int getWindowSize()
+    {
+        return _windowSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param windowSize the number of completed requests whose latency is averaged for each update of the limit
+     */
+    public void setWindowSize(int windowSize)
+    {
+        _windowSize = windowSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("maximum number of requests queued")
+    public int getMaxQueued()
+    {
+        return _maxQueued;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxQueued the maximum number of requests queued over the limit, or 0 to reject them immediately
+     */
+    public void setMaxQueued(int maxQueued)
+    {
+        _maxQueued = maxQueued;
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("maximum time in ms a request is queued")
+    public long getMaxQueueMs()
+    {
+        return _maxQueueMs;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxQueueMs the maximum time in milliseconds a request is queued before it is rejected
+     */
+    public void setMaxQueueMs(long maxQueueMs)
+    {
+        _maxQueueMs = maxQueueMs;
+    }
+}
@@ -305,6 +305,7 @@ public class ContextHandler extends ScopedHandler implements Attributes, Gracefu
             for (int i = 0; i < vhosts.length; i++)
                 _vhosts[i] = normalizeHostname(vhosts[i]);
         }
+        remapContexts();
     }
 
     /* ------------------------------------------------------------ */
@@ -343,6 +344,7 @@ public class ContextHandler extends ScopedHandler implements Attributes, Gracefu
             }
             _vhosts = currentVirtualHosts.toArray(new String[0]);
         }
+        remapContexts();
     }
 
     /* ------------------------------------------------------------ */
@@ -385,6 +387,7 @@ public class ContextHandler extends ScopedHandler implements Attributes, Gracefu
                 _vhosts = existingVirtualHosts.toArray(new String[0]);
             }
         }
+        remapContexts();
     }
 
     /* ------------------------------------------------------------ */
@@ -1352,7 +1355,16 @@ public class ContextHandler extends ScopedHandler implements Attributes, Gracefu
         }
 
         _contextPath = contextPath;
+        remapContexts();
+    }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * Remap the {@link ContextHandlerCollection}s of a running server, as they index
+     * the contexts by context path and virtual hosts.
+     */
+    private void remapContexts()
+    {
         if (getServer() != null && (getServer().isStarting() || getServer().isStarted()))
         {
             Handler[] contextCollections = getServer().getChildHandlersByClass(ContextHandlerCollection.class);
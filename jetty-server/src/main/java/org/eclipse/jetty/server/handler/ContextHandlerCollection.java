@@ -19,11 +19,12 @@
 package org.eclipse.jetty.server.handler;
 
 import java.io.IOException;
-import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -62,7 +63,7 @@ public class ContextHandlerCollection extends HandlerCollection
     private static final Logger LOG = Log.getLogger(ContextHandlerCollection.class);
 
     private final ConcurrentMap<ContextHandler,Handler> _contextBranches = new ConcurrentHashMap<>();
-    private volatile Trie<Map.Entry<String,Branch[]>> _pathBranches;
+    private volatile Trie<PathBranches> _pathBranches;
     private Class<? extends ContextHandler> _contextClass = ContextHandler.class;
 
     /* ------------------------------------------------------------ */
@@ -74,7 +75,7 @@ public class ContextHandlerCollection extends HandlerCollection
 
     /* ------------------------------------------------------------ */
     /**
-     * Remap the context paths.
+     * Remap the context paths and the virtual hosts of the contexts.
      */
     @ManagedOperation("update the mapping of context path to context")
     public void mapContexts()
@@ -119,13 +120,16 @@ public class ContextHandlerCollection extends HandlerCollection
         
         // Loop until we have a big enough trie to hold all the context paths
         int capacity=512;
-        Trie<Map.Entry<String,Branch[]>> trie;
+        List<PathBranches> pathBranches=new ArrayList<>(map.size());
+        for (Map.Entry<String,Branch[]> entry: map.entrySet())
+            pathBranches.add(new PathBranches(entry.getKey(),entry.getValue()));
+        Trie<PathBranches> trie;
         loop: while(true)
         {
             trie=new ArrayTernaryTrie<>(false,capacity);
-            for (Map.Entry<String,Branch[]> entry: map.entrySet())
+            for (PathBranches branches: pathBranches)
             {
-                if (!trie.put(entry.getKey().substring(1),entry))
+                if (!trie.put(branches.getContextPath().substring(1),branches))
                 {
                     capacity+=512;
                     continue loop;
@@ -138,7 +142,7 @@ public class ContextHandlerCollection extends HandlerCollection
         if (LOG.isDebugEnabled())
         {
             for (String ctx : trie.keySet())
-                LOG.debug("{}->{}",ctx,Arrays.asList(trie.get(ctx).getValue()));
+                LOG.debug("{}->{}",ctx,Arrays.asList(trie.get(ctx).getBranches()));
         }
         _pathBranches=trie;
     }
@@ -201,16 +205,16 @@ public class ContextHandlerCollection extends HandlerCollection
             while (limit>=0)
             {
                 // Get best match
-                Map.Entry<String,Branch[]> branches = _pathBranches.getBest(target,1,limit);
+                PathBranches branches = _pathBranches.getBest(target,1,limit);
                 
                 
                 if (branches==null)
                     break;
                 
-                int l=branches.getKey().length();
+                int l=branches.getContextPath().length();
                 if (l==1 || target.length()==l || target.charAt(l)=='/')
                 {
-                    for (Branch branch : branches.getValue())
+                    for (Branch branch : branches.getBranches(baseRequest))
                     {
                         branch.getHandler().handle(target,baseRequest, request, response);
                         if (baseRequest.isHandled())
@@ -337,5 +341,191 @@ public class ContextHandlerCollection extends HandlerCollection
         }
     }
 
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /** The branches of a context path, with an index of their virtual hosts.
+     * <p>
+     * A branch that is a context with only host name and "*." wildcard
+     * virtual hosts is indexed by them, so that it is only offered requests
+     * for a host it may accept. Exact hosts are hashed and wildcards are looked
+     * up by the part of the host after its first label, as
+     * {@link ContextHandler#checkVirtualHost(Request)} matches them.
+     * All other branches are offered every request. The index is only a
+     * filter: the contexts still check the virtual host of the requests.
+     */
+    private final static class PathBranches
+    {
+        private static final int[] NO_POSITIONS = new int[0];
+
+        private final String _contextPath;
+        private final Branch[] _branches;
+        private final Map<String,int[]> _hosts = new HashMap<>();
+        private final Map<String,int[]> _wildcards = new HashMap<>();
+        private final int[] _wildcardLengths;
+        private final int[] _unindexed;
+        private final Branch[] _unindexedBranches;
+
+        PathBranches(String contextPath, Branch[] branches)
+        {
+            _contextPath=contextPath;
+            _branches=branches;
+
+            int[] unindexed=NO_POSITIONS;
+            Set<Integer> lengths=new HashSet<>();
+            for (int i=0;i<branches.length;i++)
+            {
+                String[] vhosts=getIndexableVirtualHosts(branches[i]);
+                if (vhosts==null)
+                {
+                    unindexed=add(unindexed,i);
+                    continue;
+                }
+
+                for (String vhost : vhosts)
+                {
+                    if (vhost==null || vhost.length()==0)
+                        continue;
+                    if (vhost.startsWith("*."))
+                    {
+                        String suffix=vhost.substring(2).toLowerCase(Locale.ENGLISH);
+                        _wildcards.put(suffix,add(_wildcards.get(suffix),i));
+                        lengths.add(suffix.length());
+                    }
+                    else if (vhost.charAt(0)!='*')
+                    {
+                        String host=vhost.toLowerCase(Locale.ENGLISH);
+                        _hosts.put(host,add(_hosts.get(host),i));
+                    }
+                }
+            }
+
+            _unindexed=unindexed;
+            _unindexedBranches=toBranches(unindexed);
+            _wildcardLengths=new int[lengths.size()];
+            int i=0;
+            for (Integer length : lengths)
+                _wildcardLengths[i++]=length;
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @return The virtual hosts of a branch if it can be indexed by them, else null
+         */
+        private static String[] getIndexableVirtualHosts(Branch branch)
+        {
+            if (!(branch.getHandler() instanceof ContextHandler))
+                return null;
+            String[] vhosts=((ContextHandler)branch.getHandler()).getVirtualHosts();
+            if (vhosts==null || vhosts.length==0)
+                return null;
+            for (String vhost : vhosts)
+            {
+                if (vhost==null || vhost.length()==0)
+                    continue;
+                // Connector names are not hosts and an empty wildcard matches any host
+                if (vhost.charAt(0)=='@' || "*.".equals(vhost))
+                    return null;
+                for (int i=0;i<vhost.length();i++)
+                    if (vhost.charAt(i)>0x7f)
+                        return null;
+            }
+            return vhosts;
+        }
+
+        private static int[] add(int[] positions, int position)
+        {
+            if (positions==null)
+                return new int[]{position};
+            int[] added=Arrays.copyOf(positions,positions.length+1);
+            added[positions.length]=position;
+            return added;
+        }
+
+        private Branch[] toBranches(int[] positions)
+        {
+            Branch[] branches=new Branch[positions.length];
+            for (int i=0;i<positions.length;i++)
+                branches[i]=_branches[positions[i]];
+            return branches;
+        }
+
+        String getContextPath()
+        {
+            return _contextPath;
+        }
+
+        Branch[] getBranches()
+        {
+            return _branches;
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @param baseRequest The request
+         * @return The branches that may accept the host of the request, in order
+         */
+        Branch[] getBranches(Request baseRequest)
+        {
+            if (_unindexed.length==_branches.length)
+                return _branches;
+
+            String host=baseRequest.getServerName();
+            if (host==null)
+                return _branches;
+            if (host.endsWith("."))
+                host=host.substring(0,host.length()-1);
+            host=host.toLowerCase(Locale.ENGLISH);
+
+            int[] positions=_hosts.get(host);
+            if (_wildcardLengths.length>0)
+            {
+                // A wildcard matches the host from after its first '.'
+                int offset=host.indexOf('.')+1;
+                for (int length : _wildcardLengths)
+                {
+                    if (offset+length>host.length())
+                        continue;
+                    int[] matched=_wildcards.get(host.substring(offset,offset+length));
+                    if (matched!=null)
+                        positions=merge(positions,matched);
+                }
+            }
+
+            if (positions==null)
+                return _unindexedBranches;
+            return toBranches(merge(positions,_unindexed));
+        }
+
+        private static int[] merge(int[] a, int[] b)
+        {
+            if (a==null || a.length==0)
+                return b;
+            if (b.length==0)
+                return a;
+            int[] merged=new int[a.length+b.length];
+            int i=0;
+            int j=0;
+            int n=0;
+            while (i<a.length || j<b.length)
+            {
+                int next;
+                if (j==b.length || i<a.length && a[i]<=b[j])
+                    next=a[i++];
+                else
+                    next=b[j++];
+                if (n==0 || merged[n-1]!=next)
+                    merged[n++]=next;
+            }
+            return n==merged.length?merged:Arrays.copyOf(merged,n);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("{%s,%s}",_contextPath,Arrays.asList(_branches));
+        }
+    }
+
 
 }
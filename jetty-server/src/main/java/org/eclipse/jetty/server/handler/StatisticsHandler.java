@@ -21,7 +21,6 @@ package org.eclipse.jetty.server.handler;
 import java.io.IOException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -39,9 +38,11 @@ import org.eclipse.jetty.util.FutureCallback;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.annotation.Name;
 import org.eclipse.jetty.util.component.Graceful;
 import org.eclipse.jetty.util.statistic.CounterStatistic;
-import org.eclipse.jetty.util.statistic.SampleStatistic;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
+import org.eclipse.jetty.util.statistic.StripedCounter;
 
 @ManagedObject("Request Statistics Gathering")
 public class StatisticsHandler extends HandlerWrapper implements Graceful
@@ -49,20 +50,25 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
     private final AtomicLong _statsStartedAt = new AtomicLong();
 
     private final CounterStatistic _requestStats = new CounterStatistic();
-    private final SampleStatistic _requestTimeStats = new SampleStatistic();
+    private final HistogramStatistic _requestTimeStats = new HistogramStatistic();
     private final CounterStatistic _dispatchedStats = new CounterStatistic();
-    private final SampleStatistic _dispatchedTimeStats = new SampleStatistic();
+    private final HistogramStatistic _dispatchedTimeStats = new HistogramStatistic();
     private final CounterStatistic _asyncWaitStats = new CounterStatistic();
 
-    private final AtomicInteger _asyncDispatches = new AtomicInteger();
-    private final AtomicInteger _expires = new AtomicInteger();
+    private final StripedCounter _asyncDispatches = new StripedCounter();
+    private final StripedCounter _expires = new StripedCounter();
 
-    private final AtomicInteger _responses1xx = new AtomicInteger();
-    private final AtomicInteger _responses2xx = new AtomicInteger();
-    private final AtomicInteger _responses3xx = new AtomicInteger();
-    private final AtomicInteger _responses4xx = new AtomicInteger();
-    private final AtomicInteger _responses5xx = new AtomicInteger();
-    private final AtomicLong _responsesTotalBytes = new AtomicLong();
+    private final StripedCounter _responses1xx = new StripedCounter();
+    private final StripedCounter _responses2xx = new StripedCounter();
+    private final StripedCounter _responses3xx = new StripedCounter();
+    private final StripedCounter _responses4xx = new StripedCounter();
+    private final StripedCounter _responses5xx = new StripedCounter();
+    private final StripedCounter _responsesTotalBytes = new StripedCounter();
+    private final HistogramStatistic[] _responseTimeStats = new HistogramStatistic[5];
+    {
+        for (int i=0;i<_responseTimeStats.length;i++)
+            _responseTimeStats[i]=new HistogramStatistic();
+    }
 
     private final AtomicReference<FutureCallback> _shutdown=new AtomicReference<>();
     
@@ -71,7 +77,7 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         @Override
         public void onTimeout(AsyncEvent event) throws IOException
         {
-            _expires.incrementAndGet();
+            _expires.increment();
         }
         
         @Override
@@ -124,14 +130,16 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         _dispatchedTimeStats.reset();
         _asyncWaitStats.reset();
 
-        _asyncDispatches.set(0);
-        _expires.set(0);
-        _responses1xx.set(0);
-        _responses2xx.set(0);
-        _responses3xx.set(0);
-        _responses4xx.set(0);
-        _responses5xx.set(0);
-        _responsesTotalBytes.set(0L);
+        _asyncDispatches.reset();
+        _expires.reset();
+        _responses1xx.reset();
+        _responses2xx.reset();
+        _responses3xx.reset();
+        _responses4xx.reset();
+        _responses5xx.reset();
+        _responsesTotalBytes.reset();
+        for (HistogramStatistic stats : _responseTimeStats)
+            stats.reset();
     }
 
     @Override
@@ -151,7 +159,7 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         {
             // resumed request
             start = System.currentTimeMillis();
-            _asyncDispatches.incrementAndGet();
+            _asyncDispatches.increment();
         }
 
         try
@@ -196,24 +204,27 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
     protected void updateResponse(Request request)
     {
         Response response = request.getResponse();
+        int statusClass = request.isHandled()?response.getStatus()/100:4;
+        if (statusClass>=1 && statusClass<=5)
+            _responseTimeStats[statusClass-1].record(System.currentTimeMillis()-request.getTimeStamp());
         if (request.isHandled())
         {
-            switch (response.getStatus() / 100)
+            switch (statusClass)
             {
                 case 1:
-                    _responses1xx.incrementAndGet();
+                    _responses1xx.increment();
                     break;
                 case 2:
-                    _responses2xx.incrementAndGet();
+                    _responses2xx.increment();
                     break;
                 case 3:
-                    _responses3xx.incrementAndGet();
+                    _responses3xx.increment();
                     break;
                 case 4:
-                    _responses4xx.incrementAndGet();
+                    _responses4xx.increment();
                     break;
                 case 5:
-                    _responses5xx.incrementAndGet();
+                    _responses5xx.increment();
                     break;
                 default:
                     break;
@@ -221,8 +232,8 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         }
         else
             // will fall through to not found handler
-            _responses4xx.incrementAndGet();
-        _responsesTotalBytes.addAndGet(response.getContentCount());
+            _responses4xx.increment();
+        _responsesTotalBytes.add(response.getContentCount());
     }
 
     @Override
@@ -319,6 +330,46 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         return _requestTimeStats.getStdDev();
     }
 
+    /**
+     * @return the 50th percentile of time (in milliseconds) of request handling
+     * since {@link #statsReset()} was last called.
+     */
+    @ManagedAttribute("50th percentile of time spent handling requests (in ms)")
+    public long getRequestTimeP50()
+    {
+        return _requestTimeStats.getValueAtPercentile(50);
+    }
+
+    /**
+     * @return the 90th percentile of time (in milliseconds) of request handling
+     * since {@link #statsReset()} was last called.
+     */
+    @ManagedAttribute("90th percentile of time spent handling requests (in ms)")
+    public long getRequestTimeP90()
+    {
+        return _requestTimeStats.getValueAtPercentile(90);
+    }
+
+    /**
+     * @return the 99th percentile of time (in milliseconds) of request handling
+     * since {@link #statsReset()} was last called.
+     */
+    @ManagedAttribute("99th percentile of time spent handling requests (in ms)")
+    public long getRequestTimeP99()
+    {
+        return _requestTimeStats.getValueAtPercentile(99);
+    }
+
+    /**
+     * @return the 99.9th percentile of time (in milliseconds) of request handling
+     * since {@link #statsReset()} was last called.
+     */
+    @ManagedAttribute("99.9th percentile of time spent handling requests (in ms)")
+    public long getRequestTimeP999()
+    {
+        return _requestTimeStats.getValueAtPercentile(99.9);
+    }
+
     /**
      * @return the number of dispatches seen by this handler
      * since {@link #statsReset()} was last called, excluding
@@ -396,6 +447,46 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         return _dispatchedTimeStats.getStdDev();
     }
 
+    /**
+     * @return the 50th percentile of time (in milliseconds) of in dispatch handling
+     * since {@link #statsReset()} was last called.
+     */
+    @ManagedAttribute("50th percentile of time spent in dispatch handling (in ms)")
+    public long getDispatchedTimeP50()
+    {
+        return _dispatchedTimeStats.getValueAtPercentile(50);
+    }
+
+    /**
+     * @return the 90th percentile of time (in milliseconds) of in dispatch handling
+     * since {@link #statsReset()} was last called.
+     */
+    @ManagedAttribute("90th percentile of time spent in dispatch handling (in ms)")
+    public long getDispatchedTimeP90()
+    {
+        return _dispatchedTimeStats.getValueAtPercentile(90);
+    }
+
+    /**
+     * @return the 99th percentile of time (in milliseconds) of in dispatch handling
+     * since {@link #statsReset()} was last called.
+     */
+    @ManagedAttribute("99th percentile of time spent in dispatch handling (in ms)")
+    public long getDispatchedTimeP99()
+    {
+        return _dispatchedTimeStats.getValueAtPercentile(99);
+    }
+
+    /**
+     * @return the 99.9th percentile of time (in milliseconds) of in dispatch handling
+     * since {@link #statsReset()} was last called.
+     */
+    @ManagedAttribute("99.9th percentile of time spent in dispatch handling (in ms)")
+    public long getDispatchedTimeP999()
+    {
+        return _dispatchedTimeStats.getValueAtPercentile(99.9);
+    }
+
     /**
      * @return the number of requests handled by this handler
      * since {@link #statsReset()} was last called, including
@@ -434,7 +525,7 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
     @ManagedAttribute("number of requested that have been asynchronously dispatched")
     public int getAsyncDispatches()
     {
-        return _asyncDispatches.get();
+        return (int)_asyncDispatches.sum();
     }
 
     /**
@@ -444,7 +535,7 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
     @ManagedAttribute("number of async requests requests that have expired")
     public int getExpires()
     {
-        return _expires.get();
+        return (int)_expires.sum();
     }
 
     /**
@@ -454,7 +545,7 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
     @ManagedAttribute("number of requests with 1xx response status")
     public int getResponses1xx()
     {
-        return _responses1xx.get();
+        return (int)_responses1xx.sum();
     }
 
     /**
@@ -464,7 +555,7 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
     @ManagedAttribute("number of requests with 2xx response status")
     public int getResponses2xx()
     {
-        return _responses2xx.get();
+        return (int)_responses2xx.sum();
     }
 
     /**
@@ -474,7 +565,7 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
     @ManagedAttribute("number of requests with 3xx response status")
     public int getResponses3xx()
     {
-        return _responses3xx.get();
+        return (int)_responses3xx.sum();
     }
 
     /**
@@ -484,7 +575,7 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
     @ManagedAttribute("number of requests with 4xx response status")
     public int getResponses4xx()
     {
-        return _responses4xx.get();
+        return (int)_responses4xx.sum();
     }
 
     /**
@@ -494,7 +585,7 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
     @ManagedAttribute("number of requests with 5xx response status")
     public int getResponses5xx()
     {
-        return _responses5xx.get();
+        return (int)_responses5xx.sum();
     }
 
     /**
@@ -512,7 +603,67 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
     @ManagedAttribute("total number of bytes across all responses")
     public long getResponsesBytesTotal()
     {
-        return _responsesTotalBytes.get();
+        return _responsesTotalBytes.sum();
+    }
+
+    /**
+     * @return the histogram of request handling times (in milliseconds)
+     */
+    public HistogramStatistic getRequestTimeHistogram()
+    {
+        return _requestTimeStats;
+    }
+
+    /**
+     * @return the histogram of dispatch handling times (in milliseconds)
+     */
+    public HistogramStatistic getDispatchedTimeHistogram()
+    {
+        return _dispatchedTimeStats;
+    }
+
+    /**
+     * @param statusClass the response status class, 1 to 5
+     * @return the histogram of request handling times (in milliseconds)
+     * of responses in the status class
+     */
+    public HistogramStatistic getResponseTimeHistogram(int statusClass)
+    {
+        if (statusClass<1 || statusClass>_responseTimeStats.length)
+            throw new IllegalArgumentException("statusClass="+statusClass);
+        return _responseTimeStats[statusClass-1];
+    }
+
+    /**
+     * @return the request time percentiles of the requests completed
+     * since this operation was last called.
+     */
+    @ManagedOperation(value="request time percentiles since the last interval", impact="ACTION")
+    public String intervalRequestTimePercentiles()
+    {
+        return _requestTimeStats.intervalSnapshot().toString();
+    }
+
+    /**
+     * @param statusClass the response status class, 1 to 5
+     * @return the request time percentiles of the responses in the status class
+     * since {@link #statsReset()} was last called.
+     */
+    @ManagedOperation(value="request time percentiles by response status class", impact="INFO")
+    public String responseTimePercentiles(@Name("statusClass") int statusClass)
+    {
+        return getResponseTimeHistogram(statusClass).snapshot().toString();
+    }
+
+    /**
+     * @param statusClass the response status class, 1 to 5
+     * @return the request time percentiles of the responses in the status class
+     * completed since this operation was last called for that status class.
+     */
+    @ManagedOperation(value="request time percentiles by response status class since the last interval", impact="ACTION")
+    public String intervalResponseTimePercentiles(@Name("statusClass") int statusClass)
+    {
+        return getResponseTimeHistogram(statusClass).intervalSnapshot().toString();
     }
 
     public String toStatsHTML()
@@ -530,6 +681,7 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         sb.append("Mean request time: ").append(getRequestTimeMean()).append("<br />\n");
         sb.append("Max request time: ").append(getRequestTimeMax()).append("<br />\n");
         sb.append("Request time standard deviation: ").append(getRequestTimeStdDev()).append("<br />\n");
+        sb.append("Request time percentiles: ").append(_requestTimeStats.snapshot()).append("<br />\n");
 
 
         sb.append("<h2>Dispatches:</h2>\n");
@@ -540,6 +692,7 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         sb.append("Mean dispatched time: ").append(getDispatchedTimeMean()).append("<br />\n");
         sb.append("Max dispatched time: ").append(getDispatchedTimeMax()).append("<br />\n");
         sb.append("Dispatched time standard deviation: ").append(getDispatchedTimeStdDev()).append("<br />\n");
+        sb.append("Dispatched time percentiles: ").append(_dispatchedTimeStats.snapshot()).append("<br />\n");
 
 
         sb.append("Total requests suspended: ").append(getAsyncRequests()).append("<br />\n");
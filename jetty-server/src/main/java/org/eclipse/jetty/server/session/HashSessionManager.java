@@ -28,16 +28,21 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 
+import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.util.ClassLoadingObjectInputStream;
+import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.Prioritized;
 import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
 import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.ThreadPool;
 
 
 /* ------------------------------------------------------------ */
@@ -60,6 +65,7 @@ public class HashSessionManager extends AbstractSessionManager
     protected final ConcurrentMap<String,HashedSession> _sessions=new ConcurrentHashMap<String,HashedSession>();
     private Scheduler _timer;
     private Scheduler.Task _task;
+    private Scavenger _scavenger;
     long _scavengePeriodMs=30000;
     long _savePeriodMs=0; //don't do period saves by default
     long _idleSavePeriodMs = 0; // don't idle save sessions by default.
@@ -72,23 +78,39 @@ public class HashSessionManager extends AbstractSessionManager
 
     /**
      * Scavenger
-     *
+     * <p>
+     * Scheduled by the timer, which may be shared with the rest of the server, the
+     * scavenger runs {@link #scavenge()} as a low priority job of the server thread pool.
+     * It only reschedules itself while it is the current scavenger, so that a job 
+     * that is queued or running when the period is changed or the manager is 
+     * restarted does not start a second chain of scavenges.
      */
     protected class Scavenger implements Runnable
     {
-        @Override
-        public void run()
+        private final Runnable _job = new Prioritized.Task(Prioritized.Priority.LOW)
         {
-            try
+            @Override
+            public void run()
             {
-                scavenge();
-            }
-            finally
-            {
-                if (_timer != null && _timer.isRunning()) {
-                    _task = _timer.schedule(this, _scavengePeriodMs, TimeUnit.MILLISECONDS);
+                try
+                {
+                    scavenge();
+                }
+                finally
+                {
+                    synchronized (HashSessionManager.this)
+                    {
+                        if (_scavenger == Scavenger.this && _timer != null && _timer.isRunning())
+                            _task = _timer.schedule(Scavenger.this, _scavengePeriodMs, TimeUnit.MILLISECONDS);
+                    }
                 }
             }
+        };
+
+        @Override
+        public void run()
+        {
+            execute(_job);
         }
     }
 
@@ -124,6 +146,32 @@ public class HashSessionManager extends AbstractSessionManager
         super();
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * Run a background job in the server thread pool, or in the calling thread if 
+     * there is no running thread pool or it rejects the job.
+     * @param job the job to run
+     */
+    private void execute(Runnable job)
+    {
+        SessionHandler handler = getSessionHandler();
+        Server server = handler==null?null:handler.getServer();
+        ThreadPool pool = server==null?null:server.getThreadPool();
+        if (pool!=null && (!(pool instanceof LifeCycle) || ((LifeCycle)pool).isRunning()))
+        {
+            try
+            {
+                pool.execute(job);
+                return;
+            }
+            catch (RejectedExecutionException e)
+            {
+                LOG.ignore(e);
+            }
+        }
+        job.run();
+    }
+
     /* ------------------------------------------------------------ */
     /**
      * @see AbstractSessionManager#doStart()
@@ -184,6 +232,7 @@ public class HashSessionManager extends AbstractSessionManager
                 _task.cancel();
 
             _task=null;
+            _scavenger=null;
             _timer=null;
         }
        
@@ -319,15 +368,16 @@ public class HashSessionManager extends AbstractSessionManager
                     _task = null;
                 }
 
-                _task = _timer.schedule(new Scavenger(),_scavengePeriodMs, TimeUnit.MILLISECONDS);
+                _scavenger = new Scavenger();
+                _task = _timer.schedule(_scavenger,_scavengePeriodMs, TimeUnit.MILLISECONDS);
             }
         }
     }
 
     /* -------------------------------------------------------------- */
     /**
-     * Find sessions that have timed out and invalidate them. This runs in the
-     * SessionScavenger thread.
+     * Find sessions that have timed out and invalidate them. This runs as a 
+     * low priority job of the server thread pool.
      */
     protected void scavenge()
     {
@@ -0,0 +1,336 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.toolchain.test.TestingDir;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BatchedNCSARequestLogTest
+{
+    private static final String EOL = System.lineSeparator();
+
+    @Rule
+    public TestingDir testingDir = new TestingDir();
+
+    @Test
+    public void testEntriesAreWrittenInOrderAndFlushedOnStop() throws Exception
+    {
+        CapturingLog log = new CapturingLog(new ByteArrayOutputStream());
+        // Small batches, so that entries are written in many batches
+        log.setCapacity(1024);
+        log.setBatchSize(64);
+        log.start();
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+        {
+            // Some entries are larger than a batch
+            String entry = i % 100 == 0 ? "entry " + i + " " + new String(new char[100]).replace('\0', 'x') : "entry " + i;
+            log.write(entry);
+            expected.append(entry).append(EOL);
+        }
+        log.stop();
+
+        assertThat(log.getDropped(), is(0L));
+        assertThat(log.getFailed(), is(0L));
+        assertThat(log.getOutput(), is(expected.toString()));
+    }
+
+    @Test
+    public void testNonASCIIEntriesAreEncodedAsUTF8() throws Exception
+    {
+        CapturingLog log = new CapturingLog(new ByteArrayOutputStream());
+        log.setSlotSize(4);
+        log.start();
+
+        String entry = "caf\u00e9 \u4e2d\u6587 \ud83d\ude00";
+        log.write(entry);
+        log.stop();
+
+        assertThat(log.getOutput(), is(entry + EOL));
+    }
+
+    @Test
+    public void testOversizeSlotsAreNotRetained() throws Exception
+    {
+        CapturingLog log = new CapturingLog(new ByteArrayOutputStream());
+        log.setCapacity(4);
+        log.setSlotSize(16);
+        log.start();
+        assertThat(log.getSlotBytes(), is(4L * 16));
+
+        String entry = new String(new char[1000]).replace('\0', '\u00e9');
+        log.write(entry);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!log.getOutput().equals(entry + EOL) && System.nanoTime() < end)
+            Thread.sleep(10);
+
+        assertThat(log.getOutput(), is(entry + EOL));
+        assertThat(log.getSlotBytes(), is(4L * 16));
+        log.stop();
+    }
+
+    @Test
+    public void testOverflowDropsEntries() throws Exception
+    {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        CapturingLog log = new CapturingLog(new ByteArrayOutputStream()
+        {
+            @Override
+            public synchronized void write(byte[] b, int off, int len)
+            {
+                writing.countDown();
+                try
+                {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException x)
+                {
+                    throw new RuntimeException(x);
+                }
+                super.write(b, off, len);
+            }
+        });
+        log.setCapacity(4);
+        log.start();
+
+        // The writer thread blocks writing the first entry, with the ring buffer empty
+        log.write("entry 0");
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        StringBuilder expected = new StringBuilder("entry 0").append(EOL);
+        for (int i = 1; i <= 10; i++)
+        {
+            log.write("entry " + i);
+            if (i <= 4)
+                expected.append("entry ").append(i).append(EOL);
+        }
+        release.countDown();
+        log.stop();
+
+        assertThat(log.getDropped(), is(6L));
+        assertThat(log.getOutput(), is(expected.toString()));
+    }
+
+    @Test
+    public void testEntriesWrittenWhileStoppingAreNotLost() throws Exception
+    {
+        final CapturingLog log = new CapturingLog(new ByteArrayOutputStream());
+        log.setCapacity(1 << 16);
+        log.start();
+
+        final int threads = 4;
+        final AtomicBoolean stopping = new AtomicBoolean();
+        final int[] written = new int[threads];
+        final CountDownLatch started = new CountDownLatch(threads);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            final int id = t;
+            Thread writer = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    started.countDown();
+                    try
+                    {
+                        for (int i = 0; i < 10000 && log.isRunning(); i++)
+                        {
+                            log.write("thread " + id + " entry " + i);
+                            // Entries written before stop() is called must all be in the log
+                            if (!stopping.get())
+                                written[id] = i + 1;
+                        }
+                    }
+                    catch (Throwable x)
+                    {
+                        failure.set(x);
+                    }
+                }
+            };
+            writers.add(writer);
+            writer.start();
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread.sleep(10);
+        stopping.set(true);
+        log.stop();
+        for (Thread writer : writers)
+            writer.join();
+        assertThat(failure.get(), nullValue());
+
+        String output = log.getOutput();
+        assertThat(log.getDropped(), is(0L));
+        for (int t = 0; t < threads; t++)
+        {
+            // Each thread's entries are a gapless prefix of what it wrote
+            int last = -1;
+            for (String line : output.split(EOL))
+            {
+                String prefix = "thread " + t + " entry ";
+                if (line.startsWith(prefix))
+                {
+                    int i = Integer.parseInt(line.substring(prefix.length()));
+                    assertThat(i, is(last + 1));
+                    last = i;
+                }
+            }
+            assertTrue(last + 1 >= written[t]);
+        }
+
+        // Nothing is written once stopped
+        Thread.sleep(10);
+        assertThat(log.getOutput(), is(output));
+    }
+
+    @Test
+    public void testStopDoesNotWaitForeverForAClaimedEntry() throws Exception
+    {
+        CapturingLog log = new CapturingLog(new ByteArrayOutputStream());
+        log.setStopTimeout(1000);
+        log.start();
+
+        log.write("entry 0");
+        // A request thread that claims a slot and never publishes it
+        assertThat(log.claim(), is(1L));
+        log.write("entry 2");
+
+        long start = System.nanoTime();
+        log.stop();
+        long stopped = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(stopped < 5000);
+        // The claimed entry and the entry after it are dropped
+        assertThat(log.getDropped(), is(2L));
+        assertThat(log.getOutput(), is("entry 0" + EOL));
+    }
+
+    @Test
+    public void testWriteFailuresAreCounted() throws Exception
+    {
+        CapturingLog log = new CapturingLog(new OutputStream()
+        {
+            @Override
+            public void write(int b) throws IOException
+            {
+                throw new IOException("test");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException
+            {
+                throw new IOException("test");
+            }
+        });
+        log.start();
+
+        for (int i = 0; i < 10; i++)
+            log.write("entry " + i);
+        log.stop();
+
+        assertThat(log.getDropped(), is(0L));
+        assertThat(log.getFailed(), is(10L));
+    }
+
+    @Test
+    public void testWriterThreadIsDaemon() throws Exception
+    {
+        CapturingLog log = new CapturingLog(new ByteArrayOutputStream());
+        log.start();
+        try
+        {
+            boolean found = false;
+            for (Thread thread : Thread.getAllStackTraces().keySet())
+            {
+                if (thread.getName().equals("BatchedNCSARequestLog@" + Integer.toString(log.hashCode(), 16)))
+                {
+                    assertTrue(thread.isDaemon());
+                    found = true;
+                }
+            }
+            assertTrue(found);
+        }
+        finally
+        {
+            log.stop();
+        }
+    }
+
+    @Test
+    public void testDatedLogFile() throws Exception
+    {
+        testingDir.ensureEmpty();
+        File dir = testingDir.getDir();
+        BatchedNCSARequestLog log = new BatchedNCSARequestLog(new File(dir, "request-yyyy_mm_dd.log").getAbsolutePath());
+        log.start();
+        String dated = log.getDatedFilename();
+        log.write("entry 0");
+        log.write("entry 1");
+        log.stop();
+
+        // Entries go to the current file of the rollover stream, see RolloverFileOutputStreamTest for the rollover
+        assertTrue(dated.startsWith(dir.getAbsolutePath()));
+        assertTrue(!dated.contains("yyyy_mm_dd"));
+        String content = new String(Files.readAllBytes(new File(dated).toPath()), StandardCharsets.UTF_8);
+        assertThat(content, is("entry 0" + EOL + "entry 1" + EOL));
+    }
+
+    private static class CapturingLog extends BatchedNCSARequestLog
+    {
+        private final OutputStream _capture;
+
+        private CapturingLog(OutputStream capture)
+        {
+            _capture = capture;
+        }
+
+        @Override
+        protected OutputStream getOutputStream()
+        {
+            return _capture;
+        }
+
+        private String getOutput()
+        {
+            return new String(((ByteArrayOutputStream)_capture).toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -176,6 +176,29 @@ public class HttpConnectionTest
         checkContains(response,offset,"pathInfo=/");
     }
 
+    @Test
+    public void testResponseHeaders() throws Exception
+    {
+        HttpConfiguration config=connector.getConnectionFactory(HttpConnectionFactory.class).getHttpConfiguration();
+        config.addResponseHeader("X-Frame-Options","DENY");
+        try
+        {
+            String response=connector.getResponses("GET / HTTP/1.1\n"+
+                    "Host: localhost:80\n"+
+                    "Connection: close\n"+
+                    "\n");
+
+            int offset=0;
+            offset = checkContains(response,offset,"HTTP/1.1 200");
+            offset = checkContains(response,offset,"X-Frame-Options: DENY");
+            checkContains(response,offset,"pathInfo=/");
+        }
+        finally
+        {
+            Assert.assertTrue(config.removeResponseHeader("x-frame-options"));
+        }
+    }
+
     @Test
     public void testBadNoPath() throws Exception
     {
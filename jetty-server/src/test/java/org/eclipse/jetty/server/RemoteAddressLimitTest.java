@@ -0,0 +1,380 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.server;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.io.SelectChannelEndPoint;
+import org.eclipse.jetty.io.SelectorManager.ManagedSelector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Test;
+
+public class RemoteAddressLimitTest
+{
+    private Server _server;
+    private ServerConnector _connector;
+
+    @After
+    public void dispose() throws Exception
+    {
+        if (_server != null)
+            _server.stop();
+    }
+
+    @Test
+    public void testMaxConnections() throws Exception
+    {
+        RemoteAddressLimit limit = new RemoteAddressLimit();
+        limit.setMaxConnections(2);
+        InetAddress address = InetAddress.getByName("10.0.0.1");
+        InetAddress other = InetAddress.getByName("10.0.0.2");
+
+        for (int i = 0; i < 2; i++)
+            assertTrue(limit.accept(address));
+        assertFalse(limit.accept(address));
+        assertTrue(limit.accept(other));
+        assertEquals(1, limit.getConnectionsRejected());
+
+        limit.onClosed(address);
+        assertTrue(limit.accept(address));
+
+        limit.onClosed(address);
+        limit.onClosed(address);
+        limit.onClosed(other);
+        assertEquals("addresses without connections are forgotten", 0, limit.getAddresses());
+    }
+
+    @Test
+    public void testConcurrentAcceptsReserveConnections() throws Exception
+    {
+        final RemoteAddressLimit limit = new RemoteAddressLimit();
+        limit.setMaxConnections(5);
+        final InetAddress address = InetAddress.getByName("10.0.0.1");
+
+        int threads = 16;
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        final AtomicInteger accepted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++)
+            {
+                futures.add(executor.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        barrier.await();
+                        for (int j = 0; j < 100; j++)
+                        {
+                            if (limit.accept(address))
+                                accepted.incrementAndGet();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get(10, TimeUnit.SECONDS);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertEquals(5, accepted.get());
+        assertEquals(threads * 100 - 5, limit.getConnectionsRejected());
+    }
+
+    @Test
+    public void testManyAddressesArePurged() throws Exception
+    {
+        RemoteAddressLimit limit = new RemoteAddressLimit();
+        limit.setMaxAcceptsPerSecond(10);
+
+        int addresses = 1000;
+        for (int i = 0; i < addresses; i++)
+        {
+            InetAddress address = InetAddress.getByAddress(new byte[]{10, 1, (byte)(i >> 8), (byte)i});
+            assertTrue(limit.accept(address));
+            limit.onClosed(address);
+        }
+        InetAddress v6 = InetAddress.getByName("2001:db8::1");
+        assertTrue(limit.accept(v6));
+        assertEquals(addresses + 1, limit.getAddresses());
+
+        // Once the accept window has passed, later accepts purge the idle addresses
+        TimeUnit.MILLISECONDS.sleep(1100);
+        InetAddress address = InetAddress.getByName("10.2.0.1");
+        for (int i = 0; i < addresses; i++)
+            limit.accept(address);
+        assertEquals("the address with a connection and the last address remain", 2, limit.getAddresses());
+
+        limit.onClosed(v6);
+        assertTrue(limit.accept(v6));
+    }
+
+    @Test
+    public void testMaxAddresses() throws Exception
+    {
+        RemoteAddressLimit limit = new RemoteAddressLimit();
+        limit.setMaxAcceptsPerSecond(10);
+        limit.setMaxAddresses(100);
+
+        // Addresses with open connections are kept
+        for (int i = 0; i < 50; i++)
+            assertTrue(limit.accept(InetAddress.getByAddress(new byte[]{10, 1, 0, (byte)i})));
+
+        // Idle addresses are evicted to make room, however recent their accepts
+        for (int i = 0; i < 10000; i++)
+        {
+            InetAddress address = InetAddress.getByAddress(new byte[]{10, 2, (byte)(i >> 8), (byte)i});
+            assertTrue(limit.accept(address));
+            limit.onClosed(address);
+            assertTrue(limit.getAddresses() <= 100);
+        }
+
+        // A full table of addresses with open connections rejects new addresses
+        for (int i = 50; i < 100; i++)
+            assertTrue(limit.accept(InetAddress.getByAddress(new byte[]{10, 1, 0, (byte)i})));
+        assertFalse(limit.accept(InetAddress.getByName("10.3.0.1")));
+        assertEquals(1, limit.getTableRejected());
+
+        limit.onClosed(InetAddress.getByName("10.1.0.1"));
+        assertTrue(limit.accept(InetAddress.getByName("10.3.0.1")));
+    }
+
+    @Test
+    public void testTableShrinks() throws Exception
+    {
+        RemoteAddressLimit limit = new RemoteAddressLimit();
+        limit.setMaxConnections(100);
+
+        int addresses = 10000;
+        for (int i = 0; i < addresses; i++)
+            assertTrue(limit.accept(InetAddress.getByAddress(new byte[]{10, 1, (byte)(i >> 8), (byte)i})));
+        assertEquals(addresses, limit.getAddresses());
+
+        // Without an accept rate, closed addresses are removed straight away and the table shrinks
+        for (int i = 0; i < addresses; i++)
+            limit.onClosed(InetAddress.getByAddress(new byte[]{10, 1, (byte)(i >> 8), (byte)i}));
+        InetAddress address = InetAddress.getByName("10.2.0.1");
+        for (int i = 0; i < 100; i++)
+        {
+            assertTrue(limit.accept(address));
+            limit.onClosed(address);
+        }
+        assertEquals(0, limit.getAddresses());
+    }
+
+    @Test
+    public void testIPv6Prefix() throws Exception
+    {
+        RemoteAddressLimit limit = new RemoteAddressLimit();
+        limit.setMaxConnections(2);
+
+        // The addresses of a /64 network share the limits
+        assertTrue(limit.accept(InetAddress.getByName("2001:db8:0:1::1")));
+        assertTrue(limit.accept(InetAddress.getByName("2001:db8:0:1::2")));
+        assertFalse(limit.accept(InetAddress.getByName("2001:db8:0:1:ffff::3")));
+        assertTrue(limit.accept(InetAddress.getByName("2001:db8:0:2::1")));
+        assertEquals(2, limit.getAddresses());
+
+        limit.onClosed(InetAddress.getByName("2001:db8:0:1::1"));
+        assertTrue(limit.accept(InetAddress.getByName("2001:db8:0:1::4")));
+
+        // Every address has its own limits with a /128 prefix
+        limit = new RemoteAddressLimit();
+        limit.setMaxConnections(1);
+        limit.setIPv6PrefixLength(128);
+        assertTrue(limit.accept(InetAddress.getByName("2001:db8:0:1::1")));
+        assertTrue(limit.accept(InetAddress.getByName("2001:db8:0:1::2")));
+        assertFalse(limit.accept(InetAddress.getByName("2001:db8:0:1::2")));
+    }
+
+    @Test
+    public void testMaxAcceptsPerSecond() throws Exception
+    {
+        RemoteAddressLimit limit = new RemoteAddressLimit();
+        limit.setMaxAcceptsPerSecond(3);
+        InetAddress address = InetAddress.getByName("::1");
+
+        // Stay within one accept window
+        while (System.currentTimeMillis() % 1000 > 500)
+            Thread.sleep(10);
+
+        for (int i = 0; i < 3; i++)
+            assertTrue(limit.accept(address));
+        assertFalse(limit.accept(address));
+        assertEquals(1, limit.getRateRejected());
+
+        TimeUnit.MILLISECONDS.sleep(1000);
+        assertTrue(limit.accept(address));
+    }
+
+    @Test
+    public void testConnectorRejectsOverLimit() throws Exception
+    {
+        _server = new Server();
+        _connector = new ServerConnector(_server);
+        RemoteAddressLimit limit = new RemoteAddressLimit();
+        limit.setMaxConnections(1);
+        _connector.setRemoteAddressLimit(limit);
+        _server.addConnector(_connector);
+        _server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                response.setContentLength(0);
+            }
+        });
+        _server.start();
+
+        try (Socket first = new Socket("localhost", _connector.getLocalPort()))
+        {
+            first.setSoTimeout(5000);
+            assertThat(request(first), containsString("HTTP/1.1 200 "));
+
+            try (Socket second = new Socket("localhost", _connector.getLocalPort()))
+            {
+                second.setSoTimeout(5000);
+                String response;
+                try
+                {
+                    response = request(second);
+                }
+                catch (IOException x)
+                {
+                    response = "";
+                }
+                assertFalse(response.contains("HTTP/1.1"));
+            }
+            assertEquals(1, limit.getConnectionsRejected());
+
+            // The first connection is still usable
+            assertThat(request(first), containsString("HTTP/1.1 200 "));
+        }
+    }
+
+    @Test
+    public void testFailedEndPointReleasesConnection() throws Exception
+    {
+        _server = new Server();
+        final AtomicInteger failures = new AtomicInteger(3);
+        _connector = new ServerConnector(_server)
+        {
+            @Override
+            protected SelectChannelEndPoint newEndPoint(SocketChannel channel, ManagedSelector selectSet, SelectionKey key) throws IOException
+            {
+                if (failures.getAndDecrement() > 0)
+                    throw new IOException("explicitly_thrown_by_test");
+                return super.newEndPoint(channel, selectSet, key);
+            }
+        };
+        RemoteAddressLimit limit = new RemoteAddressLimit();
+        limit.setMaxConnections(1);
+        _connector.setRemoteAddressLimit(limit);
+        _server.addConnector(_connector);
+        _server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                response.setContentLength(0);
+            }
+        });
+        _server.start();
+
+        // Each failed endpoint closes its connection, which must not stay counted
+        for (int i = 0; i < 3; i++)
+        {
+            try (Socket socket = new Socket("localhost", _connector.getLocalPort()))
+            {
+                socket.setSoTimeout(5000);
+                String response;
+                try
+                {
+                    response = request(socket);
+                }
+                catch (IOException x)
+                {
+                    response = "";
+                }
+                assertFalse(response.contains("HTTP/1.1"));
+            }
+        }
+
+        try (Socket socket = new Socket("localhost", _connector.getLocalPort()))
+        {
+            socket.setSoTimeout(5000);
+            assertThat(request(socket), containsString("HTTP/1.1 200 "));
+        }
+        assertEquals(0, limit.getConnectionsRejected());
+    }
+
+    private String request(Socket socket) throws IOException
+    {
+        OutputStream output = socket.getOutputStream();
+        output.write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+        output.flush();
+
+        InputStream input = socket.getInputStream();
+        StringBuilder response = new StringBuilder();
+        while (!response.toString().endsWith("\r\n\r\n"))
+        {
+            int read = input.read();
+            if (read < 0)
+                break;
+            response.append((char)read);
+        }
+        return response.toString();
+    }
+}
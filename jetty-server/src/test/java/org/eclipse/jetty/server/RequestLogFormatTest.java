@@ -0,0 +1,204 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.server;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.RequestLogHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestLogFormatTest
+{
+    private Server _server;
+    private LocalConnector _connector;
+    private CaptureLog _log;
+
+    @Before
+    public void init() throws Exception
+    {
+        _server = new Server();
+        _connector = new LocalConnector(_server);
+        _server.addConnector(_connector);
+
+        _log = new CaptureLog();
+        RequestLogHandler logHandler = new RequestLogHandler();
+        logHandler.setRequestLog(_log);
+        logHandler.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                int status = Integer.parseInt(request.getParameter("status"));
+                response.setStatus(status);
+                response.setHeader("X-Test", "value");
+                if (status != HttpServletResponse.SC_NO_CONTENT)
+                    response.getOutputStream().write("Hello".getBytes("ISO-8859-1"));
+                if (request.getParameter("flush") != null)
+                    response.flushBuffer();
+            }
+        });
+        _server.setHandler(logHandler);
+    }
+
+    @After
+    public void destroy() throws Exception
+    {
+        _server.stop();
+    }
+
+    private String log(String format, String request) throws Exception
+    {
+        _log.setLogFormat(format);
+        _server.start();
+        _connector.getResponses(request);
+        String entry = _log.entries.poll(5, TimeUnit.SECONDS);
+        assertThat(entry, notNullValue());
+        return entry;
+    }
+
+    @Test
+    public void testCommon() throws Exception
+    {
+        String entry = log(RequestLogFormat.COMMON, "GET /path?status=200 HTTP/1.0\r\n\r\n");
+        assertTrue(entry, entry.matches("\\S+ - - \\[[^]]+\\] \"GET /path\\?status=200 HTTP/1.0\" 200 5"));
+    }
+
+    @Test
+    public void testCombined() throws Exception
+    {
+        String entry = log(RequestLogFormat.COMBINED, "GET /path?status=404 HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Referer: http://referer/\r\n" +
+                "User-Agent: Agent/1.0\r\n" +
+                "Connection: close\r\n" +
+                "\r\n");
+        assertTrue(entry, entry.matches("\\S+ - - \\[[^]]+\\] \"GET /path\\?status=404 HTTP/1.1\" 404 5 \"http://referer/\" \"Agent/1.0\""));
+    }
+
+    @Test
+    public void testDirectives() throws Exception
+    {
+        String entry = log("%m|%U|%q|%H|%s|%B|%{Host}i|%{X-Test}o|%{Missing}i|%%|%D|%^FB",
+                "POST /path?status=201&flush=true HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Content-Length: 0\r\n" +
+                "Connection: close\r\n" +
+                "\r\n");
+        assertTrue(entry, entry.matches("POST\\|/path\\|\\?status=201&flush=true\\|HTTP/1.1\\|201\\|5\\|localhost\\|value\\|-\\|%\\|\\d+\\|\\d+"));
+    }
+
+    @Test
+    public void testNoContent() throws Exception
+    {
+        String entry = log("%b %B", "GET /?status=204 HTTP/1.0\r\n\r\n");
+        assertThat(entry, is("- 0"));
+    }
+
+    @Test
+    public void testStatusModifiers() throws Exception
+    {
+        String entry = log("%>s %<s %<>{Host}i", "GET /?status=404 HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Connection: close\r\n" +
+                "\r\n");
+        assertThat(entry, is("404 404 localhost"));
+    }
+
+    @Test
+    public void testStrftime() throws Exception
+    {
+        _log.setLogLocale(Locale.US);
+        long before = System.currentTimeMillis() / 1000;
+        String entry = log("[%{%d/%b/%Y:%H:%M:%S %z}t] %{sec}t %{dd/MMM/yyyy:HH:mm:ss Z}t", "GET /?status=200 HTTP/1.0\r\n\r\n");
+        long after = System.currentTimeMillis() / 1000;
+
+        String[] parts = entry.split(" ", 3);
+        long sec = Long.parseLong(parts[2].substring(0, parts[2].indexOf(' ')));
+        assertTrue(entry, sec >= before && sec <= after);
+
+        SimpleDateFormat format = new SimpleDateFormat("dd/MMM/yyyy:HH:mm:ss Z", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        String expected = format.format(new Date(sec * 1000));
+        assertThat(entry, is("[" + expected + "] " + sec + " " + expected));
+    }
+
+    @Test
+    public void testToDatePattern()
+    {
+        assertThat(RequestLogFormat.toDatePattern("dd/MMM/yyyy"), is("dd/MMM/yyyy"));
+        assertThat(RequestLogFormat.toDatePattern("%d/%b/%Y:%H:%M:%S %z"), is("dd'/'MMM'/'yyyy':'HH':'mm':'ss' 'Z"));
+        assertThat(RequestLogFormat.toDatePattern("%F%T 100%% o'clock"), is("yyyy-MM-ddHH:mm:ss' 100% o''clock'"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedStrftime()
+    {
+        new RequestLogFormat("%{%Q}t", "dd/MMM/yyyy:HH:mm:ss Z", Locale.US, "GMT", false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDirective()
+    {
+        new RequestLogFormat("%Z", "dd/MMM/yyyy:HH:mm:ss Z", Locale.US, "GMT", false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnterminatedParameter()
+    {
+        new RequestLogFormat("%{Host", "dd/MMM/yyyy:HH:mm:ss Z", Locale.US, "GMT", false);
+    }
+
+    private static class CaptureLog extends AbstractNCSARequestLog
+    {
+        private final BlockingQueue<String> entries = new LinkedBlockingQueue<>();
+
+        @Override
+        protected boolean isEnabled()
+        {
+            return true;
+        }
+
+        @Override
+        public void write(String requestEntry) throws IOException
+        {
+            entries.add(requestEntry);
+        }
+    }
+}
@@ -41,6 +41,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -54,6 +55,7 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.Part;
 
 import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.LocalConnector.LocalEndPoint;
 import org.eclipse.jetty.server.handler.AbstractHandler;
 import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.util.IO;
@@ -385,6 +387,132 @@ public class RequestTest
         assertThat(responses,Matchers.startsWith("HTTP/1.1 400"));
     }
 
+    @Test
+    public void testDelayDispatchUntilForm() throws Exception
+    {
+        _connector.getConnectionFactory(HttpConnectionFactory.class).getHttpConfiguration().setDelayDispatchUntilForm(true);
+        final CountDownLatch dispatched = new CountDownLatch(1);
+        _handler._checker = new RequestTester()
+        {
+            @Override
+            public boolean check(HttpServletRequest request,HttpServletResponse response) throws IOException
+            {
+                dispatched.countDown();
+                return "1".equals(request.getParameter("a")) &&
+                    "two words".equals(request.getParameter("b")) &&
+                    request.getInputStream().read()==-1;
+            }
+        };
+
+        LocalEndPoint endp = _connector.executeRequest("POST / HTTP/1.1\r\n"+
+                "Host: whatever\r\n"+
+                "Content-Type: application/x-www-form-urlencoded\r\n"+
+                "Content-Length: 15\r\n"+
+                "Connection: close\r\n"+
+                "\r\n"+
+                "a=1&b=tw");
+
+        // Not dispatched until all of the form has arrived
+        assertFalse(dispatched.await(250,TimeUnit.MILLISECONDS));
+        endp.addInput("o+words");
+        assertTrue(dispatched.await(5,TimeUnit.SECONDS));
+        endp.waitUntilClosed();
+        assertThat(endp.takeOutputString(),startsWith("HTTP/1.1 200"));
+    }
+
+    @Test
+    public void testDelayDispatchUntilFormUnlimited() throws Exception
+    {
+        _connector.getConnectionFactory(HttpConnectionFactory.class).getHttpConfiguration().setDelayDispatchUntilForm(true);
+        _server.setAttribute("org.eclipse.jetty.server.Request.maxFormContentSize",-1);
+        final CountDownLatch dispatched = new CountDownLatch(1);
+        _handler._checker = new RequestTester()
+        {
+            @Override
+            public boolean check(HttpServletRequest request,HttpServletResponse response) throws IOException
+            {
+                dispatched.countDown();
+                return "1".equals(request.getParameter("a")) &&
+                    "two words".equals(request.getParameter("b"));
+            }
+        };
+
+        LocalEndPoint endp = _connector.executeRequest("POST / HTTP/1.1\r\n"+
+                "Host: whatever\r\n"+
+                "Content-Type: application/x-www-form-urlencoded\r\n"+
+                "Content-Length: 15\r\n"+
+                "Connection: close\r\n"+
+                "\r\n"+
+                "a=1&b=tw");
+
+        // Without a bound on the form size, the form is not read before dispatch
+        assertTrue(dispatched.await(5,TimeUnit.SECONDS));
+        endp.addInput("o+words");
+        endp.waitUntilClosed();
+        assertThat(endp.takeOutputString(),startsWith("HTTP/1.1 200"));
+    }
+
+    @Test
+    public void testDelayDispatchUntilFormEncodingAndLimits() throws Exception
+    {
+        _connector.getConnectionFactory(HttpConnectionFactory.class).getHttpConfiguration().setDelayDispatchUntilForm(true);
+
+        // The form is decoded with the encoding of the request headers, which the application can no longer change
+        _handler._checker = new RequestTester()
+        {
+            @Override
+            public boolean check(HttpServletRequest request,HttpServletResponse response) throws IOException
+            {
+                request.setCharacterEncoding("ISO-8859-1");
+                return "\u00e9".equals(request.getParameter("a")) &&
+                    request.getCharacterEncoding()==null;
+            }
+        };
+
+        String request="POST / HTTP/1.1\r\n"+
+                "Host: whatever\r\n"+
+                "Content-Type: application/x-www-form-urlencoded\r\n"+
+                "Content-Length: 8\r\n"+
+                "Connection: close\r\n"+
+                "\r\n"+
+                "a=%C3%A9";
+        assertThat(_connector.getResponses(request),startsWith("HTTP/1.1 200"));
+
+        // The form limits of the context apply to the form decoded before dispatch
+        _server.stop();
+        ContextHandler context = new ContextHandler("/");
+        context.setMaxFormKeys(1);
+        context.setHandler(_handler);
+        _server.setHandler(context);
+        _server.start();
+
+        _handler._checker = new RequestTester()
+        {
+            @Override
+            public boolean check(HttpServletRequest request,HttpServletResponse response) throws IOException
+            {
+                try
+                {
+                    request.getParameter("a");
+                    return false;
+                }
+                catch (IllegalStateException e)
+                {
+                    return e.getMessage().contains("too many keys");
+                }
+            }
+        };
+
+        request="POST / HTTP/1.1\r\n"+
+                "Host: whatever\r\n"+
+                "Content-Type: application/x-www-form-urlencoded\r\n"+
+                "Content-Length: 11\r\n"+
+                "Connection: close\r\n"+
+                "\r\n"+
+                "a=1&b=2&c=3";
+        assertThat(_connector.getResponses(request),startsWith("HTTP/1.1 200"));
+    }
+
     @Test
     public void testContentTypeEncoding() throws Exception
     {
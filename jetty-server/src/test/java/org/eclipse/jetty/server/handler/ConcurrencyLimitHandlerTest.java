@@ -0,0 +1,201 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.server.handler;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConcurrencyLimitHandlerTest
+{
+    private static final String REQUEST = "GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+
+    private Server _server;
+    private LocalConnector _connector;
+    private ConcurrencyLimitHandler _limitHandler;
+    private BlockingHandler _handler;
+    private ExecutorService _executor;
+
+    @Before
+    public void init() throws Exception
+    {
+        _server = new Server();
+        _connector = new LocalConnector(_server);
+        _server.addConnector(_connector);
+        _limitHandler = new ConcurrencyLimitHandler();
+        _limitHandler.setInitialLimit(1);
+        _limitHandler.setMinLimit(1);
+        _limitHandler.setMaxLimit(1);
+        _handler = new BlockingHandler();
+        _limitHandler.setHandler(_handler);
+        _server.setHandler(_limitHandler);
+        _executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void destroy() throws Exception
+    {
+        _handler._release.countDown();
+        _executor.shutdownNow();
+        _server.stop();
+    }
+
+    private Future<String> request()
+    {
+        return _executor.submit(new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                return _connector.getResponses(REQUEST);
+            }
+        });
+    }
+
+    @Test
+    public void testRejectOverLimit() throws Exception
+    {
+        _limitHandler.setMaxQueued(0);
+        _server.start();
+
+        Future<String> first = request();
+        assertTrue(_handler._entered.await(5, TimeUnit.SECONDS));
+        assertEquals(1, _limitHandler.getInFlight());
+
+        String second = _connector.getResponses(REQUEST);
+        assertThat(second, containsString(" 503 "));
+        assertEquals(1, _limitHandler.getRejected());
+
+        _handler._release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS), containsString(" 200 "));
+        assertEquals(0, _limitHandler.getInFlight());
+    }
+
+    @Test
+    public void testQueueOverLimit() throws Exception
+    {
+        _limitHandler.setMaxQueued(1);
+        _server.start();
+
+        Future<String> first = request();
+        assertTrue(_handler._entered.await(5, TimeUnit.SECONDS));
+        Future<String> second = request();
+        while (_limitHandler.getQueued() == 0)
+            Thread.sleep(10);
+
+        _handler._release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS), containsString(" 200 "));
+        assertThat(second.get(5, TimeUnit.SECONDS), containsString(" 200 "));
+        assertEquals(2, _handler._handled);
+        assertEquals(0, _limitHandler.getQueued());
+        assertEquals(0, _limitHandler.getInFlight());
+        assertEquals(0, _limitHandler.getRejected());
+    }
+
+    @Test
+    public void testQueueTimeout() throws Exception
+    {
+        _limitHandler.setMaxQueued(1);
+        _limitHandler.setMaxQueueMs(100);
+        _server.start();
+
+        Future<String> first = request();
+        assertTrue(_handler._entered.await(5, TimeUnit.SECONDS));
+
+        String second = _connector.getResponses(REQUEST);
+        assertThat(second, containsString(" 503 "));
+        assertEquals(1, _limitHandler.getRejected());
+        assertEquals(0, _limitHandler.getQueued());
+
+        _handler._release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS), containsString(" 200 "));
+        assertEquals(1, _handler._handled);
+    }
+
+    @Test
+    public void testLimitFollowsLatency() throws Exception
+    {
+        _limitHandler.setInitialLimit(20);
+        _limitHandler.setMinLimit(4);
+        _limitHandler.setMaxLimit(200);
+        _server.start();
+
+        // Steady latency while the limit is used lets the limit grow
+        for (int i = 0; i < 20; i++)
+            _limitHandler.update(TimeUnit.MILLISECONDS.toNanos(10), _limitHandler.getLimit());
+        int grown = _limitHandler.getLimit();
+        assertThat(grown, greaterThan(20));
+
+        // An unused limit does not grow
+        _limitHandler.update(TimeUnit.MILLISECONDS.toNanos(10), 1);
+        assertEquals(grown, _limitHandler.getLimit());
+
+        // Rising latency shrinks the limit down to the minimum
+        for (int i = 0; i < 100; i++)
+            _limitHandler.update(TimeUnit.MILLISECONDS.toNanos(100), _limitHandler.getLimit());
+        assertThat(_limitHandler.getLimit(), lessThan(grown));
+        assertEquals(4, _limitHandler.getLimit());
+    }
+
+    private static class BlockingHandler extends AbstractHandler
+    {
+        private final CountDownLatch _entered = new CountDownLatch(1);
+        private final CountDownLatch _release = new CountDownLatch(1);
+        private volatile int _handled;
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+        {
+            baseRequest.setHandled(true);
+            _handled++;
+            _entered.countDown();
+            try
+            {
+                _release.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException x)
+            {
+                throw new ServletException(x);
+            }
+        }
+    }
+}
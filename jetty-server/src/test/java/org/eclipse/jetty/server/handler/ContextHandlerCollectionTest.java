@@ -165,6 +165,85 @@ public class ContextHandlerCollectionTest
         }
     }
 
+    @Test
+    public void testManyVirtualHosts() throws Exception
+    {
+        Server server = new Server();
+        LocalConnector connector0 = new LocalConnector(server);
+        LocalConnector connector1 = new LocalConnector(server);
+        connector1.setName("connector1");
+        server.setConnectors(new Connector[] { connector0,connector1 });
+
+        ContextHandlerCollection c = new ContextHandlerCollection();
+        int tenants=200;
+        for (int i=0;i<tenants;i++)
+        {
+            ContextHandler context = new ContextHandler("/");
+            context.setVirtualHosts(new String[] { "tenant"+i+".example.com", "www.tenant"+i+".com" });
+            context.setHandler(new IsHandledHandler("T"+i));
+            c.addHandler(context);
+        }
+
+        ContextHandler wild = new ContextHandler("/");
+        wild.setVirtualHosts(new String[] { "*.wild.example.com" });
+        wild.setHandler(new IsHandledHandler("W"));
+        c.addHandler(wild);
+
+        ContextHandler named = new ContextHandler("/");
+        named.setVirtualHosts(new String[] { "@connector1" });
+        named.setHandler(new IsHandledHandler("N"));
+        c.addHandler(named);
+
+        ContextHandler fallback = new ContextHandler("/");
+        fallback.setHandler(new IsHandledHandler("F"));
+        c.addHandler(fallback);
+
+        server.setHandler(c);
+
+        try
+        {
+            server.start();
+
+            Object[][] tests = new Object[][] {
+                {connector0,"tenant0.example.com",  "T0"},
+                {connector0,"TENANT7.Example.COM.",  "T7"},
+                {connector0,"www.tenant199.com",  "T199"},
+                {connector1,"tenant42.example.com",  "T42"},
+                {connector0,"one.wild.example.com",  "W"},
+                {connector0,"two.wild.example.com.",  "W"},
+                {connector0,"wild.example.com",  "F"},
+                {connector0,"one.two.wild.example.com",  "F"},
+                {connector1,"unknown.example.com",  "N"},
+                {connector0,"unknown.example.com",  "F"},
+                {connector0,"tenant200.example.com",  "F"},
+                {connector0,"127.0.0.1",  "F"},
+            };
+
+            for (Object[] test : tests)
+            {
+                LocalConnector connector = (LocalConnector)test[0];
+                String host=(String)test[1];
+                String response = connector.getResponses("GET /info HTTP/1.0\nHost: "+host+"\n\n");
+                assertThat(host,response,startsWith("HTTP/1.1 200 OK"));
+                assertThat(host,response,endsWith((String)test[2]));
+            }
+
+            // Changing the virtual hosts of a running context remaps the collection
+            ContextHandler tenant0 = (ContextHandler)c.getHandlers()[0];
+            tenant0.setVirtualHosts(new String[] { "moved.example.com" });
+            assertThat(connector0.getResponses("GET /info HTTP/1.0\nHost: tenant0.example.com\n\n"),endsWith("F"));
+            assertThat(connector0.getResponses("GET /info HTTP/1.0\nHost: moved.example.com\n\n"),endsWith("T0"));
+            tenant0.addVirtualHosts(new String[] { "*.added.example.com" });
+            assertThat(connector0.getResponses("GET /info HTTP/1.0\nHost: x.added.example.com\n\n"),endsWith("T0"));
+            tenant0.removeVirtualHosts(new String[] { "moved.example.com" });
+            assertThat(connector0.getResponses("GET /info HTTP/1.0\nHost: moved.example.com\n\n"),endsWith("F"));
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
     @Test
     public void testVirtualHostWildcard() throws Exception
     {
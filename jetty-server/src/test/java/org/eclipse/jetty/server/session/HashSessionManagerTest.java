@@ -19,6 +19,11 @@
 package org.eclipse.jetty.server.session;
 
 import java.io.File;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Server;
@@ -27,6 +32,9 @@ import org.eclipse.jetty.toolchain.test.MavenTestingUtils;
 import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.StdErrLog;
+import org.eclipse.jetty.util.thread.Prioritized;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -125,4 +133,111 @@ public class HashSessionManagerTest
         
         server.stop();
     }
+
+    @Test
+    public void testScavengeIsLowPriorityJob() throws Exception
+    {
+        final BlockingQueue<Prioritized.Priority> priorities = new LinkedBlockingQueue<>();
+        QueuedThreadPool pool = new QueuedThreadPool()
+        {
+            @Override
+            public void execute(Runnable job)
+            {
+                if (job instanceof Prioritized)
+                    priorities.offer(((Prioritized)job).getPriority());
+                super.execute(job);
+            }
+        };
+        final CountDownLatch scavenged = new CountDownLatch(1);
+        final Thread[] scavenger = new Thread[1];
+        Server server = new Server(pool);
+        SessionHandler handler = new SessionHandler();
+        handler.setServer(server);
+        HashSessionManager manager = new HashSessionManager()
+        {
+            @Override
+            protected void scavenge()
+            {
+                scavenger[0] = Thread.currentThread();
+                scavenged.countDown();
+                super.scavenge();
+            }
+        };
+        manager.setScavengePeriod(1);
+        handler.setSessionManager(manager);
+        server.setHandler(handler);
+
+        server.start();
+        try
+        {
+            Assert.assertTrue(scavenged.await(5,TimeUnit.SECONDS));
+            Assert.assertTrue(priorities.contains(Prioritized.Priority.LOW));
+            Assert.assertTrue(scavenger[0].getName().startsWith(pool.getName()));
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testChangedScavengePeriodDoesNotDuplicateScavenger() throws Exception
+    {
+        final AtomicInteger scheduled = new AtomicInteger();
+        Server server = new Server();
+        server.addBean(new ScheduledExecutorScheduler()
+        {
+            @Override
+            public Task schedule(Runnable task, long delay, TimeUnit unit)
+            {
+                if (task instanceof HashSessionManager.Scavenger)
+                    scheduled.incrementAndGet();
+                return super.schedule(task,delay,unit);
+            }
+        });
+        final CountDownLatch scavenging = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        SessionHandler handler = new SessionHandler();
+        handler.setServer(server);
+        HashSessionManager manager = new HashSessionManager()
+        {
+            @Override
+            protected void scavenge()
+            {
+                scavenging.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+                super.scavenge();
+            }
+        };
+        manager.setScavengePeriod(1);
+        handler.setSessionManager(manager);
+        server.setHandler(handler);
+
+        server.start();
+        try
+        {
+            Assert.assertTrue(scavenging.await(5,TimeUnit.SECONDS));
+
+            // Change the period while a scavenge is running
+            scheduled.set(0);
+            manager.setScavengePeriod(10);
+            release.countDown();
+
+            // Only the new scavenger is scheduled, the running one does not reschedule itself
+            Thread.sleep(1000);
+            Assert.assertEquals(1,scheduled.get());
+        }
+        finally
+        {
+            release.countDown();
+            server.stop();
+        }
+    }
 }
@@ -25,6 +25,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.zip.Deflater;
 
@@ -41,16 +43,20 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFields;
-import org.eclipse.jetty.http.HttpGenerator;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.http.PreEncodedHttpField;
 import org.eclipse.jetty.server.HttpChannel;
 import org.eclipse.jetty.server.HttpOutput;
 import org.eclipse.jetty.server.Request;
-import org.eclipse.jetty.servlets.gzip.GzipFactory;
+import org.eclipse.jetty.servlets.gzip.DeflaterPool;
 import org.eclipse.jetty.servlets.gzip.GzipHttpOutput;
+import org.eclipse.jetty.servlets.gzip.TimedGzipFactory;
 import org.eclipse.jetty.util.URIUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 
@@ -94,6 +100,14 @@ import org.eclipse.jetty.util.log.Logger;
  * <dt>deflateNoWrap</dt>       <dd>The noWrap setting for deflate compression. Defaults to true. (true/false)
  *                            See: {@link java.util.zip.Deflater#Deflater(int, boolean)}
  * </dd>
+ * <dt>deflaterPoolCapacity</dt>       <dd>The maximum number of idle {@link Deflater}s kept for reuse by all responses.
+ *                            Defaults to 1024, -1 for no limit.
+ * </dd>
+ * <dt>lowResourcesCompressionLevel</dt>       <dd>The compression level used while the server thread pool is low on threads.
+ *                            A level of 0 skips compression entirely under that pressure. Defaults to 1 (best speed),
+ *                            or to the <code>deflateCompressionLevel</code> if that is already lower; set it to the
+ *                            <code>deflateCompressionLevel</code> to disable the adaptation.
+ * </dd>
  * <dt>methods</dt>       <dd>Comma separated list of HTTP methods to compress. If not set, only GET requests are compressed.
  *  </dd>
  * <dt>mimeTypes</dt>       <dd>Comma separated list of mime types to compress. If it is not set, then the excludedMimeTypes list is used.
@@ -127,7 +141,8 @@ import org.eclipse.jetty.util.log.Logger;
  *  </dd>
  *  </dl>
  */
-public class AsyncGzipFilter extends UserAgentFilter implements GzipFactory
+@ManagedObject("Async gzip filter")
+public class AsyncGzipFilter extends UserAgentFilter implements TimedGzipFactory
 {
     private static final Logger LOG = Log.getLogger(GzipFilter.class);
     public final static String GZIP = "gzip";
@@ -144,10 +159,25 @@ public class AsyncGzipFilter extends UserAgentFilter implements GzipFactory
     protected int _deflateCompressionLevel=Deflater.DEFAULT_COMPRESSION;
     protected boolean _deflateNoWrap = true;
     protected boolean _checkGzExists = true;
-    
+    protected int _deflaterPoolCapacity=1024;
+    protected int _lowResourcesCompressionLevel=Deflater.BEST_SPEED;
+
     // non-static, as other GzipFilter instances may have different configurations
+    protected DeflaterPool _deflaterPool;
+
+    /**
+     * @deprecated no longer used, deflaters are shared between threads by {@link #_deflaterPool}
+     */
+    @Deprecated
     protected final ThreadLocal<Deflater> _deflater = new ThreadLocal<Deflater>();
 
+    private final AtomicLong _compressed = new AtomicLong();
+    private final AtomicLong _lowResourcesCompressed = new AtomicLong();
+    private final AtomicLong _lowResourcesSkipped = new AtomicLong();
+    private final AtomicLong _bytesIn = new AtomicLong();
+    private final AtomicLong _bytesOut = new AtomicLong();
+    private final AtomicLong _deflateNanos = new AtomicLong();
+
     protected final static ThreadLocal<byte[]> _buffer= new ThreadLocal<byte[]>();
 
     protected final Set<String> _methods=new HashSet<String>();
@@ -155,7 +185,7 @@ public class AsyncGzipFilter extends UserAgentFilter implements GzipFactory
     protected Set<Pattern> _excludedAgentPatterns;
     protected Set<String> _excludedPaths;
     protected Set<Pattern> _excludedPathPatterns;
-    protected HttpField _vary=new HttpGenerator.CachedHttpField(HttpHeader.VARY,HttpHeader.ACCEPT_ENCODING+", "+HttpHeader.USER_AGENT);
+    protected HttpField _vary=new PreEncodedHttpField(HttpHeader.VARY,HttpHeader.ACCEPT_ENCODING+", "+HttpHeader.USER_AGENT);
 
     /* ------------------------------------------------------------ */
     /**
@@ -188,6 +218,19 @@ public class AsyncGzipFilter extends UserAgentFilter implements GzipFactory
             _deflateNoWrap=Boolean.parseBoolean(tmp);
         LOG.debug("{} deflateNoWrap={}",this,_deflateNoWrap);
 
+        tmp=filterConfig.getInitParameter("deflaterPoolCapacity");
+        if (tmp!=null)
+            _deflaterPoolCapacity=Integer.parseInt(tmp);
+        LOG.debug("{} deflaterPoolCapacity={}",this,_deflaterPoolCapacity);
+        _deflaterPool=new DeflaterPool(_deflaterPoolCapacity,_deflateCompressionLevel,_deflateNoWrap);
+
+        tmp=filterConfig.getInitParameter("lowResourcesCompressionLevel");
+        if (tmp!=null)
+            _lowResourcesCompressionLevel=Integer.parseInt(tmp);
+        else if (_deflateCompressionLevel!=Deflater.DEFAULT_COMPRESSION && _deflateCompressionLevel<Deflater.BEST_SPEED)
+            _lowResourcesCompressionLevel=_deflateCompressionLevel;
+        LOG.debug("{} lowResourcesCompressionLevel={}",this,_lowResourcesCompressionLevel);
+
         tmp=filterConfig.getInitParameter("checkGzExists");
         if (tmp!=null)
             _checkGzExists=Boolean.parseBoolean(tmp);
@@ -288,7 +331,7 @@ public class AsyncGzipFilter extends UserAgentFilter implements GzipFactory
         
         tmp=filterConfig.getInitParameter("vary");
         if (tmp!=null)
-            _vary=new HttpGenerator.CachedHttpField(HttpHeader.VARY,tmp);
+            _vary=new PreEncodedHttpField(HttpHeader.VARY,tmp);
         LOG.debug("{} vary={}",this,_vary);
         
     }
@@ -300,6 +343,8 @@ public class AsyncGzipFilter extends UserAgentFilter implements GzipFactory
     @Override
     public void destroy()
     {
+        if (_deflaterPool!=null)
+            _deflaterPool.clear();
     }
 
     /* ------------------------------------------------------------ */
@@ -538,22 +583,121 @@ public class AsyncGzipFilter extends UserAgentFilter implements GzipFactory
             return null;
         }
         
-        Deflater df = _deflater.get();
-        if (df==null)
-            df=new Deflater(_deflateCompressionLevel,_deflateNoWrap);        
-        else
-            _deflater.set(null);
-        
-        return df;
+        int level=_deflateCompressionLevel;
+        if (_lowResourcesCompressionLevel!=_deflateCompressionLevel && isLowOnResources(request))
+        {
+            if (_lowResourcesCompressionLevel==Deflater.NO_COMPRESSION)
+            {
+                LOG.debug("{} excluded low resources {}",this,request);
+                _lowResourcesSkipped.incrementAndGet();
+                return null;
+            }
+            level=_lowResourcesCompressionLevel;
+            _lowResourcesCompressed.incrementAndGet();
+        }
+
+        return _deflaterPool.acquire(level);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param request the request being compressed
+     * @return true if the server is under enough load that the compression level should be lowered
+     */
+    protected boolean isLowOnResources(Request request)
+    {
+        HttpChannel<?> channel=request.getHttpChannel();
+        return channel!=null && channel.getServer()!=null && channel.getServer().getThreadPool().isLowOnThreads();
     }
 
     @Override
     public void recycle(Deflater deflater)
     {
-        deflater.reset();
-        if (_deflater.get()==null)
-            _deflater.set(deflater);
-        
+        recycle(deflater,0);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Return a finished deflater to the pool, recording the statistics of the response.
+     * @param deflater the finished deflater, with its byte counts still available
+     * @param deflateNanos the time spent deflating the response, in nanoseconds
+     */
+    @Override
+    public void recycle(Deflater deflater, long deflateNanos)
+    {
+        _compressed.incrementAndGet();
+        _bytesIn.addAndGet(deflater.getBytesRead());
+        _bytesOut.addAndGet(deflater.getBytesWritten());
+        _deflateNanos.addAndGet(deflateNanos);
+        _deflaterPool.release(deflater);
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("number of responses compressed")
+    public long getCompressedResponses()
+    {
+        return _compressed.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("number of responses compressed at the low resources compression level")
+    public long getLowResourcesCompressedResponses()
+    {
+        return _lowResourcesCompressed.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("number of responses not compressed due to low resources")
+    public long getLowResourcesSkippedResponses()
+    {
+        return _lowResourcesSkipped.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("total uncompressed bytes of compressed responses")
+    public long getBytesIn()
+    {
+        return _bytesIn.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("total compressed bytes of compressed responses")
+    public long getBytesOut()
+    {
+        return _bytesOut.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("total bytes saved by compression")
+    public long getBytesSaved()
+    {
+        return _bytesIn.get()-_bytesOut.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("total time spent deflating in ms")
+    public long getDeflateTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(_deflateNanos.get());
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("number of deflaters created")
+    public int getDeflatersCreated()
+    {
+        return _deflaterPool==null?0:_deflaterPool.getCreatedCount();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedOperation("resets the compression statistics")
+    public void resetStatistics()
+    {
+        _compressed.set(0);
+        _lowResourcesCompressed.set(0);
+        _lowResourcesSkipped.set(0);
+        _bytesIn.set(0);
+        _bytesOut.set(0);
+        _deflateNanos.set(0);
     }
     
     @Override
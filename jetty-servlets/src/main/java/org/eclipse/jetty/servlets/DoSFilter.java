@@ -29,6 +29,9 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -111,6 +114,10 @@ import org.eclipse.jetty.util.thread.Scheduler;
  * <dd>how long to keep track of request rates for a connection,
  * before deciding that the user has gone away, and discarding it</dd>
  * <p/>
+ * <dt>maxTrackers</dt>
+ * <dd>the maximum number of request rate trackers kept at once. When exceeded, trackers
+ * that have been idle the longest are approximately selected and discarded. Defaults to 100000.</dd>
+ * <p/>
  * <dt>insertHeaders</dt>
  * <dd>if true , insert the DoSFilter headers into the response. Defaults to true.</dd>
  * <p/>
@@ -155,6 +162,8 @@ public class DoSFilter implements Filter
     private static final long __DEFAULT_THROTTLE_MS = 30000L;
     private static final long __DEFAULT_MAX_REQUEST_MS_INIT_PARAM = 30000L;
     private static final long __DEFAULT_MAX_IDLE_TRACKER_MS_INIT_PARAM = 30000L;
+    private static final int __DEFAULT_MAX_TRACKERS = 100000;
+    private static final int __EVICTION_SAMPLES = 8;
 
     static final String MANAGED_ATTR_INIT_PARAM = "managedAttr";
     static final String MAX_REQUESTS_PER_S_INIT_PARAM = "maxRequestsPerSec";
@@ -164,6 +173,7 @@ public class DoSFilter implements Filter
     static final String THROTTLE_MS_INIT_PARAM = "throttleMs";
     static final String MAX_REQUEST_MS_INIT_PARAM = "maxRequestMs";
     static final String MAX_IDLE_TRACKER_MS_INIT_PARAM = "maxIdleTrackerMs";
+    static final String MAX_TRACKERS_INIT_PARAM = "maxTrackers";
     static final String INSERT_HEADERS_INIT_PARAM = "insertHeaders";
     static final String TRACK_SESSIONS_INIT_PARAM = "trackSessions";
     static final String REMOTE_PORT_INIT_PARAM = "remotePort";
@@ -177,13 +187,14 @@ public class DoSFilter implements Filter
 
     private final String _suspended = "DoSFilter@" + Integer.toHexString(hashCode()) + ".SUSPENDED";
     private final String _resumed = "DoSFilter@" + Integer.toHexString(hashCode()) + ".RESUMED";
-    private final ConcurrentHashMap<String, RateTracker> _rateTrackers = new ConcurrentHashMap<>();
+    private final RateTrackers _rateTrackers = new RateTrackers();
     private final List<String> _whitelist = new CopyOnWriteArrayList<>();
     private volatile long _delayMs;
     private volatile long _throttleMs;
     private volatile long _maxWaitMs;
     private volatile long _maxRequestMs;
     private volatile long _maxIdleTrackerMs;
+    private volatile int _maxTrackers;
     private volatile boolean _insertHeaders;
     private volatile boolean _trackSessions;
     private volatile boolean _remotePort;
@@ -249,6 +260,12 @@ public class DoSFilter implements Filter
             maxIdleTrackerMs = Long.parseLong(parameter);
         setMaxIdleTrackerMs(maxIdleTrackerMs);
 
+        int maxTrackers = __DEFAULT_MAX_TRACKERS;
+        parameter = filterConfig.getInitParameter(MAX_TRACKERS_INIT_PARAM);
+        if (parameter != null)
+            maxTrackers = Integer.parseInt(parameter);
+        setMaxTrackers(maxTrackers);
+
         String whiteList = "";
         parameter = filterConfig.getInitParameter(IP_WHITELIST_INIT_PARAM);
         if (parameter != null)
@@ -268,6 +285,7 @@ public class DoSFilter implements Filter
         setEnabled(parameter == null || Boolean.parseBoolean(parameter));
 
         _scheduler = startScheduler();
+        new Sweeper().schedule();
 
         ServletContext context = filterConfig.getServletContext();
         if (context != null && Boolean.parseBoolean(filterConfig.getInitParameter(MANAGED_ATTR_INIT_PARAM)))
@@ -583,18 +601,15 @@ public class DoSFilter implements Filter
             int maxRequestsPerSec = getMaxRequestsPerSec();
             tracker = allowed ? new FixedRateTracker(loadId, type, maxRequestsPerSec)
                     : new RateTracker(loadId, type, maxRequestsPerSec);
-            RateTracker existing = _rateTrackers.putIfAbsent(loadId, tracker);
+            RateTracker existing = _rateTrackers.putIfAbsent(tracker);
             if (existing != null)
-                tracker = existing;
-
-            if (type == USER_IP)
             {
-                // USER_IP expiration from _rateTrackers is handled by the _scheduler
-                _scheduler.schedule(tracker, getMaxIdleTrackerMs(), TimeUnit.MILLISECONDS);
+                tracker = existing;
             }
-            else if (session != null)
+            else if (type != USER_IP && session != null)
             {
-                // USER_SESSION expiration from _rateTrackers are handled by the HttpSessionBindingListener
+                // USER_SESSION expiration from _rateTrackers is also handled by the HttpSessionBindingListener,
+                // while idle trackers of any type are expired by the Sweeper
                 session.setAttribute(__TRACKER, tracker);
             }
         }
@@ -928,6 +943,48 @@ public class DoSFilter implements Filter
         _maxIdleTrackerMs = value;
     }
 
+    /**
+     * Get the maximum number of request rate trackers kept at once.
+     *
+     * @return the maximum number of trackers
+     */
+    @ManagedAttribute("maximum number of request rate trackers")
+    public int getMaxTrackers()
+    {
+        return _maxTrackers;
+    }
+
+    /**
+     * Set the maximum number of request rate trackers kept at once.
+     * When exceeded, trackers that have been idle the longest are
+     * approximately selected and discarded.
+     *
+     * @param value the maximum number of trackers
+     */
+    public void setMaxTrackers(int value)
+    {
+        _maxTrackers = value;
+        _rateTrackers.setMaxTrackers(value);
+    }
+
+    /**
+     * @return the number of request rate trackers currently kept
+     */
+    @ManagedAttribute("number of request rate trackers")
+    public int getTrackerCount()
+    {
+        return _rateTrackers.size();
+    }
+
+    /**
+     * @return the number of request rate trackers discarded to respect the maximum number of trackers
+     */
+    @ManagedAttribute("number of request rate trackers discarded to respect the maximum")
+    public long getTrackersEvicted()
+    {
+        return _rateTrackers.getEvicted();
+    }
+
     /**
      * Check flag to insert the DoSFilter headers into the response.
      *
@@ -1090,21 +1147,21 @@ public class DoSFilter implements Filter
      * A RateTracker is associated with a connection, and stores request rate
      * data.
      */
-    class RateTracker implements Runnable, HttpSessionBindingListener, HttpSessionActivationListener, Serializable
+    class RateTracker implements HttpSessionBindingListener, HttpSessionActivationListener, Serializable
     {
         private static final long serialVersionUID = 3534663738034577872L;
 
         protected transient final String _id;
         protected transient final int _type;
-        protected transient final long[] _timestamps;
-        protected transient int _next;
+        protected transient final AtomicLongArray _timestamps;
+        protected transient final AtomicInteger _next = new AtomicInteger();
+        protected transient volatile long _lastAccess = System.currentTimeMillis();
 
         public RateTracker(String id, int type, int maxRequestsPerSecond)
         {
             _id = id;
             _type = type;
-            _timestamps = new long[maxRequestsPerSecond];
-            _next = 0;
+            _timestamps = new AtomicLongArray(maxRequestsPerSecond);
         }
 
         /**
@@ -1112,14 +1169,19 @@ public class DoSFilter implements Filter
          */
         public boolean isRateExceeded(long now)
         {
-            final long last;
-            synchronized (this)
+            _lastAccess = now;
+
+            // Claim the next slot of the ring of recent request timestamps
+            int length = _timestamps.length();
+            int slot;
+            while (true)
             {
-                last = _timestamps[_next];
-                _timestamps[_next] = now;
-                _next = (_next + 1) % _timestamps.length;
+                slot = _next.get();
+                if (_next.compareAndSet(slot, slot + 1 == length ? 0 : slot + 1))
+                    break;
             }
 
+            long last = _timestamps.getAndSet(slot, now);
             return last != 0 && (now - last) < 1000L;
         }
 
@@ -1133,6 +1195,14 @@ public class DoSFilter implements Filter
             return _type;
         }
 
+        /**
+         * @return the time of the last request tracked
+         */
+        public long getLastAccess()
+        {
+            return _lastAccess;
+        }
+
         public void valueBound(HttpSessionBindingEvent event)
         {
             if (LOG.isDebugEnabled())
@@ -1142,7 +1212,7 @@ public class DoSFilter implements Filter
         public void valueUnbound(HttpSessionBindingEvent event)
         {
             //take the tracker out of the list of trackers
-            _rateTrackers.remove(_id);
+            _rateTrackers.remove(this);
             if (LOG.isDebugEnabled())
                 LOG.debug("Tracker removed: {}", getId());
         }
@@ -1151,7 +1221,7 @@ public class DoSFilter implements Filter
         {
             //take the tracker of the list of trackers (if its still there)
             //and ensure that we take ourselves out of the session so we are not saved
-            _rateTrackers.remove(_id);
+            _rateTrackers.remove(this);
             se.getSession().removeAttribute(__TRACKER);
             if (LOG.isDebugEnabled()) 
                 LOG.debug("Value removed: {}", getId());
@@ -1162,19 +1232,6 @@ public class DoSFilter implements Filter
             LOG.warn("Unexpected session activation");
         }
 
-        @Override
-        public void run()
-        {
-            int latestIndex = _next == 0 ? (_timestamps.length - 1) : (_next - 1);
-            long last = _timestamps[latestIndex];
-            boolean hasRecentRequest = last != 0 && (System.currentTimeMillis() - last) < 1000L;
-
-            if (hasRecentRequest)
-                _scheduler.schedule(this, getMaxIdleTrackerMs(), TimeUnit.MILLISECONDS);
-            else
-                _rateTrackers.remove(_id);
-        }
-
         @Override
         public String toString()
         {
@@ -1192,22 +1249,211 @@ public class DoSFilter implements Filter
         @Override
         public boolean isRateExceeded(long now)
         {
-            // rate limit is never exceeded, but we keep track of the request timestamps
+            // rate limit is never exceeded, but we keep track of the last request
             // so that we know whether there was recent activity on this tracker
             // and whether it should be expired
-            synchronized (this)
+            _lastAccess = now;
+            return false;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Fixed" + super.toString();
+        }
+    }
+
+    /**
+     * The rate trackers, split over shards that are each bounded to their share of
+     * {@link #getMaxTrackers()}. Each shard keeps its trackers in insertion order, so
+     * that an eviction only samples the oldest few trackers of one shard (giving
+     * recently active ones a second chance) and the {@link Sweeper} expires idle
+     * trackers without a task per tracker. No more shards are used than there may 
+     * be trackers, so that every shard can hold at least one tracker within the bound.
+     */
+    private class RateTrackers
+    {
+        private final ConcurrentHashMap<String, RateTracker>[] _maps;
+        private final Queue<RateTracker>[] _orders;
+        private final AtomicInteger[] _sizes;
+        private final AtomicLong _evicted = new AtomicLong();
+        private volatile int _mask;
+
+        private RateTrackers()
+        {
+            int shards = 16;
+            while (shards < 4 * Runtime.getRuntime().availableProcessors())
+                shards <<= 1;
+            _mask = shards - 1;
+            // Generic arrays cannot be created, every element is a new ConcurrentHashMap<> or ConcurrentLinkedQueue<>
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            ConcurrentHashMap<String, RateTracker>[] maps = new ConcurrentHashMap[shards];
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Queue<RateTracker>[] orders = new Queue[shards];
+            _maps = maps;
+            _orders = orders;
+            _sizes = new AtomicInteger[shards];
+            for (int i = 0; i < shards; ++i)
             {
-                _timestamps[_next] = now;
-                _next = (_next + 1) % _timestamps.length;
+                _maps[i] = new ConcurrentHashMap<>();
+                _orders[i] = new ConcurrentLinkedQueue<>();
+                _sizes[i] = new AtomicInteger();
             }
+        }
+
+        /**
+         * Uses the largest power of two of the shards that is not more than the maximum
+         * number of trackers. Trackers left in shards that are no longer used are expired
+         * by the {@link Sweeper}.
+         */
+        private void setMaxTrackers(int maxTrackers)
+        {
+            int shards = _maps.length;
+            while (shards > 1 && shards > maxTrackers)
+                shards >>= 1;
+            _mask = shards - 1;
+        }
 
+        private int shard(String id)
+        {
+            int hash = id.hashCode();
+            return (hash ^ (hash >>> 16)) & _mask;
+        }
+
+        private RateTracker get(String id)
+        {
+            return _maps[shard(id)].get(id);
+        }
+
+        private RateTracker putIfAbsent(RateTracker tracker)
+        {
+            int shard = shard(tracker.getId());
+            RateTracker existing = _maps[shard].putIfAbsent(tracker.getId(), tracker);
+            if (existing == null)
+            {
+                _orders[shard].offer(tracker);
+                int capacity = Math.max(1, getMaxTrackers() / (_mask + 1));
+                if (_sizes[shard].incrementAndGet() > capacity)
+                    evict(shard);
+            }
+            return existing;
+        }
+
+        private boolean remove(RateTracker tracker)
+        {
+            return remove(shard(tracker.getId()), tracker);
+        }
+
+        private boolean remove(int shard, RateTracker tracker)
+        {
+            if (_maps[shard].remove(tracker.getId(), tracker))
+            {
+                // The stale entry in the order queue is dropped by the next eviction or sweep
+                _sizes[shard].decrementAndGet();
+                return true;
+            }
             return false;
         }
 
+        private void evict(int shard)
+        {
+            ConcurrentHashMap<String, RateTracker> map = _maps[shard];
+            Queue<RateTracker> order = _orders[shard];
+            RateTracker victim = null;
+            for (int i = 0; i < __EVICTION_SAMPLES; ++i)
+            {
+                RateTracker tracker = order.poll();
+                if (tracker == null)
+                    break;
+                if (map.get(tracker.getId()) != tracker)
+                    continue;
+                if (victim == null || tracker.getLastAccess() < victim.getLastAccess())
+                {
+                    if (victim != null)
+                        order.offer(victim);
+                    victim = tracker;
+                }
+                else
+                {
+                    order.offer(tracker);
+                }
+            }
+
+            if (victim != null && remove(shard, victim))
+            {
+                _evicted.incrementAndGet();
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Evicted {}", victim);
+            }
+        }
+
+        private int expire(long idleBefore)
+        {
+            int expired = 0;
+            for (int shard = 0; shard < _maps.length; ++shard)
+            {
+                ConcurrentHashMap<String, RateTracker> map = _maps[shard];
+                for (Iterator<RateTracker> iterator = _orders[shard].iterator(); iterator.hasNext();)
+                {
+                    RateTracker tracker = iterator.next();
+                    if (map.get(tracker.getId()) != tracker)
+                    {
+                        iterator.remove();
+                    }
+                    else if (tracker.getLastAccess() < idleBefore && remove(shard, tracker))
+                    {
+                        iterator.remove();
+                        ++expired;
+                    }
+                }
+            }
+            return expired;
+        }
+
+        private int size()
+        {
+            int size = 0;
+            for (AtomicInteger shardSize : _sizes)
+                size += shardSize.get();
+            return size;
+        }
+
+        private long getEvicted()
+        {
+            return _evicted.get();
+        }
+
+        private void clear()
+        {
+            for (int shard = 0; shard < _maps.length; ++shard)
+            {
+                _maps[shard].clear();
+                _orders[shard].clear();
+                _sizes[shard].set(0);
+            }
+        }
+    }
+
+    /**
+     * Expires the rate trackers that have been idle for longer than
+     * {@link #getMaxIdleTrackerMs()}, in a single pass per scheduler tick.
+     */
+    private class Sweeper implements Runnable
+    {
+        private void schedule()
+        {
+            _scheduler.schedule(this, Math.max(100L, getMaxIdleTrackerMs()), TimeUnit.MILLISECONDS);
+        }
+
         @Override
-        public String toString()
+        public void run()
         {
-            return "Fixed" + super.toString();
+            // Trackers with requests within the last second are still needed to calculate the rate
+            long now = System.currentTimeMillis();
+            int expired = _rateTrackers.expire(now - Math.max(1000L, getMaxIdleTrackerMs()));
+            if (LOG.isDebugEnabled())
+                LOG.debug("Expired {} trackers, {} remaining", expired, _rateTrackers.size());
+            schedule();
         }
     }
 
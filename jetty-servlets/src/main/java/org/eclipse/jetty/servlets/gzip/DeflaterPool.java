@@ -0,0 +1,160 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.servlets.gzip;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/* ------------------------------------------------------------ */
+/** A bounded pool of {@link Deflater}s.
+ * <p>
+ * Deflaters hold native memory that is only freed by {@link Deflater#end()}
+ * (or eventually by finalization), so rather than keeping one per thread
+ * (which does not work well when async writes complete on different threads),
+ * a shared pool of reset deflaters is kept.  At most <code>capacity</code>
+ * idle deflaters are retained; any deflater released to a full pool is ended.
+ * </p>
+ */
+public class DeflaterPool
+{
+    private final Queue<Deflater> _pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger _idle = new AtomicInteger();
+    private final AtomicInteger _created = new AtomicInteger();
+    private final int _capacity;
+    private final int _compressionLevel;
+    private final boolean _noWrap;
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param capacity the maximum number of idle deflaters retained, or -1 for no limit
+     * @param compressionLevel the default compression level of new deflaters
+     * @param noWrap the noWrap setting of new deflaters
+     */
+    public DeflaterPool(int capacity, int compressionLevel, boolean noWrap)
+    {
+        _capacity=capacity;
+        _compressionLevel=compressionLevel;
+        _noWrap=noWrap;
+    }
+
+    /* ------------------------------------------------------------ */
+    protected Deflater newDeflater()
+    {
+        _created.incrementAndGet();
+        return new Deflater(_compressionLevel,_noWrap);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param compressionLevel the compression level to use for the next deflation
+     * @return a pooled or new deflater set to the given level
+     */
+    public Deflater acquire(int compressionLevel)
+    {
+        Deflater deflater=_pool.poll();
+        if (deflater==null)
+            deflater=newDeflater();
+        else
+            _idle.decrementAndGet();
+        deflater.setLevel(compressionLevel);
+        return deflater;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return a pooled or new deflater set to the default level
+     */
+    public Deflater acquire()
+    {
+        return acquire(_compressionLevel);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param deflater the deflater to reset and return to the pool
+     */
+    public void release(Deflater deflater)
+    {
+        if (deflater==null)
+            return;
+
+        if (_capacity>=0 && _idle.incrementAndGet()>_capacity)
+        {
+            _idle.decrementAndGet();
+            deflater.end();
+            return;
+        }
+        if (_capacity<0)
+            _idle.incrementAndGet();
+
+        deflater.reset();
+        _pool.offer(deflater);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of idle deflaters in the pool
+     */
+    public int getIdleCount()
+    {
+        return _idle.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of deflaters created by this pool
+     */
+    public int getCreatedCount()
+    {
+        return _created.get();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the maximum number of idle deflaters retained
+     */
+    public int getCapacity()
+    {
+        return _capacity;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * End and discard all idle deflaters.
+     */
+    public void clear()
+    {
+        Deflater deflater=_pool.poll();
+        while (deflater!=null)
+        {
+            _idle.decrementAndGet();
+            deflater.end();
+            deflater=_pool.poll();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{idle=%d/%d,created=%d}",getClass().getSimpleName(),hashCode(),_idle.get(),_capacity,_created.get());
+    }
+}
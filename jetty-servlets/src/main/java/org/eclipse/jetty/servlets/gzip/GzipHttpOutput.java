@@ -25,9 +25,9 @@ import java.util.zip.CRC32;
 import java.util.zip.Deflater;
 
 import org.eclipse.jetty.http.HttpFields;
-import org.eclipse.jetty.http.HttpGenerator;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.http.PreEncodedHttpField;
 import org.eclipse.jetty.server.HttpChannel;
 import org.eclipse.jetty.server.HttpOutput;
 import org.eclipse.jetty.server.Response;
@@ -42,7 +42,7 @@ import org.eclipse.jetty.util.log.Logger;
 public class GzipHttpOutput extends HttpOutput
 {
     public static Logger LOG = Log.getLogger(GzipHttpOutput.class);
-    private final static HttpGenerator.CachedHttpField CONTENT_ENCODING_GZIP=new HttpGenerator.CachedHttpField(HttpHeader.CONTENT_ENCODING,"gzip");
+    private final static PreEncodedHttpField CONTENT_ENCODING_GZIP=new PreEncodedHttpField(HttpHeader.CONTENT_ENCODING,"gzip");
     private final static byte[] GZIP_HEADER = new byte[] { (byte)0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
     
     private enum GZState { NOT_COMPRESSING, MIGHT_COMPRESS, COMMITTING, COMPRESSING, FINISHED};
@@ -50,6 +50,7 @@ public class GzipHttpOutput extends HttpOutput
     private final CRC32 _crc = new CRC32();
     
     private Deflater _deflater;
+    private long _deflateNanos;
     private GzipFactory _factory;
     private ByteBuffer _buffer;
     
@@ -115,7 +116,22 @@ public class GzipHttpOutput extends HttpOutput
         _buffer.put(i++,(byte)((v>>>24) & 0xFF));
     }
     
+    private void recycleDeflater()
+    {
+        if (_factory instanceof TimedGzipFactory)
+            ((TimedGzipFactory)_factory).recycle(_deflater,_deflateNanos);
+        else
+            _factory.recycle(_deflater);
+    }
     
+    private int deflate(byte[] array, int off, int len)
+    {
+        long start=System.nanoTime();
+        int produced=_deflater.deflate(array,off,len,Deflater.NO_FLUSH);
+        _deflateNanos+=System.nanoTime()-start;
+        return produced;
+    }
+
     private void gzip(ByteBuffer content, boolean complete, final Callback callback)
     {
         if (content.hasRemaining() || complete)
@@ -189,6 +205,7 @@ public class GzipHttpOutput extends HttpOutput
 
             fields.put(CONTENT_ENCODING_GZIP);
             _crc.reset();
+            _deflateNanos=0;
             _buffer=getHttpChannel().getByteBufferPool().acquire(_factory.getBufferSize(),false);
             BufferUtil.fill(_buffer,GZIP_HEADER,0,GZIP_HEADER.length);
 
@@ -300,7 +317,7 @@ public class GzipHttpOutput extends HttpOutput
             {
                 if (_deflater.finished())
                 {
-                    _factory.recycle(_deflater);
+                    recycleDeflater();
                     _deflater=null;
                     getHttpChannel().getByteBufferPool().release(_buffer);
                     _buffer=null;
@@ -318,8 +335,7 @@ public class GzipHttpOutput extends HttpOutput
             int len=_buffer.capacity()-_buffer.limit()- (_complete?8:0);
             if (len>0)
             {
-                int produced=_deflater.deflate(_buffer.array(),off,len,Deflater.NO_FLUSH);
-                _buffer.limit(_buffer.limit()+produced);
+                _buffer.limit(_buffer.limit()+deflate(_buffer.array(),off,len));
             }
             boolean complete=_deflater.finished();
             if (complete)
@@ -352,7 +368,7 @@ public class GzipHttpOutput extends HttpOutput
                 {                    
                     if (_deflater.finished())
                     {
-                        _factory.recycle(_deflater);
+                        recycleDeflater();
                         _deflater=null;
                         getHttpChannel().getByteBufferPool().release(_buffer);
                         _buffer=null;
@@ -390,8 +406,7 @@ public class GzipHttpOutput extends HttpOutput
             int len=_buffer.capacity()-_buffer.limit() - (_last?8:0);
             if (len>0)
             {
-                int produced=_deflater.deflate(_buffer.array(),off,len,Deflater.NO_FLUSH);
-                _buffer.limit(_buffer.limit()+produced);
+                _buffer.limit(_buffer.limit()+deflate(_buffer.array(),off,len));
             }
             boolean finished=_deflater.finished();
             
@@ -401,5 +416,19 @@ public class GzipHttpOutput extends HttpOutput
             superWrite(_buffer,finished,this);
             return Action.SCHEDULED;
         }
+
+        @Override
+        protected void onCompleteSuccess()
+        {
+            getHttpChannel().getByteBufferPool().release(_input);
+            super.onCompleteSuccess();
+        }
+
+        @Override
+        protected void onCompleteFailure(Throwable x)
+        {
+            getHttpChannel().getByteBufferPool().release(_input);
+            super.onCompleteFailure(x);
+        }
     }
 }
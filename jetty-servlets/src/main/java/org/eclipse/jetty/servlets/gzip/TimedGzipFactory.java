@@ -0,0 +1,39 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.servlets.gzip;
+
+import java.util.zip.Deflater;
+
+/* ------------------------------------------------------------ */
+/**
+ * A {@link GzipFactory} that is also told how long each response took to deflate.
+ * <p>
+ * {@link GzipHttpOutput} returns its deflater with {@link #recycle(Deflater, long)} 
+ * instead of {@link #recycle(Deflater)} when its factory implements this interface.
+ */
+public interface TimedGzipFactory extends GzipFactory
+{
+    /* ------------------------------------------------------------ */
+    /**
+     * Return a finished deflater.
+     * @param deflater the finished deflater, with its byte counts still available
+     * @param deflateNanos the time spent deflating the response, in nanoseconds
+     */
+    void recycle(Deflater deflater, long deflateNanos);
+}
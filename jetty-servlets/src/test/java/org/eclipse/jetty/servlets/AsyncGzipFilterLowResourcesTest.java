@@ -0,0 +1,176 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.servlets;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpTester;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.After;
+import org.junit.Test;
+
+public class AsyncGzipFilterLowResourcesTest
+{
+    private static final String CONTENT = newContent();
+
+    private Server _server;
+    private LocalConnector _connector;
+    private FilterHolder _holder;
+    private volatile boolean _lowOnThreads;
+
+    private static String newContent()
+    {
+        String[] words = {"alpha","beta","gamma","delta","epsilon","zeta","eta","theta","iota","kappa","lambda","mu"};
+        Random random = new Random(42);
+        StringBuilder content = new StringBuilder();
+        while (content.length()<64*1024)
+            content.append(words[random.nextInt(words.length)]).append(random.nextInt(1000)).append(' ');
+        return content.toString();
+    }
+
+    private void startServer(String lowResourcesCompressionLevel) throws Exception
+    {
+        _server = new Server(new QueuedThreadPool()
+        {
+            @Override
+            public boolean isLowOnThreads()
+            {
+                return _lowOnThreads;
+            }
+        });
+        _connector = new LocalConnector(_server);
+        _server.addConnector(_connector);
+
+        ServletContextHandler context = new ServletContextHandler(_server,"/");
+        _holder = new FilterHolder(AsyncGzipFilter.class);
+        _holder.setAsyncSupported(true);
+        _holder.setInitParameter("mimeTypes","text/plain");
+        if (lowResourcesCompressionLevel!=null)
+            _holder.setInitParameter("lowResourcesCompressionLevel",lowResourcesCompressionLevel);
+        context.addFilter(_holder,"/*",EnumSet.of(DispatcherType.REQUEST));
+        context.addServlet(ContentServlet.class,"/content");
+        _server.start();
+    }
+
+    @After
+    public void dispose() throws Exception
+    {
+        _server.stop();
+    }
+
+    private HttpTester.Response get() throws Exception
+    {
+        String request = "GET /content HTTP/1.1\r\n"+
+                "Host: localhost\r\n"+
+                "Accept-Encoding: gzip\r\n"+
+                "Connection: close\r\n"+
+                "\r\n";
+        return HttpTester.parseResponse(_connector.getResponses(BufferUtil.toBuffer(request)));
+    }
+
+    private static String gunzip(byte[] content) throws IOException
+    {
+        return IO.toString(new GZIPInputStream(new ByteArrayInputStream(content)),StringUtil.__UTF8);
+    }
+
+    @Test
+    public void testLowResourcesLowersCompressionLevel() throws Exception
+    {
+        startServer(null);
+        AsyncGzipFilter filter = (AsyncGzipFilter)_holder.getFilter();
+
+        HttpTester.Response normal = get();
+        assertThat(normal.get("Content-Encoding"),is("gzip"));
+        assertThat(gunzip(normal.getContentBytes()),is(CONTENT));
+        assertThat(filter.getLowResourcesCompressedResponses(),is(0L));
+
+        _lowOnThreads = true;
+        HttpTester.Response fast = get();
+        assertThat(fast.get("Content-Encoding"),is("gzip"));
+        assertThat(gunzip(fast.getContentBytes()),is(CONTENT));
+        assertThat(filter.getLowResourcesCompressedResponses(),is(1L));
+        assertThat(fast.getContentBytes().length,greaterThan(normal.getContentBytes().length));
+
+        _lowOnThreads = false;
+        HttpTester.Response again = get();
+        assertThat(again.getContentBytes(),is(normal.getContentBytes()));
+        assertThat(filter.getLowResourcesCompressedResponses(),is(1L));
+    }
+
+    @Test
+    public void testLowResourcesSkipsCompression() throws Exception
+    {
+        startServer("0");
+        AsyncGzipFilter filter = (AsyncGzipFilter)_holder.getFilter();
+
+        _lowOnThreads = true;
+        HttpTester.Response response = get();
+        assertThat(response.get("Content-Encoding"),nullValue());
+        assertThat(response.getContent(),is(CONTENT));
+        assertThat(filter.getLowResourcesSkippedResponses(),is(1L));
+    }
+
+    @Test
+    public void testAdaptationDisabled() throws Exception
+    {
+        startServer(String.valueOf(Deflater.DEFAULT_COMPRESSION));
+        AsyncGzipFilter filter = (AsyncGzipFilter)_holder.getFilter();
+
+        HttpTester.Response normal = get();
+        _lowOnThreads = true;
+        HttpTester.Response loaded = get();
+        assertThat(loaded.getContentBytes(),is(normal.getContentBytes()));
+        assertThat(filter.getLowResourcesCompressedResponses(),is(0L));
+    }
+
+    public static class ContentServlet extends HttpServlet
+    {
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+        {
+            response.setContentType("text/plain");
+            response.setCharacterEncoding(StringUtil.__UTF8);
+            response.getWriter().print(CONTENT);
+        }
+    }
+}
@@ -18,11 +18,14 @@
 
 package org.eclipse.jetty.servlets;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.servlets.DoSFilter.RateTracker;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
@@ -30,7 +33,9 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class DoSFilterTest extends AbstractDoSFilterTest
@@ -94,6 +99,47 @@ public class DoSFilterTest extends AbstractDoSFilterTest
         Assert.assertFalse(filter.checkWhitelist("4d8:0:a:1234:ABc:1D:0:0"));
     }
 
+    @Test
+    public void testMaxTrackers() throws Exception
+    {
+        DoSFilter filter = new DoSFilter();
+        filter.setMaxRequestsPerSec(10);
+        filter.setMaxTrackers(1024);
+
+        RateTracker last = null;
+        for (int i = 0; i < 16 * 1024; i++)
+        {
+            Request request = new Request(null, null);
+            request.setRemoteAddr(new InetSocketAddress(InetAddress.getByAddress(new byte[]{10, 0, (byte)(i >> 8), (byte)i}), 8080));
+            last = filter.getRateTracker(request);
+            last.isRateExceeded(System.currentTimeMillis());
+        }
+
+        assertTrue(filter.getTrackerCount() <= 1024);
+        assertEquals(16 * 1024, filter.getTrackerCount() + filter.getTrackersEvicted());
+
+        Request request = new Request(null, null);
+        request.setRemoteAddr(new InetSocketAddress(InetAddress.getByName(last.getId()), 8080));
+        assertSame(last, filter.getRateTracker(request));
+    }
+
+    @Test
+    public void testMaxTrackersBelowShards() throws Exception
+    {
+        DoSFilter filter = new DoSFilter();
+        filter.setMaxRequestsPerSec(10);
+        filter.setMaxTrackers(10);
+
+        for (int i = 0; i < 1024; i++)
+        {
+            Request request = new Request(null, null);
+            request.setRemoteAddr(new InetSocketAddress(InetAddress.getByAddress(new byte[]{10, 0, (byte)(i >> 8), (byte)i}), 8080));
+            filter.getRateTracker(request).isRateExceeded(System.currentTimeMillis());
+            assertTrue(filter.getTrackerCount() <= 10);
+        }
+        assertEquals(1024, filter.getTrackerCount() + filter.getTrackersEvicted());
+    }
+
     private boolean hitRateTracker(DoSFilter doSFilter, int sleep) throws InterruptedException
     {
         boolean exceeded = false;
@@ -0,0 +1,67 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.servlets.gzip;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+public class DeflaterPoolTest
+{
+    @Test
+    public void testReuse()
+    {
+        DeflaterPool pool = new DeflaterPool(2,Deflater.DEFAULT_COMPRESSION,true);
+        Deflater deflater = pool.acquire();
+        deflater.setInput(new byte[]{1,2,3});
+        deflater.finish();
+        deflater.deflate(new byte[64]);
+        pool.release(deflater);
+
+        assertThat(pool.getIdleCount(),is(1));
+        Deflater again = pool.acquire(Deflater.BEST_SPEED);
+        assertThat(again,sameInstance(deflater));
+        assertThat(again.getTotalIn(),is(0));
+        assertThat(again.finished(),is(false));
+        assertThat(pool.getCreatedCount(),is(1));
+    }
+
+    @Test
+    public void testBounded()
+    {
+        DeflaterPool pool = new DeflaterPool(1,Deflater.DEFAULT_COMPRESSION,true);
+        Deflater d1 = pool.acquire();
+        Deflater d2 = pool.acquire();
+        assertThat(d1,not(sameInstance(d2)));
+        assertThat(pool.getCreatedCount(),is(2));
+
+        pool.release(d1);
+        pool.release(d2);
+        assertThat(pool.getIdleCount(),is(1));
+        assertThat(pool.acquire(),sameInstance(d1));
+
+        pool.clear();
+        assertThat(pool.getIdleCount(),is(0));
+    }
+}
@@ -0,0 +1,377 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.spdy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.spdy.api.DataInfo;
+import org.eclipse.jetty.spdy.api.PingInfo;
+import org.eclipse.jetty.spdy.api.PingResultInfo;
+import org.eclipse.jetty.spdy.api.Session;
+import org.eclipse.jetty.spdy.api.Stream;
+import org.eclipse.jetty.spdy.frames.WindowUpdateFrame;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.Promise;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>A SPDY/3 {@link FlowControlStrategy} that auto-tunes the receive window of each stream.</p>
+ * <p>The round trip time of the session is measured by sending a PING when a stream is
+ * created and the last measurement is older than {@link #getPingInterval()}.
+ * A PING that is not answered within {@link #getPingTimeout()} is forgotten, so that
+ * a lost reply does not stop the measurements for the rest of the session.
+ * If a stream consumes more than half of its receive window within two round trips,
+ * the stream is limited by its window rather than by the application or the network,
+ * and its window is doubled by sending a WINDOW_UPDATE frame larger than the consumed bytes.</p>
+ * <p>The window of a stream never grows beyond {@link #getMaxStreamWindowSize()}, and the
+ * windows granted beyond the initial window are reserved from a {@link WindowBudget}, which
+ * is shared by all the sessions of a connector to bound the memory that they may buffer.
+ * A window only grows while the budget has room, and its growth is released to the budget
+ * when the stream is closed.</p>
+ * <p>An instance of this class must be used for a single session.</p>
+ */
+public class AdaptiveFlowControlStrategy extends SPDYv3FlowControlStrategy implements FlowControlStrategy.PingListener
+{
+    private static final Logger LOG = Log.getLogger(AdaptiveFlowControlStrategy.class);
+    private static final String WINDOW_ATTRIBUTE = AdaptiveFlowControlStrategy.class.getName() + ".window";
+
+    private final AtomicBoolean pinging = new AtomicBoolean();
+    private final AtomicBoolean listening = new AtomicBoolean();
+    private final AtomicLong grantedWindowSize = new AtomicLong();
+    private final int initialStreamWindowSize;
+    private final int maxStreamWindowSize;
+    private final WindowBudget windowBudget;
+    private long pingInterval = TimeUnit.SECONDS.toNanos(30);
+    private long pingTimeout = TimeUnit.SECONDS.toNanos(10);
+    private volatile int pingId = -1;
+    private volatile int expiredPingId = -1;
+    private volatile long pingNanoTime;
+    private volatile long roundTripNanos = -1;
+
+    /**
+     * @param initialStreamWindowSize the receive window size advertised to the remote peer
+     * @param maxStreamWindowSize the max receive window size of a single stream
+     * @param windowBudget the budget, shared with the other sessions of the connector, from which
+     * the receive window granted beyond the initial window is reserved
+     */
+    public AdaptiveFlowControlStrategy(int initialStreamWindowSize, int maxStreamWindowSize, WindowBudget windowBudget)
+    {
+        this.initialStreamWindowSize = initialStreamWindowSize;
+        this.maxStreamWindowSize = Math.max(initialStreamWindowSize, maxStreamWindowSize);
+        this.windowBudget = windowBudget;
+    }
+
+    public int getInitialStreamWindowSize()
+    {
+        return initialStreamWindowSize;
+    }
+
+    public int getMaxStreamWindowSize()
+    {
+        return maxStreamWindowSize;
+    }
+
+    public WindowBudget getWindowBudget()
+    {
+        return windowBudget;
+    }
+
+    /**
+     * @return the interval in milliseconds between round trip time measurements
+     */
+    public long getPingInterval()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(pingInterval);
+    }
+
+    /**
+     * @param pingInterval the interval in milliseconds between round trip time measurements
+     */
+    public void setPingInterval(long pingInterval)
+    {
+        this.pingInterval = TimeUnit.MILLISECONDS.toNanos(pingInterval);
+    }
+
+    /**
+     * @return the time in milliseconds after which an unanswered PING is forgotten
+     */
+    public long getPingTimeout()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(pingTimeout);
+    }
+
+    /**
+     * @param pingTimeout the time in milliseconds after which an unanswered PING is forgotten
+     */
+    public void setPingTimeout(long pingTimeout)
+    {
+        this.pingTimeout = TimeUnit.MILLISECONDS.toNanos(pingTimeout);
+    }
+
+    /**
+     * @return the last measured round trip time in milliseconds, or -1 if not measured yet
+     */
+    public long getRoundTripTime()
+    {
+        long rtt = roundTripNanos;
+        return rtt < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(rtt);
+    }
+
+    @Override
+    public void onNewStream(ISession session, IStream stream)
+    {
+        super.onNewStream(session, stream);
+        stream.setAttribute(WINDOW_ATTRIBUTE, new Window(initialStreamWindowSize));
+        if (listening.compareAndSet(false, true))
+            session.addListener(new WindowReleaser());
+        if (roundTripNanos < 0 || System.nanoTime() - pingNanoTime > pingInterval)
+            ping(session);
+    }
+
+    private void ping(ISession session)
+    {
+        // Forget a PING whose reply was lost, ignoring its reply if it arrives late
+        if (pinging.get() && System.nanoTime() - pingNanoTime > pingTimeout)
+        {
+            int id = pingId;
+            if (pinging.compareAndSet(true, false))
+            {
+                expiredPingId = id;
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Expired PING {} on {}", id, session);
+            }
+        }
+
+        if (pinging.compareAndSet(false, true))
+        {
+            pingId = -1;
+            pingNanoTime = System.nanoTime();
+            session.ping(new PingInfo(), new Promise<PingResultInfo>()
+            {
+                @Override
+                public void succeeded(PingResultInfo result)
+                {
+                    pingId = result.getPingId();
+                }
+
+                @Override
+                public void failed(Throwable x)
+                {
+                    LOG.ignore(x);
+                    pinging.set(false);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onPing(ISession session, PingResultInfo pingResultInfo)
+    {
+        // Ignore the replies to PINGs sent by the application
+        int id = pingId;
+        int replyId = pingResultInfo.getPingId();
+        if (id >= 0 && id != replyId || replyId == expiredPingId)
+            return;
+        if (pinging.compareAndSet(true, false))
+        {
+            roundTripNanos = System.nanoTime() - pingNanoTime;
+            if (LOG.isDebugEnabled())
+                LOG.debug("Measured round trip time {} ms on {}", getRoundTripTime(), session);
+        }
+    }
+
+    @Override
+    public void onDataConsumed(ISession session, IStream stream, DataInfo dataInfo, int delta)
+    {
+        int length = dataInfo.length();
+        if (dataInfo.consumed() == length && !stream.isClosed() && length > 0)
+        {
+            int windowDelta = length + grow(session, stream, length);
+            WindowUpdateFrame windowUpdateFrame = new WindowUpdateFrame(session.getVersion(), stream.getId(), windowDelta);
+            session.control(stream, windowUpdateFrame, 0, TimeUnit.MILLISECONDS, Callback.Adapter.INSTANCE);
+        }
+    }
+
+    /**
+     * @param session the session of the stream
+     * @param stream the stream that consumed data
+     * @param consumed the number of bytes consumed
+     * @return the number of bytes the receive window of the stream has grown
+     */
+    protected int grow(ISession session, IStream stream, int consumed)
+    {
+        Window window = (Window)stream.getAttribute(WINDOW_ATTRIBUTE);
+        long rtt = roundTripNanos;
+        if (window == null || rtt < 0)
+            return 0;
+
+        long now = System.nanoTime();
+        int growth;
+        synchronized (window)
+        {
+            if (now - window.epochNanoTime > 2 * rtt)
+            {
+                window.epochNanoTime = now;
+                window.epochBytes = 0;
+            }
+            window.epochBytes += consumed;
+            if (window.epochBytes < window.size / 2)
+                return 0;
+
+            if (window.closed)
+                return 0;
+
+            growth = Math.min(window.size, maxStreamWindowSize - window.size);
+            if (growth <= 0)
+                return 0;
+
+            // Reserve the growth from the budget, as other streams and sessions may grow concurrently
+            growth = windowBudget.reserve(growth);
+            if (growth <= 0)
+                return 0;
+
+            grantedWindowSize.addAndGet(growth);
+            window.size += growth;
+            window.epochNanoTime = now;
+            window.epochBytes = 0;
+        }
+        if (LOG.isDebugEnabled())
+            LOG.debug("Grown receive window by {} to {} on {}", growth, window.size, stream);
+        return growth;
+    }
+
+    /**
+     * @return the receive window size granted beyond the initial window to the open streams of the session
+     */
+    public long getGrantedWindowSize()
+    {
+        return grantedWindowSize.get();
+    }
+
+    private void release(Stream stream)
+    {
+        Window window = (Window)stream.getAttribute(WINDOW_ATTRIBUTE);
+        if (window == null)
+            return;
+        synchronized (window)
+        {
+            if (window.closed)
+                return;
+            window.closed = true;
+            long growth = window.size - initialStreamWindowSize;
+            grantedWindowSize.addAndGet(-growth);
+            windowBudget.release(growth);
+        }
+    }
+
+    private class WindowReleaser extends Session.StreamListener.Adapter
+    {
+        @Override
+        public void onStreamClosed(Stream stream)
+        {
+            release(stream);
+        }
+    }
+
+    /**
+     * <p>The receive window size that may be granted beyond the initial window to the streams
+     * of all the sessions that share the budget.</p>
+     * <p>The initial windows are not reserved, as they are advertised to the remote peer before
+     * any stream is created, so a budget bounds only the memory buffered because of window growth.</p>
+     */
+    public static class WindowBudget
+    {
+        private final AtomicLong grantedSize = new AtomicLong();
+        private volatile long maxSize;
+
+        /**
+         * @param maxSize the max receive window size that may be granted beyond the initial windows
+         */
+        public WindowBudget(long maxSize)
+        {
+            this.maxSize = maxSize;
+        }
+
+        public long getMaxSize()
+        {
+            return maxSize;
+        }
+
+        /**
+         * @param maxSize the max receive window size that may be granted beyond the initial windows;
+         * a smaller value than the granted size only stops further growth
+         */
+        public void setMaxSize(long maxSize)
+        {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * @return the receive window size granted beyond the initial windows to the open streams
+         */
+        public long getGrantedSize()
+        {
+            return grantedSize.get();
+        }
+
+        /**
+         * @param size the window growth wanted
+         * @return the window growth reserved, at most {@code size}, or 0 if the budget is exhausted
+         */
+        private int reserve(int size)
+        {
+            while (true)
+            {
+                long granted = grantedSize.get();
+                int reserved = (int)Math.min(size, maxSize - granted);
+                if (reserved <= 0)
+                    return 0;
+                if (grantedSize.compareAndSet(granted, granted + reserved))
+                    return reserved;
+            }
+        }
+
+        private void release(long size)
+        {
+            grantedSize.addAndGet(-size);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%d/%d}", getClass().getSimpleName(), hashCode(), getGrantedSize(), getMaxSize());
+        }
+    }
+
+    private static class Window
+    {
+        private volatile int size;
+        private long epochNanoTime;
+        private long epochBytes;
+        private boolean closed;
+
+        private Window(int size)
+        {
+            this.size = size;
+        }
+    }
+}
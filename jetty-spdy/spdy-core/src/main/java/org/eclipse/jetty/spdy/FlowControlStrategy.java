@@ -19,6 +19,7 @@
 package org.eclipse.jetty.spdy;
 
 import org.eclipse.jetty.spdy.api.DataInfo;
+import org.eclipse.jetty.spdy.api.PingResultInfo;
 
 // TODO: add methods that tell how much written and whether we're TCP congested ?
 public interface FlowControlStrategy
@@ -37,6 +38,15 @@ public interface FlowControlStrategy
 
     public void onDataConsumed(ISession session, IStream stream, DataInfo dataInfo, int delta);
 
+    /**
+     * <p>Optional interface for {@link FlowControlStrategy}s that need to be notified
+     * of the PING replies received by the session, for example to measure its round trip time.</p>
+     */
+    public interface PingListener
+    {
+        public void onPing(ISession session, PingResultInfo pingResultInfo);
+    }
+
     public static class None implements FlowControlStrategy
     {
         private volatile int windowSize;
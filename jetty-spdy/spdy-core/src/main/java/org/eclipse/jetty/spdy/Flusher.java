@@ -123,6 +123,43 @@ public class Flusher
         }
     }
 
+    /**
+     * <p>Re-enqueues a frame that has been partially written, typically the continuation
+     * of a {@link StandardSession.DataFrameBytes} chunk.</p>
+     * <p>The frame is placed after the frames of other streams with the same priority,
+     * so that streams of equal priority are served round-robin one chunk at a time,
+     * but before any frame already queued for its own stream, so that the frames of
+     * a stream are always written in order.</p>
+     *
+     * @param frameBytes the frame to re-enqueue
+     * @return the failure of this flusher, or null if the frame has been enqueued
+     */
+    public Throwable reschedule(StandardSession.FrameBytes frameBytes)
+    {
+        synchronized (lock)
+        {
+            Throwable failure = this.failure;
+            if (failure == null)
+            {
+                // In a single pass, find the end of the frames with the same or
+                // higher priority, but never overtake a frame of the same stream
+                IStream stream = frameBytes.getStream();
+                int index = 0;
+                int size = queue.size();
+                for (int i = 0; i < size; ++i)
+                {
+                    StandardSession.FrameBytes element = queue.getUnsafe(i);
+                    if (stream != null && element.getStream() == stream)
+                        break;
+                    if (element.compareTo(frameBytes) >= 0)
+                        index = i + 1;
+                }
+                queue.add(index, frameBytes);
+            }
+            return failure;
+        }
+    }
+
     public void flush()
     {
         callback.iterate();
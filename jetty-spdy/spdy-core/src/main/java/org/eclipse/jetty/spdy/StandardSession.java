@@ -86,6 +86,15 @@ import org.eclipse.jetty.util.thread.Scheduler;
 public class StandardSession implements ISession, Parser.Listener, Dumpable
 {
     private static final Logger LOG = Log.getLogger(Session.class);
+    /**
+     * The maximum length of a DATA frame payload, as encoded in 24 bits.
+     */
+    public static final int MAX_DATA_FRAME_SIZE = 0xFFFFFF;
+    /**
+     * The default maximum length of a DATA frame payload, small enough that streams
+     * with the same priority take turns often, for example CSS between the chunks of a download.
+     */
+    public static final int DEFAULT_MAX_DATA_FRAME_SIZE = 16 * 1024;
 
     private final Flusher flusher;
     private final Map<String, Object> attributes = new ConcurrentHashMap<>();
@@ -107,6 +116,7 @@ public class StandardSession implements ISession, Parser.Listener, Dumpable
     private final AtomicInteger localStreamCount = new AtomicInteger(0);
     private final FlowControlStrategy flowControlStrategy;
     private volatile int maxConcurrentLocalStreams = -1;
+    private volatile int maxDataFrameSize = DEFAULT_MAX_DATA_FRAME_SIZE;
 
     public StandardSession(short version, ByteBufferPool bufferPool, Scheduler scheduler,
                            Controller controller, EndPoint endPoint, IdleListener idleListener, int initialStreamId,
@@ -133,6 +143,28 @@ public class StandardSession implements ISession, Parser.Listener, Dumpable
         return version;
     }
 
+    /**
+     * @return the maximum number of bytes written in a single DATA frame, by default {@link #DEFAULT_MAX_DATA_FRAME_SIZE}
+     * @see #setMaxDataFrameSize(int)
+     */
+    public int getMaxDataFrameSize()
+    {
+        return maxDataFrameSize;
+    }
+
+    /**
+     * <p>Sets the maximum number of bytes written in a single DATA frame.</p>
+     * <p>Large content is split in chunks of at most this size, and streams with the
+     * same priority take turns writing their chunks, so that a large download does not
+     * starve the other streams of the session.</p>
+     *
+     * @param maxDataFrameSize the maximum DATA frame size, or a non positive value for the protocol maximum
+     */
+    public void setMaxDataFrameSize(int maxDataFrameSize)
+    {
+        this.maxDataFrameSize = maxDataFrameSize > 0 ? Math.min(maxDataFrameSize, MAX_DATA_FRAME_SIZE) : MAX_DATA_FRAME_SIZE;
+    }
+
     @Override
     public void addListener(Listener listener)
     {
@@ -719,6 +751,8 @@ public class StandardSession implements ISession, Parser.Listener, Dumpable
         if (pingId % 2 == pingIds.get() % 2)
         {
             PingResultInfo pingResultInfo = new PingResultInfo(frame.getPingId());
+            if (flowControlStrategy instanceof FlowControlStrategy.PingListener)
+                ((FlowControlStrategy.PingListener)flowControlStrategy).onPing(this, pingResultInfo);
             notifyOnPing(listener, pingResultInfo);
         }
         else
@@ -1197,23 +1231,14 @@ public class StandardSession implements ISession, Parser.Listener, Dumpable
                 IStream stream = getStream();
                 int windowSize = stream.getWindowSize();
 
-                // TODO: optimization
-                // Right now, we use the windowSize to chunk big buffers.
-                // However, if the window size is large, we may congest the
-                // connection, or favor one stream that does a big download,
-                // starving the other streams.
-                // Also, SPDY DATA frames have a maximum of 16 MiB size, which
-                // is not enforced here.
-                // We should have a configurable "preferredDataFrameSize"
-                // (or even better autotuning) that will allow to send chunks
-                // that will not starve other streams and small enough to
-                // not congest the connection, while avoiding to send too many
-                // TCP packets.
-                // See also comment in class Flusher.
-
+                // Chunk big buffers to the window size and to the max data
+                // frame size, so that a stream doing a big download does not
+                // starve the other streams (see Flusher.reschedule()).
                 size = dataInfo.available();
                 if (size > windowSize)
                     size = windowSize;
+                if (size > maxDataFrameSize)
+                    size = maxDataFrameSize;
 
                 buffer = generator.data(stream.getId(), size, dataInfo);
                 return buffer;
@@ -1236,8 +1261,9 @@ public class StandardSession implements ISession, Parser.Listener, Dumpable
             {
                 // We have written a frame out of this DataInfo, but there is more to write.
                 // We need to keep the correct ordering of frames, to avoid that another
-                // DataInfo for the same stream is written before this one is finished.
-                flush(this, flusher.prepend(this));
+                // DataInfo for the same stream is written before this one is finished,
+                // while letting other streams with the same priority write their chunk.
+                flush(this, flusher.reschedule(this));
             }
             else
             {
@@ -0,0 +1,270 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.spdy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.spdy.api.PingInfo;
+import org.eclipse.jetty.spdy.api.PingResultInfo;
+import org.eclipse.jetty.spdy.api.Session;
+import org.eclipse.jetty.spdy.api.Stream;
+import org.eclipse.jetty.util.Promise;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AdaptiveFlowControlStrategyTest
+{
+    private IStream newStream()
+    {
+        final Map<String, Object> attributes = new HashMap<>();
+        IStream stream = mock(IStream.class);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation)
+            {
+                Object[] args = invocation.getArguments();
+                attributes.put((String)args[0], args[1]);
+                return null;
+            }
+        }).when(stream).setAttribute(anyString(), any());
+        when(stream.getAttribute(anyString())).thenAnswer(new Answer<Object>()
+        {
+            @Override
+            public Object answer(InvocationOnMock invocation)
+            {
+                return attributes.get((String)invocation.getArguments()[0]);
+            }
+        });
+        return stream;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void measureRoundTrip(AdaptiveFlowControlStrategy strategy, ISession session)
+    {
+        ArgumentCaptor<Promise> promise = ArgumentCaptor.forClass(Promise.class);
+        verify(session).ping(any(PingInfo.class), promise.capture());
+        PingResultInfo pingResultInfo = new PingResultInfo(1);
+        promise.getValue().succeeded(pingResultInfo);
+        strategy.onPing(session, pingResultInfo);
+    }
+
+    @Test
+    public void testNoGrowthWithoutRoundTrip() throws Exception
+    {
+        AdaptiveFlowControlStrategy strategy = new AdaptiveFlowControlStrategy(65536, 1024 * 1024, new AdaptiveFlowControlStrategy.WindowBudget(1024 * 1024));
+        ISession session = mock(ISession.class);
+        IStream stream = newStream();
+        when(session.getStreams()).thenReturn(Collections.<Stream>singleton(stream));
+
+        strategy.onNewStream(session, stream);
+
+        Assert.assertThat(strategy.getRoundTripTime(), is(-1L));
+        Assert.assertThat(strategy.grow(session, stream, 65536), is(0));
+    }
+
+    @Test
+    public void testGrowthBoundedByStreamMax() throws Exception
+    {
+        AdaptiveFlowControlStrategy strategy = new AdaptiveFlowControlStrategy(65536, 196608, new AdaptiveFlowControlStrategy.WindowBudget(1024 * 1024));
+        ISession session = mock(ISession.class);
+        IStream stream = newStream();
+        when(session.getStreams()).thenReturn(Collections.<Stream>singleton(stream));
+
+        strategy.onNewStream(session, stream);
+        measureRoundTrip(strategy, session);
+
+        Assert.assertThat(strategy.grow(session, stream, 40000), is(65536));
+        Assert.assertThat(strategy.grow(session, stream, 80000), is(65536));
+        Assert.assertThat(strategy.grow(session, stream, 120000), is(0));
+    }
+
+    @Test
+    public void testGrowthBoundedByBudget() throws Exception
+    {
+        AdaptiveFlowControlStrategy strategy = new AdaptiveFlowControlStrategy(65536, 1024 * 1024, new AdaptiveFlowControlStrategy.WindowBudget(100000));
+        ISession session = mock(ISession.class);
+        IStream stream1 = newStream();
+        IStream stream2 = newStream();
+        when(session.getStreams()).thenReturn(new HashSet<Stream>(Arrays.<Stream>asList(stream1, stream2)));
+
+        strategy.onNewStream(session, stream1);
+        measureRoundTrip(strategy, session);
+        strategy.onNewStream(session, stream2);
+
+        Assert.assertThat(strategy.grow(session, stream1, 40000), is(65536));
+        Assert.assertThat(strategy.grow(session, stream2, 40000), is(100000 - 65536));
+    }
+
+    @Test
+    public void testBudgetSharedBySessions() throws Exception
+    {
+        AdaptiveFlowControlStrategy.WindowBudget budget = new AdaptiveFlowControlStrategy.WindowBudget(100000);
+        AdaptiveFlowControlStrategy strategy1 = new AdaptiveFlowControlStrategy(65536, 1024 * 1024, budget);
+        AdaptiveFlowControlStrategy strategy2 = new AdaptiveFlowControlStrategy(65536, 1024 * 1024, budget);
+        ISession session1 = mock(ISession.class);
+        ISession session2 = mock(ISession.class);
+        IStream stream1 = newStream();
+        IStream stream2 = newStream();
+
+        strategy1.onNewStream(session1, stream1);
+        measureRoundTrip(strategy1, session1);
+        strategy2.onNewStream(session2, stream2);
+        measureRoundTrip(strategy2, session2);
+        ArgumentCaptor<Session.Listener> listener = ArgumentCaptor.forClass(Session.Listener.class);
+        verify(session1).addListener(listener.capture());
+
+        Assert.assertThat(strategy1.grow(session1, stream1, 40000), is(65536));
+        // The other session only gets what is left of the shared budget
+        Assert.assertThat(strategy2.grow(session2, stream2, 40000), is(100000 - 65536));
+        Assert.assertThat(budget.getGrantedSize(), is(100000L));
+        Assert.assertThat(strategy2.getGrantedWindowSize(), is(100000L - 65536));
+
+        // Closing a stream of one session makes room for the other
+        ((Session.StreamListener)listener.getValue()).onStreamClosed(stream1);
+        Assert.assertThat(budget.getGrantedSize(), is(100000L - 65536));
+        Assert.assertThat(strategy2.grow(session2, stream2, 2 * (65536 + 100000 - 65536)), is(65536));
+        Assert.assertThat(budget.getGrantedSize(), is(100000L));
+    }
+
+    @Test
+    public void testGrowthReleasedWhenStreamCloses() throws Exception
+    {
+        AdaptiveFlowControlStrategy strategy = new AdaptiveFlowControlStrategy(65536, 1024 * 1024, new AdaptiveFlowControlStrategy.WindowBudget(100000));
+        ISession session = mock(ISession.class);
+        IStream stream1 = newStream();
+        IStream stream2 = newStream();
+
+        strategy.onNewStream(session, stream1);
+        measureRoundTrip(strategy, session);
+        strategy.onNewStream(session, stream2);
+        ArgumentCaptor<Session.Listener> listener = ArgumentCaptor.forClass(Session.Listener.class);
+        verify(session).addListener(listener.capture());
+
+        Assert.assertThat(strategy.grow(session, stream1, 40000), is(65536));
+        Assert.assertThat(strategy.getGrantedWindowSize(), is(65536L));
+
+        ((Session.StreamListener)listener.getValue()).onStreamClosed(stream1);
+        Assert.assertThat(strategy.getGrantedWindowSize(), is(0L));
+        Assert.assertThat(strategy.grow(session, stream1, 200000), is(0));
+
+        Assert.assertThat(strategy.grow(session, stream2, 40000), is(65536));
+        Assert.assertThat(strategy.getGrantedWindowSize(), is(65536L));
+    }
+
+    @Test
+    public void testConcurrentGrowthBoundedByBudget() throws Exception
+    {
+        final int streams = 16;
+        final AdaptiveFlowControlStrategy strategy = new AdaptiveFlowControlStrategy(65536, 1024 * 1024, new AdaptiveFlowControlStrategy.WindowBudget(100000));
+        final ISession session = mock(ISession.class);
+        final IStream[] stream = new IStream[streams];
+        for (int i = 0; i < streams; ++i)
+        {
+            stream[i] = newStream();
+            strategy.onNewStream(session, stream[i]);
+            if (i == 0)
+                measureRoundTrip(strategy, session);
+        }
+
+        final CyclicBarrier barrier = new CyclicBarrier(streams);
+        final AtomicInteger grown = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[streams];
+        for (int i = 0; i < streams; ++i)
+        {
+            final IStream s = stream[i];
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        barrier.await();
+                        grown.addAndGet(strategy.grow(session, s, 40000));
+                    }
+                    catch (Throwable x)
+                    {
+                        failure.set(x);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        Assert.assertThat(failure.get(), nullValue());
+
+        Assert.assertThat(grown.get(), is(100000));
+        Assert.assertThat(strategy.getGrantedWindowSize(), is(100000L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLostPingReplyExpires() throws Exception
+    {
+        AdaptiveFlowControlStrategy strategy = new AdaptiveFlowControlStrategy(65536, 1024 * 1024, new AdaptiveFlowControlStrategy.WindowBudget(1024 * 1024));
+        strategy.setPingTimeout(0);
+        ISession session = mock(ISession.class);
+        IStream stream1 = newStream();
+        IStream stream2 = newStream();
+        when(session.getStreams()).thenReturn(new HashSet<Stream>(Arrays.<Stream>asList(stream1, stream2)));
+
+        // The reply to the first PING is lost
+        strategy.onNewStream(session, stream1);
+        ArgumentCaptor<Promise> promise = ArgumentCaptor.forClass(Promise.class);
+        verify(session).ping(any(PingInfo.class), promise.capture());
+        promise.getValue().succeeded(new PingResultInfo(1));
+        Thread.sleep(1);
+
+        // A new stream sends another PING once the first has expired
+        strategy.onNewStream(session, stream2);
+        verify(session, times(2)).ping(any(PingInfo.class), promise.capture());
+        promise.getValue().succeeded(new PingResultInfo(3));
+
+        // The late reply to the expired PING is not measured
+        strategy.onPing(session, new PingResultInfo(1));
+        Assert.assertThat(strategy.getRoundTripTime(), is(-1L));
+
+        strategy.onPing(session, new PingResultInfo(3));
+        Assert.assertThat(strategy.getRoundTripTime() >= 0, is(true));
+    }
+}
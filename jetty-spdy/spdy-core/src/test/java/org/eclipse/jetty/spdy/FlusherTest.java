@@ -0,0 +1,143 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.spdy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FlusherTest
+{
+    private final List<String> written = new ArrayList<>();
+    private final Flusher flusher = new Flusher(new Controller()
+    {
+        @Override
+        public void write(Callback callback, ByteBuffer... buffers)
+        {
+            // Never complete the callback, so that a single write is captured
+            for (ByteBuffer buffer : buffers)
+                written.add(BufferUtil.toString(buffer, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close(boolean onlyOutput)
+        {
+        }
+    });
+
+    private IStream newStream(byte priority)
+    {
+        IStream stream = mock(IStream.class);
+        when(stream.getPriority()).thenReturn(priority);
+        when(stream.getWindowSize()).thenReturn(65536);
+        return stream;
+    }
+
+    @Test
+    public void testRescheduleAfterOtherStreamsWithSamePriority() throws Exception
+    {
+        IStream streamA = newStream((byte)3);
+        IStream streamB = newStream((byte)3);
+        IStream streamC = newStream((byte)7);
+
+        flusher.append(new TestFrameBytes(streamB, "B1"));
+        flusher.append(new TestFrameBytes(streamC, "C1"));
+        flusher.reschedule(new TestFrameBytes(streamA, "A1"));
+        flusher.flush();
+
+        Assert.assertThat(written, contains("B1", "A1", "C1"));
+    }
+
+    @Test
+    public void testRescheduleBeforeFramesOfSameStream() throws Exception
+    {
+        IStream streamA = newStream((byte)3);
+        IStream streamB = newStream((byte)3);
+
+        flusher.append(new TestFrameBytes(streamA, "A2"));
+        flusher.append(new TestFrameBytes(streamB, "B1"));
+        flusher.reschedule(new TestFrameBytes(streamA, "A1"));
+        flusher.flush();
+
+        Assert.assertThat(written, contains("A1", "A2", "B1"));
+    }
+
+    @Test
+    public void testRescheduleAfterHigherPriority() throws Exception
+    {
+        IStream streamA = newStream((byte)5);
+        IStream streamB = newStream((byte)0);
+
+        flusher.append(new TestFrameBytes(streamB, "B1"));
+        flusher.reschedule(new TestFrameBytes(streamA, "A1"));
+        flusher.flush();
+
+        Assert.assertThat(written, contains("B1", "A1"));
+    }
+
+    private static class TestFrameBytes implements StandardSession.FrameBytes
+    {
+        private final IStream stream;
+        private final String content;
+
+        private TestFrameBytes(IStream stream, String content)
+        {
+            this.stream = stream;
+            this.content = content;
+        }
+
+        @Override
+        public IStream getStream()
+        {
+            return stream;
+        }
+
+        @Override
+        public ByteBuffer getByteBuffer()
+        {
+            return BufferUtil.toBuffer(content, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int compareTo(StandardSession.FrameBytes that)
+        {
+            return that.getStream().getPriority() - getStream().getPriority();
+        }
+
+        @Override
+        public void succeeded()
+        {
+        }
+
+        @Override
+        public void failed(Throwable x)
+        {
+        }
+    }
+}
@@ -20,7 +20,11 @@ package org.eclipse.jetty.spdy;
 
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -71,6 +75,7 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
@@ -566,6 +571,58 @@ public class StandardSessionTest
         threadPool.awaitTermination(60, TimeUnit.SECONDS);
     }
 
+    @Test
+    public void testLargeAndSmallStreamsInterleave() throws Exception
+    {
+        // Hold the writes until the test completes them, so that frames of both streams are queued
+        final List<String> dataFrames = new ArrayList<>();
+        final Queue<Callback> writes = new ArrayDeque<>();
+        Controller controller = new Controller()
+        {
+            @Override
+            public void write(Callback callback, ByteBuffer... buffers)
+            {
+                for (ByteBuffer buffer : buffers)
+                {
+                    // DATA frames have the control bit clear
+                    if ((buffer.get(buffer.position()) & 0x80) == 0)
+                    {
+                        int streamId = buffer.getInt(buffer.position()) & 0x7F_FF_FF_FF;
+                        int length = buffer.getInt(buffer.position() + 4) & 0xFF_FF_FF;
+                        dataFrames.add(streamId + ":" + length);
+                    }
+                }
+                writes.offer(callback);
+            }
+
+            @Override
+            public void close(boolean onlyOutput)
+            {
+            }
+        };
+        StandardSession session = new StandardSession(SPDY.V3, bufferPool, scheduler, controller, endPoint, null, 1, null,
+                generator, new SPDYv3FlowControlStrategy());
+        session.setWindowSize(65536);
+
+        FuturePromise<Stream> largePromise = new FuturePromise<>();
+        session.syn(new SynInfo(headers, false, (byte)3), new StreamFrameListener.Adapter(), largePromise);
+        FuturePromise<Stream> smallPromise = new FuturePromise<>();
+        session.syn(new SynInfo(headers, false, (byte)3), new StreamFrameListener.Adapter(), smallPromise);
+        while (!writes.isEmpty())
+            writes.poll().succeeded();
+        Stream large = largePromise.get(5, TimeUnit.SECONDS);
+        Stream small = smallPromise.get(5, TimeUnit.SECONDS);
+
+        // The first chunk of the large download is written before the small response is queued
+        large.data(new ByteBufferDataInfo(ByteBuffer.allocate(3 * StandardSession.DEFAULT_MAX_DATA_FRAME_SIZE), true), new Callback.Adapter());
+        small.data(new ByteBufferDataInfo(ByteBuffer.allocate(1024), true), new Callback.Adapter());
+        while (!writes.isEmpty())
+            writes.poll().succeeded();
+
+        String chunk = large.getId() + ":" + StandardSession.DEFAULT_MAX_DATA_FRAME_SIZE;
+        Assert.assertThat(dataFrames, contains(chunk, small.getId() + ":1024", chunk, chunk));
+    }
+
     private class ControllerMock implements Controller
     {
         long lastStreamId = 0;
@@ -58,7 +58,8 @@ public class HttpConnectionOverSPDY extends HttpConnection
 
     protected void release(HttpChannel channel)
     {
-        channels.remove(channel);
+        if (channels.remove(channel))
+            getHttpDestination().release(this);
     }
 
     @Override
@@ -29,11 +29,13 @@ import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.server.AbstractConnectionFactory;
 import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.spdy.AdaptiveFlowControlStrategy;
 import org.eclipse.jetty.spdy.CompressionFactory;
 import org.eclipse.jetty.spdy.FlowControlStrategy;
 import org.eclipse.jetty.spdy.StandardCompressionFactory;
 import org.eclipse.jetty.spdy.StandardSession;
 import org.eclipse.jetty.spdy.api.GoAwayInfo;
+import org.eclipse.jetty.spdy.api.SPDY;
 import org.eclipse.jetty.spdy.api.Session;
 import org.eclipse.jetty.spdy.api.server.ServerSessionFrameListener;
 import org.eclipse.jetty.spdy.client.FlowControlStrategyFactory;
@@ -82,6 +84,10 @@ public class SPDYServerConnectionFactory extends AbstractConnectionFactory
     private final short version;
     private final ServerSessionFrameListener listener;
     private int initialWindowSize;
+    private int maxDataFrameSize = StandardSession.DEFAULT_MAX_DATA_FRAME_SIZE;
+    private boolean adaptiveFlowControl;
+    private int maxStreamWindowSize = 16 * 1024 * 1024;
+    private final AdaptiveFlowControlStrategy.WindowBudget windowBudget = new AdaptiveFlowControlStrategy.WindowBudget(Runtime.getRuntime().maxMemory() / 16);
     private boolean dispatchIO;
 
     public SPDYServerConnectionFactory(int version)
@@ -126,6 +132,7 @@ public class SPDYServerConnectionFactory extends AbstractConnectionFactory
                 connector.getScheduler(), connection, endPoint, connection, 2, listener,
                 generator, flowControlStrategy);
         session.setWindowSize(getInitialWindowSize());
+        session.setMaxDataFrameSize(getMaxDataFrameSize());
         parser.addListener(session);
         connection.setSession(session);
 
@@ -136,6 +143,8 @@ public class SPDYServerConnectionFactory extends AbstractConnectionFactory
 
     protected FlowControlStrategy newFlowControlStrategy(short version)
     {
+        if (isAdaptiveFlowControl() && version == SPDY.V3)
+            return new AdaptiveFlowControlStrategy(getInitialWindowSize(), getMaxStreamWindowSize(), windowBudget);
         return FlowControlStrategyFactory.newFlowControlStrategy(version);
     }
 
@@ -155,6 +164,71 @@ public class SPDYServerConnectionFactory extends AbstractConnectionFactory
         this.initialWindowSize = initialWindowSize;
     }
 
+    @ManagedAttribute("Max DATA frame size, 0 for the protocol maximum")
+    public int getMaxDataFrameSize()
+    {
+        return maxDataFrameSize;
+    }
+
+    /**
+     * @param maxDataFrameSize the max number of bytes written in a single DATA frame, by default
+     * {@link StandardSession#DEFAULT_MAX_DATA_FRAME_SIZE}, or 0 to only bound DATA frames by the flow control window
+     * @see StandardSession#setMaxDataFrameSize(int)
+     */
+    public void setMaxDataFrameSize(int maxDataFrameSize)
+    {
+        this.maxDataFrameSize = maxDataFrameSize;
+    }
+
+    @ManagedAttribute("Auto-tune the receive window of SPDY/3 streams")
+    public boolean isAdaptiveFlowControl()
+    {
+        return adaptiveFlowControl;
+    }
+
+    /**
+     * @param adaptiveFlowControl whether SPDY/3 sessions should use an {@link AdaptiveFlowControlStrategy}
+     */
+    public void setAdaptiveFlowControl(boolean adaptiveFlowControl)
+    {
+        this.adaptiveFlowControl = adaptiveFlowControl;
+    }
+
+    @ManagedAttribute("The max receive window size of a SPDY/3 stream with adaptive flow control")
+    public int getMaxStreamWindowSize()
+    {
+        return maxStreamWindowSize;
+    }
+
+    /**
+     * @param maxStreamWindowSize the max size that the receive window of a stream may grow to with adaptive flow control
+     */
+    public void setMaxStreamWindowSize(int maxStreamWindowSize)
+    {
+        this.maxStreamWindowSize = maxStreamWindowSize;
+    }
+
+    @ManagedAttribute("The max receive window size granted beyond the initial window to the streams of all SPDY/3 sessions with adaptive flow control")
+    public long getMaxGrantedWindowSize()
+    {
+        return windowBudget.getMaxSize();
+    }
+
+    /**
+     * @param maxGrantedWindowSize the max receive window size that may be granted beyond the initial window
+     * to the streams of all the sessions of this factory with adaptive flow control, by default 1/16 of the max heap
+     */
+    public void setMaxGrantedWindowSize(long maxGrantedWindowSize)
+    {
+        windowBudget.setMaxSize(maxGrantedWindowSize);
+    }
+
+    @ManagedAttribute("The receive window size granted beyond the initial window to the streams of all SPDY/3 sessions with adaptive flow control")
+    public long getGrantedWindowSize()
+    {
+        return windowBudget.getGrantedSize();
+    }
+
     @ManagedAttribute("Dispatch I/O to a pooled thread")
     public boolean isDispatchIO()
     {
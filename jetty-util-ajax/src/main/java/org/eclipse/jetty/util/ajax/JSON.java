@@ -23,13 +23,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.Loader;
 import org.eclipse.jetty.util.QuotedStringTokenizer;
@@ -92,7 +97,11 @@ public class JSON
     static final Logger LOG = Log.getLogger(JSON.class);
     public final static JSON DEFAULT = new JSON();
 
+    private static final Convertor NO_CONVERTOR = new JSONObjectConvertor();
+
     private Map<String, Convertor> _convertors = new ConcurrentHashMap<String, Convertor>();
+    private final AtomicInteger _convertorsVersion = new AtomicInteger();
+    private volatile Resolved _resolved = new Resolved(-1);
     private int _stringBufferSize = 1024;
 
     public JSON()
@@ -206,6 +215,17 @@ public class JSON
         return DEFAULT.parse(new ReaderSource(in),stripOuterComment);
     }
 
+    /**
+     * @param buffer
+     *            UTF-8 encoded JSON object or array. The position of the
+     *            buffer is advanced past the parsed content.
+     * @return A Map, Object array or primitive array parsed from the JSON.
+     */
+    public static Object parse(ByteBuffer buffer)
+    {
+        return DEFAULT.parse(new ByteBufferSource(buffer),false);
+    }
+
     /**
      * @deprecated use {@link #parse(Reader)}
      * @param in
@@ -246,6 +266,27 @@ public class JSON
         return buffer.toString();
     }
 
+    /**
+     * Convert Object to UTF-8 encoded JSON
+     * <p>
+     * The JSON is encoded directly into the passed buffer, which may have
+     * been acquired from a buffer pool. If the buffer is too small, a
+     * larger buffer is allocated, the content is copied to it and it is
+     * returned instead.
+     *
+     * @param object
+     *            The object to convert
+     * @param buffer
+     *            The buffer, in flush mode, to which the JSON is appended
+     * @return The buffer, in flush mode, holding the JSON
+     */
+    public ByteBuffer toJSON(Object object, ByteBuffer buffer)
+    {
+        ByteBufferAppendable appendable = new ByteBufferAppendable(buffer);
+        append(appendable,object);
+        return appendable.getByteBuffer();
+    }
+
     /**
      * Convert JSON to Object
      *
@@ -259,6 +300,19 @@ public class JSON
         return parse(source);
     }
 
+    /**
+     * Convert UTF-8 encoded JSON to Object
+     *
+     * @param buffer
+     *            The json to convert, which is decoded without first
+     *            converting it to a String
+     * @return The object
+     */
+    public Object fromJSON(ByteBuffer buffer)
+    {
+        return parse(new ByteBufferSource(buffer));
+    }
+
     @Deprecated
     public void append(StringBuffer buffer, Object object)
     {
@@ -632,6 +686,7 @@ public class JSON
     public void addConvertor(Class forClass, Convertor convertor)
     {
         _convertors.put(forClass.getName(),convertor);
+        _convertorsVersion.incrementAndGet();
     }
 
     /**
@@ -640,6 +695,10 @@ public class JSON
      * If no match is found for the class, then the interfaces for the class are
      * tried. If still no match is found, then the super class and it's
      * interfaces are tried recursively.
+     * <p>
+     * The result of the lookup is cached per class until a convertor is
+     * added to this instance or to {@link #DEFAULT}. The cache holds the classes 
+     * weakly, so it does not prevent them, nor their class loaders, from being unloaded.
      *
      * @param forClass
      *            The class
@@ -647,14 +706,48 @@ public class JSON
      */
     protected Convertor getConvertor(Class forClass)
     {
-        Class cls = forClass;
+        long version = getConvertorsVersion();
+        Resolved resolved = _resolved;
+        if (resolved._version != version)
+        {
+            // Replace rather than clear the cache, so that a lookup that raced
+            // with an added convertor can only populate the discarded cache
+            resolved = new Resolved(version);
+            _resolved = resolved;
+        }
+
+        Convertor convertor = resolved._convertors.get(forClass);
+        if (convertor == null)
+        {
+            convertor = resolveConvertor(forClass);
+            if (getConvertorsVersion() == version)
+                resolved._convertors.put(forClass,convertor == null?NO_CONVERTOR:convertor);
+            return convertor;
+        }
+        return convertor == NO_CONVERTOR?null:convertor;
+    }
+
+    /**
+     * @return a version that changes whenever a convertor is added to this instance or to {@link #DEFAULT}
+     */
+    private long getConvertorsVersion()
+    {
+        long version = _convertorsVersion.get();
+        if (this != DEFAULT)
+            version += DEFAULT._convertorsVersion.get();
+        return version;
+    }
+
+    private Convertor resolveConvertor(Class<?> forClass)
+    {
+        Class<?> cls = forClass;
         Convertor convertor = _convertors.get(cls.getName());
         if (convertor == null && this != DEFAULT)
             convertor = DEFAULT.getConvertor(cls);
 
         while (convertor == null && cls != Object.class)
         {
-            Class[] ifs = cls.getInterfaces();
+            Class<?>[] ifs = cls.getInterfaces();
             int i = 0;
             while (convertor == null && ifs != null && i < ifs.length)
                 convertor = _convertors.get(ifs[i++].getName());
@@ -667,6 +760,21 @@ public class JSON
         return convertor;
     }
 
+    /**
+     * The convertors resolved for classes, for a version of the registered convertors.
+     */
+    private static class Resolved
+    {
+        private final long _version;
+        // weak keys, so that the classes of undeployed webapps can be unloaded
+        private final Map<Class<?>, Convertor> _convertors = Collections.synchronizedMap(new WeakHashMap<Class<?>, Convertor>());
+
+        private Resolved(long version)
+        {
+            _version = version;
+        }
+    }
+
     /**
      * Register a {@link JSON.Convertor} for a named class or interface.
      *
@@ -678,6 +786,7 @@ public class JSON
     public void addConvertorFor(String name, Convertor convertor)
     {
         _convertors.put(name,convertor);
+        _convertorsVersion.incrementAndGet();
     }
 
     /**
@@ -1530,6 +1639,274 @@ public class JSON
 
     }
 
+    /**
+     * A {@link Source} that decodes UTF-8 directly from a {@link ByteBuffer}.
+     * <p>
+     * The position of the buffer is advanced as characters are consumed.
+     * Malformed sequences are replaced with U+FFFD.
+     */
+    public static class ByteBufferSource implements Source
+    {
+        private final ByteBuffer _buffer;
+        private int _next = -1;
+        private char _lowSurrogate;
+        private char[] scratch;
+
+        public ByteBufferSource(ByteBuffer buffer)
+        {
+            _buffer = buffer;
+        }
+
+        public boolean hasNext()
+        {
+            getNext();
+            if (_next < 0)
+            {
+                scratch = null;
+                return false;
+            }
+            return true;
+        }
+
+        public char next()
+        {
+            getNext();
+            char c = (char)_next;
+            _next = -1;
+            return c;
+        }
+
+        public char peek()
+        {
+            getNext();
+            return (char)_next;
+        }
+
+        private void getNext()
+        {
+            if (_next >= 0)
+                return;
+
+            if (_lowSurrogate != 0)
+            {
+                _next = _lowSurrogate;
+                _lowSurrogate = 0;
+                return;
+            }
+
+            if (!_buffer.hasRemaining())
+                return;
+
+            int b = _buffer.get() & 0xFF;
+            if (b < 0x80)
+            {
+                _next = b;
+                return;
+            }
+
+            int code;
+            int more;
+            if ((b & 0xE0) == 0xC0)
+            {
+                code = b & 0x1F;
+                more = 1;
+            }
+            else if ((b & 0xF0) == 0xE0)
+            {
+                code = b & 0x0F;
+                more = 2;
+            }
+            else if ((b & 0xF8) == 0xF0)
+            {
+                code = b & 0x07;
+                more = 3;
+            }
+            else
+            {
+                _next = 0xFFFD;
+                return;
+            }
+
+            while (more-- > 0)
+            {
+                // A missing continuation byte is not consumed, so it is decoded as the next character
+                if (!_buffer.hasRemaining() || (_buffer.get(_buffer.position()) & 0xC0) != 0x80)
+                {
+                    _next = 0xFFFD;
+                    return;
+                }
+                code = (code << 6) | (_buffer.get() & 0x3F);
+            }
+
+            if (code > Character.MAX_CODE_POINT)
+            {
+                _next = 0xFFFD;
+            }
+            else if (code >= Character.MIN_SUPPLEMENTARY_CODE_POINT)
+            {
+                _next = Character.highSurrogate(code);
+                _lowSurrogate = Character.lowSurrogate(code);
+            }
+            else
+            {
+                _next = code;
+            }
+        }
+
+        public char[] scratchBuffer()
+        {
+            // The remaining bytes decode to at most as many chars
+            if (scratch == null)
+                scratch = new char[_buffer.remaining() + 1];
+            return scratch;
+        }
+
+        @Override
+        public String toString()
+        {
+            return BufferUtil.toDetailString(_buffer);
+        }
+    }
+
+    /**
+     * An {@link Appendable} that encodes UTF-8 directly into a {@link ByteBuffer}.
+     * <p>
+     * The buffer passed to the constructor is in flush mode and the characters
+     * are encoded after its content. When it is full, a buffer of twice the size
+     * is allocated and the content copied to it.
+     */
+    public static class ByteBufferAppendable implements Appendable
+    {
+        private ByteBuffer _buffer;
+        private int _position;
+        private char _highSurrogate;
+
+        public ByteBufferAppendable(ByteBuffer buffer)
+        {
+            _buffer = buffer;
+            _position = BufferUtil.flipToFill(buffer);
+        }
+
+        /**
+         * Complete the encoding. No characters may be appended afterwards.
+         * @return The buffer, in flush mode, holding the encoded content
+         */
+        public ByteBuffer getByteBuffer()
+        {
+            if (_highSurrogate != 0)
+            {
+                _highSurrogate = 0;
+                appendReplacement();
+            }
+            BufferUtil.flipToFlush(_buffer,_position);
+            return _buffer;
+        }
+
+        public Appendable append(CharSequence csq)
+        {
+            if (csq == null)
+                csq = "null";
+            return append(csq,0,csq.length());
+        }
+
+        public Appendable append(CharSequence csq, int start, int end)
+        {
+            if (csq == null)
+                csq = "null";
+            int i = start;
+            while (i < end)
+            {
+                // Fast path for runs of ASCII characters
+                if (_highSurrogate == 0)
+                {
+                    ensureSpace(end - i);
+                    while (i < end)
+                    {
+                        char c = csq.charAt(i);
+                        if (c >= 0x80)
+                            break;
+                        _buffer.put((byte)c);
+                        i++;
+                    }
+                }
+                if (i < end)
+                    append(csq.charAt(i++));
+            }
+            return this;
+        }
+
+        public Appendable append(char c)
+        {
+            if (_highSurrogate != 0)
+            {
+                char high = _highSurrogate;
+                _highSurrogate = 0;
+                if (Character.isLowSurrogate(c))
+                {
+                    int code = Character.toCodePoint(high,c);
+                    ensureSpace(4);
+                    _buffer.put((byte)(0xF0 | (code >> 18)));
+                    _buffer.put((byte)(0x80 | ((code >> 12) & 0x3F)));
+                    _buffer.put((byte)(0x80 | ((code >> 6) & 0x3F)));
+                    _buffer.put((byte)(0x80 | (code & 0x3F)));
+                    return this;
+                }
+                appendReplacement();
+            }
+
+            if (c < 0x80)
+            {
+                ensureSpace(1);
+                _buffer.put((byte)c);
+            }
+            else if (c < 0x800)
+            {
+                ensureSpace(2);
+                _buffer.put((byte)(0xC0 | (c >> 6)));
+                _buffer.put((byte)(0x80 | (c & 0x3F)));
+            }
+            else if (Character.isHighSurrogate(c))
+            {
+                _highSurrogate = c;
+            }
+            else if (Character.isLowSurrogate(c))
+            {
+                appendReplacement();
+            }
+            else
+            {
+                ensureSpace(3);
+                _buffer.put((byte)(0xE0 | (c >> 12)));
+                _buffer.put((byte)(0x80 | ((c >> 6) & 0x3F)));
+                _buffer.put((byte)(0x80 | (c & 0x3F)));
+            }
+            return this;
+        }
+
+        private void appendReplacement()
+        {
+            ensureSpace(3);
+            _buffer.put((byte)0xEF);
+            _buffer.put((byte)0xBF);
+            _buffer.put((byte)0xBD);
+        }
+
+        private void ensureSpace(int space)
+        {
+            if (_buffer.remaining() >= space)
+                return;
+
+            int length = _buffer.position() - _position;
+            int capacity = Math.max(_buffer.capacity() * 2,length + space);
+            ByteBuffer buffer = _buffer.isDirect()?ByteBuffer.allocateDirect(capacity):ByteBuffer.allocate(capacity);
+            _buffer.flip();
+            _buffer.position(_position);
+            buffer.put(_buffer);
+            _buffer = buffer;
+            _position = 0;
+        }
+    }
+
     /**
      * JSON Output class for use by {@link Convertible}.
      */
@@ -0,0 +1,123 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.ajax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.toolchain.test.AdvancedRunner;
+import org.eclipse.jetty.toolchain.test.annotation.Stress;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AdvancedRunner.class)
+public class JSONBenchmarkTest
+{
+    private static final Logger logger = Log.getLogger(JSONBenchmarkTest.class);
+
+    private static final String MESSAGE = "[{\"channel\":\"/chat/demo\",\"clientId\":\"1w6wbhmm4pw0pb2sbz7n8l2y4b\",\"id\":\"42\"," +
+            "\"data\":{\"user\":\"jos\\u00e9\",\"chat\":\"Hello \\u20ac world, how are you today?\",\"scope\":\"public\",\"count\":17,\"ratio\":0.25}," +
+            "\"ext\":{\"ack\":1024,\"timesync\":{\"tc\":1414141414141,\"l\":12,\"o\":-3}}}]";
+
+    private interface Codec
+    {
+        Object parse(ByteBuffer buffer);
+
+        ByteBuffer generate(Object object);
+    }
+
+    private static final JSON json = new JSON();
+
+    private static final Codec STRING = new Codec()
+    {
+        @Override
+        public Object parse(ByteBuffer buffer)
+        {
+            return json.fromJSON(BufferUtil.toString(buffer,StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public ByteBuffer generate(Object object)
+        {
+            return ByteBuffer.wrap(json.toJSON(object).getBytes(StandardCharsets.UTF_8));
+        }
+    };
+
+    private static final Codec BUFFER = new Codec()
+    {
+        @Override
+        public Object parse(ByteBuffer buffer)
+        {
+            return json.fromJSON(buffer.slice());
+        }
+
+        @Override
+        public ByteBuffer generate(Object object)
+        {
+            return json.toJSON(object,BufferUtil.allocate(512));
+        }
+    };
+
+    @Test
+    public void testCodecsAgree() throws Exception
+    {
+        ByteBuffer message = BufferUtil.toBuffer(MESSAGE,StandardCharsets.UTF_8);
+        Object[] viaString = (Object[])STRING.parse(message);
+        Object[] viaBuffer = (Object[])BUFFER.parse(message);
+        assertEquals(viaString[0],viaBuffer[0]);
+        assertEquals(STRING.generate(viaString[0]),BUFFER.generate(viaBuffer[0]));
+    }
+
+    @Stress("High CPU")
+    @Test
+    public void testCodecs() throws Exception
+    {
+        int iterations = 512 * 1024;
+        int runs = 4;
+
+        for (int i = 0; i < runs; ++i)
+        {
+            long string = run(iterations, STRING);
+            long buffer = run(iterations, BUFFER);
+            logger.info("{} messages: string {} ms, buffer {} ms", iterations, string, buffer);
+        }
+    }
+
+    private long run(int iterations, Codec codec)
+    {
+        ByteBuffer message = BufferUtil.toBuffer(MESSAGE,StandardCharsets.UTF_8);
+        long bytes = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < iterations; ++i)
+        {
+            Object[] parsed = (Object[])codec.parse(message);
+            bytes += codec.generate(parsed[0]).remaining();
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        assertTrue(bytes > 0);
+        return elapsed;
+    }
+}
@@ -18,19 +18,30 @@
 
 package org.eclipse.jetty.util.ajax;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.DateCache;
+import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.ajax.JSON.Output;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -153,6 +164,90 @@ public class JSONTest
         map = (Map)JSON.parse(test);
     }
 
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testParseByteBuffer() throws Exception
+    {
+        Map map = (Map)JSON.parse(BufferUtil.toBuffer(test,StandardCharsets.UTF_8));
+
+        assertEquals(new Long(100),map.get("onehundred"));
+        assertEquals("fred",map.get("name"));
+        assertTrue(map.get("array").getClass().isArray());
+        assertTrue(map.get("w0") instanceof Woggle);
+        assertTrue(((Woggle)map.get("w0")).nested instanceof Woggle);
+
+        ByteBuffer buffer = BufferUtil.toBuffer("{\"a\":\"caf\u00e9 \u20ac \ud83d\ude00\",\"b\":[1,2.5]}",StandardCharsets.UTF_8);
+        map = (Map)new JSON().fromJSON(buffer);
+        assertEquals("caf\u00e9 \u20ac \ud83d\ude00",map.get("a"));
+        assertArrayEquals(new Object[]{1L,2.5D},(Object[])map.get("b"));
+        assertEquals(0,buffer.remaining());
+
+        // Malformed sequences are replaced
+        buffer = ByteBuffer.wrap(new byte[]{'"','a',(byte)0xC3,'b',(byte)0xFF,'"'});
+        assertEquals("a\ufffdb\ufffd",JSON.parse(buffer));
+    }
+
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testToByteBuffer() throws Exception
+    {
+        Map<String,Object> map = new HashMap<>();
+        map.put("a","caf\u00e9 \u20ac \ud83d\ude00");
+        map.put("b",new Object[]{1,"two",null});
+
+        JSON json = new JSON();
+        String expected = json.toJSON(map);
+
+        // The buffer is grown as needed
+        ByteBuffer buffer = json.toJSON(map,BufferUtil.allocate(4));
+        assertEquals(expected,BufferUtil.toString(buffer,StandardCharsets.UTF_8));
+        assertEquals(map.get("a"),((Map)json.fromJSON(buffer)).get("a"));
+
+        // Existing content is preserved
+        buffer = BufferUtil.allocateDirect(256);
+        BufferUtil.append(buffer,"x=".getBytes(StandardCharsets.UTF_8),0,2);
+        buffer = json.toJSON(map,buffer);
+        assertTrue(buffer.isDirect());
+        assertEquals("x="+expected,BufferUtil.toString(buffer,StandardCharsets.UTF_8));
+
+        // Unpaired surrogates are replaced
+        buffer = json.toJSON("\ud83d-\ude00\ud83d",BufferUtil.allocate(64));
+        assertEquals("\"\ufffd-\ufffd\ufffd\"",BufferUtil.toString(buffer,StandardCharsets.UTF_8));
+    }
+
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testConvertorLookupCache()
+    {
+        JSON json = new JSON();
+        JSON.Convertor convertor = new JSONObjectConvertor();
+        assertNull(json.getConvertor(Woggle.class));
+
+        json.addConvertor(Object.class,convertor);
+        assertEquals(convertor,json.getConvertor(Woggle.class));
+        assertEquals(convertor,json.getConvertor(Woggle.class));
+
+        JSON.Convertor woggle = new JSONObjectConvertor(false);
+        json.addConvertorFor(Woggle.class.getName(),woggle);
+        assertEquals(woggle,json.getConvertor(Woggle.class));
+
+        // Convertors added to other instances do not apply
+        new JSON().addConvertorFor(Woggle.class.getName(),new JSONObjectConvertor());
+        assertEquals(woggle,json.getConvertor(Woggle.class));
+    }
+
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testConvertorLookupCacheFollowsDefault()
+    {
+        JSON json = new JSON();
+        assertNull(json.getConvertor(Lookup.class));
+
+        JSON.Convertor convertor = new JSONObjectConvertor();
+        JSON.DEFAULT.addConvertorFor(Lookup.class.getName(),convertor);
+        assertEquals(convertor,json.getConvertor(Lookup.class));
+    }
+
     /* ------------------------------------------------------------ */
     @Test
     public void testStripComment()
@@ -406,6 +501,149 @@ public class JSONTest
 
     }
 
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testRandomByteBufferMatchesString() throws Exception
+    {
+        JSON json = new JSON();
+        long seed = 0x750AL;
+        Random random = new Random(seed);
+        for (int i = 0; i < 2000; i++)
+        {
+            Object object = randomValue(random,3);
+            String string = json.toJSON(object);
+
+            ByteBuffer buffer = random.nextBoolean()?BufferUtil.allocate(random.nextInt(64)):BufferUtil.allocateDirect(random.nextInt(64));
+            buffer = json.toJSON(object,buffer);
+            assertEquals(seed + " " + string,string,BufferUtil.toString(buffer,StandardCharsets.UTF_8));
+
+            Object fromString = json.fromJSON(string);
+            Object fromBuffer = json.fromJSON(buffer);
+            assertEquals(seed + " " + string,json.toJSON(fromString),json.toJSON(fromBuffer));
+            assertEquals(seed + " " + string,string,json.toJSON(fromBuffer));
+        }
+    }
+
+    private static Object randomValue(Random random, int depth)
+    {
+        switch (random.nextInt(depth > 0?8:6))
+        {
+            case 0:
+                return null;
+            case 1:
+                return random.nextBoolean();
+            case 2:
+                return random.nextLong();
+            case 3:
+                return random.nextDouble() * random.nextInt();
+            case 4:
+            case 5:
+                return randomString(random);
+            case 6:
+            {
+                Object[] array = new Object[random.nextInt(4)];
+                for (int i = 0; i < array.length; i++)
+                    array[i] = randomValue(random,depth - 1);
+                return array;
+            }
+            default:
+            {
+                Map<String,Object> map = new HashMap<>();
+                int size = random.nextInt(4);
+                for (int i = 0; i < size; i++)
+                    map.put(randomString(random),randomValue(random,depth - 1));
+                return map;
+            }
+        }
+    }
+
+    private static String randomString(Random random)
+    {
+        StringBuilder builder = new StringBuilder();
+        int length = random.nextInt(12);
+        for (int i = 0; i < length; i++)
+        {
+            switch (random.nextInt(6))
+            {
+                case 0:
+                    builder.append((char)random.nextInt(0x20));
+                    break;
+                case 1:
+                    builder.append("\"\\/".charAt(random.nextInt(3)));
+                    break;
+                case 2:
+                    builder.append((char)(0x80 + random.nextInt(0x780)));
+                    break;
+                case 3:
+                    builder.append((char)(0x800 + random.nextInt(0xD000)));
+                    break;
+                case 4:
+                    builder.appendCodePoint(0x10000 + random.nextInt(0x100000));
+                    break;
+                default:
+                    builder.append((char)(0x20 + random.nextInt(0x60)));
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testResolvedConvertorsDoNotPinClasses() throws Exception
+    {
+        ClassLoader loader = new IsolatedLoader(Gizmo.class.getName());
+        Class<?> gizmoClass = loader.loadClass(Gizmo.class.getName());
+        assertTrue(gizmoClass != Gizmo.class);
+        JSON.DEFAULT.toJSON(gizmoClass.newInstance());
+
+        WeakReference<Class<?>> ref = new WeakReference<Class<?>>(gizmoClass);
+        loader = null;
+        gizmoClass = null;
+
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (ref.get() != null && System.nanoTime() < end)
+        {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertNull(ref.get());
+    }
+
+    /* ------------------------------------------------------------ */
+    private static class IsolatedLoader extends ClassLoader
+    {
+        private final String _name;
+
+        private IsolatedLoader(String name)
+        {
+            super(JSONTest.class.getClassLoader());
+            _name = name;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+        {
+            if (!_name.equals(name))
+                return super.loadClass(name,resolve);
+            synchronized (this)
+            {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded != null)
+                    return loaded;
+                try (InputStream in = getParent().getResourceAsStream(name.replace('.','/') + ".class"))
+                {
+                    byte[] bytes = IO.readBytes(in);
+                    return defineClass(name,bytes,0,bytes.length);
+                }
+                catch (IOException x)
+                {
+                    throw new ClassNotFoundException(name,x);
+                }
+            }
+        }
+    }
+
     /* ------------------------------------------------------------ */
     public static class Gizmo
     {
@@ -466,4 +704,9 @@ public class JSONTest
         }
 
     }
+
+    /* ------------------------------------------------------------ */
+    public static class Lookup
+    {
+    }
 }
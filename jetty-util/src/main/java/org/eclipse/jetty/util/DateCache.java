@@ -29,12 +29,15 @@ import java.util.TimeZone;
  * the results so that subsequent requests within the same second
  * will be fast.
  *
- * Only format strings that contain either "ss".  Sub second formatting is 
- * not handled.
+ * Only format strings that contain either "ss".  Sub second formatting 
+ * is only cached for milliseconds rendered as "SSS", which are substituted 
+ * into the cached representation of the second.
  *
  * The timezone of the date may be included as an ID with the "zzz"
  * format string or as an offset with the "ZZZ" format string.
  *
+ * The current and the previous seconds are cached as Strings, so that
+ * dates of requests that started in the previous second are also fast.
  * If consecutive calls are frequently very different, then this
  * may be a little slower than a normal DateFormat.
  *
@@ -48,8 +51,10 @@ public class DateCache
     private final String _tzFormatString;
     private final SimpleDateFormat _tzFormat;
     private final Locale _locale ;
+    private final boolean _millis;
     
     private volatile Tick _tick;
+    private volatile Tick _previousTick;
 
     /* ------------------------------------------------------------ */
     /* ------------------------------------------------------------ */
@@ -57,10 +62,64 @@ public class DateCache
     {
         final long _seconds;
         final String _string;
+        final int _msIndex;
+
         public Tick(long seconds, String string)
+        {
+            this(seconds,string,-1);
+        }
+
+        Tick(long seconds, String string, int msIndex)
         {
             _seconds = seconds;
             _string = string;
+            _msIndex = msIndex;
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @return the time in seconds since the epoch of this tick
+         */
+        public long getSeconds()
+        {
+            return _seconds;
+        }
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @return the formatted second, with zero milliseconds if the format has them
+         */
+        public String getString()
+        {
+            return _string;
+        }
+
+        /* ------------------------------------------------------------ */
+        String format(long date)
+        {
+            if (_msIndex<0)
+                return _string;
+            StringBuilder buffer = new StringBuilder(_string.length());
+            append(buffer,date);
+            return buffer.toString();
+        }
+
+        /* ------------------------------------------------------------ */
+        void append(StringBuilder buffer, long date)
+        {
+            if (_msIndex<0)
+            {
+                buffer.append(_string);
+                return;
+            }
+            int ms=(int)(date%1000);
+            if (ms<0)
+                ms+=1000;
+            buffer.append(_string,0,_msIndex);
+            buffer.append((char)('0'+ms/100));
+            buffer.append((char)('0'+(ms/10)%10));
+            buffer.append((char)('0'+ms%10));
+            buffer.append(_string,_msIndex+3,_string.length());
         }
     }
 
@@ -147,6 +206,7 @@ public class DateCache
             _tzFormat=new SimpleDateFormat(_tzFormatString);
         }
         _tzFormat.setTimeZone(tz);
+        _millis=_tzFormatString.indexOf('S')>=0;
         
         _tick=null;
     }
@@ -166,48 +226,47 @@ public class DateCache
      */
     public String format(Date inDate)
     {
-        long seconds = inDate.getTime() / 1000;
-
-        Tick tick=_tick;
-        
-        // Is this the cached time
-        if (tick==null || seconds!=tick._seconds)
-        {
-            // It's a cache miss
-            synchronized (this)
-            {
-                return _tzFormat.format(inDate);
-            }
-        }
-        
-        return tick._string;
+        return format(inDate.getTime());
     }
     
     /* ------------------------------------------------------------ */
     /** Format a date according to our stored formatter.
      * If it happens to be in the same second as the last formatNow
-     * call, then the format is reused.
+     * call, or the second before it, then the format is reused.
+     * A later date within a second of the current time creates a new 
+     * cached format, while dates further in the future are formatted 
+     * without being cached.
      * @param inDate 
      * @return Formatted date
      */
     public String format(long inDate)
     {
-        long seconds = inDate / 1000;
+        Tick tick=lookup(inDate);
+        if (tick!=null)
+            return tick.format(inDate);
 
-        Tick tick=_tick;
-        
-        // Is this the cached time
-        if (tick==null || seconds!=tick._seconds)
+        // It's a cache miss
+        Date d = new Date(inDate);
+        synchronized (this)
         {
-            // It's a cache miss
-            Date d = new Date(inDate);
-            synchronized (this)
-            {
-                return _tzFormat.format(d);
-            }
+            return _tzFormat.format(d);
         }
-        
-        return tick._string;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Append a date formatted according to our stored formatter.
+     * This is equivalent to appending {@link #format(long)}, without 
+     * creating a String when the format is cached.
+     * @param buffer the buffer to append to
+     * @param inDate the date
+     */
+    public void append(StringBuilder buffer, long inDate)
+    {
+        Tick tick=lookup(inDate);
+        if (tick!=null)
+            tick.append(buffer,inDate);
+        else
+            buffer.append(format(inDate));
     }
     
     /* ------------------------------------------------------------ */
@@ -225,9 +284,16 @@ public class DateCache
         Tick tick=_tick;
         
         // Is this the cached time
-        if (tick!=null && tick._seconds==seconds)
-            return tick._string;
-        return formatTick(now)._string;
+        if (tick==null || tick._seconds!=seconds)
+            tick=formatTick(now);
+        if (_millis && tick._msIndex<0)
+        {
+            synchronized (this)
+            {
+                return _tzFormat.format(new Date(now));
+            }
+        }
+        return tick.format(now);
     }
     
     /* ------------------------------------------------------------ */
@@ -241,6 +307,33 @@ public class DateCache
     {
         return formatTick(System.currentTimeMillis());
     }
+
+    /* ------------------------------------------------------------ */
+    private Tick lookup(long inDate)
+    {
+        long seconds = inDate / 1000;
+
+        Tick tick=_tick;
+        if (tick==null || seconds>tick._seconds)
+        {
+            // Only a date close to now may advance the shared tick, otherwise
+            // a single future date would make the current second a cache miss
+            if (inDate>System.currentTimeMillis()+1000)
+                return null;
+            tick=formatTick(inDate);
+        }
+        else if (seconds!=tick._seconds)
+        {
+            tick=_previousTick;
+            if (tick==null || seconds!=tick._seconds)
+                return null;
+        }
+
+        // A format with milliseconds that cannot be substituted is not cacheable
+        if (_millis && tick._msIndex<0)
+            return null;
+        return tick;
+    }
     
     /* ------------------------------------------------------------ */
     protected Tick formatTick(long now)
@@ -251,13 +344,38 @@ public class DateCache
         synchronized (this)
         {
             // recheck the tick, to save multiple formats
-            if (_tick==null || _tick._seconds!=seconds)
+            if (_tick==null || _tick._seconds<seconds)
             {
-                String s= _tzFormat.format(new Date(now));
-                return _tick=new Tick(seconds,s);
+                _previousTick=_tick;
+                return _tick=newTick(seconds);
             }
-            return _tick;
+            if (_tick._seconds==seconds)
+                return _tick;
+            if (_previousTick!=null && _previousTick._seconds==seconds)
+                return _previousTick;
+            return newTick(seconds);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private Tick newTick(long seconds)
+    {
+        String s=_tzFormat.format(new Date(seconds*1000));
+        if (!_millis)
+            return new Tick(seconds,s,-1);
+
+        // Find where the milliseconds are rendered, so they can be substituted
+        String last=_tzFormat.format(new Date(seconds*1000+999));
+        int ms=-1;
+        if (last.length()==s.length())
+        {
+            ms=0;
+            while (ms<s.length() && s.charAt(ms)==last.charAt(ms))
+                ms++;
+            if (!s.regionMatches(ms,"000",0,3) || !last.regionMatches(ms,"999",0,3) || !s.regionMatches(ms+3,last,ms+3,s.length()-ms-3))
+                ms=-1;
         }
+        return new Tick(seconds,s,ms);
     }
 
     /* ------------------------------------------------------------ */
@@ -29,6 +29,7 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -37,7 +38,9 @@ import java.util.List;
 import java.util.Locale;
 
 import javax.servlet.MultipartConfigElement;
+import javax.servlet.ReadListener;
 import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
 import javax.servlet.http.Part;
 
 import org.eclipse.jetty.util.log.Log;
@@ -49,6 +52,12 @@ import org.eclipse.jetty.util.log.Logger;
  * MultiPartInputStream
  *
  * Handle a MultiPart Mime input stream, breaking it up on the boundary into files and strings.
+ * <p>
+ * The content may either be read from the blocking input stream by {@link #getParts()},
+ * or be fed without blocking to {@link #parse(ByteBuffer, boolean)}, for example
+ * by the {@link ReadListener} installed by {@link #parse(ServletInputStream, Callback)}.
+ * The latter uses a {@link MultiPartParser} and streams the content of each part to 
+ * memory or to a file as it arrives.
  */
 public class MultiPartInputStreamParser
 {
@@ -61,6 +70,8 @@ public class MultiPartInputStreamParser
     protected File _tmpDir;
     protected File _contextTmpDir;
     protected boolean _deleteOnExit;
+    protected MultiPartParser _parser;
+    private PartHandler _handler;
 
 
 
@@ -435,7 +446,11 @@ public class MultiPartInputStreamParser
     {
         //have we already parsed the input?
         if (_parts != null)
+        {
+            if (_parser != null && !_parser.isComplete())
+                throw new IllegalStateException("Multipart content is being parsed without blocking");
             return;
+        }
 
         //initialize
         long total = 0; //keep running total of size of bytes read from input and throw an exception if exceeds MultipartConfigElement._maxRequestSize
@@ -446,33 +461,9 @@ public class MultiPartInputStreamParser
             return;
 
         //sort out the location to which to write the files
+        initTmpDir();
 
-        if (_config.getLocation() == null)
-            _tmpDir = _contextTmpDir;
-        else if ("".equals(_config.getLocation()))
-            _tmpDir = _contextTmpDir;
-        else
-        {
-            File f = new File (_config.getLocation());
-            if (f.isAbsolute())
-                _tmpDir = f;
-            else
-                _tmpDir = new File (_contextTmpDir, _config.getLocation());
-        }
-
-        if (!_tmpDir.exists())
-            _tmpDir.mkdirs();
-
-        String contentTypeBoundary = "";
-        int bstart = _contentType.indexOf("boundary=");
-        if (bstart >= 0)
-        {
-            int bend = _contentType.indexOf(";", bstart);
-            bend = (bend < 0? _contentType.length(): bend);
-            contentTypeBoundary = QuotedStringTokenizer.unquote(value(_contentType.substring(bstart,bend)).trim());
-        }
-        
-        String boundary="--"+contentTypeBoundary;
+        String boundary="--"+getBoundary();
         byte[] byteBoundary=(boundary+"--").getBytes(StandardCharsets.ISO_8859_1);
 
         // Get first boundary
@@ -730,6 +721,366 @@ public class MultiPartInputStreamParser
             throw new IOException("Incomplete parts");
     }
     
+    /**
+     * Parse, without blocking, some of the multipart content.
+     * <p>
+     * The content is passed to a {@link MultiPartParser} and the content of each
+     * part is written to memory or to a file as it arrives, so that the 
+     * caller need not wait for nor buffer the whole request.  Once this method 
+     * has returned true, {@link #getParts()} returns the parsed parts.
+     * 
+     * @param content the next content of the request, which is consumed
+     * @param last true if this is the last content of the request
+     * @return true if all the parts have been parsed
+     * @throws IOException if the content is badly formatted or a part cannot be written
+     * @throws IllegalStateException if the content exceeds the configured maximum sizes
+     */
+    public boolean parse(ByteBuffer content, boolean last)
+    throws IOException
+    {
+        if (_parser == null)
+        {
+            //already parsed from the input stream?
+            if (_parts != null)
+                return true;
+            _parts = new MultiMap<Part>();
+
+            //if its not a multipart request, don't parse it
+            if (_contentType == null || !_contentType.startsWith("multipart/form-data"))
+                return true;
+
+            _handler = new PartHandler();
+            _parser = new MultiPartParser(_handler, getBoundary());
+        }
+
+        if (_handler._failure == null)
+            _parser.parse(content, last);
+        if (_handler._failure != null)
+            throw _handler._failure;
+        if (last && !_parser.isComplete())
+            throw new IOException("Incomplete parts");
+        return _parser.isComplete();
+    }
+
+    /**
+     * Parse the multipart content asynchronously.
+     * <p>
+     * A {@link ReadListener} is set on the input stream, which must be in async mode,
+     * and it feeds the content to {@link #parse(ByteBuffer, boolean)} as it 
+     * becomes available, so no thread waits for content to arrive.
+     * 
+     * @param in the request input stream
+     * @param callback succeeded once all the parts have been parsed, or failed
+     * if the content is bad or cannot be read, in which case any temporary
+     * files are deleted
+     */
+    public void parse(final ServletInputStream in, final Callback callback)
+    {
+        in.setReadListener(new ReadListener()
+        {
+            private final byte[] _buffer = new byte[8192];
+            private boolean _done;
+
+            @Override
+            public void onDataAvailable() throws IOException
+            {
+                while (!_done && in.isReady())
+                {
+                    int len = in.read(_buffer);
+                    if (len < 0)
+                        break;
+                    parse(ByteBuffer.wrap(_buffer, 0, len), false);
+                }
+            }
+
+            @Override
+            public void onAllDataRead() throws IOException
+            {
+                if (_done)
+                    return;
+                parse(BufferUtil.EMPTY_BUFFER, true);
+                _done = true;
+                callback.succeeded();
+            }
+
+            @Override
+            public void onError(Throwable t)
+            {
+                if (_done)
+                    return;
+                _done = true;
+                try
+                {
+                    deleteParts();
+                }
+                catch (MultiException e)
+                {
+                    LOG.ignore(e);
+                }
+                callback.failed(t);
+            }
+        });
+    }
+
+    /**
+     * Create the parts from the callbacks of a {@link MultiPartParser}
+     */
+    private class PartHandler implements MultiPartParser.Handler
+    {
+        private IOException _failure;
+        private long _total;
+        private MultiMap<String> _headers;
+        private String _contentDisposition;
+        private String _contentType;
+        private String _contentTransferEncoding;
+        private MultiPart _part;
+        private StringBuilder _base64;
+        private int _quoted = -1;
+        private int _hi;
+
+        @Override
+        public void startPart()
+        {
+            _headers = new MultiMap<String>();
+            _contentDisposition = null;
+            _contentType = null;
+            _contentTransferEncoding = null;
+            _part = null;
+        }
+
+        @Override
+        public boolean parsedField(String name, String value)
+        {
+            _total += name.length() + value.length();
+            checkRequestSize();
+
+            String key = name.toLowerCase(Locale.ENGLISH);
+            _headers.put(key, value);
+            if (key.equals("content-disposition"))
+                _contentDisposition = value;
+            else if (key.equals("content-type"))
+                _contentType = value;
+            else if (key.equals("content-transfer-encoding"))
+                _contentTransferEncoding = value;
+            return false;
+        }
+
+        @Override
+        public boolean headerComplete()
+        {
+            if (_contentDisposition == null)
+                return failed(new IOException("Missing content-disposition"));
+
+            boolean formData = false;
+            String name = null;
+            String filename = null;
+            QuotedStringTokenizer tok = new QuotedStringTokenizer(_contentDisposition, ";", false, true);
+            while (tok.hasMoreTokens())
+            {
+                String t = tok.nextToken().trim();
+                String tl = t.toLowerCase(Locale.ENGLISH);
+                if (t.startsWith("form-data"))
+                    formData = true;
+                else if (tl.startsWith("name="))
+                    name = value(t);
+                else if (tl.startsWith("filename="))
+                    filename = filenameValue(t);
+            }
+
+            // Parts that are not form data or have no name are skipped
+            if (!formData || name == null)
+                return false;
+
+            try
+            {
+                if (_tmpDir == null)
+                    initTmpDir();
+                _part = new MultiPart(name, filename);
+                _part.setHeaders(_headers);
+                _part.setContentType(_contentType);
+                _parts.add(name, _part);
+                _part.open();
+                _base64 = "base64".equalsIgnoreCase(_contentTransferEncoding) ? new StringBuilder() : null;
+                _quoted = "quoted-printable".equalsIgnoreCase(_contentTransferEncoding) ? 0 : -1;
+                return false;
+            }
+            catch (IOException e)
+            {
+                return failed(e);
+            }
+        }
+
+        @Override
+        public boolean content(ByteBuffer item, boolean last)
+        {
+            _total += item.remaining();
+            checkRequestSize();
+
+            if (_part == null)
+                return false;
+
+            try
+            {
+                if (_base64 != null)
+                    decodeBase64(item, last);
+                else if (_quoted >= 0)
+                    decodeQuotedPrintable(item);
+                else if (item.hasArray())
+                    _part.write(item.array(), item.arrayOffset() + item.position(), item.remaining());
+                else if (item.hasRemaining())
+                    _part.write(BufferUtil.toArray(item), 0, item.remaining());
+                BufferUtil.clear(item);
+
+                if (last)
+                {
+                    _part.close();
+                    _part = null;
+                }
+                return false;
+            }
+            catch (IOException e)
+            {
+                return failed(e);
+            }
+        }
+
+        private void decodeBase64(ByteBuffer item, boolean last) throws IOException
+        {
+            while (item.hasRemaining())
+            {
+                byte b = item.get();
+                if (b == '\r' || b == '\n')
+                    flushBase64();
+                else
+                    _base64.append((char)(0xff & b));
+            }
+            if (last)
+                flushBase64();
+        }
+
+        private void flushBase64() throws IOException
+        {
+            if (_base64.length() > 0)
+            {
+                byte[] decoded = B64Code.decode(_base64.toString());
+                _part.write(decoded, 0, decoded.length);
+                _base64.setLength(0);
+            }
+        }
+
+        private void decodeQuotedPrintable(ByteBuffer item) throws IOException
+        {
+            while (item.hasRemaining())
+            {
+                byte b = item.get();
+                switch (_quoted)
+                {
+                    case 0:
+                        if (b == '=')
+                            _quoted = 1;
+                        else
+                            _part.write(b);
+                        break;
+
+                    case 1:
+                        _hi = b;
+                        _quoted = 2;
+                        break;
+
+                    default:
+                        _quoted = 0;
+                        // A soft line break
+                        if (_hi == '\r' || _hi == '\n')
+                        {
+                            if (_hi == '\r' && b == '\n')
+                                break;
+                            item.position(item.position() - 1);
+                            break;
+                        }
+                        _part.write((TypeUtil.convertHexDigit((byte)_hi) << 4) + TypeUtil.convertHexDigit(b));
+                        break;
+                }
+            }
+        }
+
+        @Override
+        public boolean messageComplete()
+        {
+            return false;
+        }
+
+        @Override
+        public void earlyEOF()
+        {
+            failed(new IOException("Incomplete parts"));
+        }
+
+        @Override
+        public void badMessage(String reason)
+        {
+            failed(new IOException(reason));
+        }
+
+        private void checkRequestSize()
+        {
+            if (_config.getMaxRequestSize() > 0 && _total > _config.getMaxRequestSize())
+                throw new IllegalStateException("Request exceeds maxRequestSize ("+_config.getMaxRequestSize()+")");
+        }
+
+        private boolean failed(IOException e)
+        {
+            if (_failure == null)
+                _failure = e;
+            if (_part != null)
+            {
+                try
+                {
+                    _part.close();
+                }
+                catch (IOException x)
+                {
+                    LOG.ignore(x);
+                }
+                _part = null;
+            }
+            return true;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private void initTmpDir()
+    {
+        if (_config.getLocation() == null)
+            _tmpDir = _contextTmpDir;
+        else if ("".equals(_config.getLocation()))
+            _tmpDir = _contextTmpDir;
+        else
+        {
+            File f = new File (_config.getLocation());
+            if (f.isAbsolute())
+                _tmpDir = f;
+            else
+                _tmpDir = new File (_contextTmpDir, _config.getLocation());
+        }
+
+        if (!_tmpDir.exists())
+            _tmpDir.mkdirs();
+    }
+
+    /* ------------------------------------------------------------ */
+    private String getBoundary()
+    {
+        String contentTypeBoundary = "";
+        int bstart = _contentType.indexOf("boundary=");
+        if (bstart >= 0)
+        {
+            int bend = _contentType.indexOf(";", bstart);
+            bend = (bend < 0? _contentType.length(): bend);
+            contentTypeBoundary = QuotedStringTokenizer.unquote(value(_contentType.substring(bstart,bend)).trim());
+        }
+        return contentTypeBoundary;
+    }
+
     public void setDeleteOnExit(boolean deleteOnExit)
     {
         _deleteOnExit = deleteOnExit;
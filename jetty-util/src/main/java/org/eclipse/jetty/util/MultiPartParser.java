@@ -0,0 +1,463 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+
+/* ------------------------------------------------------------ */
+/** A non-blocking multipart MIME parser.
+ * <p>The parser is fed {@link ByteBuffer}s of content as they arrive, in 
+ * any size, by calls to {@link #parse(ByteBuffer, boolean)}, and it calls 
+ * back a {@link Handler} for the start of each part, each part header field,
+ * each chunk of part content and the end of the message.  Part content is 
+ * never aggregated by the parser: it is passed to the handler as slices
+ * of the passed buffers, so a handler may stream it to a file or other
+ * sink as it arrives.</p>
+ * <p>Delimiters are found with a Boyer-Moore-Horspool {@link SearchPattern}
+ * for "CRLF--boundary".  A delimiter split over two buffers is held back 
+ * from the content until the next buffer shows whether it is a delimiter.
+ * Part header lines may be terminated by either CRLF or LF.</p>
+ * <p>As with the handlers of the HTTP parser, if a handler method returns
+ * true then {@link #parse(ByteBuffer, boolean)} returns without consuming any 
+ * more of the buffer, so that the caller may apply back pressure.</p>
+ */
+public class MultiPartParser
+{
+    private static final Logger LOG = Log.getLogger(MultiPartParser.class);
+    private static final ByteBuffer EMPTY = BufferUtil.EMPTY_BUFFER;
+
+    public enum State
+    {
+        PREAMBLE,
+        DELIMITER,
+        DELIMITER_PADDING,
+        DELIMITER_CLOSE,
+        BODY_PART,
+        OCTETS,
+        EPILOGUE,
+        END
+    }
+
+    private final Handler _handler;
+    private final SearchPattern _delimiterSearch;
+    private final int _maxHeaderSize;
+    private State _state=State.PREAMBLE;
+    private int _partialBoundary=2;
+    private byte[] _line=new byte[128];
+    private int _lineLength;
+    private int _headerSize;
+    private boolean _cr;
+    private String _fieldName;
+    private String _fieldValue;
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param handler The handler called back with the parsed parts
+     * @param boundary The boundary parameter of the multipart content type
+     */
+    public MultiPartParser(Handler handler, String boundary)
+    {
+        this(handler,boundary,8*1024);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param handler The handler called back with the parsed parts
+     * @param boundary The boundary parameter of the multipart content type
+     * @param maxHeaderSize The maximum size in bytes of the headers of each part
+     */
+    public MultiPartParser(Handler handler, String boundary, int maxHeaderSize)
+    {
+        _handler=handler;
+        _delimiterSearch=SearchPattern.compile("\r\n--"+boundary);
+        _maxHeaderSize=maxHeaderSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    public Handler getHandler()
+    {
+        return _handler;
+    }
+
+    /* ------------------------------------------------------------ */
+    public State getState()
+    {
+        return _state;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return true if the close delimiter has been parsed or the parser has failed
+     */
+    public boolean isComplete()
+    {
+        return _state==State.EPILOGUE || _state==State.END;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Parse content.
+     * @param buffer The content to parse, whose position is advanced over the parsed bytes.
+     * The parser keeps no reference to the buffer after the call returns.
+     * @param last True if this is the last of the content
+     * @return True if a handler method returned true or the message is complete
+     */
+    public boolean parse(ByteBuffer buffer, boolean last)
+    {
+        boolean handle=false;
+        while (!handle && BufferUtil.hasContent(buffer))
+        {
+            switch (_state)
+            {
+                case PREAMBLE:
+                    parsePreamble(buffer);
+                    break;
+
+                case DELIMITER:
+                case DELIMITER_PADDING:
+                case DELIMITER_CLOSE:
+                    handle=parseDelimiter(buffer);
+                    break;
+
+                case BODY_PART:
+                    handle=parseFields(buffer);
+                    break;
+
+                case OCTETS:
+                    handle=parseOctets(buffer);
+                    break;
+
+                case EPILOGUE:
+                case END:
+                    BufferUtil.clear(buffer);
+                    break;
+
+                default:
+                    throw new IllegalStateException(_state.toString());
+            }
+        }
+
+        if (last && !handle && BufferUtil.isEmpty(buffer) && !isComplete())
+        {
+            if (_state==State.PREAMBLE)
+                badMessage("Missing initial multi part boundary");
+            else
+            {
+                _state=State.END;
+                _handler.earlyEOF();
+            }
+            return true;
+        }
+
+        return handle || isComplete();
+    }
+
+    /* ------------------------------------------------------------ */
+    private void parsePreamble(ByteBuffer buffer)
+    {
+        int position=buffer.position();
+        int remaining=buffer.remaining();
+        int length=_delimiterSearch.getLength();
+
+        // The first delimiter need not be preceded by CRLF, so the 
+        // preamble is parsed as if it started after a CRLF.
+        if (_partialBoundary>0)
+        {
+            int matched=_delimiterSearch.startsWith(buffer,position,remaining,_partialBoundary);
+            if (matched>0)
+            {
+                buffer.position(position+matched-_partialBoundary);
+                if (matched==length)
+                {
+                    _partialBoundary=0;
+                    _state=State.DELIMITER;
+                }
+                else
+                    _partialBoundary=matched;
+                return;
+            }
+            _partialBoundary=0;
+        }
+
+        int delimiter=_delimiterSearch.match(buffer,position,remaining);
+        if (delimiter>=0)
+        {
+            buffer.position(delimiter+length);
+            _state=State.DELIMITER;
+            return;
+        }
+
+        _partialBoundary=_delimiterSearch.endsWith(buffer,position,remaining);
+        buffer.position(position+remaining);
+    }
+
+    /* ------------------------------------------------------------ */
+    private boolean parseDelimiter(ByteBuffer buffer)
+    {
+        while (buffer.hasRemaining())
+        {
+            byte b=buffer.get();
+            switch (_state)
+            {
+                case DELIMITER:
+                    if (b=='-')
+                        _state=State.DELIMITER_CLOSE;
+                    else
+                    {
+                        // Parse the byte again as padding
+                        _state=State.DELIMITER_PADDING;
+                        buffer.position(buffer.position()-1);
+                    }
+                    break;
+
+                case DELIMITER_PADDING:
+                    if (b=='\n')
+                    {
+                        _state=State.BODY_PART;
+                        _lineLength=0;
+                        _headerSize=0;
+                        _cr=false;
+                        _handler.startPart();
+                        return false;
+                    }
+                    if (b!=' ' && b!='\t' && b!='\r')
+                    {
+                        badMessage("Bad multipart delimiter");
+                        return true;
+                    }
+                    break;
+
+                case DELIMITER_CLOSE:
+                    if (b!='-')
+                    {
+                        badMessage("Bad multipart close delimiter");
+                        return true;
+                    }
+                    _state=State.EPILOGUE;
+                    return _handler.messageComplete();
+
+                default:
+                    throw new IllegalStateException(_state.toString());
+            }
+        }
+        return false;
+    }
+
+    /* ------------------------------------------------------------ */
+    private boolean parseFields(ByteBuffer buffer)
+    {
+        while (buffer.hasRemaining())
+        {
+            byte b=buffer.get();
+            if (++_headerSize>_maxHeaderSize)
+            {
+                badMessage("Multipart part headers exceed "+_maxHeaderSize);
+                return true;
+            }
+
+            if (b=='\r')
+            {
+                _cr=true;
+                continue;
+            }
+
+            if (b!='\n')
+            {
+                if (_cr)
+                    appendLine((byte)'\r');
+                _cr=false;
+                appendLine(b);
+                continue;
+            }
+            _cr=false;
+
+            // A complete line
+            if (_lineLength==0)
+            {
+                if (parsedField())
+                    return true;
+                _state=State.OCTETS;
+                return _handler.headerComplete();
+            }
+
+            String line=new String(_line,0,_lineLength,StandardCharsets.UTF_8);
+            _lineLength=0;
+
+            // Obsolete folding of a field value over several lines
+            char first=line.charAt(0);
+            if ((first==' ' || first=='\t') && _fieldName!=null)
+            {
+                _fieldValue=_fieldValue+' '+line.trim();
+                continue;
+            }
+
+            if (parsedField())
+                return true;
+
+            int colon=line.indexOf(':');
+            if (colon>0)
+            {
+                _fieldName=line.substring(0,colon).trim();
+                _fieldValue=line.substring(colon+1).trim();
+            }
+            else if (LOG.isDebugEnabled())
+                LOG.debug("Ignored multipart header line {}",line);
+        }
+        return false;
+    }
+
+    /* ------------------------------------------------------------ */
+    private boolean parsedField()
+    {
+        if (_fieldName==null)
+            return false;
+        String name=_fieldName;
+        String value=_fieldValue;
+        _fieldName=null;
+        _fieldValue=null;
+        return _handler.parsedField(name,value);
+    }
+
+    /* ------------------------------------------------------------ */
+    private void appendLine(byte b)
+    {
+        if (_lineLength==_line.length)
+            _line=Arrays.copyOf(_line,_line.length*2);
+        _line[_lineLength++]=b;
+    }
+
+    /* ------------------------------------------------------------ */
+    private boolean parseOctets(ByteBuffer buffer)
+    {
+        int position=buffer.position();
+        int remaining=buffer.remaining();
+        int length=_delimiterSearch.getLength();
+
+        // Continue a delimiter that was partially matched at the end of the last buffer
+        if (_partialBoundary>0)
+        {
+            int matched=_delimiterSearch.startsWith(buffer,position,remaining,_partialBoundary);
+            if (matched>0)
+            {
+                buffer.position(position+matched-_partialBoundary);
+                if (matched<length)
+                {
+                    _partialBoundary=matched;
+                    return false;
+                }
+                _partialBoundary=0;
+                _state=State.DELIMITER;
+                return _handler.content(EMPTY,true);
+            }
+
+            // Not a delimiter, so the held back bytes were content.  As the delimiter 
+            // starts with the only CR in the pattern, no delimiter can start within them.
+            byte[] held=new byte[_partialBoundary];
+            for (int i=0;i<held.length;i++)
+                held[i]=_delimiterSearch.getByte(i);
+            _partialBoundary=0;
+            if (_handler.content(ByteBuffer.wrap(held),false))
+                return true;
+        }
+
+        int delimiter=_delimiterSearch.match(buffer,position,remaining);
+        if (delimiter>=0)
+        {
+            ByteBuffer content=buffer.slice();
+            content.limit(delimiter-position);
+            buffer.position(delimiter+length);
+            _state=State.DELIMITER;
+            return _handler.content(content,true);
+        }
+
+        _partialBoundary=_delimiterSearch.endsWith(buffer,position,remaining);
+        ByteBuffer content=buffer.slice();
+        content.limit(remaining-_partialBoundary);
+        buffer.position(position+remaining);
+        if (content.hasRemaining())
+            return _handler.content(content,false);
+        return false;
+    }
+
+    /* ------------------------------------------------------------ */
+    private void badMessage(String reason)
+    {
+        if (LOG.isDebugEnabled())
+            LOG.debug("{} in {}",reason,this);
+        _state=State.END;
+        _handler.badMessage(reason);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s}",getClass().getSimpleName(),hashCode(),_state);
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /** Multipart parser callbacks.
+     */
+    public interface Handler
+    {
+        /** Called at the start of each part, before its header fields.
+         */
+        public void startPart();
+
+        /** Called for each header field of a part.
+         * @param name The name of the field
+         * @param value The value of the field
+         * @return True if the parser should return
+         */
+        public boolean parsedField(String name, String value);
+
+        /** Called after the header fields of a part.
+         * @return True if the parser should return
+         */
+        public boolean headerComplete();
+
+        /** Called for the content of a part.
+         * @param item The content, which is only valid for the duration of the call
+         * @param last True if this is the end of the content of the part
+         * @return True if the parser should return
+         */
+        public boolean content(ByteBuffer item, boolean last);
+
+        /** Called when the close delimiter has been parsed.
+         * @return True if the parser should return
+         */
+        public boolean messageComplete();
+
+        /** Called when the content ends before the close delimiter.
+         */
+        public void earlyEOF();
+
+        /** Called when badly formatted content is received.
+         * @param reason The reason the content is bad
+         */
+        public void badMessage(String reason);
+    }
+}
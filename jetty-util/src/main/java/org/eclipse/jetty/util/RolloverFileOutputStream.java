@@ -23,6 +23,8 @@ import java.io.FileOutputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Locale;
@@ -334,6 +336,38 @@ public class RolloverFileOutputStream extends FilterOutputStream
         out.write (buf, off, len);
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * Write the remaining bytes of a buffer to the current file through
+     * its {@link FileChannel}, so that a direct buffer is written without
+     * being copied.  Rollover is excluded while the buffer is written.
+     * @param buffer the buffer to write
+     * @throws IOException if the buffer cannot be written
+     */
+    public synchronized void write(ByteBuffer buffer)
+        throws IOException
+    {
+        if (out instanceof FileOutputStream)
+        {
+            FileChannel channel=((FileOutputStream)out).getChannel();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+        else if (out==null)
+            throw new IOException("Closed");
+        else if (buffer.hasArray())
+        {
+            out.write(buffer.array(),buffer.arrayOffset()+buffer.position(),buffer.remaining());
+            buffer.position(buffer.limit());
+        }
+        else
+        {
+            byte[] bytes=new byte[buffer.remaining()];
+            buffer.get(bytes);
+            out.write(bytes);
+        }
+    }
+
     /* ------------------------------------------------------------ */
     @Override
     public void close()
@@ -0,0 +1,161 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/* ------------------------------------------------------------ */
+/** Byte pattern search.
+ * <p>Searches {@link ByteBuffer}s for a fixed byte pattern using the
+ * Boyer-Moore-Horspool algorithm, which skips over the data by up to the
+ * length of the pattern for each comparison.  Partial matches at the 
+ * end of one buffer can be continued at the start of the next buffer
+ * with {@link #endsWith(ByteBuffer, int, int)} and 
+ * {@link #startsWith(ByteBuffer, int, int, int)}.</p>
+ * <p>Instances are immutable and may be shared between threads.</p>
+ */
+public class SearchPattern
+{
+    private final byte[] _pattern;
+    private final int[] _skip = new int[256];
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param pattern The pattern to search for
+     * @return a SearchPattern for the pattern
+     */
+    public static SearchPattern compile(byte[] pattern)
+    {
+        return new SearchPattern(Arrays.copyOf(pattern,pattern.length));
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param pattern The pattern to search for, encoded as ISO-8859-1
+     * @return a SearchPattern for the pattern
+     */
+    public static SearchPattern compile(String pattern)
+    {
+        return new SearchPattern(pattern.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /* ------------------------------------------------------------ */
+    private SearchPattern(byte[] pattern)
+    {
+        if (pattern.length==0)
+            throw new IllegalArgumentException("Empty pattern");
+        _pattern=pattern;
+
+        // How far the pattern may be shifted for each byte at the end of a mismatched window
+        Arrays.fill(_skip,_pattern.length);
+        for (int i=0;i<_pattern.length-1;i++)
+            _skip[0xff&_pattern[i]]=_pattern.length-1-i;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the length of the pattern in bytes
+     */
+    public int getLength()
+    {
+        return _pattern.length;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param index the index within the pattern
+     * @return the byte of the pattern at the index
+     */
+    public byte getByte(int index)
+    {
+        return _pattern[index];
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Search for a complete match of the pattern.
+     * @param buffer The buffer to search, which is not modified
+     * @param offset The absolute index within the buffer to start the search
+     * @param length The number of bytes to search
+     * @return The absolute index of the start of the first match or -1 if there is no match
+     */
+    public int match(ByteBuffer buffer, int offset, int length)
+    {
+        int last=_pattern.length-1;
+        int end=offset+length-_pattern.length;
+        int i=offset;
+        while (i<=end)
+        {
+            int j=last;
+            while (buffer.get(i+j)==_pattern[j])
+            {
+                if (j==0)
+                    return i;
+                j--;
+            }
+            i+=_skip[0xff&buffer.get(i+last)];
+        }
+        return -1;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Search for a partial match of the pattern at the end of the data.
+     * @param buffer The buffer to search, which is not modified
+     * @param offset The absolute index within the buffer of the data
+     * @param length The number of bytes of data
+     * @return The length of the longest proper prefix of the pattern that the data ends with, or 0
+     */
+    public int endsWith(ByteBuffer buffer, int offset, int length)
+    {
+        int end=offset+length;
+        for (int matched=Math.min(length,_pattern.length-1);matched>0;matched--)
+        {
+            int i=0;
+            while (i<matched && buffer.get(end-matched+i)==_pattern[i])
+                i++;
+            if (i==matched)
+                return matched;
+        }
+        return 0;
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Continue a partial match of the pattern at the start of the data.
+     * @param buffer The buffer to search, which is not modified
+     * @param offset The absolute index within the buffer of the data
+     * @param length The number of bytes of data
+     * @param matched The length of the prefix of the pattern already matched
+     * @return The length of the prefix of the pattern matched after consuming
+     * the data, which is the pattern length for a complete match, or -1 if the
+     * data does not continue the pattern
+     */
+    public int startsWith(ByteBuffer buffer, int offset, int length, int matched)
+    {
+        int n=Math.min(length,_pattern.length-matched);
+        for (int i=0;i<n;i++)
+        {
+            if (buffer.get(offset+i)!=_pattern[matched+i])
+                return -1;
+        }
+        return matched+n;
+    }
+}
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringWriter;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
@@ -1055,6 +1056,187 @@ public class UrlEncoded extends MultiMap<String> implements Cloneable
     }
 
 
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /** An incremental decoder of "x-www-form-urlencoded" content.
+     * <p>
+     * Content is passed to {@link #decode(ByteBuffer)} in chunks as it arrives.
+     * Parameters and escapes that are split between chunks are held until
+     * the next chunk, so that a form can be decoded without blocking a thread
+     * while waiting for all of its content. {@link #complete()} must be called
+     * after the last chunk.
+     * <p>
+     * The charset must encode the ASCII characters as single bytes, as 
+     * UTF-8 and ISO-8859-1 do.
+     */
+    public static class Decoder
+    {
+        private final MultiMap<String> _map;
+        private final Charset _charset;
+        private final int _maxLength;
+        private final int _maxKeys;
+        private final ByteArrayOutputStream2 _bytes = new ByteArrayOutputStream2();
+        private final StringBuilder _string = new StringBuilder();
+        private String _key;
+        private int _length;
+        private int _escape;
+        private boolean _escapeStart;
+        private boolean _unicode;
+        private int _code;
+
+        /* ------------------------------------------------------------ */
+        /**
+         * @param map the map to add the decoded parameters to
+         * @param charset the charset of the content, or null for UTF-8
+         * @param maxLength the maximum length of the content, or -1 for no limit
+         * @param maxKeys the maximum number of keys, or -1 for no limit
+         */
+        public Decoder(MultiMap<String> map, Charset charset, int maxLength, int maxKeys)
+        {
+            _map = map;
+            _charset = charset == null ? StandardCharsets.UTF_8 : charset;
+            _maxLength = maxLength;
+            _maxKeys = maxKeys;
+        }
+
+        /* ------------------------------------------------------------ */
+        /** Decode a chunk of content.
+         * @param buffer the content, which is consumed
+         * @throws IllegalStateException if the form is too large or has too many keys
+         */
+        public void decode(ByteBuffer buffer)
+        {
+            while (buffer.hasRemaining())
+            {
+                byte b = buffer.get();
+                if (_maxLength >= 0 && ++_length > _maxLength)
+                    throw new IllegalStateException("Form too large");
+
+                // An invalid escape is replaced, and the byte that ended it is decoded as usual
+                if (_escape > 0 && escaped(b))
+                    continue;
+
+                switch (b)
+                {
+                    case '&':
+                        parsed();
+                        break;
+
+                    case '=':
+                        if (_key != null)
+                            _bytes.write(b);
+                        else
+                            _key = token();
+                        break;
+
+                    case '+':
+                        _bytes.write(' ');
+                        break;
+
+                    case '%':
+                        _escape = 2;
+                        _escapeStart = true;
+                        _unicode = false;
+                        _code = 0;
+                        break;
+
+                    default:
+                        _bytes.write(b);
+                        break;
+                }
+            }
+        }
+
+        /* ------------------------------------------------------------ */
+        /** Complete the decoding after the last chunk of content.
+         * @throws IllegalStateException if the form has too many keys
+         */
+        public void complete()
+        {
+            if (_escape > 0)
+            {
+                _escape = 0;
+                flush();
+                _string.append(Utf8Appendable.REPLACEMENT);
+            }
+
+            if (_key != null || _bytes.size() > 0 || _string.length() > 0)
+                parsed();
+        }
+
+        /* ------------------------------------------------------------ */
+        private boolean escaped(byte b)
+        {
+            if (_escapeStart && b == 'u')
+            {
+                _escapeStart = false;
+                _unicode = true;
+                _escape = 4;
+                return true;
+            }
+            _escapeStart = false;
+
+            try
+            {
+                _code = (_code << 4) + convertHexDigit(b);
+            }
+            catch (NumberFormatException e)
+            {
+                LOG.warn(e.toString());
+                LOG.debug(e);
+                _escape = 0;
+                flush();
+                _string.append(Utf8Appendable.REPLACEMENT);
+                return false;
+            }
+
+            if (--_escape == 0)
+            {
+                if (_unicode)
+                {
+                    flush();
+                    _string.append(Character.toChars(_code));
+                }
+                else
+                    _bytes.write(_code);
+            }
+            return true;
+        }
+
+        /* ------------------------------------------------------------ */
+        private void parsed()
+        {
+            String value = token();
+            if (_key != null)
+                _map.add(_key, value);
+            else if (value.length() > 0)
+                _map.add(value, "");
+            _key = null;
+
+            if (_maxKeys > 0 && _map.size() > _maxKeys)
+                throw new IllegalStateException("Form too many keys");
+        }
+
+        /* ------------------------------------------------------------ */
+        private String token()
+        {
+            flush();
+            String token = _string.toString();
+            _string.setLength(0);
+            return token;
+        }
+
+        /* ------------------------------------------------------------ */
+        private void flush()
+        {
+            if (_bytes.size() > 0)
+            {
+                _string.append(new String(_bytes.getBuf(), 0, _bytes.size(), _charset));
+                _bytes.reset();
+            }
+        }
+    }
+
     /* ------------------------------------------------------------ */
     /** 
      */
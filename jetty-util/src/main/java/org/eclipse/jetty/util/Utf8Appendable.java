@@ -55,6 +55,7 @@ public abstract class Utf8Appendable
     public static final byte[] REPLACEMENT_UTF8 = new byte[] {(byte)0xEF,(byte)0xBF,(byte)0xBD };
     private static final int UTF8_ACCEPT = 0;
     private static final int UTF8_REJECT = 12;
+    private static final long ASCII_MASK = 0x8080808080808080L;
 
     protected final Appendable _appendable;
     protected int _state = UTF8_ACCEPT;
@@ -116,6 +117,22 @@ public abstract class Utf8Appendable
         {
             while (buf.remaining() > 0)
             {
+                if (_state == UTF8_ACCEPT)
+                {
+                    int ascii = asciiLength(buf);
+                    if (ascii > 0)
+                    {
+                        if (buf.hasArray())
+                            appendAscii(buf.array(),buf.arrayOffset()+buf.position(),ascii);
+                        else
+                        {
+                            for (int i = buf.position(), end = i + ascii; i < end; i++)
+                                _appendable.append((char)buf.get(i));
+                        }
+                        buf.position(buf.position()+ascii);
+                        continue;
+                    }
+                }
                 appendByte(buf.get());
             }
         }
@@ -131,7 +148,20 @@ public abstract class Utf8Appendable
         {
             int end = offset + length;
             for (int i = offset; i < end; i++)
+            {
+                if (_state == UTF8_ACCEPT)
+                {
+                    int ascii = asciiLength(b,i,end);
+                    if (ascii > 0)
+                    {
+                        appendAscii(b,i,ascii);
+                        i += ascii;
+                        if (i == end)
+                            break;
+                    }
+                }
                 appendByte(b[i]);
+            }
         }
         catch (IOException e)
         {
@@ -148,6 +178,17 @@ public abstract class Utf8Appendable
             {
                 if (length() > maxChars)
                     return false;
+                if (_state == UTF8_ACCEPT)
+                {
+                    // Each ASCII byte is one char, so the run can be limited to the chars left
+                    int ascii = Math.min(asciiLength(b,i,end),maxChars - length() + 1);
+                    if (ascii > 0)
+                    {
+                        appendAscii(b,i,ascii);
+                        i += ascii - 1;
+                        continue;
+                    }
+                }
                 appendByte(b[i]);
             }
             return true;
@@ -158,6 +199,51 @@ public abstract class Utf8Appendable
         }
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of bytes from the position of the buffer that are ASCII,
+     * scanning 8 bytes at a time while possible.
+     */
+    private static int asciiLength(ByteBuffer buf)
+    {
+        int start = buf.position();
+        int end = buf.limit();
+        int i = start;
+        while (i + 8 <= end && (buf.getLong(i) & ASCII_MASK) == 0)
+            i += 8;
+        while (i < end && buf.get(i) >= 0)
+            i++;
+        return i - start;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return The number of bytes from the offset that are ASCII.
+     */
+    private static int asciiLength(byte[] b, int offset, int end)
+    {
+        int i = offset;
+        while (i < end && b[i] >= 0)
+            i++;
+        return i - offset;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Append a run of ASCII bytes, which need no decoding.
+     * Subclasses may override to copy the run more efficiently into their
+     * {@link Appendable}.
+     * @param b The bytes
+     * @param offset The offset of the run
+     * @param length The length of the run
+     * @throws IOException if the appendable cannot be appended to
+     */
+    protected void appendAscii(byte[] b, int offset, int length) throws IOException
+    {
+        for (int i = offset, end = offset + length; i < end; i++)
+            _appendable.append((char)b[i]);
+    }
+
     protected void appendByte(byte b) throws IOException
     {
 
@@ -61,6 +61,14 @@ public class Utf8StringBuilder extends Utf8Appendable
         _buffer.setLength(0);
     }
 
+    @Override
+    protected void appendAscii(byte[] b, int offset, int length)
+    {
+        _buffer.ensureCapacity(_buffer.length()+length);
+        for (int i = offset, end = offset + length; i < end; i++)
+            _buffer.append((char)b[i]);
+    }
+
     public StringBuilder getStringBuilder()
     {
         checkState();
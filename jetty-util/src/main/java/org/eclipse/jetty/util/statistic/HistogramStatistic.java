@@ -0,0 +1,310 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/* ------------------------------------------------------------ */
+/**
+ * HistogramStatistic
+ * <p>
+ * A {@link SampleStatistic} that also records samples into a fixed memory,
+ * log-linear bucketed histogram (in the style of an HDR histogram), so that
+ * percentiles can be reported.  Each power of two range of values is split into
+ * 2<sup>precisionBits</sup> linear sub buckets (16 by default), giving a relative 
+ * error of at most 1/2<sup>precisionBits</sup> for any reported value; smaller 
+ * values are recorded exactly.
+ * <p>
+ * Buckets are striped by thread, so that concurrent samples do not contend on
+ * the same counters; stripes are only summed when a {@link Snapshot} is taken.
+ * A stripe is only allocated when a thread first records a sample into it, so 
+ * a histogram that is rarely or never used holds little memory.
+ * Besides the cumulative {@link #snapshot()}, an {@link #intervalSnapshot()}
+ * reports only the samples recorded since the previous interval snapshot,
+ * without resetting the cumulative values.
+ */
+public class HistogramStatistic extends SampleStatistic
+{
+    private static final int MAX_STRIPES = 16;
+
+    private final int _subBucketBits;
+    private final int _subBuckets;
+    private final int _buckets;
+    private final long _highest;
+    private final AtomicReferenceArray<AtomicLongArray> _stripes;
+    private final int _mask;
+    private final long[] _interval;
+
+    /* ------------------------------------------------------------ */
+    /**
+     * A histogram tracking values up to 2<sup>40</sup>-1.
+     */
+    public HistogramStatistic()
+    {
+        this(40);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param highestBits the number of bits of the highest trackable value.
+     * Larger samples are recorded as the highest trackable value.
+     */
+    public HistogramStatistic(int highestBits)
+    {
+        this(highestBits,4,MAX_STRIPES);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param highestBits the number of bits of the highest trackable value.
+     * Larger samples are recorded as the highest trackable value.
+     * @param precisionBits the number of bits of the sub buckets of each power of two range
+     * of values, which bounds the relative error of the reported values to 1/2<sup>precisionBits</sup>.
+     * @param maxStripes the maximum number of stripes, rounded up to a power of two and bounded 
+     * by the number of CPUs. Fewer stripes use less memory but contend more.
+     */
+    public HistogramStatistic(int highestBits, int precisionBits, int maxStripes)
+    {
+        if (precisionBits<1 || precisionBits>16)
+            throw new IllegalArgumentException("precisionBits="+precisionBits);
+        if (highestBits<=precisionBits || highestBits>62)
+            throw new IllegalArgumentException("highestBits="+highestBits);
+        if (maxStripes<1)
+            throw new IllegalArgumentException("maxStripes="+maxStripes);
+        _subBucketBits=precisionBits;
+        _subBuckets=1<<precisionBits;
+        _buckets=(highestBits-precisionBits+1)*_subBuckets;
+        _highest=(1L<<highestBits)-1;
+
+        int stripes=1;
+        while (stripes<maxStripes && stripes<StripedCounter.STRIPES)
+            stripes<<=1;
+        _mask=stripes-1;
+
+        // each stripe holds the bucket counts followed by the total of its samples
+        _stripes=new AtomicReferenceArray<>(stripes);
+        _interval=new long[_buckets+1];
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void reset()
+    {
+        super.reset();
+        for (int s=0;s<_stripes.length();s++)
+        {
+            AtomicLongArray stripe=_stripes.get(s);
+            if (stripe!=null)
+                for (int i=0;i<stripe.length();i++)
+                    stripe.set(i,0);
+        }
+        synchronized (_interval)
+        {
+            for (int i=0;i<_interval.length;i++)
+                _interval[i]=0;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void set(long sample)
+    {
+        super.set(sample);
+        record(sample);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Record a sample in the histogram only, without updating the
+     * {@link SampleStatistic} mean, variance and max.
+     * @param sample the sample to record
+     */
+    public void record(long sample)
+    {
+        int s=StripedCounter.stripe()&_mask;
+        AtomicLongArray stripe=_stripes.get(s);
+        if (stripe==null)
+        {
+            _stripes.compareAndSet(s,null,new AtomicLongArray(_buckets+1));
+            stripe=_stripes.get(s);
+        }
+        stripe.incrementAndGet(bucketOf(sample));
+        stripe.addAndGet(_buckets,sample);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param percentile the percentile (0-100)
+     * @return the value below which the given percentile of all samples
+     * since the last {@link #reset()} fall
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        return snapshot().getValueAtPercentile(percentile);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return a snapshot of all the samples since the last {@link #reset()}
+     */
+    public Snapshot snapshot()
+    {
+        return new Snapshot(sum());
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return a snapshot of the samples recorded since the previous call
+     * to this method (or since the last {@link #reset()}).
+     */
+    public Snapshot intervalSnapshot()
+    {
+        long[] counts=sum();
+        synchronized (_interval)
+        {
+            for (int i=0;i<counts.length;i++)
+            {
+                long c=counts[i];
+                counts[i]=Math.max(0,c-_interval[i]);
+                _interval[i]=c;
+            }
+        }
+        return new Snapshot(counts);
+    }
+
+    /* ------------------------------------------------------------ */
+    private long[] sum()
+    {
+        long[] counts=new long[_buckets+1];
+        for (int s=0;s<_stripes.length();s++)
+        {
+            AtomicLongArray stripe=_stripes.get(s);
+            if (stripe!=null)
+                for (int i=0;i<counts.length;i++)
+                    counts[i]+=stripe.get(i);
+        }
+        return counts;
+    }
+
+    /* ------------------------------------------------------------ */
+    private int bucketOf(long value)
+    {
+        if (value<_subBuckets)
+            return value<0?0:(int)value;
+        if (value>_highest)
+            value=_highest;
+        int exponent=63-Long.numberOfLeadingZeros(value);
+        int sub=(int)(value>>>(exponent-_subBucketBits))&(_subBuckets-1);
+        return (exponent-_subBucketBits+1)*_subBuckets+sub;
+    }
+
+    /* ------------------------------------------------------------ */
+    private long highestValueOf(int bucket)
+    {
+        if (bucket<_subBuckets)
+            return bucket;
+        int shift=bucket/_subBuckets-1;
+        long lowest=((long)(_subBuckets+bucket%_subBuckets))<<shift;
+        return lowest+(1L<<shift)-1;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * An immutable view of the histogram counts.
+     */
+    public class Snapshot
+    {
+        private final long[] _counts;
+        private final long _count;
+
+        private Snapshot(long[] counts)
+        {
+            _counts=counts;
+            long count=0;
+            for (int i=0;i<_buckets;i++)
+                count+=counts[i];
+            _count=count;
+        }
+
+        /**
+         * @return the number of samples in this snapshot
+         */
+        public long getCount()
+        {
+            return _count;
+        }
+
+        /**
+         * @return the total of the samples in this snapshot
+         */
+        public long getTotal()
+        {
+            return _counts[_buckets];
+        }
+
+        /**
+         * @return the mean of the samples in this snapshot
+         */
+        public double getMean()
+        {
+            return _count==0?0.0:(double)_counts[_buckets]/_count;
+        }
+
+        /**
+         * @return the highest value equivalent to the largest sample in this snapshot
+         */
+        public long getMax()
+        {
+            for (int i=_buckets;i-->0;)
+                if (_counts[i]>0)
+                    return highestValueOf(i);
+            return 0;
+        }
+
+        /**
+         * @param percentile the percentile (0-100)
+         * @return the highest value equivalent to the sample at the given percentile
+         */
+        public long getValueAtPercentile(double percentile)
+        {
+            if (_count==0)
+                return 0;
+            long rank=(long)Math.ceil(Math.min(100.0,Math.max(0.0,percentile))*_count/100.0);
+            if (rank<1)
+                rank=1;
+            long seen=0;
+            for (int i=0;i<_buckets;i++)
+            {
+                seen+=_counts[i];
+                if (seen>=rank)
+                    return highestValueOf(i);
+            }
+            return getMax();
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("count=%d,mean=%.1f,p50=%d,p90=%d,p99=%d,p999=%d,max=%d",
+                    _count,getMean(),getValueAtPercentile(50),getValueAtPercentile(90),getValueAtPercentile(99),getValueAtPercentile(99.9),getMax());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/* ------------------------------------------------------------ */
+/** A counter striped over padded cells.
+ * <p>
+ * Each thread adds to a cell selected by its thread id, and each cell
+ * is padded to its own cache line, so that threads counting concurrently
+ * neither contend on the same value nor falsely share a cache line.
+ * The value of the counter is only computed, by summing the cells,
+ * when it is read. This is a Java 7 equivalent of a LongAdder and
+ * suits counters that are updated much more often than they are read.
+ */
+public class StripedCounter
+{
+    /** The number of longs in a cache line */
+    static final int PADDING = 8;
+    /** The maximum number of stripes */
+    static final int MAX_STRIPES = 64;
+    static final int STRIPES;
+    static
+    {
+        int stripes=1;
+        int cpus=Runtime.getRuntime().availableProcessors();
+        while (stripes<cpus && stripes<MAX_STRIPES)
+            stripes<<=1;
+        STRIPES=stripes;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the stripe, in the range [0,STRIPES), of the current thread
+     */
+    static int stripe()
+    {
+        return (int)Thread.currentThread().getId()&(STRIPES-1);
+    }
+
+    // The first cell is padded from the array header
+    private final AtomicLongArray _cells = new AtomicLongArray((STRIPES+1)*PADDING);
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param delta the amount to add to the counter
+     */
+    public void add(long delta)
+    {
+        _cells.getAndAdd((stripe()+1)*PADDING,delta);
+    }
+
+    /* ------------------------------------------------------------ */
+    public void increment()
+    {
+        add(1);
+    }
+
+    /* ------------------------------------------------------------ */
+    public void decrement()
+    {
+        add(-1);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the sum of all the cells. Concurrent updates may or may not be included.
+     */
+    public long sum()
+    {
+        long sum=0;
+        for (int i=PADDING;i<_cells.length();i+=PADDING)
+            sum+=_cells.get(i);
+        return sum;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Atomically resets each cell while summing it, so that no concurrent
+     * update is lost between the returned sum and the next one.
+     * @return the sum of all the cells
+     */
+    public long sumThenReset()
+    {
+        long sum=0;
+        for (int i=PADDING;i<_cells.length();i+=PADDING)
+            sum+=_cells.getAndSet(i,0);
+        return sum;
+    }
+
+    /* ------------------------------------------------------------ */
+    public void reset()
+    {
+        for (int i=PADDING;i<_cells.length();i+=PADDING)
+            _cells.set(i,0);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return Long.toString(sum());
+    }
+}
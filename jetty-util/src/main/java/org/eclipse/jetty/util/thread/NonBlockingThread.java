@@ -24,7 +24,7 @@ package org.eclipse.jetty.util.thread;
  * Client code can use the thread-local {@link #isNonBlockingThread()} to detect whether they are
  * in the context of a non-blocking thread, and perform different actions if that's the case.
  */
-public class NonBlockingThread implements Runnable
+public class NonBlockingThread implements Runnable, Prioritized
 {
     private final static ThreadLocal<Boolean> __nonBlockingThread = new ThreadLocal<>();
 
@@ -43,6 +43,15 @@ public class NonBlockingThread implements Runnable
         this.delegate = delegate;
     }
 
+    /**
+     * @return {@link Priority#HIGH}, as other jobs depend on non-blocking threads
+     */
+    @Override
+    public Priority getPriority()
+    {
+        return Priority.HIGH;
+    }
+
     @Override
     public void run()
     {
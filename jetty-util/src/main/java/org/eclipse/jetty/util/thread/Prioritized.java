@@ -0,0 +1,72 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util.thread;
+
+/**
+ * <p>A job that declares the {@link Priority} with which it should be executed.</p>
+ * <p>Jobs are only ordered by priority by an executor that supports it, such as a
+ * {@link QueuedThreadPool} with a {@link PriorityJobQueue}; other executors ignore it.
+ * Jobs that are not {@link Prioritized} have {@link Priority#NORMAL} priority.</p>
+ */
+public interface Prioritized
+{
+    /**
+     * The priority classes of jobs, from highest to lowest.
+     */
+    public enum Priority
+    {
+        /**
+         * Jobs that complete I/O operations or that other jobs depend on, such as selectors and write completions.
+         */
+        HIGH,
+        /**
+         * Jobs that handle requests.
+         */
+        NORMAL,
+        /**
+         * Background jobs that may wait while there is other work.
+         */
+        LOW
+    }
+
+    /**
+     * @return the priority of this job
+     */
+    Priority getPriority();
+
+    /**
+     * <p>A convenience base class for {@link Runnable}s with a fixed priority.</p>
+     */
+    public abstract class Task implements Runnable, Prioritized
+    {
+        private final Priority _priority;
+
+        public Task(Priority priority)
+        {
+            _priority = priority;
+        }
+
+        @Override
+        public Priority getPriority()
+        {
+            return _priority;
+        }
+    }
+}
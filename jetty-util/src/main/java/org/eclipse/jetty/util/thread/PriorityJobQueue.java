@@ -0,0 +1,422 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util.thread;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.thread.Prioritized.Priority;
+
+/**
+ * <p>A job queue for {@link QueuedThreadPool} that orders jobs by their {@link Prioritized.Priority},
+ * and in FIFO order within a priority.</p>
+ * <p>So that a steady stream of higher priority jobs cannot starve lower priority ones, a priority
+ * whose jobs have been passed over the starvation limit number of times is served next.</p>
+ * <p>The queue uses a single lock, rather than the two locks of {@link org.eclipse.jetty.util.BlockingArrayQueue},
+ * as taking a job needs to look at all priorities.</p>
+ * <pre>
+ * QueuedThreadPool pool = new QueuedThreadPool(200, 8, 60000, new PriorityJobQueue());
+ * </pre>
+ */
+public class PriorityJobQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable>
+{
+    private static final Priority[] PRIORITIES = Priority.values();
+    public static final int DEFAULT_STARVATION_LIMIT = 16;
+
+    private final ReentrantLock _lock = new ReentrantLock();
+    private final Condition _notEmpty = _lock.newCondition();
+    private final Condition _notFull = _lock.newCondition();
+    private final ArrayDeque<Runnable>[] _queues;
+    private final int[] _passed = new int[PRIORITIES.length];
+    private final AtomicInteger _size = new AtomicInteger();
+    private final AtomicIntegerArray _sizes = new AtomicIntegerArray(PRIORITIES.length);
+    private final AtomicLongArray _starved = new AtomicLongArray(PRIORITIES.length);
+    private final int _maxCapacity;
+    private final int _starvationLimit;
+
+    public PriorityJobQueue()
+    {
+        this(Integer.MAX_VALUE, DEFAULT_STARVATION_LIMIT);
+    }
+
+    /**
+     * @param maxCapacity the maximum number of queued jobs
+     * @param starvationLimit the number of times the jobs of a priority may be passed over by higher priority jobs before one of them is taken
+     */
+    public PriorityJobQueue(@Name("maxCapacity") int maxCapacity, @Name("starvationLimit") int starvationLimit)
+    {
+        _maxCapacity = maxCapacity;
+        _starvationLimit = starvationLimit;
+        // Generic arrays cannot be created, every element is a new ArrayDeque<Runnable>
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ArrayDeque<Runnable>[] queues = new ArrayDeque[PRIORITIES.length];
+        _queues = queues;
+        for (int i = 0; i < _queues.length; ++i)
+            _queues[i] = new ArrayDeque<>();
+    }
+
+    /**
+     * @param job the job
+     * @return the priority of the job, {@link Priority#NORMAL} if it is not {@link Prioritized}
+     */
+    public static Priority getPriority(Object job)
+    {
+        if (job instanceof Prioritized)
+        {
+            Priority priority = ((Prioritized)job).getPriority();
+            if (priority != null)
+                return priority;
+        }
+        return Priority.NORMAL;
+    }
+
+    /**
+     * @param priority the priority
+     * @return the number of queued jobs with the given priority
+     */
+    public int getSize(Priority priority)
+    {
+        return _sizes.get(priority.ordinal());
+    }
+
+    /**
+     * @param priority the priority
+     * @return the number of jobs with the given priority that were taken before higher priority jobs to avoid starvation
+     */
+    public long getStarved(Priority priority)
+    {
+        return _starved.get(priority.ordinal());
+    }
+
+    public int getMaxCapacity()
+    {
+        return _maxCapacity;
+    }
+
+    public int getStarvationLimit()
+    {
+        return _starvationLimit;
+    }
+
+    @Override
+    public int size()
+    {
+        return _size.get();
+    }
+
+    @Override
+    public int remainingCapacity()
+    {
+        return _maxCapacity - _size.get();
+    }
+
+    @Override
+    public boolean offer(Runnable job)
+    {
+        Objects.requireNonNull(job);
+        _lock.lock();
+        try
+        {
+            if (_size.get() >= _maxCapacity)
+                return false;
+            enqueue(job);
+            return true;
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable job, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        Objects.requireNonNull(job);
+        long nanos = unit.toNanos(timeout);
+        _lock.lockInterruptibly();
+        try
+        {
+            while (_size.get() >= _maxCapacity)
+            {
+                if (nanos <= 0)
+                    return false;
+                nanos = _notFull.awaitNanos(nanos);
+            }
+            enqueue(job);
+            return true;
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable job) throws InterruptedException
+    {
+        Objects.requireNonNull(job);
+        _lock.lockInterruptibly();
+        try
+        {
+            while (_size.get() >= _maxCapacity)
+                _notFull.await();
+            enqueue(job);
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek()
+    {
+        _lock.lock();
+        try
+        {
+            int priority = select();
+            return priority < 0 ? null : _queues[priority].peekFirst();
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll()
+    {
+        if (_size.get() == 0)
+            return null;
+
+        _lock.lock();
+        try
+        {
+            return dequeue();
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long nanos = unit.toNanos(timeout);
+        _lock.lockInterruptibly();
+        try
+        {
+            while (_size.get() == 0)
+            {
+                if (nanos <= 0)
+                    return null;
+                nanos = _notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException
+    {
+        _lock.lockInterruptibly();
+        try
+        {
+            while (_size.get() == 0)
+                _notEmpty.await();
+            return dequeue();
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        _lock.lock();
+        try
+        {
+            for (int priority = 0; priority < _queues.length; ++priority)
+            {
+                if (_queues[priority].remove(o))
+                {
+                    _size.decrementAndGet();
+                    _sizes.decrementAndGet(priority);
+                    _notFull.signal();
+                    return true;
+                }
+            }
+            return false;
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        _lock.lock();
+        try
+        {
+            for (int priority = 0; priority < _queues.length; ++priority)
+            {
+                _queues[priority].clear();
+                _sizes.set(priority, 0);
+                _passed[priority] = 0;
+            }
+            _size.set(0);
+            _notFull.signalAll();
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c)
+    {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements)
+    {
+        _lock.lock();
+        try
+        {
+            int drained = 0;
+            while (drained < maxElements)
+            {
+                Runnable job = dequeue();
+                if (job == null)
+                    break;
+                c.add(job);
+                ++drained;
+            }
+            return drained;
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * @return an iterator over a snapshot of the queued jobs, in priority order
+     */
+    @Override
+    public Iterator<Runnable> iterator()
+    {
+        List<Runnable> jobs = new ArrayList<>(_size.get());
+        _lock.lock();
+        try
+        {
+            for (ArrayDeque<Runnable> queue : _queues)
+                jobs.addAll(queue);
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+        return jobs.iterator();
+    }
+
+    private void enqueue(Runnable job)
+    {
+        int priority = getPriority(job).ordinal();
+        _queues[priority].addLast(job);
+        _sizes.incrementAndGet(priority);
+        _size.incrementAndGet();
+        _notEmpty.signal();
+    }
+
+    /**
+     * @return the priority to take the next job from, or -1 if the queue is empty
+     */
+    private int select()
+    {
+        // A lower priority that has been passed over too many times goes first
+        for (int priority = _queues.length; priority-- > 1;)
+        {
+            if (_passed[priority] >= _starvationLimit && !_queues[priority].isEmpty())
+                return priority;
+        }
+
+        for (int priority = 0; priority < _queues.length; ++priority)
+        {
+            if (!_queues[priority].isEmpty())
+                return priority;
+        }
+        return -1;
+    }
+
+    private Runnable dequeue()
+    {
+        int priority = select();
+        if (priority < 0)
+            return null;
+
+        Runnable job = _queues[priority].pollFirst();
+        _sizes.decrementAndGet(priority);
+        _size.decrementAndGet();
+
+        if (_passed[priority] >= _starvationLimit)
+            _starved.incrementAndGet(priority);
+        _passed[priority] = 0;
+        for (int lower = priority + 1; lower < _queues.length; ++lower)
+        {
+            if (!_queues[lower].isEmpty())
+                _passed[lower]++;
+        }
+
+        _notFull.signal();
+        return job;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{high=%d,normal=%d,low=%d}", getClass().getSimpleName(), hashCode(),
+                getSize(Priority.HIGH), getSize(Priority.NORMAL), getSize(Priority.LOW));
+    }
+}
@@ -334,6 +334,26 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
         return _jobs.size();
     }
 
+    /**
+     * Get the size of the job queue for each priority.
+     *
+     * @return Number of jobs queued waiting for a thread for each {@link Prioritized.Priority}, from the highest,
+     * or just the size of the job queue if it is not a {@link PriorityJobQueue}
+     */
+    @ManagedAttribute("Size of the job queue per priority, from the highest")
+    public int[] getQueueSizes()
+    {
+        if (!(_jobs instanceof PriorityJobQueue))
+            return new int[]{_jobs.size()};
+
+        PriorityJobQueue jobs = (PriorityJobQueue)_jobs;
+        Prioritized.Priority[] priorities = Prioritized.Priority.values();
+        int[] sizes = new int[priorities.length];
+        for (int i = 0; i < sizes.length; ++i)
+            sizes[i] = jobs.getSize(priorities[i]);
+        return sizes;
+    }
+
     /**
      * Delegated to the named or anonymous Pool.
      */
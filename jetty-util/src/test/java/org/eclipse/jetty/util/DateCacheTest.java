@@ -19,6 +19,8 @@
 package org.eclipse.jetty.util;
 
 
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
@@ -71,4 +73,64 @@ public class DateCacheTest
         }
         Assert.assertThat(hits,Matchers.greaterThan(misses));
     }
+
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testMillis() throws Exception
+    {
+        String format="EEE, dd MMM yyyy HH:mm:ss.SSS zzz";
+        DateCache dc = new DateCache(format,Locale.US,TimeZone.getTimeZone("GMT"));
+        SimpleDateFormat sdf = new SimpleDateFormat(format,Locale.US);
+        sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        long now=1500000000000L;
+        for (long t : new long[]{now,now+7,now+42,now+999,now+1001,now+523,now-1000,now+2000})
+        {
+            Assert.assertEquals(sdf.format(new Date(t)),dc.format(t));
+            StringBuilder buffer = new StringBuilder("[");
+            dc.append(buffer,t);
+            Assert.assertEquals("["+sdf.format(new Date(t)),buffer.toString());
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testPreviousSecond() throws Exception
+    {
+        DateCache dc = new DateCache("dd/MMM/yyyy:HH:mm:ss Z",Locale.US,TimeZone.getTimeZone("GMT"));
+
+        long now=1500000000000L;
+        String previous=dc.format(now-500);
+        String current=dc.format(now+100);
+        Assert.assertNotEquals(previous,current);
+
+        // Both the current and the previous second are cached
+        Assert.assertSame(current,dc.format(now+900));
+        Assert.assertSame(previous,dc.format(now-200));
+
+        DateCache.Tick tick=dc.formatTick(now+100);
+        Assert.assertEquals(now/1000,tick.getSeconds());
+        Assert.assertEquals(current,tick.getString());
+    }
+
+    /* ------------------------------------------------------------ */
+    @Test
+    public void testFutureDateDoesNotAdvanceTick() throws Exception
+    {
+        String format="dd/MMM/yyyy:HH:mm:ss Z";
+        DateCache dc = new DateCache(format,Locale.US,TimeZone.getTimeZone("GMT"));
+        SimpleDateFormat sdf = new SimpleDateFormat(format,Locale.US);
+        sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        long now=System.currentTimeMillis();
+        String current=dc.format(now);
+
+        // Two future seconds would otherwise displace both cached ticks
+        long future=now+TimeUnit.HOURS.toMillis(1);
+        Assert.assertEquals(sdf.format(new Date(future)),dc.format(future));
+        Assert.assertEquals(sdf.format(new Date(future+1000)),dc.format(future+1000));
+
+        // The current second is still cached
+        Assert.assertSame(current,dc.format(now));
+    }
 }
@@ -35,10 +35,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 
 import javax.servlet.MultipartConfigElement;
+import javax.servlet.ReadListener;
 import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
 import javax.servlet.http.Part;
 
 import org.eclipse.jetty.util.MultiPartInputStreamParser.MultiPart;
@@ -845,6 +849,182 @@ public class MultiPartInputStreamTest
 
 
     
+    @Test
+    public void testNonBlocking() throws Exception
+    {
+        byte[] content = createMultipartRequestString(FILENAME).getBytes(StandardCharsets.ISO_8859_1);
+        for (int chunk : new int[]{1, 2, 7, 13, 64, content.length})
+        {
+            MultipartConfigElement config = new MultipartConfigElement(_dirname, 1024, 3072, 50);
+            MultiPartInputStreamParser mpis = new MultiPartInputStreamParser(null, _contentType, config, _tmpDir);
+            mpis.setDeleteOnExit(true);
+
+            boolean complete = false;
+            for (int offset = 0; offset < content.length; offset += chunk)
+                complete = mpis.parse(ByteBuffer.wrap(content, offset, Math.min(chunk, content.length - offset)), false);
+            assertTrue(complete);
+            assertTrue(mpis.parse(BufferUtil.EMPTY_BUFFER, true));
+
+            assertThat(mpis.getParts().size(), is(2));
+            MultiPart field1 = (MultiPart)mpis.getPart("field1");
+            assertEquals("Joe Blow", new String(field1.getBytes(), StandardCharsets.ISO_8859_1));
+            MultiPart stuff = (MultiPart)mpis.getPart("stuff");
+            assertThat(stuff.getContentType(), is("text/plain"));
+            assertThat(stuff.getSize(), is(51L));
+            assertThat(stuff.getFile(), notNullValue()); //larger than the threshold, so streamed to a file
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            IO.copy(stuff.getInputStream(), os);
+            assertTrue(os.toString("ISO-8859-1").startsWith("stuff.txt00000"));
+            mpis.deleteParts();
+        }
+    }
+
+    @Test
+    public void testNonBlockingTransferEncodings() throws Exception
+    {
+        String content = "--AaB03x\r\n"+
+                "Content-disposition: form-data; name=\"base64\"\r\n"+
+                "Content-Transfer-Encoding: base64\r\n"+
+                "\r\n"+
+                B64Code.encode("hello jetty") + "\r\n"+
+                B64Code.encode("and more") + "\r\n"+
+                "--AaB03x\r\n"+
+                "Content-disposition: form-data; name=\"quoted\"\r\n"+
+                "Content-Transfer-Encoding: quoted-printable\r\n"+
+                "\r\n"+
+                "truth=3Dbeauty=\r\n, beauty=3Dtruth\r\n"+
+                "--AaB03x--\r\n";
+
+        MultipartConfigElement config = new MultipartConfigElement(_dirname, 1024, 3072, 50);
+        MultiPartInputStreamParser mpis = new MultiPartInputStreamParser(null, _contentType, config, _tmpDir);
+        mpis.setDeleteOnExit(true);
+        byte[] bytes = content.getBytes(StandardCharsets.ISO_8859_1);
+        for (int i = 0; i < bytes.length; i++)
+            mpis.parse(ByteBuffer.wrap(bytes, i, 1), false);
+        assertTrue(mpis.parse(BufferUtil.EMPTY_BUFFER, true));
+
+        assertEquals("hello jettyand more", new String(((MultiPart)mpis.getPart("base64")).getBytes(), StandardCharsets.ISO_8859_1));
+        assertEquals("truth=beauty, beauty=truth", new String(((MultiPart)mpis.getPart("quoted")).getBytes(), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testNonBlockingIncomplete() throws Exception
+    {
+        String content = "--AaB03x\r\n"+
+                "content-disposition: form-data; name=\"field1\"\r\n"+
+                "\r\n"+
+                "Joe Blow\r\n";
+
+        MultipartConfigElement config = new MultipartConfigElement(_dirname, 1024, 3072, 50);
+        MultiPartInputStreamParser mpis = new MultiPartInputStreamParser(null, _contentType, config, _tmpDir);
+        assertFalse(mpis.parse(BufferUtil.toBuffer(content), false));
+        try
+        {
+            mpis.getParts();
+            fail("Parts available before parsing is complete");
+        }
+        catch (IllegalStateException e)
+        {
+            assertTrue(e.getMessage().contains("without blocking"));
+        }
+
+        try
+        {
+            mpis.parse(BufferUtil.EMPTY_BUFFER, true);
+            fail("Incomplete parts");
+        }
+        catch (IOException e)
+        {
+            assertTrue(e.getMessage().startsWith("Incomplete"));
+        }
+    }
+
+    @Test
+    public void testReadListener() throws Exception
+    {
+        byte[] content = createMultipartRequestString(FILENAME).getBytes(StandardCharsets.ISO_8859_1);
+        ChunkedInputStream in = new ChunkedInputStream(content, 10);
+
+        MultipartConfigElement config = new MultipartConfigElement(_dirname, 1024, 3072, 50);
+        MultiPartInputStreamParser mpis = new MultiPartInputStreamParser(null, _contentType, config, _tmpDir);
+        mpis.setDeleteOnExit(true);
+        FutureCallback callback = new FutureCallback();
+        mpis.parse(in, callback);
+
+        while (!callback.isDone())
+            in.onDataAvailable();
+        callback.get();
+
+        assertThat(mpis.getParts().size(), is(2));
+        assertEquals("Joe Blow", new String(((MultiPart)mpis.getPart("field1")).getBytes(), StandardCharsets.ISO_8859_1));
+        assertThat(mpis.getPart("stuff").getSize(), is(51L));
+    }
+
+    /**
+     * An async input stream that makes a chunk of content ready each time 
+     * the listener is called.
+     */
+    private static class ChunkedInputStream extends ServletInputStream
+    {
+        private final byte[] _content;
+        private final int _chunk;
+        private ReadListener _listener;
+        private int _position;
+        private boolean _ready;
+
+        private ChunkedInputStream(byte[] content, int chunk)
+        {
+            _content = content;
+            _chunk = chunk;
+        }
+
+        private void onDataAvailable() throws IOException
+        {
+            _ready = true;
+            if (isFinished())
+                _listener.onAllDataRead();
+            else
+                _listener.onDataAvailable();
+        }
+
+        @Override
+        public boolean isFinished()
+        {
+            return _position == _content.length;
+        }
+
+        @Override
+        public boolean isReady()
+        {
+            boolean ready = _ready;
+            _ready = false;
+            return ready;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener)
+        {
+            _listener = readListener;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (isFinished())
+                return -1;
+            int l = Math.min(Math.min(len, _chunk), _content.length - _position);
+            System.arraycopy(_content, _position, b, off, l);
+            _position += l;
+            return l;
+        }
+    }
+
     private String createMultipartRequestString(String filename)
     {
         int length = filename.length();
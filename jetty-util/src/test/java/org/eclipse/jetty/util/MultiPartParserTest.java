@@ -0,0 +1,226 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MultiPartParserTest
+{
+    private static final String BODY =
+        "preamble\r\n"+
+        "--AaB03x\r\n"+
+        "Content-Disposition: form-data; name=\"field1\"\r\n"+
+        "\r\n"+
+        "Joe Blow\r\n"+
+        "--AaB03x  \r\n"+
+        "Content-Disposition: form-data;\r\n"+
+        " name=\"stuff\"\n"+
+        "Content-Type: text/plain\n"+
+        "\n"+
+        "line one\r\n--AaB0\r\n--AaB03\r\n"+
+        "--AaB03x\r\n"+
+        "Content-Disposition: form-data; name=\"empty\"\r\n"+
+        "\r\n"+
+        "\r\n"+
+        "--AaB03x--\r\n"+
+        "epilogue\r\n";
+
+    private static final String[] EVENTS =
+    {
+        "start",
+        "Content-Disposition: form-data; name=\"field1\"",
+        "headers",
+        "content: Joe Blow",
+        "start",
+        "Content-Disposition: form-data; name=\"stuff\"",
+        "Content-Type: text/plain",
+        "headers",
+        "content: line one\r\n--AaB0\r\n--AaB03",
+        "start",
+        "Content-Disposition: form-data; name=\"empty\"",
+        "headers",
+        "content: ",
+        "complete"
+    };
+
+    @Test
+    public void testWhole() throws Exception
+    {
+        TestHandler handler = new TestHandler();
+        MultiPartParser parser = new MultiPartParser(handler,"AaB03x");
+        assertTrue(parser.parse(BufferUtil.toBuffer(BODY),true));
+        assertTrue(parser.isComplete());
+        assertThat(handler.events,contains(EVENTS));
+    }
+
+    @Test
+    public void testEverySplit() throws Exception
+    {
+        byte[] bytes = BODY.getBytes(StandardCharsets.ISO_8859_1);
+        for (int split=0;split<=bytes.length;split++)
+        {
+            TestHandler handler = new TestHandler();
+            MultiPartParser parser = new MultiPartParser(handler,"AaB03x");
+            parser.parse(ByteBuffer.wrap(bytes,0,split),false);
+            parser.parse(ByteBuffer.wrap(bytes,split,bytes.length-split),true);
+            assertThat("split at "+split,handler.events,contains(EVENTS));
+        }
+    }
+
+    @Test
+    public void testByteAtATime() throws Exception
+    {
+        byte[] bytes = BODY.getBytes(StandardCharsets.ISO_8859_1);
+        TestHandler handler = new TestHandler();
+        MultiPartParser parser = new MultiPartParser(handler,"AaB03x");
+        for (int i=0;i<bytes.length;i++)
+            parser.parse(ByteBuffer.wrap(bytes,i,1),false);
+        parser.parse(BufferUtil.EMPTY_BUFFER,true);
+        assertThat(handler.events,contains(EVENTS));
+    }
+
+    @Test
+    public void testNoPreamble() throws Exception
+    {
+        TestHandler handler = new TestHandler();
+        MultiPartParser parser = new MultiPartParser(handler,"AaB03x");
+        parser.parse(BufferUtil.toBuffer("--AaB03x\r\nName: value\r\n\r\ncontent\r\n--AaB03x--"),true);
+        assertThat(handler.events,contains("start","Name: value","headers","content: content","complete"));
+    }
+
+    @Test
+    public void testHandlerReturn() throws Exception
+    {
+        TestHandler handler = new TestHandler()
+        {
+            @Override
+            public boolean headerComplete()
+            {
+                super.headerComplete();
+                return true;
+            }
+        };
+        MultiPartParser parser = new MultiPartParser(handler,"AaB03x");
+        ByteBuffer buffer = BufferUtil.toBuffer("--AaB03x\r\n\r\ncontent\r\n--AaB03x--");
+        assertTrue(parser.parse(buffer,false));
+        assertThat(handler.events,contains("start","headers"));
+        assertEquals("content\r\n--AaB03x--",BufferUtil.toString(buffer));
+        assertTrue(parser.parse(buffer,false));
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    public void testEarlyEOF() throws Exception
+    {
+        TestHandler handler = new TestHandler();
+        MultiPartParser parser = new MultiPartParser(handler,"AaB03x");
+        assertFalse(parser.parse(BufferUtil.toBuffer("--AaB03x\r\n\r\ncontent\r\n--AaB0"),false));
+        parser.parse(BufferUtil.EMPTY_BUFFER,true);
+        assertThat(handler.events,contains("start","headers","earlyEOF"));
+        assertEquals("content",handler.content.toString());
+    }
+
+    @Test
+    public void testBadDelimiter() throws Exception
+    {
+        TestHandler handler = new TestHandler();
+        MultiPartParser parser = new MultiPartParser(handler,"AaB03x");
+        parser.parse(BufferUtil.toBuffer("--AaB03xyz\r\n\r\n"),true);
+        assertThat(handler.events,contains("bad: Bad multipart delimiter"));
+    }
+
+    @Test
+    public void testHeadersTooLarge() throws Exception
+    {
+        TestHandler handler = new TestHandler();
+        MultiPartParser parser = new MultiPartParser(handler,"AaB03x",16);
+        parser.parse(BufferUtil.toBuffer("--AaB03x\r\nName: a very long value\r\n\r\n"),false);
+        assertThat(handler.events,contains("start","bad: Multipart part headers exceed 16"));
+        assertTrue(parser.isComplete());
+    }
+
+    private static class TestHandler implements MultiPartParser.Handler
+    {
+        final List<String> events = new ArrayList<>();
+        final StringBuilder content = new StringBuilder();
+
+        @Override
+        public void startPart()
+        {
+            events.add("start");
+        }
+
+        @Override
+        public boolean parsedField(String name, String value)
+        {
+            events.add(name+": "+value);
+            return false;
+        }
+
+        @Override
+        public boolean headerComplete()
+        {
+            events.add("headers");
+            return false;
+        }
+
+        @Override
+        public boolean content(ByteBuffer item, boolean last)
+        {
+            content.append(BufferUtil.toString(item,StandardCharsets.ISO_8859_1));
+            if (last)
+            {
+                events.add("content: "+content);
+                content.setLength(0);
+            }
+            return false;
+        }
+
+        @Override
+        public boolean messageComplete()
+        {
+            events.add("complete");
+            return false;
+        }
+
+        @Override
+        public void earlyEOF()
+        {
+            events.add("earlyEOF");
+        }
+
+        @Override
+        public void badMessage(String reason)
+        {
+            events.add("bad: "+reason);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import static org.junit.Assert.assertThat;
 
 import java.io.File;
 import java.io.FileReader;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
@@ -313,4 +314,35 @@ public class RolloverFileOutputStreamTest
             }
         }
     }
+
+    @Test
+    public void testRolloverByteBuffer() throws Exception
+    {
+        File testDir = testingDir.getEmptyPathDir().toFile();
+        FS.ensureEmpty(testDir);
+
+        TimeZone zone = toZoneId("Australia/Sydney");
+        Calendar now = toDateTime("2016.04.10-11:59:58.0 PM AEST", zone);
+
+        File template = new File(testDir,"test-rofos-yyyy_mm_dd.log");
+
+        try (RolloverFileOutputStream rofos =
+            new RolloverFileOutputStream(template.getAbsolutePath(),false,0,zone,null,null,now))
+        {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+            buffer.put("BEFORE".getBytes()).flip();
+            rofos.write(buffer);
+            assertThat(buffer.hasRemaining(),is(false));
+
+            // Roll over as the timer would at midnight
+            Calendar tomorrow = (Calendar)now.clone();
+            tomorrow.add(Calendar.DAY_OF_MONTH,1);
+            rofos.setFile(tomorrow);
+
+            rofos.write(ByteBuffer.wrap("AFTER".getBytes()));
+
+            assertThat(IO.toString(new FileReader(new File(testDir,"test-rofos-2016_04_10.log"))),is("BEFORE"));
+            assertThat(IO.toString(new FileReader(new File(testDir,"test-rofos-2016_04_11.log"))),is("AFTER"));
+        }
+    }
 }
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
@@ -287,4 +288,77 @@ public class URLEncodedTest
         UrlEncoded.decodeUtf8To(new ByteArrayInputStream(query.getBytes(StandardCharsets.ISO_8859_1)),map,100,2);
         assertEquals("X"+Utf8Appendable.REPLACEMENT+Utf8Appendable.REPLACEMENT+"Z",map.getValue("name",0));
     }
+
+    /* -------------------------------------------------------------- */
+    @Test
+    public void testDecoder() throws Exception
+    {
+        String form="name1=value+1&name2=%E4%B8%AD%E6%96%87&name1=%u0041b&flag&x=a=b&empty=";
+        byte[] bytes=form.getBytes(StandardCharsets.ISO_8859_1);
+
+        // Every split of the content between two chunks decodes the same
+        for (int split=0;split<=bytes.length;split++)
+        {
+            MultiMap<String> map = new MultiMap<>();
+            UrlEncoded.Decoder decoder = new UrlEncoded.Decoder(map,StandardCharsets.UTF_8,-1,-1);
+            decoder.decode(ByteBuffer.wrap(bytes,0,split));
+            decoder.decode(ByteBuffer.wrap(bytes,split,bytes.length-split));
+            decoder.complete();
+
+            assertEquals("split at "+split,5,map.size());
+            assertEquals("value 1",map.getValue("name1",0));
+            assertEquals("Ab",map.getValue("name1",1));
+            assertEquals("\u4e2d\u6587",map.getValue("name2",0));
+            assertEquals("",map.getValue("flag",0));
+            assertEquals("a=b",map.getValue("x",0));
+            assertEquals("",map.getValue("empty",0));
+        }
+    }
+
+    /* -------------------------------------------------------------- */
+    @Test
+    public void testDecoderInvalidEscape() throws Exception
+    {
+        // The byte that ends an invalid escape is not part of it
+        for (String escape : new String[]{"%","%4","%u","%u12","%zz"})
+        {
+            MultiMap<String> map = new MultiMap<>();
+            UrlEncoded.Decoder decoder = new UrlEncoded.Decoder(map,StandardCharsets.UTF_8,-1,-1);
+            decoder.decode(BufferUtil.toBuffer("a="+escape+"&b=1"));
+            decoder.complete();
+
+            assertEquals(escape,2,map.size());
+            assertTrue(escape,map.getValue("a",0).startsWith(Utf8Appendable.REPLACEMENT+""));
+            assertEquals(escape,"1",map.getValue("b",0));
+        }
+    }
+
+    /* -------------------------------------------------------------- */
+    @Test
+    public void testDecoderLimits() throws Exception
+    {
+        MultiMap<String> map = new MultiMap<>();
+        UrlEncoded.Decoder decoder = new UrlEncoded.Decoder(map,null,-1,2);
+        decoder.decode(BufferUtil.toBuffer("a=1&b=2&c"));
+        try
+        {
+            decoder.complete();
+            Assert.fail("Too many keys");
+        }
+        catch (IllegalStateException e)
+        {
+            assertTrue(e.getMessage().contains("too many keys"));
+        }
+
+        decoder = new UrlEncoded.Decoder(new MultiMap<String>(),null,4,-1);
+        try
+        {
+            decoder.decode(BufferUtil.toBuffer("a=123"));
+            Assert.fail("Too large");
+        }
+        catch (IllegalStateException e)
+        {
+            assertTrue(e.getMessage().contains("too large"));
+        }
+    }
 }
@@ -0,0 +1,110 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.toolchain.test.AdvancedRunner;
+import org.eclipse.jetty.toolchain.test.annotation.Stress;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AdvancedRunner.class)
+public class Utf8BenchmarkTest
+{
+    private static final Logger logger = Log.getLogger(Utf8BenchmarkTest.class);
+
+    private static final String ASCII = "/context/servlet/path/info?name=value&other=some+longer+value&id=1234567890";
+    private static final String MIXED = "Grüße aus Köln, café crème brûlée for €12, naïve résumé";
+    private static final String CJK = "日本語のテキストと中文文本和한국어 텍스트";
+
+    @Test
+    public void testPayloads() throws Exception
+    {
+        for (String payload : new String[]{ASCII, MIXED, CJK})
+        {
+            byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+            Utf8StringBuilder builder = new Utf8StringBuilder();
+            builder.append(bytes, 0, bytes.length);
+            assertEquals(payload, builder.toString());
+
+            builder.reset();
+            builder.append(ByteBuffer.wrap(bytes));
+            assertEquals(payload, builder.toString());
+        }
+    }
+
+    @Stress("High CPU")
+    @Test
+    public void testDecode() throws Exception
+    {
+        int iterations = 4 * 1024 * 1024;
+        int runs = 4;
+
+        for (int i = 0; i < runs; ++i)
+        {
+            for (String payload : new String[]{ASCII, MIXED, CJK})
+            {
+                byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+                long array = run(iterations, bytes, false);
+                long buffer = run(iterations, bytes, true);
+                long jdk = runJDK(iterations, bytes);
+                logger.info("{} x {} bytes: array {} ms, buffer {} ms, jdk {} ms", iterations, bytes.length, array, buffer, jdk);
+            }
+        }
+    }
+
+    private long run(int iterations, byte[] bytes, boolean buffer)
+    {
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        Utf8StringBuilder builder = new Utf8StringBuilder(bytes.length);
+        long length = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < iterations; ++i)
+        {
+            builder.reset();
+            if (buffer)
+                builder.append(direct.duplicate());
+            else
+                builder.append(bytes, 0, bytes.length);
+            length += builder.length();
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        assertEquals(iterations * (long)builder.length(), length);
+        return elapsed;
+    }
+
+    private long runJDK(int iterations, byte[] bytes)
+    {
+        long length = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < iterations; ++i)
+            length += new String(bytes, StandardCharsets.UTF_8).length();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        assertEquals(0, length % iterations);
+        return elapsed;
+    }
+}
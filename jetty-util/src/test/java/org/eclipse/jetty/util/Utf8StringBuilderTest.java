@@ -21,7 +21,9 @@ package org.eclipse.jetty.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -134,4 +136,141 @@ public class Utf8StringBuilderTest
         String result = buffer.toString();
         assertEquals(source,result);
     }
+
+    @Test
+    public void testAsciiRuns() throws Exception
+    {
+        String[] sources =
+        {
+            "/path/to/some/resource?with=a&long=query",
+            "abcdefgh\u00e9ijklmnopqrstuvwxyz\u20ac0123456789\uD842\uDF9F.",
+            "\u4e2d\u6587\u5b57\u7b26a\u4e32",
+            "\u0000\u007f\u0080",
+        };
+
+        for (String source : sources)
+        {
+            byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+
+            Utf8StringBuilder buffer = new Utf8StringBuilder();
+            buffer.append(bytes,0,bytes.length);
+            assertEquals(source,buffer.toString());
+
+            // Split at every offset, to cross both runs and sequences
+            for (int split = 0; split <= bytes.length; split++)
+            {
+                buffer.reset();
+                buffer.append(bytes,0,split);
+                buffer.append(bytes,split,bytes.length-split);
+                assertEquals(source,buffer.toString());
+
+                buffer.reset();
+                buffer.append(ByteBuffer.wrap(bytes,0,split).slice());
+                ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length-split);
+                direct.put(bytes,split,bytes.length-split).flip();
+                buffer.append(direct);
+                assertEquals(0,direct.remaining());
+                assertEquals(source,buffer.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testAsciiMaxChars() throws Exception
+    {
+        byte[] bytes = "abcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.UTF_8);
+
+        Utf8StringBuilder buffer = new Utf8StringBuilder();
+        assertTrue(buffer.append(bytes,0,bytes.length,26));
+        assertEquals(26,buffer.length());
+
+        // As before, one char more than the maximum is appended before failing
+        buffer.reset();
+        Assert.assertFalse(buffer.append(bytes,0,bytes.length,10));
+        assertEquals("abcdefghijk",buffer.toString());
+    }
+
+    @Test
+    public void testRandomBulkMatchesByteAtATime() throws Exception
+    {
+        long seed = 0xF8F8L;
+        Random random = new Random(seed);
+        for (int i = 0; i < 10000; i++)
+        {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int c = 0; c < length; c++)
+            {
+                switch (random.nextInt(4))
+                {
+                    case 0:
+                        text.append((char)(0x80 + random.nextInt(0x780)));
+                        break;
+                    case 1:
+                        text.append((char)(0x800 + random.nextInt(0xD000)));
+                        break;
+                    case 2:
+                        text.appendCodePoint(0x10000 + random.nextInt(0x100000));
+                        break;
+                    default:
+                        text.append((char)random.nextInt(0x80));
+                        break;
+                }
+            }
+            byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            boolean valid = bytes.length == 0 || random.nextInt(4) > 0;
+            if (!valid)
+                bytes[random.nextInt(bytes.length)] = (byte)random.nextInt(256);
+
+            String expected = decode(new Utf8StringBuilder(), bytes, 0);
+            if (valid)
+                assertEquals(seed + " " + TypeUtil.toHexString(bytes), text.toString(), expected);
+
+            int split = random.nextInt(bytes.length + 1);
+            assertEquals(seed + " " + TypeUtil.toHexString(bytes), expected, decode(new Utf8StringBuilder(), bytes, split));
+            assertEquals(seed + " " + TypeUtil.toHexString(bytes), expected, decode(new Utf8StringBuilder(), ByteBuffer.wrap(bytes)));
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            assertEquals(seed + " " + TypeUtil.toHexString(bytes), expected, decode(new Utf8StringBuilder(), direct));
+        }
+    }
+
+    /**
+     * @param split the offset at which the bytes are split into two bulk appends, or 0 to append one byte at a time
+     * @return the decoded string, or the partial string and the failure
+     */
+    private static String decode(Utf8StringBuilder builder, byte[] bytes, int split)
+    {
+        try
+        {
+            if (split == 0)
+            {
+                for (byte b : bytes)
+                    builder.append(b);
+            }
+            else
+            {
+                builder.append(bytes, 0, split);
+                builder.append(bytes, split, bytes.length - split);
+            }
+            return builder.toString();
+        }
+        catch (RuntimeException x)
+        {
+            return builder.getStringBuilder() + " " + x.getClass().getSimpleName();
+        }
+    }
+
+    private static String decode(Utf8StringBuilder builder, ByteBuffer buffer)
+    {
+        try
+        {
+            builder.append(buffer);
+            return builder.toString();
+        }
+        catch (RuntimeException x)
+        {
+            return builder.getStringBuilder() + " " + x.getClass().getSimpleName();
+        }
+    }
 }
@@ -0,0 +1,99 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CyclicBarrier;
+
+import org.junit.Test;
+
+
+/* ------------------------------------------------------------ */
+public class CounterStatisticTest
+{
+    @Test
+    public void testCounter()
+        throws Exception
+    {
+        CounterStatistic count = new CounterStatistic();
+
+        assertEquals(0L,count.getCurrent());
+        assertEquals(0L,count.getMax());
+        assertEquals(0L,count.getTotal());
+
+        count.increment();
+        count.increment();
+        count.decrement();
+        count.add(4);
+        count.add(-2);
+
+        assertEquals(3L,count.getCurrent());
+        assertEquals(5L,count.getMax());
+        assertEquals(6L,count.getTotal());
+
+        count.reset(2);
+        assertEquals(2L,count.getCurrent());
+        assertEquals(2L,count.getMax());
+        assertEquals(0L,count.getTotal());
+    }
+
+    @Test
+    public void testConcurrentCounter()
+        throws Exception
+    {
+        final int threads=8;
+        final int loops=100000;
+        final CounterStatistic count = new CounterStatistic();
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        Thread[] workers = new Thread[threads];
+        for (int t=0;t<threads;t++)
+        {
+            workers[t]=new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        barrier.await();
+                        for (int i=0;i<loops;i++)
+                        {
+                            count.increment();
+                            count.decrement();
+                        }
+                        count.increment();
+                    }
+                    catch (Exception x)
+                    {
+                        throw new RuntimeException(x);
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        for (Thread worker : workers)
+            worker.join();
+
+        assertEquals((long)threads,count.getCurrent());
+        assertEquals((long)threads*(loops+1),count.getTotal());
+        // Each thread holds at most one count at a time
+        assertEquals((long)threads,count.getMax());
+    }
+}
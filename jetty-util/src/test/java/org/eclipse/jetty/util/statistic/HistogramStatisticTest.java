@@ -0,0 +1,136 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import static org.junit.Assert.assertEquals;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/* ------------------------------------------------------------ */
+public class HistogramStatisticTest
+{
+    @Test
+    public void testExactSmallValues()
+    {
+        HistogramStatistic stats = new HistogramStatistic();
+        for (int i=1;i<=10;i++)
+            stats.set(i);
+
+        assertEquals(10,stats.getCount());
+        assertEquals(5,stats.getValueAtPercentile(50));
+        assertEquals(9,stats.getValueAtPercentile(90));
+        assertEquals(10,stats.getValueAtPercentile(100));
+        assertEquals(10,stats.snapshot().getMax());
+        assertEquals(5.5,stats.snapshot().getMean(),0.01);
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        HistogramStatistic stats = new HistogramStatistic();
+        for (int i=1;i<=100000;i++)
+            stats.set(i);
+
+        HistogramStatistic.Snapshot snapshot = stats.snapshot();
+        assertEquals(100000,snapshot.getCount());
+        assertWithin(50000,snapshot.getValueAtPercentile(50));
+        assertWithin(90000,snapshot.getValueAtPercentile(90));
+        assertWithin(99000,snapshot.getValueAtPercentile(99));
+        assertWithin(99900,snapshot.getValueAtPercentile(99.9));
+        assertWithin(100000,snapshot.getMax());
+    }
+
+    @Test
+    public void testHighestTrackable()
+    {
+        HistogramStatistic stats = new HistogramStatistic(10);
+        stats.set(Long.MAX_VALUE);
+        stats.set(-1);
+        Assert.assertThat(stats.snapshot().getMax(),Matchers.lessThan(1024L));
+        assertEquals(0,stats.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testInterval()
+    {
+        HistogramStatistic stats = new HistogramStatistic();
+        for (int i=0;i<100;i++)
+            stats.set(1);
+        assertEquals(100,stats.intervalSnapshot().getCount());
+
+        for (int i=0;i<10;i++)
+            stats.set(1000);
+        HistogramStatistic.Snapshot interval = stats.intervalSnapshot();
+        assertEquals(10,interval.getCount());
+        assertWithin(1000,interval.getValueAtPercentile(50));
+
+        assertEquals(0,stats.intervalSnapshot().getCount());
+        assertEquals(110,stats.snapshot().getCount());
+
+        stats.reset();
+        assertEquals(0,stats.snapshot().getCount());
+        stats.set(1);
+        assertEquals(1,stats.intervalSnapshot().getCount());
+    }
+
+    @Test
+    public void testPrecision() throws Exception
+    {
+        for (int precisionBits : new int[] { 2, 7 })
+        {
+            final HistogramStatistic stats = new HistogramStatistic(30,precisionBits,1);
+            Thread[] threads = new Thread[4];
+            for (int t=0;t<threads.length;t++)
+            {
+                threads[t] = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        for (int i=1;i<=100000;i++)
+                            stats.set(i);
+                    }
+                };
+                threads[t].start();
+            }
+            for (Thread thread : threads)
+                thread.join();
+
+            HistogramStatistic.Snapshot snapshot = stats.snapshot();
+            assertEquals(400000,snapshot.getCount());
+            assertWithin(50000,snapshot.getValueAtPercentile(50),precisionBits);
+            assertWithin(99000,snapshot.getValueAtPercentile(99),precisionBits);
+            assertWithin(100000,snapshot.getMax(),precisionBits);
+        }
+    }
+
+    private void assertWithin(long expected, long actual)
+    {
+        assertWithin(expected,actual,4);
+    }
+
+    private void assertWithin(long expected, long actual, int precisionBits)
+    {
+        Assert.assertThat(actual,Matchers.greaterThanOrEqualTo(expected));
+        Assert.assertThat(actual,Matchers.lessThanOrEqualTo(expected+(expected>>precisionBits)));
+    }
+}
@@ -20,6 +20,8 @@ package org.eclipse.jetty.util.statistic;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.concurrent.CyclicBarrier;
+
 import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Test;
@@ -63,6 +65,59 @@ public class SampleStatisticTest
         }
     }
 
+    @Test
+    public void testConcurrentSamples()
+        throws Exception
+    {
+        final int threads=8;
+        final int samples=10000;
+        final SampleStatistic stats = new SampleStatistic();
+        SampleStatistic sequential = new SampleStatistic();
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        Thread[] workers = new Thread[threads];
+        for (int t=0;t<threads;t++)
+        {
+            final int thread=t;
+            workers[t]=new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        barrier.await();
+                        for (int i=0;i<samples;i++)
+                            stats.set(sample(thread,i));
+                    }
+                    catch (Exception x)
+                    {
+                        throw new RuntimeException(x);
+                    }
+                }
+            };
+            workers[t].start();
+            for (int i=0;i<samples;i++)
+                sequential.set(sample(t,i));
+        }
+        for (Thread worker : workers)
+            worker.join();
+
+        // Concurrent samples do not change the exact values
+        assertEquals(sequential.getCount(),stats.getCount());
+        assertEquals(sequential.getTotal(),stats.getTotal());
+        assertEquals(sequential.getMax(),stats.getMax());
+        assertEquals(1000,stats.getMax());
+        // The estimate of the variance depends on the order of the samples
+        Assert.assertThat(stats.getStdDev(),Matchers.closeTo(sequential.getStdDev(),sequential.getStdDev()/50));
+    }
+
+    private static long sample(int thread, int i)
+    {
+        if (thread==3 && i==5000)
+            return 1000;
+        return 100+(thread*31+i*17)%21-10;
+    }
+
     private void assertNearEnough(String test,double expected, double actual)
     {
         Assert.assertThat(actual,Matchers.greaterThan(expected-0.1D));
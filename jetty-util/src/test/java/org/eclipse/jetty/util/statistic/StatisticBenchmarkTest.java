@@ -0,0 +1,192 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.toolchain.test.AdvancedRunner;
+import org.eclipse.jetty.toolchain.test.annotation.Stress;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AdvancedRunner.class)
+public class StatisticBenchmarkTest
+{
+    private static final Logger logger = Log.getLogger(StatisticBenchmarkTest.class);
+
+    private interface Counter
+    {
+        void count();
+
+        long get();
+    }
+
+    @Test
+    public void testStripedCounter() throws Exception
+    {
+        final StripedCounter counter = new StripedCounter();
+        run(4, 10000, new Counter()
+        {
+            @Override
+            public void count()
+            {
+                counter.increment();
+            }
+
+            @Override
+            public long get()
+            {
+                return counter.sum();
+            }
+        });
+        assertEquals(40000, counter.sumThenReset());
+        assertEquals(0, counter.sum());
+    }
+
+    @Stress("High CPU")
+    @Test
+    public void testCounters() throws Exception
+    {
+        int cores = Runtime.getRuntime().availableProcessors();
+        Assume.assumeTrue(cores > 1);
+
+        final int iterations = 16 * 1024 * 1024;
+        final int runs = 4;
+
+        for (int threads = 1; threads <= cores; threads *= 2)
+        {
+            for (int r = 0; r < runs; ++r)
+            {
+                final AtomicLong atomic = new AtomicLong();
+                long atomicMs = run(threads, iterations, new Counter()
+                {
+                    @Override
+                    public void count()
+                    {
+                        atomic.incrementAndGet();
+                    }
+
+                    @Override
+                    public long get()
+                    {
+                        return atomic.get();
+                    }
+                });
+
+                final StripedCounter striped = new StripedCounter();
+                long stripedMs = run(threads, iterations, new Counter()
+                {
+                    @Override
+                    public void count()
+                    {
+                        striped.increment();
+                    }
+
+                    @Override
+                    public long get()
+                    {
+                        return striped.sum();
+                    }
+                });
+
+                final CounterStatistic counter = new CounterStatistic();
+                long counterMs = run(threads, iterations, new Counter()
+                {
+                    @Override
+                    public void count()
+                    {
+                        counter.increment();
+                        counter.decrement();
+                    }
+
+                    @Override
+                    public long get()
+                    {
+                        return counter.getTotal();
+                    }
+                });
+
+                final SampleStatistic sample = new SampleStatistic();
+                long sampleMs = run(threads, iterations, new Counter()
+                {
+                    @Override
+                    public void count()
+                    {
+                        sample.set(10);
+                    }
+
+                    @Override
+                    public long get()
+                    {
+                        return sample.getCount();
+                    }
+                });
+
+                logger.info("Threads: {} => AtomicLong {} ms, StripedCounter {} ms, CounterStatistic {} ms, SampleStatistic {} ms",
+                        threads, atomicMs, stripedMs, counterMs, sampleMs);
+            }
+        }
+    }
+
+    private static long run(int threads, final int iterations, final Counter counter) throws Exception
+    {
+        final CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+        for (int i = 0; i < threads; ++i)
+        {
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    await(barrier);
+                    for (int i = 0; i < iterations; ++i)
+                        counter.count();
+                    await(barrier);
+                }
+            };
+            thread.start();
+        }
+
+        await(barrier);
+        long begin = System.nanoTime();
+        await(barrier);
+        long end = System.nanoTime();
+        assertEquals((long)threads * iterations, counter.get());
+        return TimeUnit.NANOSECONDS.toMillis(end - begin);
+    }
+
+    private static void await(CyclicBarrier barrier)
+    {
+        try
+        {
+            barrier.await();
+        }
+        catch (Exception x)
+        {
+            throw new RuntimeException(x);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+
+/* ------------------------------------------------------------ */
+public class StripedCounterTest
+{
+    @Test
+    public void testRandomAddsMatchAtomicLong()
+        throws Exception
+    {
+        final int threads=8;
+        final int adds=100000;
+        final long seed=0x32L;
+        final StripedCounter counter = new StripedCounter();
+        final AtomicLong expected = new AtomicLong();
+        final CyclicBarrier barrier = new CyclicBarrier(threads+1);
+        Thread[] workers = new Thread[threads];
+        for (int t=0;t<threads;t++)
+        {
+            final Random random = new Random(seed+t);
+            workers[t]=new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        barrier.await();
+                        for (int i=0;i<adds;i++)
+                        {
+                            switch (random.nextInt(3))
+                            {
+                                case 0:
+                                    counter.increment();
+                                    expected.incrementAndGet();
+                                    break;
+                                case 1:
+                                    counter.decrement();
+                                    expected.decrementAndGet();
+                                    break;
+                                default:
+                                    long delta=random.nextInt(2000)-1000;
+                                    counter.add(delta);
+                                    expected.addAndGet(delta);
+                                    break;
+                            }
+                        }
+                    }
+                    catch (Exception x)
+                    {
+                        throw new RuntimeException(x);
+                    }
+                }
+            };
+            workers[t].start();
+        }
+
+        // Drain the counter concurrently, so that updates racing with a reset are checked
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicLong drained = new AtomicLong();
+        Thread drainer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                while (!done.get())
+                    drained.addAndGet(counter.sumThenReset());
+            }
+        };
+        drainer.start();
+
+        barrier.await();
+        for (Thread worker : workers)
+            worker.join();
+        done.set(true);
+        drainer.join();
+
+        assertEquals(String.valueOf(seed),expected.get(),drained.get()+counter.sum());
+        assertEquals(String.valueOf(seed),expected.get(),drained.get()+counter.sumThenReset());
+        assertEquals(0,counter.sum());
+    }
+}
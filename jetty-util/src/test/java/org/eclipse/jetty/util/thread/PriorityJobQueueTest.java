@@ -0,0 +1,169 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util.thread;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.thread.Prioritized.Priority;
+import org.junit.Test;
+
+public class PriorityJobQueueTest
+{
+    private static class Job extends Prioritized.Task
+    {
+        private final List<Job> _ran;
+
+        private Job(Priority priority, List<Job> ran)
+        {
+            super(priority);
+            _ran = ran;
+        }
+
+        @Override
+        public void run()
+        {
+            _ran.add(this);
+        }
+    }
+
+    @Test
+    public void testPriorityOrder() throws Exception
+    {
+        PriorityJobQueue queue = new PriorityJobQueue();
+        Job low = new Job(Priority.LOW, null);
+        Runnable normal = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+            }
+        };
+        Job high1 = new Job(Priority.HIGH, null);
+        Job high2 = new Job(Priority.HIGH, null);
+
+        assertTrue(queue.offer(low));
+        assertTrue(queue.offer(normal));
+        assertTrue(queue.offer(high1));
+        assertTrue(queue.offer(high2));
+
+        assertEquals(4, queue.size());
+        assertEquals(2, queue.getSize(Priority.HIGH));
+        assertEquals(1, queue.getSize(Priority.NORMAL));
+        assertEquals(1, queue.getSize(Priority.LOW));
+
+        assertSame(high1, queue.peek());
+        assertSame(high1, queue.poll());
+        assertSame(high2, queue.poll());
+        assertSame(normal, queue.poll());
+        assertSame(low, queue.poll());
+        assertNull(queue.poll());
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testStarvation() throws Exception
+    {
+        PriorityJobQueue queue = new PriorityJobQueue(Integer.MAX_VALUE, 4);
+        Job low = new Job(Priority.LOW, null);
+        queue.offer(low);
+        for (int i = 0; i < 10; i++)
+            queue.offer(new Job(Priority.HIGH, null));
+
+        for (int i = 0; i < 4; i++)
+            assertEquals(Priority.HIGH, PriorityJobQueue.getPriority(queue.poll()));
+        assertSame(low, queue.poll());
+        assertEquals(1, queue.getStarved(Priority.LOW));
+        assertEquals(6, queue.size());
+    }
+
+    @Test
+    public void testMaxCapacity() throws Exception
+    {
+        PriorityJobQueue queue = new PriorityJobQueue(2, PriorityJobQueue.DEFAULT_STARVATION_LIMIT);
+        assertTrue(queue.offer(new Job(Priority.LOW, null)));
+        assertTrue(queue.offer(new Job(Priority.LOW, null)));
+        assertFalse(queue.offer(new Job(Priority.HIGH, null)));
+        assertFalse(queue.offer(new Job(Priority.HIGH, null), 10, TimeUnit.MILLISECONDS));
+        assertEquals(0, queue.remainingCapacity());
+        queue.clear();
+        assertEquals(0, queue.size());
+        assertEquals(0, queue.getSize(Priority.LOW));
+    }
+
+    @Test
+    public void testThreadPoolRunsHighPriorityFirst() throws Exception
+    {
+        PriorityJobQueue queue = new PriorityJobQueue();
+        QueuedThreadPool pool = new QueuedThreadPool(1, 1, 60000, queue);
+        pool.start();
+        try
+        {
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            pool.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    blocked.countDown();
+                    try
+                    {
+                        release.await(5, TimeUnit.SECONDS);
+                    }
+                    catch (InterruptedException x)
+                    {
+                        throw new RuntimeException(x);
+                    }
+                }
+            });
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            List<Job> ran = new CopyOnWriteArrayList<>();
+            Job low = new Job(Priority.LOW, ran);
+            Job normal = new Job(Priority.NORMAL, ran);
+            Job high = new Job(Priority.HIGH, ran);
+            pool.execute(low);
+            pool.execute(normal);
+            pool.execute(high);
+            assertArrayEquals(new int[]{1, 1, 1}, pool.getQueueSizes());
+
+            release.countDown();
+            while (ran.size() < 3)
+                Thread.sleep(10);
+            assertSame(high, ran.get(0));
+            assertSame(normal, ran.get(1));
+            assertSame(low, ran.get(2));
+        }
+        finally
+        {
+            pool.stop();
+        }
+    }
+}
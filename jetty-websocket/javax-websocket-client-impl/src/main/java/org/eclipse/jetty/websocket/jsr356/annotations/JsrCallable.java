@@ -57,14 +57,17 @@ public abstract class JsrCallable extends CallableMethod
 
     /**
      * Copy Constructor
+     * <p>
+     * Reuses the parameter metadata resolved when the endpoint class was scanned,
+     * only the per-session argument array is created anew.
      */
     public JsrCallable(JsrCallable copy)
     {
-        this(copy.getPojo(),copy.getMethod());
+        super(copy);
         this.idxSession = copy.idxSession;
         this.idxConfig = copy.idxConfig;
-        System.arraycopy(copy.params,0,this.params,0,params.length);
-        System.arraycopy(copy.args,0,this.args,0,args.length);
+        this.params = copy.params;
+        this.args = copy.args.clone();
     }
 
     protected void assertRoleRequired(int index, String description)
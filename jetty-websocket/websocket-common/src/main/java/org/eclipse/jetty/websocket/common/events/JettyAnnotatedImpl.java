@@ -31,17 +31,18 @@ public class JettyAnnotatedImpl implements EventDriverImpl
     public EventDriver create(Object websocket, WebSocketPolicy policy)
     {
         Class<?> websocketClass = websocket.getClass();
-        synchronized (this)
+        JettyAnnotatedMetadata metadata = cache.get(websocketClass);
+        if (metadata == null)
         {
-            JettyAnnotatedMetadata metadata = cache.get(websocketClass);
-            if (metadata == null)
+            JettyAnnotatedScanner scanner = new JettyAnnotatedScanner();
+            metadata = scanner.scan(websocketClass);
+            JettyAnnotatedMetadata existing = cache.putIfAbsent(websocketClass,metadata);
+            if (existing != null)
             {
-                JettyAnnotatedScanner scanner = new JettyAnnotatedScanner();
-                metadata = scanner.scan(websocketClass);
-                cache.put(websocketClass,metadata);
+                metadata = existing;
             }
-            return new JettyAnnotatedEventDriver(policy,websocket,metadata);
         }
+        return new JettyAnnotatedEventDriver(policy,websocket,metadata);
     }
 
     @Override
@@ -45,6 +45,18 @@ public class CallableMethod
         this.paramTypes = method.getParameterTypes();
     }
 
+    /**
+     * Copy Constructor, reusing the already resolved parameter types.
+     * 
+     * @param copy the callable method to copy
+     */
+    public CallableMethod(CallableMethod copy)
+    {
+        this.pojo = copy.pojo;
+        this.method = copy.method;
+        this.paramTypes = copy.paramTypes;
+    }
+
     public Object call(Object obj, Object... args)
     {
         if ((this.pojo == null) || (this.method == null))
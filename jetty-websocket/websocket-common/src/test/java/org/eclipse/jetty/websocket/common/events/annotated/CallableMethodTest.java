@@ -0,0 +1,126 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.websocket.common.events.annotated;
+
+import static org.hamcrest.Matchers.is;
+
+import java.lang.reflect.Method;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import examples.AnnotatedTextSocket;
+
+public class CallableMethodTest
+{
+    public static class Thrower
+    {
+        public String echo(String msg, int count)
+        {
+            return msg + count;
+        }
+
+        public void fail(String msg)
+        {
+            throw new IllegalStateException(msg);
+        }
+    }
+
+    @Test
+    public void testCallVoidMethod() throws Exception
+    {
+        Method method = AnnotatedTextSocket.class.getMethod("onText",String.class);
+        CallableMethod callable = new CallableMethod(AnnotatedTextSocket.class,method);
+
+        AnnotatedTextSocket socket = new AnnotatedTextSocket();
+        Object ret = callable.call(socket,"Hello");
+
+        Assert.assertNull("Return value",ret);
+        socket.capture.assertEventCount(1);
+        socket.capture.pop().assertEventStartsWith("onText(\"Hello\")");
+    }
+
+    @Test
+    public void testCallWithPrimitiveAndReturn() throws Exception
+    {
+        Method method = Thrower.class.getMethod("echo",String.class,int.class);
+        CallableMethod callable = new CallableMethod(Thrower.class,method);
+
+        Assert.assertThat(callable.call(new Thrower(),"msg-",42),is((Object)"msg-42"));
+    }
+
+    @Test
+    public void testCopyReusesMethod() throws Exception
+    {
+        Method method = Thrower.class.getMethod("echo",String.class,int.class);
+        CallableMethod callable = new CallableMethod(Thrower.class,method);
+        CallableMethod copy = new CallableMethod(callable);
+
+        Assert.assertThat(copy.getMethod(),is(method));
+        Assert.assertThat(copy.call(new Thrower(),"copy-",1),is((Object)"copy-1"));
+    }
+
+    @Test
+    public void testCallWithInvalidArguments() throws Exception
+    {
+        Method method = Thrower.class.getMethod("echo",String.class,int.class);
+        CallableMethod callable = new CallableMethod(Thrower.class,method);
+
+        Object[][] invalid = new Object[][] { { 42, 42 }, { "msg-", null }, { "msg-", "42" } };
+        for (Object[] args : invalid)
+        {
+            try
+            {
+                callable.call(new Thrower(),args);
+                Assert.fail("Should have thrown " + IllegalArgumentException.class);
+            }
+            catch (IllegalArgumentException e)
+            {
+                // expected, as from Method.invoke()
+            }
+        }
+
+        try
+        {
+            callable.call(new Object(),"msg-",42);
+            Assert.fail("Should have thrown " + IllegalArgumentException.class);
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected, as from Method.invoke()
+        }
+    }
+
+    @Test
+    public void testCallThrowsUnwrapped() throws Exception
+    {
+        Method method = Thrower.class.getMethod("fail",String.class);
+        CallableMethod callable = new CallableMethod(Thrower.class,method);
+
+        try
+        {
+            callable.call(new Thrower(),"boom");
+            Assert.fail("Should have thrown " + IllegalStateException.class);
+        }
+        catch (IllegalStateException e)
+        {
+            Assert.assertThat(e.getMessage(),is("boom"));
+        }
+    }
+}